@@ -24,7 +24,6 @@ package io.crate.data.join;
 
 import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccounting;
-import io.crate.breaker.RowCellsAccountingWithEstimators;
 import io.crate.data.BatchIterator;
 import io.crate.data.BatchIterators;
 import io.crate.data.InMemoryBatchIterator;
@@ -52,7 +51,6 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.infra.Blackhole;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
@@ -70,8 +68,6 @@ import static io.crate.window.NthValueFunctions.LAST_VALUE_NAME;
 @State(Scope.Benchmark)
 public class RowsBatchIteratorBenchmark {
 
-    private final RowCellsAccountingWithEstimators rowAccounting = new RowCellsAccountingWithEstimators(
-        Collections.singleton(DataTypes.INTEGER), RamAccounting.NO_ACCOUNTING, 0);
 
     // use materialize to not have shared row instances
     // this is done in the startup, otherwise the allocation costs will make up the majority of the benchmark.
@@ -162,12 +158,13 @@ public class RowsBatchIteratorBenchmark {
         BatchIterator<Row> leftJoin = new HashInnerJoinBatchIterator(
             InMemoryBatchIterator.of(oneThousandRows, SENTINEL, true),
             InMemoryBatchIterator.of(tenThousandRows, SENTINEL, true),
-            rowAccounting,
+            RamAccounting.NO_ACCOUNTING,
             new CombinedRow(1, 1),
             row -> Objects.equals(row.get(0), row.get(1)),
             row -> Objects.hash(row.get(0)),
             row -> Objects.hash(row.get(0)),
-            () -> 1000
+            () -> 1000,
+            List.of(DataTypes.INTEGER)
         );
         while (leftJoin.moveNext()) {
             blackhole.consume(leftJoin.currentElement().get(0));
@@ -179,7 +176,7 @@ public class RowsBatchIteratorBenchmark {
         BatchIterator<Row> leftJoin = new HashInnerJoinBatchIterator(
             InMemoryBatchIterator.of(oneThousandRows, SENTINEL, true),
             InMemoryBatchIterator.of(tenThousandRows, SENTINEL, true),
-            rowAccounting,
+            RamAccounting.NO_ACCOUNTING,
             new CombinedRow(1, 1),
             row -> Objects.equals(row.get(0), row.get(1)),
             row -> {
@@ -189,7 +186,8 @@ public class RowsBatchIteratorBenchmark {
                 return value < 500 ? value : (value % 100) + 500;
             },
             row -> (Integer) row.get(0) % 500,
-            () -> 1000
+            () -> 1000,
+            List.of(DataTypes.INTEGER)
         );
         while (leftJoin.moveNext()) {
             blackhole.consume(leftJoin.currentElement().get(0));
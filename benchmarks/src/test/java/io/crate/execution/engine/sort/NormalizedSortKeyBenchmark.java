@@ -0,0 +1,129 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.sort;
+
+import io.crate.data.BatchIterator;
+import io.crate.data.Bucket;
+import io.crate.data.CollectingBatchIterator;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collector;
+
+import static io.crate.data.SentinelRow.SENTINEL;
+
+/**
+ * Compares sorting rows by three columns (long, string, double) using the comparator based ordering against the
+ * normalized sort key.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class NormalizedSortKeyBenchmark {
+
+    private static final List<DataType<?>> TYPES = List.of(DataTypes.LONG, DataTypes.STRING, DataTypes.DOUBLE);
+    private static final int[] POSITIONS = new int[]{0, 1, 2};
+    private static final boolean[] REVERSE = new boolean[]{false, true, false};
+    private static final boolean[] NULLS_FIRST = new boolean[]{false, false, true};
+
+    @Param({"100", "100000"})
+    public int limit;
+
+    private final List<Input<?>> inputs = new ArrayList<>();
+    private final List<CollectExpression<Row, ?>> expressions = new ArrayList<>();
+    private final List<Row> rows = new ArrayList<>();
+
+    private Collector<Row, ?, Bucket> comparatorCollector;
+    private Collector<Row, ?, Bucket> sortKeyCollector;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < TYPES.size(); i++) {
+            InputCollectExpression input = new InputCollectExpression(i);
+            inputs.add(input);
+            expressions.add(input);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 1_000_000; i++) {
+            // few distinct values in the leading columns so that the later columns are compared as well
+            rows.add(new RowN(
+                (long) random.nextInt(100),
+                random.nextInt(10) == 0 ? null : "name-" + random.nextInt(50),
+                random.nextDouble()
+            ));
+        }
+        Comparator<Object[]> ordering = OrderingByPosition.arrayOrdering(POSITIONS, REVERSE, NULLS_FIRST);
+        comparatorCollector = new UnboundedSortingTopNCollector(
+            new IgnoreRowCellsAccounting(),
+            inputs,
+            expressions,
+            TYPES.size(),
+            ordering,
+            10_000,
+            limit,
+            0
+        );
+        sortKeyCollector = new UnboundedSortingTopNCollector(
+            new IgnoreRowCellsAccounting(),
+            inputs,
+            expressions,
+            TYPES.size(),
+            ordering,
+            10_000,
+            limit,
+            0,
+            NormalizedSortKey.create(TYPES, POSITIONS, REVERSE, NULLS_FIRST)
+        );
+    }
+
+    @Benchmark
+    public Object measureComparator() throws Exception {
+        BatchIterator<Row> it = new InMemoryBatchIterator<>(rows, SENTINEL, false);
+        return CollectingBatchIterator.newInstance(it, comparatorCollector).loadNextBatch().toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public Object measureNormalizedSortKey() throws Exception {
+        BatchIterator<Row> it = new InMemoryBatchIterator<>(rows, SENTINEL, false);
+        return CollectingBatchIterator.newInstance(it, sortKeyCollector).loadNextBatch().toCompletableFuture().join();
+    }
+}
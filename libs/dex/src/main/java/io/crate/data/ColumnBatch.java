@@ -0,0 +1,188 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.data;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * A block of rows stored column by column.
+ * <p>
+ * The cells are stored as received. Numeric columns can additionally be accessed as primitive vectors, which are
+ * converted once per batch and column. This allows vectorized expressions to evaluate all rows of a batch in tight
+ * loops instead of calling into {@link Input#value()} for each cell.
+ * </p>
+ */
+public final class ColumnBatch {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final int capacity;
+    private final Object[][] columns;
+    private final LongVector[] longVectors;
+    private final DoubleVector[] doubleVectors;
+    private final boolean[] longVectorLoaded;
+    private final boolean[] doubleVectorLoaded;
+    private int size = 0;
+
+    public ColumnBatch(int numColumns, int capacity) {
+        this.capacity = capacity;
+        this.columns = new Object[numColumns][capacity];
+        this.longVectors = new LongVector[numColumns];
+        this.doubleVectors = new DoubleVector[numColumns];
+        this.longVectorLoaded = new boolean[numColumns];
+        this.doubleVectorLoaded = new boolean[numColumns];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int numColumns() {
+        return columns.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Adds the cells of the row to the end of the batch.
+     */
+    public void add(Row row) {
+        assert size < capacity : "Must not add rows to a full batch";
+        for (int i = 0; i < columns.length; i++) {
+            columns[i][size] = row.get(i);
+        }
+        size++;
+    }
+
+    @Nullable
+    public Object get(int column, int position) {
+        return columns[column][position];
+    }
+
+    /**
+     * Removes all rows.
+     */
+    public void clear() {
+        size = 0;
+        Arrays.fill(longVectorLoaded, false);
+        Arrays.fill(doubleVectorLoaded, false);
+    }
+
+    /**
+     * Sets the number of rows of a batch whose vectors are filled directly,
+     * see {@link #writableLongVector(int)} and {@link #writableDoubleVector(int)}.
+     */
+    public void setSize(int size) {
+        assert size <= capacity : "size must not exceed the capacity";
+        this.size = size;
+    }
+
+    /**
+     * @return the long vector of a column, to be filled by the producer of the batch instead of adding rows.
+     *         The cells of the column are not available via {@link #get(int, int)}.
+     */
+    public LongVector writableLongVector(int column) {
+        LongVector vector = longVectors[column];
+        if (vector == null) {
+            vector = new LongVector(capacity);
+            longVectors[column] = vector;
+        }
+        longVectorLoaded[column] = true;
+        return vector;
+    }
+
+    /**
+     * @return the double vector of a column, to be filled by the producer of the batch instead of adding rows.
+     *         The cells of the column are not available via {@link #get(int, int)}.
+     */
+    public DoubleVector writableDoubleVector(int column) {
+        DoubleVector vector = doubleVectors[column];
+        if (vector == null) {
+            vector = new DoubleVector(capacity);
+            doubleVectors[column] = vector;
+        }
+        doubleVectorLoaded[column] = true;
+        return vector;
+    }
+
+    /**
+     * @return the values of a column containing {@link Number}s converted to long.
+     */
+    public LongVector longVector(int column) {
+        LongVector vector = longVectors[column];
+        if (vector == null) {
+            vector = new LongVector(capacity);
+            longVectors[column] = vector;
+        }
+        if (!longVectorLoaded[column]) {
+            Object[] cells = columns[column];
+            long[] values = vector.values();
+            boolean[] nulls = vector.nulls();
+            for (int i = 0; i < size; i++) {
+                Object cell = cells[i];
+                if (cell == null) {
+                    nulls[i] = true;
+                } else {
+                    nulls[i] = false;
+                    values[i] = ((Number) cell).longValue();
+                }
+            }
+            longVectorLoaded[column] = true;
+        }
+        return vector;
+    }
+
+    /**
+     * @return the values of a column containing {@link Number}s converted to double.
+     */
+    public DoubleVector doubleVector(int column) {
+        DoubleVector vector = doubleVectors[column];
+        if (vector == null) {
+            vector = new DoubleVector(capacity);
+            doubleVectors[column] = vector;
+        }
+        if (!doubleVectorLoaded[column]) {
+            Object[] cells = columns[column];
+            double[] values = vector.values();
+            boolean[] nulls = vector.nulls();
+            for (int i = 0; i < size; i++) {
+                Object cell = cells[i];
+                if (cell == null) {
+                    nulls[i] = true;
+                } else {
+                    nulls[i] = false;
+                    values[i] = ((Number) cell).doubleValue();
+                }
+            }
+            doubleVectorLoaded[column] = true;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.data;
+
+import io.crate.exceptions.Exceptions;
+
+import javax.annotation.Nullable;
+
+/**
+ * Base class for BatchIterators which buffer the rows of their source into a {@link ColumnBatch}
+ * and process all rows of the batch at once.
+ * <p>
+ * The batch is filled with as many rows as the source provides without loading a new batch,
+ * up to the capacity of the batch. {@link #process(ColumnBatch, int[])} selects the positions of the rows
+ * which are then emitted one by one.
+ * </p>
+ */
+public abstract class ColumnBatchingIterator extends MappedForwardingBatchIterator<Row, Row> {
+
+    private final BatchIterator<Row> source;
+    private final int capacity;
+
+    @Nullable
+    private ColumnBatch batch;
+    private int[] selection;
+    private int numSelected = 0;
+    private int cursor = -1;
+    @Nullable
+    private Throwable failure;
+
+    protected ColumnBatchingIterator(BatchIterator<Row> source, int capacity) {
+        this.source = source;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Processes all rows of the batch.
+     *
+     * @param selection to be filled with the positions of the rows to emit, in ascending order.
+     * @return the number of selected positions
+     */
+    protected abstract int process(ColumnBatch batch, int[] selection);
+
+    /**
+     * @return a row for the given position of the batch which has been processed last
+     */
+    protected abstract Row rowAt(ColumnBatch batch, int position);
+
+    /**
+     * Raises the failure once the rows selected by the current {@link #process(ColumnBatch, int[])} call
+     * have been consumed.
+     * <p>
+     * This allows to process the rows of a batch one by one after a failure
+     * and to fail at the row which caused it, like a row by row evaluation would.
+     * </p>
+     */
+    protected final void failAfterSelection(Throwable failure) {
+        this.failure = failure;
+    }
+
+    @Override
+    protected BatchIterator<Row> delegate() {
+        return source;
+    }
+
+    @Override
+    public Row currentElement() {
+        assert batch != null && cursor >= 0 && cursor < numSelected : "Iterator must be on a valid position";
+        return rowAt(batch, selection[cursor]);
+    }
+
+    @Override
+    public void moveToStart() {
+        source.moveToStart();
+        numSelected = 0;
+        cursor = -1;
+        failure = null;
+    }
+
+    @Override
+    public boolean moveNext() {
+        while (true) {
+            if (cursor + 1 < numSelected) {
+                cursor++;
+                return true;
+            }
+            if (failure != null) {
+                Exceptions.rethrowUnchecked(failure);
+            }
+            numSelected = 0;
+            cursor = -1;
+            if (!fillBatch()) {
+                return false;
+            }
+            numSelected = process(batch, selection);
+        }
+    }
+
+    private boolean fillBatch() {
+        if (batch != null) {
+            batch.clear();
+        }
+        while (source.moveNext()) {
+            Row row = source.currentElement();
+            if (batch == null) {
+                batch = new ColumnBatch(row.numColumns(), capacity);
+                selection = new int[capacity];
+            }
+            batch.add(row);
+            if (batch.isFull()) {
+                return true;
+            }
+        }
+        return batch != null && batch.size() > 0;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.data;
+
+import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.BatchSimulatingIterator;
+import io.crate.testing.TestingBatchIterators;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ColumnBatchingIteratorTest {
+
+    private static class EvenRows extends ColumnBatchingIterator {
+
+        private final RowN row = new RowN(1);
+
+        EvenRows(BatchIterator<Row> source, int capacity) {
+            super(source, capacity);
+        }
+
+        @Override
+        protected int process(ColumnBatch batch, int[] selection) {
+            LongVector values = batch.longVector(0);
+            int numSelected = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                if (!values.nulls()[i] && values.values()[i] % 2 == 0) {
+                    selection[numSelected++] = i;
+                }
+            }
+            return numSelected;
+        }
+
+        @Override
+        protected Row rowAt(ColumnBatch batch, int position) {
+            row.cells(new Object[] { batch.get(0, position) });
+            return row;
+        }
+    }
+
+    private static class FailingAtRow extends ColumnBatchingIterator {
+
+        private final RowN row = new RowN(1);
+        private final long failingValue;
+
+        FailingAtRow(BatchIterator<Row> source, int capacity, long failingValue) {
+            super(source, capacity);
+            this.failingValue = failingValue;
+        }
+
+        @Override
+        protected int process(ColumnBatch batch, int[] selection) {
+            LongVector values = batch.longVector(0);
+            for (int i = 0; i < batch.size(); i++) {
+                if (values.values()[i] == failingValue) {
+                    failAfterSelection(new IllegalArgumentException("failing value " + failingValue));
+                    return i;
+                }
+                selection[i] = i;
+            }
+            return batch.size();
+        }
+
+        @Override
+        protected Row rowAt(ColumnBatch batch, int position) {
+            row.cells(new Object[] { batch.get(0, position) });
+            return row;
+        }
+    }
+
+    private final List<Object[]> expectedResult = IntStream.iterate(0, l -> l + 2).limit(10).mapToObj(
+        l -> new Object[]{l}).collect(Collectors.toList());
+
+    @Test
+    public void test_batches_smaller_than_source() throws Exception {
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> new EvenRows(TestingBatchIterators.range(0, 20), 3));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void test_batches_larger_than_source() throws Exception {
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> new EvenRows(TestingBatchIterators.range(0, 20), ColumnBatch.DEFAULT_CAPACITY));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void test_source_with_multiple_batches() throws Exception {
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> new EvenRows(new BatchSimulatingIterator<>(TestingBatchIterators.range(0, 20), 4, 5, null), 3));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void test_failure_is_raised_after_the_selected_rows_are_consumed() throws Exception {
+        BatchIterator<Row> it = new FailingAtRow(TestingBatchIterators.range(0, 20), 8, 5);
+        List<Object> values = new ArrayList<>();
+        try {
+            while (it.moveNext()) {
+                values.add(it.currentElement().get(0));
+            }
+            fail("moveNext must raise the failure of the 6th row");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("failing value 5"));
+        }
+        assertThat(values, contains(0, 1, 2, 3, 4));
+
+        it.moveToStart();
+        assertThat(it.moveNext(), is(true));
+        assertThat(it.currentElement().get(0), is(0));
+    }
+}
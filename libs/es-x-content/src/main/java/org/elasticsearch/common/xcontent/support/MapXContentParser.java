@@ -0,0 +1,318 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.xcontent.support;
+
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentLocation;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parser which emits the tokens of an already parsed map, as if the map had been serialized to JSON and parsed.
+ * This avoids the serialization and tokenization of values for consumers like the document mappers which
+ * operate on the token stream.
+ * <p>
+ * Only maps for which {@link #canParse(Map)} returns true are supported, as for other values the tokens
+ * could differ from the tokens of the JSON representation.
+ */
+public class MapXContentParser extends AbstractXContentParser {
+
+    private final Map<String, Object> map;
+    private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+
+    private boolean closed = false;
+    private boolean started = false;
+    private Token currentToken;
+    private String currentName;
+    private Object currentValue;
+
+    private static final class Frame {
+
+        private final Iterator<?> iterator;
+        private final boolean isObject;
+        private final String name;
+
+        private Frame(Iterator<?> iterator, boolean isObject, String name) {
+            this.iterator = iterator;
+            this.isObject = isObject;
+            this.name = name;
+        }
+    }
+
+    public MapXContentParser(NamedXContentRegistry xContentRegistry,
+                             DeprecationHandler deprecationHandler,
+                             Map<String, Object> map) {
+        super(xContentRegistry, deprecationHandler);
+        this.map = map;
+    }
+
+    /**
+     * @return true if all values of the map are of a type which results in the same tokens as its JSON representation.
+     */
+    public static boolean canParse(Map<?, ?> map) {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!(entry.getKey() instanceof String) || !canParse(entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean canParse(Object value) {
+        if (value == null
+            || value instanceof String
+            || value instanceof Boolean
+            || value instanceof Integer
+            || value instanceof Long
+            || value instanceof Short
+            || value instanceof Byte) {
+            return true;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            // NaN and Infinity are written as strings
+            return Double.isFinite(((Number) value).doubleValue());
+        }
+        if (value instanceof Map) {
+            return canParse((Map<?, ?>) value);
+        }
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (!canParse(item)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public XContentType contentType() {
+        return XContentType.JSON;
+    }
+
+    @Override
+    public Token nextToken() throws IOException {
+        if (!started) {
+            started = true;
+            return startValue(map);
+        }
+        if (currentToken == Token.FIELD_NAME) {
+            return startValue(currentValue);
+        }
+        Frame frame = frames.peek();
+        if (frame == null) {
+            currentToken = null;
+            currentValue = null;
+            return null;
+        }
+        if (frame.iterator.hasNext()) {
+            if (frame.isObject) {
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) frame.iterator.next();
+                currentName = (String) entry.getKey();
+                currentValue = entry.getValue();
+                currentToken = Token.FIELD_NAME;
+                return currentToken;
+            }
+            return startValue(frame.iterator.next());
+        }
+        return endFrame();
+    }
+
+    private Token startValue(Object value) {
+        currentValue = value;
+        if (value instanceof Map) {
+            frames.push(new Frame(((Map<?, ?>) value).entrySet().iterator(), true, currentName));
+            currentToken = Token.START_OBJECT;
+        } else if (value instanceof List) {
+            frames.push(new Frame(((List<?>) value).iterator(), false, currentName));
+            currentToken = Token.START_ARRAY;
+        } else if (value == null) {
+            currentToken = Token.VALUE_NULL;
+        } else if (value instanceof String) {
+            currentToken = Token.VALUE_STRING;
+        } else if (value instanceof Boolean) {
+            currentToken = Token.VALUE_BOOLEAN;
+        } else if (value instanceof Number) {
+            currentToken = Token.VALUE_NUMBER;
+        } else {
+            throw new IllegalStateException("Unsupported value type: " + value.getClass().getName());
+        }
+        return currentToken;
+    }
+
+    private Token endFrame() {
+        Frame frame = frames.pop();
+        currentName = frame.name;
+        currentValue = null;
+        currentToken = frame.isObject ? Token.END_OBJECT : Token.END_ARRAY;
+        return currentToken;
+    }
+
+    @Override
+    public void skipChildren() throws IOException {
+        if (currentToken == Token.START_OBJECT || currentToken == Token.START_ARRAY) {
+            endFrame();
+        }
+    }
+
+    @Override
+    public Token currentToken() {
+        return currentToken;
+    }
+
+    @Override
+    public String currentName() throws IOException {
+        return currentName;
+    }
+
+    @Override
+    public String text() throws IOException {
+        if (currentToken == null) {
+            return null;
+        }
+        switch (currentToken) {
+            case FIELD_NAME:
+                return currentName;
+            case START_OBJECT:
+                return "{";
+            case END_OBJECT:
+                return "}";
+            case START_ARRAY:
+                return "[";
+            case END_ARRAY:
+                return "]";
+            default:
+                return String.valueOf(currentValue);
+        }
+    }
+
+    @Override
+    public CharBuffer charBuffer() throws IOException {
+        return CharBuffer.wrap(text());
+    }
+
+    @Override
+    public Object objectText() throws IOException {
+        if (currentToken == Token.VALUE_STRING
+            || currentToken == Token.VALUE_NUMBER
+            || currentToken == Token.VALUE_BOOLEAN
+            || currentToken == Token.VALUE_NULL) {
+            return currentValue;
+        }
+        return text();
+    }
+
+    @Override
+    public boolean hasTextCharacters() {
+        return false;
+    }
+
+    @Override
+    public char[] textCharacters() throws IOException {
+        return text().toCharArray();
+    }
+
+    @Override
+    public int textLength() throws IOException {
+        return text().length();
+    }
+
+    @Override
+    public int textOffset() throws IOException {
+        return 0;
+    }
+
+    @Override
+    public Number numberValue() throws IOException {
+        return (Number) currentValue;
+    }
+
+    @Override
+    public NumberType numberType() throws IOException {
+        Number number = (Number) currentValue;
+        if (number instanceof Long) {
+            return NumberType.LONG;
+        }
+        if (number instanceof Double || number instanceof Float) {
+            // The JSON parser reports all floating point numbers as double
+            return NumberType.DOUBLE;
+        }
+        return NumberType.INT;
+    }
+
+    @Override
+    public byte[] binaryValue() throws IOException {
+        return Base64.getDecoder().decode(text());
+    }
+
+    @Override
+    public XContentLocation getTokenLocation() {
+        return null;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+    }
+
+    @Override
+    protected boolean doBooleanValue() throws IOException {
+        return (Boolean) currentValue;
+    }
+
+    @Override
+    protected short doShortValue() throws IOException {
+        return numberValue().shortValue();
+    }
+
+    @Override
+    protected int doIntValue() throws IOException {
+        return numberValue().intValue();
+    }
+
+    @Override
+    protected long doLongValue() throws IOException {
+        return numberValue().longValue();
+    }
+
+    @Override
+    protected float doFloatValue() throws IOException {
+        return numberValue().floatValue();
+    }
+
+    @Override
+    protected double doDoubleValue() throws IOException {
+        return numberValue().doubleValue();
+    }
+}
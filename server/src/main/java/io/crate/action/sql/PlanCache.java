@@ -0,0 +1,321 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.action.sql;
+
+import io.crate.analyze.AnalyzedStatement;
+import io.crate.analyze.Relations;
+import io.crate.analyze.relations.AnalyzedRelation;
+import io.crate.expression.symbol.Function;
+import io.crate.expression.symbol.SymbolVisitors;
+import io.crate.metadata.SearchPath;
+import io.crate.planner.Plan;
+import io.crate.planner.optimizer.Rule;
+import io.crate.sql.tree.Statement;
+import io.crate.statistics.TableStats;
+import io.crate.types.DataType;
+import io.crate.user.User;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.common.settings.Setting;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A per node LRU cache of analyzed and planned SELECT statements.
+ * <p>
+ * Entries are keyed by the statement text, the parameter type hints and the session properties which influence
+ * analysis and planning (search path, user, hash join and optimizer rule settings).
+ * Parameter values are bound during execution, so a cached plan can be executed with different parameters.
+ * Plans of statements with non-deterministic functions are not cached, only their analysis is.
+ * <p>
+ * Entries are only valid for the {@link StateVersion} they were created with.
+ * Any metadata change (e.g. schema changes, new partitions, views or privileges), an update of the table statistics
+ * or a change of the minimum node version in the cluster invalidates all entries.
+ */
+public final class PlanCache {
+
+    public static final Setting<Integer> PLAN_CACHE_SIZE_SETTING = Setting.intSetting(
+        "node.sql.plan_cache.size",
+        1000,
+        0,
+        Setting.Property.NodeScope);
+
+    public static final PlanCache DISABLED = new PlanCache(0);
+
+    private final int maxSize;
+    private final Map<Key, Entry> entries;
+
+    public PlanCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    static boolean isCacheable(AnalyzedStatement analyzedStatement) {
+        return analyzedStatement instanceof AnalyzedRelation;
+    }
+
+    /**
+     * Planning may evaluate non-deterministic functions, e.g. {@code now()} in the where clause of a primary key
+     * lookup is normalized into a literal. A cached plan would keep using the value of the first execution.
+     */
+    private static boolean isPlanCacheable(AnalyzedStatement analyzedStatement) {
+        boolean[] nonDeterministic = new boolean[] { false };
+        Relations.traverseDeepSymbols(analyzedStatement, symbol -> {
+            if (!nonDeterministic[0]) {
+                nonDeterministic[0] = SymbolVisitors.any(
+                    s -> s instanceof Function && !((Function) s).isDeterministic(), symbol);
+            }
+        });
+        return !nonDeterministic[0];
+    }
+
+    @Nullable
+    Key key(String statement, List<DataType> paramTypes, SessionContext sessionContext) {
+        if (maxSize == 0) {
+            return null;
+        }
+        return new Key(
+            statement,
+            new ArrayList<>(paramTypes),
+            sessionContext.searchPath(),
+            sessionContext.sessionUser(),
+            sessionContext.isHashJoinEnabled(),
+            Set.copyOf(sessionContext.excludedOptimizerRules())
+        );
+    }
+
+    /**
+     * @return the entry for the key if it was created with the current state version, otherwise null
+     */
+    @Nullable
+    Entry get(@Nullable Key key, StateVersion stateVersion) {
+        if (key == null) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.stateVersion.equals(stateVersion)) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @return the cached plan if it has been created for the given analyzedStatement under the current state version
+     */
+    @Nullable
+    Plan getPlan(@Nullable Key key, AnalyzedStatement analyzedStatement, StateVersion stateVersion) {
+        Entry entry = get(key, stateVersion);
+        if (entry == null || entry.analyzedStatement != analyzedStatement) {
+            return null;
+        }
+        return entry.plan;
+    }
+
+    void put(@Nullable Key key, Entry entry) {
+        if (key == null) {
+            return;
+        }
+        assert isCacheable(entry.analyzedStatement) : "Only SELECT statements must be cached";
+        if (entry.plan != null && !entry.planCacheable) {
+            entry = entry.withPlan(null);
+        }
+        entries.put(key, entry);
+    }
+
+    /**
+     * Adds the plan to an existing entry with the same analyzedStatement.
+     * Nothing is cached if the entry has been evicted, if the state version changed since the statement was analyzed
+     * or if the plan of the statement must not be cached.
+     */
+    void putPlan(@Nullable Key key, AnalyzedStatement analyzedStatement, Plan plan, StateVersion stateVersion) {
+        Entry entry = get(key, stateVersion);
+        if (entry == null
+            || entry.analyzedStatement != analyzedStatement
+            || entry.plan != null
+            || !entry.planCacheable) {
+            return;
+        }
+        entries.replace(key, entry, entry.withPlan(plan));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    static final class Key {
+
+        private final String statement;
+        private final List<DataType> paramTypes;
+        private final SearchPath searchPath;
+        private final User user;
+        private final boolean hashJoinEnabled;
+        private final Set<Class<? extends Rule<?>>> excludedOptimizerRules;
+
+        private Key(String statement,
+                    List<DataType> paramTypes,
+                    SearchPath searchPath,
+                    User user,
+                    boolean hashJoinEnabled,
+                    Set<Class<? extends Rule<?>>> excludedOptimizerRules) {
+            this.statement = statement;
+            this.paramTypes = paramTypes;
+            this.searchPath = searchPath;
+            this.user = user;
+            this.hashJoinEnabled = hashJoinEnabled;
+            this.excludedOptimizerRules = excludedOptimizerRules;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hashJoinEnabled == key.hashJoinEnabled &&
+                   statement.equals(key.statement) &&
+                   paramTypes.equals(key.paramTypes) &&
+                   searchPath.equals(key.searchPath) &&
+                   user.equals(key.user) &&
+                   excludedOptimizerRules.equals(key.excludedOptimizerRules);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(statement, paramTypes, searchPath, user, hashJoinEnabled, excludedOptimizerRules);
+        }
+    }
+
+    /**
+     * The versions of the inputs of analysis and planning which aren't part of the {@link Key}.
+     */
+    static final class StateVersion {
+
+        private final long metadataVersion;
+        private final Version minNodeVersion;
+        private final long tableStatsVersion;
+
+        private StateVersion(long metadataVersion, Version minNodeVersion, long tableStatsVersion) {
+            this.metadataVersion = metadataVersion;
+            this.minNodeVersion = minNodeVersion;
+            this.tableStatsVersion = tableStatsVersion;
+        }
+
+        static StateVersion of(ClusterState clusterState, TableStats tableStats) {
+            return new StateVersion(
+                clusterState.metadata().version(),
+                clusterState.nodes().getMinNodeVersion(),
+                tableStats.version()
+            );
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            StateVersion that = (StateVersion) o;
+            return metadataVersion == that.metadataVersion &&
+                   tableStatsVersion == that.tableStatsVersion &&
+                   minNodeVersion.equals(that.minNodeVersion);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(metadataVersion, minNodeVersion, tableStatsVersion);
+        }
+    }
+
+    static final class Entry {
+
+        final Statement parsedStatement;
+        final AnalyzedStatement analyzedStatement;
+        @Nullable
+        final DataType[] parameterTypes;
+        final StateVersion stateVersion;
+        @Nullable
+        final Plan plan;
+        final boolean planCacheable;
+
+        /**
+         * @param parameterTypes  the parameter types for the ParameterDescription of prepared statements,
+         *                        null if the statement was not prepared
+         * @param stateVersion    the state version used to analyze the statement
+         */
+        Entry(Statement parsedStatement,
+              AnalyzedStatement analyzedStatement,
+              @Nullable DataType[] parameterTypes,
+              StateVersion stateVersion,
+              @Nullable Plan plan) {
+            this(parsedStatement,
+                 analyzedStatement,
+                 parameterTypes,
+                 stateVersion,
+                 plan,
+                 isPlanCacheable(analyzedStatement));
+        }
+
+        private Entry(Statement parsedStatement,
+                      AnalyzedStatement analyzedStatement,
+                      @Nullable DataType[] parameterTypes,
+                      StateVersion stateVersion,
+                      @Nullable Plan plan,
+                      boolean planCacheable) {
+            this.parsedStatement = parsedStatement;
+            this.analyzedStatement = analyzedStatement;
+            this.parameterTypes = parameterTypes;
+            this.stateVersion = stateVersion;
+            this.plan = plan;
+            this.planCacheable = planCacheable;
+        }
+
+        Entry withPlan(@Nullable Plan plan) {
+            return new Entry(parsedStatement, analyzedStatement, parameterTypes, stateVersion, plan, planCacheable);
+        }
+    }
+}
@@ -27,21 +27,27 @@ import io.crate.analyze.ParamTypeHints;
 import io.crate.sql.tree.Statement;
 import io.crate.types.DataType;
 
+import javax.annotation.Nullable;
+
 public class PreparedStmt {
 
     private final AnalyzedStatement analyzedStatement;
     private final Statement parsedStatement;
     private final String rawStatement;
     private final DataType[] describedParameterTypes;
+    @Nullable
+    private final PlanCache.Key planCacheKey;
 
     PreparedStmt(Statement parsedStatement,
                  AnalyzedStatement analyzedStatement,
                  String query,
-                 DataType[] parameterTypes) {
+                 DataType[] parameterTypes,
+                 @Nullable PlanCache.Key planCacheKey) {
         this.parsedStatement = parsedStatement;
         this.analyzedStatement = analyzedStatement;
         this.rawStatement = query;
         this.describedParameterTypes = parameterTypes;
+        this.planCacheKey = planCacheKey;
     }
 
     public AnalyzedStatement analyzedStatement() {
@@ -53,6 +59,14 @@ public class PreparedStmt {
         return parsedStatement;
     }
 
+    /**
+     * @return the key of the statement within the {@link PlanCache} or null if the statement is not cached
+     */
+    @Nullable
+    PlanCache.Key planCacheKey() {
+        return planCacheKey;
+    }
+
     DataType[] parameterTypes() {
         return describedParameterTypes;
     }
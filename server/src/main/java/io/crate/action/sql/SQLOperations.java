@@ -56,6 +56,7 @@ public class SQLOperations {
     private final ClusterService clusterService;
     private final UserManager userManager;
     private final boolean isReadOnly;
+    private final PlanCache planCache;
     private volatile boolean disabled;
 
     @Inject
@@ -75,6 +76,7 @@ public class SQLOperations {
         this.clusterService = clusterService;
         this.userManager = userManagerProvider.get();
         this.isReadOnly = NODE_READ_ONLY_SETTING.get(settings);
+        this.planCache = new PlanCache(PlanCache.PLAN_CACHE_SIZE_SETTING.get(settings));
     }
 
     private Session createSession(SessionContext sessionContext) {
@@ -89,7 +91,8 @@ public class SQLOperations {
             isReadOnly,
             executorProvider.get(),
             userManager.getAccessControl(sessionContext),
-            sessionContext);
+            sessionContext,
+            planCache);
     }
 
     public Session newSystemSession() {
@@ -142,6 +142,7 @@ public class Session implements AutoCloseable {
     private final JobsLogs jobsLogs;
     private final boolean isReadOnly;
     private final ParameterTypeExtractor parameterTypeExtractor;
+    private final PlanCache planCache;
 
     private TransactionState currentTransactionState = TransactionState.IDLE;
 
@@ -153,6 +154,26 @@ public class Session implements AutoCloseable {
                    DependencyCarrier executor,
                    AccessControl accessControl,
                    SessionContext sessionContext) {
+        this(nodeCtx,
+             analyzer,
+             planner,
+             jobsLogs,
+             isReadOnly,
+             executor,
+             accessControl,
+             sessionContext,
+             PlanCache.DISABLED);
+    }
+
+    public Session(NodeContext nodeCtx,
+                   Analyzer analyzer,
+                   Planner planner,
+                   JobsLogs jobsLogs,
+                   boolean isReadOnly,
+                   DependencyCarrier executor,
+                   AccessControl accessControl,
+                   SessionContext sessionContext,
+                   PlanCache planCache) {
         this.nodeCtx = nodeCtx;
         this.analyzer = analyzer;
         this.planner = planner;
@@ -162,6 +183,7 @@ public class Session implements AutoCloseable {
         this.accessControl = accessControl;
         this.sessionContext = sessionContext;
         this.parameterTypeExtractor = new ParameterTypeExtractor();
+        this.planCache = planCache;
     }
 
     /**
@@ -180,11 +202,21 @@ public class Session implements AutoCloseable {
      */
     public void quickExec(String statement, Function<String, Statement> parse, ResultReceiver<?> resultReceiver, Row params) {
         CoordinatorTxnCtx txnCtx = new CoordinatorTxnCtx(sessionContext);
-        Statement parsedStmt = parse.apply(statement);
-        AnalyzedStatement analyzedStatement = analyzer.analyze(parsedStmt, sessionContext, ParamTypeHints.EMPTY);
+        ClusterState clusterState = planner.currentClusterState();
+        PlanCache.StateVersion stateVersion = PlanCache.StateVersion.of(clusterState, planner.tableStats());
+        PlanCache.Key cacheKey = planCache.key(statement, List.of(), sessionContext);
+        PlanCache.Entry cacheEntry = planCache.get(cacheKey, stateVersion);
+        Statement parsedStmt;
+        AnalyzedStatement analyzedStatement;
+        if (cacheEntry == null) {
+            parsedStmt = parse.apply(statement);
+            analyzedStatement = analyzer.analyze(parsedStmt, sessionContext, ParamTypeHints.EMPTY);
+        } else {
+            parsedStmt = cacheEntry.parsedStatement;
+            analyzedStatement = cacheEntry.analyzedStatement;
+        }
         RoutingProvider routingProvider = new RoutingProvider(Randomness.get().nextInt(), planner.getAwarenessAttributes());
         UUID jobId = UUID.randomUUID();
-        ClusterState clusterState = planner.currentClusterState();
         PlannerContext plannerContext = new PlannerContext(
             clusterState,
             routingProvider,
@@ -194,12 +226,21 @@ public class Session implements AutoCloseable {
             0,
             params
         );
-        Plan plan;
-        try {
-            plan = planner.plan(analyzedStatement, plannerContext);
-        } catch (Throwable t) {
-            jobsLogs.logPreExecutionFailure(jobId, statement, SQLExceptions.messageOf(t), sessionContext.sessionUser());
-            throw t;
+        Plan plan = cacheEntry == null ? null : cacheEntry.plan;
+        if (plan == null) {
+            try {
+                plan = planner.plan(analyzedStatement, plannerContext);
+            } catch (Throwable t) {
+                jobsLogs.logPreExecutionFailure(jobId, statement, SQLExceptions.messageOf(t), sessionContext.sessionUser());
+                throw t;
+            }
+            if (cacheEntry != null) {
+                planCache.putPlan(cacheKey, analyzedStatement, plan, stateVersion);
+            } else if (PlanCache.isCacheable(analyzedStatement)) {
+                planCache.put(
+                    cacheKey,
+                    new PlanCache.Entry(parsedStmt, analyzedStatement, null, stateVersion, plan));
+            }
         }
 
         StatementClassifier.Classification classification = StatementClassifier.classify(plan);
@@ -265,6 +306,21 @@ public class Session implements AutoCloseable {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("method=parse stmtName={} query={} paramTypes={}", statementName, query, paramTypes);
         }
+        PlanCache.StateVersion stateVersion = PlanCache.StateVersion.of(
+            planner.currentClusterState(), planner.tableStats());
+        PlanCache.Key cacheKey = planCache.key(query, paramTypes, sessionContext);
+        PlanCache.Entry cacheEntry = planCache.get(cacheKey, stateVersion);
+        if (cacheEntry != null && cacheEntry.parameterTypes != null) {
+            preparedStatements.put(
+                statementName,
+                new PreparedStmt(
+                    cacheEntry.parsedStatement,
+                    cacheEntry.analyzedStatement,
+                    query,
+                    cacheEntry.parameterTypes,
+                    cacheKey));
+            return;
+        }
 
         Statement statement;
         try {
@@ -297,9 +353,16 @@ public class Session implements AutoCloseable {
                 sessionContext.sessionUser());
             throw t;
         }
+        if (PlanCache.isCacheable(analyzedStatement)) {
+            planCache.put(
+                cacheKey,
+                new PlanCache.Entry(statement, analyzedStatement, parameterTypes, stateVersion, null));
+        } else {
+            cacheKey = null;
+        }
         preparedStatements.put(
             statementName,
-            new PreparedStmt(statement, analyzedStatement, query, parameterTypes));
+            new PreparedStmt(statement, analyzedStatement, query, parameterTypes, cacheKey));
     }
 
     public void bind(String portalName,
@@ -424,7 +487,7 @@ public class Session implements AutoCloseable {
             resultReceiver.allFinished(false);
         } else if (analyzedStmt instanceof AnalyzedDiscard) {
             AnalyzedDiscard discard = (AnalyzedDiscard) analyzedStmt;
-            // We don't cache plans, don't have sequences or temporary tables
+            // Plans are cached per node and not per session, we don't have sequences or temporary tables
             // See https://www.postgresql.org/docs/current/sql-discard.html
             if (discard.target() == Target.ALL) {
                 close();
@@ -622,12 +685,17 @@ public class Session implements AutoCloseable {
             jobsLogs.logPreExecutionFailure(jobId, rawStatement, errorMsg, sessionContext.sessionUser());
             throw new IllegalStateException(errorMsg);
         }
-        Plan plan;
-        try {
-            plan = planner.plan(analyzedStmt, plannerContext);
-        } catch (Throwable t) {
-            jobsLogs.logPreExecutionFailure(jobId, rawStatement, SQLExceptions.messageOf(t), sessionContext.sessionUser());
-            throw t;
+        PlanCache.Key cacheKey = portal.preparedStmt().planCacheKey();
+        PlanCache.StateVersion stateVersion = PlanCache.StateVersion.of(clusterState, planner.tableStats());
+        Plan plan = planCache.getPlan(cacheKey, analyzedStmt, stateVersion);
+        if (plan == null) {
+            try {
+                plan = planner.plan(analyzedStmt, plannerContext);
+            } catch (Throwable t) {
+                jobsLogs.logPreExecutionFailure(jobId, rawStatement, SQLExceptions.messageOf(t), sessionContext.sessionUser());
+                throw t;
+            }
+            planCache.putPlan(cacheKey, analyzedStmt, plan, stateVersion);
         }
         if (!analyzedStmt.isWriteOperation()) {
             resultReceiver = new RetryOnFailureResultReceiver(
@@ -74,7 +74,8 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
 
     public enum InputFormat {
         JSON,
-        CSV
+        CSV,
+        COLUMNAR
     }
 
     public Symbol targetUri() {
@@ -145,6 +146,11 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
             out.writeString(node);
         }
         Symbols.toStream(toCollect, out);
+        if (inputFormat == InputFormat.COLUMNAR && out.getVersion().before(Version.V_4_5_0)) {
+            // Older nodes don't know the ordinal
+            throw new UnsupportedOperationException(
+                "The columnar input format is not supported by nodes before version 4.5.0");
+        }
         out.writeVInt(inputFormat.ordinal());
         if (out.getVersion().onOrAfter(Version.V_4_4_0)) {
             parserProperties.writeTo(out);
@@ -28,6 +28,7 @@ import io.crate.expression.symbol.Symbols;
 import io.crate.planner.node.dql.join.JoinType;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 
@@ -43,6 +44,8 @@ public class HashJoinPhase extends JoinPhase {
     private final List<Symbol> rightJoinConditionInputs;
 
     private final Collection<DataType<?>> leftOutputTypes;
+    @Nullable
+    private final Collection<DataType<?>> rightOutputTypes;
     private final long estimatedRowSizeForLeft;
     private final long numberOfRowsForLeft;
 
@@ -59,6 +62,7 @@ public class HashJoinPhase extends JoinPhase {
                          List<Symbol> leftJoinConditionInputs,
                          List<Symbol> rightJoinConditionInputs,
                          Collection<DataType<?>> leftOutputTypes,
+                         @Nullable Collection<DataType<?>> rightOutputTypes,
                          long estimatedRowSizeForLeft,
                          long numberOfRowsForLeft) {
         super(
@@ -77,6 +81,7 @@ public class HashJoinPhase extends JoinPhase {
         this.leftJoinConditionInputs = leftJoinConditionInputs;
         this.rightJoinConditionInputs = rightJoinConditionInputs;
         this.leftOutputTypes = leftOutputTypes;
+        this.rightOutputTypes = rightOutputTypes;
         this.estimatedRowSizeForLeft = estimatedRowSizeForLeft;
         this.numberOfRowsForLeft = numberOfRowsForLeft;
     }
@@ -90,6 +95,11 @@ public class HashJoinPhase extends JoinPhase {
 
         estimatedRowSizeForLeft = in.readZLong();
         numberOfRowsForLeft = in.readZLong();
+        if (in.getVersion().onOrAfter(Version.V_4_5_0) && in.readBoolean()) {
+            rightOutputTypes = DataTypes.listFromStream(in);
+        } else {
+            rightOutputTypes = null;
+        }
     }
 
     @Override
@@ -102,6 +112,12 @@ public class HashJoinPhase extends JoinPhase {
 
         out.writeZLong(estimatedRowSizeForLeft);
         out.writeZLong(numberOfRowsForLeft);
+        if (out.getVersion().onOrAfter(Version.V_4_5_0)) {
+            out.writeBoolean(rightOutputTypes != null);
+            if (rightOutputTypes != null) {
+                DataTypes.toStream(rightOutputTypes, out);
+            }
+        }
     }
 
     @Override
@@ -126,6 +142,15 @@ public class HashJoinPhase extends JoinPhase {
         return leftOutputTypes;
     }
 
+    /**
+     * @return the types of the right side or null if the phase was created by a node that doesn't provide them.
+     *         The right types are required to spill the right side to disk.
+     */
+    @Nullable
+    public Collection<DataType<?>> rightOutputTypes() {
+        return rightOutputTypes;
+    }
+
     public long estimatedRowSizeForLeft() {
         return estimatedRowSizeForLeft;
     }
@@ -37,6 +37,7 @@ import io.crate.metadata.sys.SysShardsTableInfo;
 import io.crate.types.DataTypes;
 import io.crate.types.IntegerType;
 import io.crate.types.StringType;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 
@@ -76,11 +77,17 @@ public class WriterProjection extends Projection {
     );
 
 
-    public static final Symbol DIRECTORY_TO_FILENAME = new Function(
-        FormatFunction.SIGNATURE,
-        List.of(Literal.of("%s_%s_%s.json"), TABLE_NAME_REF, SHARD_ID_REF, PARTITION_IDENT_REF),
-        DataTypes.STRING
-    );
+    public static final Symbol DIRECTORY_TO_FILENAME = directoryToFilename("json");
+
+    public static final Symbol DIRECTORY_TO_COLUMNAR_FILENAME = directoryToFilename("cols");
+
+    private static Symbol directoryToFilename(String extension) {
+        return new Function(
+            FormatFunction.SIGNATURE,
+            List.of(Literal.of("%s_%s_%s." + extension), TABLE_NAME_REF, SHARD_ID_REF, PARTITION_IDENT_REF),
+            DataTypes.STRING
+        );
+    }
 
     private final Symbol uri;
     private final List<Symbol> inputs;
@@ -98,7 +105,8 @@ public class WriterProjection extends Projection {
 
     public enum OutputFormat {
         JSON_OBJECT,
-        JSON_ARRAY
+        JSON_ARRAY,
+        COLUMNAR
     }
 
     private final CompressionType compressionType;
@@ -207,6 +215,11 @@ public class WriterProjection extends Projection {
             Symbols.toStream(entry.getValue(), out);
         }
         out.writeInt(compressionType != null ? compressionType.ordinal() : -1);
+        if (outputFormat == OutputFormat.COLUMNAR && out.getVersion().before(Version.V_4_5_0)) {
+            // Older nodes don't know the ordinal
+            throw new UnsupportedOperationException(
+                "The columnar output format is not supported by nodes before version 4.5.0");
+        }
         out.writeInt(outputFormat.ordinal());
     }
 
@@ -107,6 +107,16 @@ public abstract class AggregationFunction<TPartial, TFinal> implements FunctionI
         return false;
     }
 
+    /**
+     * Indicates if {@link #iterate} and {@link #reduce} never modify a given state, but always return
+     * either a new state or one of the given states.
+     * This allows states to be shared between several aggregates, e.g. in a segment tree to evaluate
+     * sliding window frames without re-aggregating all rows of each frame.
+     */
+    public boolean hasImmutableState() {
+        return false;
+    }
+
     public TPartial removeFromAggregatedState(RamAccounting ramAccounting,
                                               TPartial previousAggState,
                                               Input[] stateToRemove) {
@@ -114,6 +124,15 @@ public abstract class AggregationFunction<TPartial, TFinal> implements FunctionI
                                                 "not removable cumulative");
     }
 
+    /**
+     * @return an aggregator which stores the state in a fixed number of bytes,
+     *         or null if the state of this aggregation doesn't have a fixed size.
+     */
+    @Nullable
+    public FixedWidthAggregator<TPartial> getFixedWidthAggregator() {
+        return null;
+    }
+
     @Nullable
     public DocValueAggregator<?> getDocValueAggregator(List<DataType<?>> argumentTypes, List<MappedFieldType> fieldTypes) {
         return null;
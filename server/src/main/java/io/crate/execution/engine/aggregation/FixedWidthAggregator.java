@@ -0,0 +1,51 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.data.Input;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Aggregator which stores its state in a fixed number of bytes within a {@link ByteBuf}
+ * instead of using a state object.
+ * This allows to store the states of many groups next to each other in a few large pages,
+ * see {@link PagedGroupingCollector}.
+ *
+ * @param <T> the type of the partial state as it is used by the {@link AggregationFunction}
+ */
+public interface FixedWidthAggregator<T> {
+
+    /**
+     * @return the number of bytes required to store a state
+     */
+    public int stateSize();
+
+    public void initialState(ByteBuf buffer, int offset);
+
+    public void iterate(ByteBuf buffer, int offset, Input<?>... args);
+
+    /**
+     * @return the state in the form of the partial state of the {@link AggregationFunction}
+     */
+    public T partialState(ByteBuf buffer, int offset);
+}
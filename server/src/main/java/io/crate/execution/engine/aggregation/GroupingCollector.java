@@ -23,13 +23,18 @@
 package io.crate.execution.engine.aggregation;
 
 import com.google.common.collect.Iterables;
+import io.crate.Streamer;
+import io.crate.breaker.BlockBasedRamAccounting;
 import io.crate.breaker.MultiSizeEstimator;
 import io.crate.breaker.RamAccounting;
+import io.crate.breaker.SizeEstimator;
 import io.crate.breaker.SizeEstimatorFactory;
+import io.crate.data.CloseableIterator;
 import io.crate.data.Input;
 import io.crate.data.Row;
 import io.crate.data.RowN;
 import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.spill.SpillFile;
 import io.crate.expression.InputCondition;
 import io.crate.expression.symbol.AggregateMode;
 import io.crate.memory.MemoryManager;
@@ -37,7 +42,9 @@ import io.crate.types.DataType;
 import org.elasticsearch.Version;
 
 import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -47,15 +54,40 @@ import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collector;
 
 /**
  * Collector implementation which uses {@link AggregateMode}s and {@code keyInputs}
  * to group rows by key and aggregate the grouped values.
+ * <p>
+ * If a spill directory is provided the collector switches to an external aggregation once the memory accounted
+ * for its groups exceeds {@code spillThresholdInBytes}:
+ * <pre>
+ *     - The keys and partial states of all groups are written into {@link #NUM_SPILL_PARTITIONS} partition files,
+ *       the partition is chosen based on the hash of the key.
+ *     - The in-memory groups are cleared and the aggregation continues.
+ *     - Once all rows are consumed, each partition is loaded and its states are merged using
+ *       {@link AggregationFunction#reduce(RamAccounting, Object, Object)}.
+ * </pre>
+ * A group is contained in exactly one partition, so each partition can be merged and emitted on its own.
+ * The spill files are deleted on {@link #close()}.
+ * <p>
+ * The memory of the groups is accounted in a child accounting of the given {@link RamAccounting}, which is shared
+ * with other operations of the phase. Spilling only releases the bytes of the spilled groups.
+ * <p>
+ * An instance must only be used for a single collect operation if spilling is enabled.
  *
  * @param <K> type of the key
  */
-public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, Iterable<Row>> {
+public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, Iterable<Row>>, AutoCloseable {
+
+    static final int NUM_SPILL_PARTITIONS = 32;
+
+    /**
+     * Block size used to reserve memory of the groups from the phase accounting if spilling is enabled
+     */
+    private static final int GROUPS_ACCOUNTING_BLOCK_SIZE = 64 * 1024;
 
     private final CollectExpression<Row, ?>[] expressions;
     private final AggregationFunction[] aggregations;
@@ -68,10 +100,19 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
     private final int numKeyColumns;
     private final BiConsumer<Map<K, Object[]>, K> accountForNewEntry;
     private final Function<Row, K> keyExtractor;
+    private final UnaryOperator<K> keyToStore;
     private final Version indexVersionCreated;
     private final BiConsumer<Map<K, Object[]>, Row> accumulator;
     private final Supplier<Map<K, Object[]>> supplier;
     private final Version minNodeVersion;
+    private final Function<Row, K> keyFromRow;
+    @Nullable
+    private final Path spillDirectory;
+    private final long spillThresholdInBytes;
+    private final Streamer<?>[] spillStreamers;
+
+    @Nullable
+    private SpillFile[] spillPartitions;
 
     static GroupingCollector<Object> singleKey(CollectExpression<Row, ?>[] expressions,
                                                AggregateMode mode,
@@ -83,7 +124,10 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                                                Version minNodeVersion,
                                                Input<?> keyInput,
                                                DataType keyType,
-                                               Version indexVersionCreated) {
+                                               Version indexVersionCreated,
+                                               @Nullable Path spillDirectory,
+                                               long spillThresholdInBytes) {
+        ramAccounting = groupsAccounting(ramAccounting, spillDirectory);
         return new GroupingCollector<>(
             expressions,
             aggregations,
@@ -101,8 +145,13 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                 keyType
             ),
             row -> keyInput.value(),
+            UnaryOperator.identity(),
             indexVersionCreated,
-            GroupByMaps.mapForType(keyType)
+            GroupByMaps.mapForType(keyType),
+            List.of(keyType),
+            row -> row.get(0),
+            spillDirectory,
+            spillThresholdInBytes
         );
     }
 
@@ -116,7 +165,10 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                                                     Version minNodeVersion,
                                                     List<Input<?>> keyInputs,
                                                     List<? extends DataType> keyTypes,
-                                                    Version indexVersionCreated) {
+                                                    Version indexVersionCreated,
+                                                    @Nullable Path spillDirectory,
+                                                    long spillThresholdInBytes) {
+        ramAccountingContext = groupsAccounting(ramAccountingContext, spillDirectory);
         return new GroupingCollector<>(
             expressions,
             aggregations,
@@ -134,11 +186,81 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                 null
             ),
             row -> evalKeyInputs(keyInputs),
+            UnaryOperator.identity(),
+            indexVersionCreated,
+            HashMap::new,
+            keyTypes,
+            row -> keysFromRow(row, keyTypes.size()),
+            spillDirectory,
+            spillThresholdInBytes
+        );
+    }
+
+    /**
+     * Grouping on multiple fixed width keys which are packed into a {@link PackedKey}.
+     * A single key instance is re-used to look up the groups, so that no key needs to be allocated for rows
+     * of existing groups.
+     */
+    static GroupingCollector<PackedKey> packedKeys(CollectExpression<Row, ?>[] expressions,
+                                                   AggregateMode mode,
+                                                   AggregationFunction[] aggregations,
+                                                   Input[][] inputs,
+                                                   Input<Boolean>[] filters,
+                                                   RamAccounting ramAccounting,
+                                                   MemoryManager memoryManager,
+                                                   Version minNodeVersion,
+                                                   List<Input<?>> keyInputs,
+                                                   List<? extends DataType> keyTypes,
+                                                   PackedKey.Layout layout,
+                                                   Version indexVersionCreated,
+                                                   @Nullable Path spillDirectory,
+                                                   long spillThresholdInBytes) {
+        ramAccounting = groupsAccounting(ramAccounting, spillDirectory);
+        PackedKey lookupKey = layout.newKey();
+        long keySize = layout.keySize();
+        return new GroupingCollector<>(
+            expressions,
+            aggregations,
+            mode,
+            inputs,
+            filters,
+            ramAccounting,
+            memoryManager,
+            minNodeVersion,
+            layout::decode,
+            keyInputs.size(),
+            GroupByMaps.accountForNewEntry(
+                ramAccounting,
+                new SizeEstimator<>() {
+                    @Override
+                    public long estimateSize(@Nullable PackedKey value) {
+                        return keySize;
+                    }
+                },
+                null
+            ),
+            row -> layout.encode(lookupKey, keyInputs),
+            PackedKey::copy,
             indexVersionCreated,
-            HashMap::new
+            HashMap::new,
+            keyTypes,
+            layout::fromRow,
+            spillDirectory,
+            spillThresholdInBytes
         );
     }
 
+    /**
+     * If spilling is enabled the groups are accounted in a child of the phase accounting,
+     * so that spilling can release the bytes of the groups without affecting other operations of the phase.
+     */
+    private static RamAccounting groupsAccounting(RamAccounting ramAccounting, @Nullable Path spillDirectory) {
+        if (spillDirectory == null) {
+            return ramAccounting;
+        }
+        return new BlockBasedRamAccounting(ramAccounting::addBytes, GROUPS_ACCOUNTING_BLOCK_SIZE);
+    }
+
     private static List<Object> evalKeyInputs(List<Input<?>> keyInputs) {
         List<Object> key = new ArrayList<>(keyInputs.size());
         for (Input<?> keyInput : keyInputs) {
@@ -147,6 +269,14 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
         return key;
     }
 
+    private static List<Object> keysFromRow(Row row, int numKeys) {
+        List<Object> key = new ArrayList<>(numKeys);
+        for (int i = 0; i < numKeys; i++) {
+            key.add(row.get(i));
+        }
+        return key;
+    }
+
     private static void applyKeysToCells(List<Object> keys, Object[] cells) {
         for (int i = 0; i < keys.size(); i++) {
             cells[i] = keys.get(i);
@@ -165,8 +295,13 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                               int numKeyColumns,
                               BiConsumer<Map<K, Object[]>, K> accountForNewEntry,
                               Function<Row, K> keyExtractor,
+                              UnaryOperator<K> keyToStore,
                               Version indexVersionCreated,
-                              Supplier<Map<K, Object[]>> supplier) {
+                              Supplier<Map<K, Object[]>> supplier,
+                              List<? extends DataType> keyTypes,
+                              Function<Row, K> keyFromRow,
+                              @Nullable Path spillDirectory,
+                              long spillThresholdInBytes) {
         this.expressions = expressions;
         this.aggregations = aggregations;
         this.mode = mode;
@@ -178,10 +313,21 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
         this.numKeyColumns = numKeyColumns;
         this.accountForNewEntry = accountForNewEntry;
         this.keyExtractor = keyExtractor;
+        this.keyToStore = keyToStore;
         this.indexVersionCreated = indexVersionCreated;
         this.accumulator = mode == AggregateMode.PARTIAL_FINAL ? this::reduce : this::iter;
         this.supplier = supplier;
         this.minNodeVersion = minNodeVersion;
+        this.keyFromRow = keyFromRow;
+        this.spillDirectory = spillDirectory;
+        this.spillThresholdInBytes = spillThresholdInBytes;
+        this.spillStreamers = new Streamer[keyTypes.size() + aggregations.length];
+        for (int i = 0; i < keyTypes.size(); i++) {
+            spillStreamers[i] = keyTypes.get(i).streamer();
+        }
+        for (int i = 0; i < aggregations.length; i++) {
+            spillStreamers[keyTypes.size() + i] = aggregations[i].partialType().streamer();
+        }
     }
 
     @Override
@@ -203,7 +349,7 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
 
     @Override
     public Function<Map<K, Object[]>, Iterable<Row>> finisher() {
-        return this::mapToRows;
+        return this::finish;
     }
 
     @Override
@@ -228,11 +374,100 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                 states[i] = aggregations[i].reduce(ramAccounting, states[i], inputs[i][0].value());
             }
         }
+        maybeSpill(statesByKey);
     }
 
     private void addWithAccounting(Map<K, Object[]> statesByKey, K key, Object[] states) {
         accountForNewEntry.accept(statesByKey, key);
-        statesByKey.put(key, states);
+        statesByKey.put(keyToStore.apply(key), states);
+    }
+
+    private void maybeSpill(Map<K, Object[]> statesByKey) {
+        if (spillDirectory != null && ramAccounting.totalBytes() >= spillThresholdInBytes) {
+            spill(statesByKey);
+        }
+    }
+
+    private void spill(Map<K, Object[]> statesByKey) {
+        if (spillPartitions == null) {
+            spillPartitions = new SpillFile[NUM_SPILL_PARTITIONS];
+            for (int i = 0; i < spillPartitions.length; i++) {
+                spillPartitions[i] = SpillFile.create(spillDirectory, "group-by-", spillStreamers);
+            }
+        }
+        Object[] cells = new Object[numKeyColumns + aggregations.length];
+        for (Map.Entry<K, Object[]> entry : statesByKey.entrySet()) {
+            K key = entry.getKey();
+            applyKeyToCells.accept(key, cells);
+            System.arraycopy(entry.getValue(), 0, cells, numKeyColumns, aggregations.length);
+            spillPartitions[partitionIdx(key)].write(cells);
+        }
+        statesByKey.clear();
+        // Releases the memory of the in-memory groups, accounted by this collector only.
+        // States allocated via the MemoryManager are only freed once the operation finishes.
+        ramAccounting.release();
+    }
+
+    private static int partitionIdx(@Nullable Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        return (hash ^ (hash >>> 16)) & (NUM_SPILL_PARTITIONS - 1);
+    }
+
+    private Iterable<Row> finish(Map<K, Object[]> statesByKey) {
+        if (spillPartitions == null) {
+            return mapToRows(statesByKey);
+        }
+        spill(statesByKey);
+        for (SpillFile partition : spillPartitions) {
+            partition.finishWriting();
+        }
+        SpillFile[] partitions = spillPartitions;
+        return () -> Iterables.concat(
+            Iterables.transform(Arrays.asList(partitions), this::mergePartition)).iterator();
+    }
+
+    /**
+     * Loads all groups of a partition, merging the states of groups which have been spilled multiple times.
+     */
+    private Iterable<Row> mergePartition(SpillFile partition) {
+        ramAccounting.release();
+        Map<K, Object[]> statesByKey = supplier.get();
+        try (CloseableIterator<Row> rows = partition.rows()) {
+            while (rows.hasNext()) {
+                Row row = rows.next();
+                K key = keyFromRow.apply(row);
+                Object[] states = statesByKey.get(key);
+                if (states == null) {
+                    states = new Object[aggregations.length];
+                    for (int i = 0; i < aggregations.length; i++) {
+                        states[i] = row.get(numKeyColumns + i);
+                    }
+                    addWithAccounting(statesByKey, key, states);
+                } else {
+                    for (int i = 0; i < aggregations.length; i++) {
+                        //noinspection unchecked
+                        states[i] = aggregations[i].reduce(ramAccounting, states[i], row.get(numKeyColumns + i));
+                    }
+                }
+            }
+        }
+        return mapToRows(statesByKey);
+    }
+
+    /**
+     * Deletes the spill files, if any, and releases the memory accounted for the groups if spilling is enabled.
+     */
+    @Override
+    public void close() {
+        if (spillDirectory != null) {
+            ramAccounting.release();
+        }
+        if (spillPartitions != null) {
+            for (SpillFile partition : spillPartitions) {
+                partition.close();
+            }
+            spillPartitions = null;
+        }
     }
 
     private void iter(Map<K, Object[]> statesByKey, Row row) {
@@ -251,6 +486,7 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                 }
             }
         }
+        maybeSpill(statesByKey);
     }
 
     private void addNewEntry(Map<K, Object[]> statesByKey, K key) {
@@ -24,6 +24,7 @@ package io.crate.execution.engine.aggregation;
 
 import io.crate.breaker.RamAccounting;
 import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
 import io.crate.data.CollectingBatchIterator;
 import io.crate.data.Input;
 import io.crate.data.Projector;
@@ -37,6 +38,8 @@ import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import org.elasticsearch.Version;
 
+import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.stream.Collector;
 
@@ -46,7 +49,6 @@ public class GroupingProjector implements Projector {
 
     private final Collector<Row, ?, Iterable<Row>> collector;
 
-
     public GroupingProjector(List<? extends Symbol> keys,
                              List<Input<?>> keyInputs,
                              CollectExpression<Row, ?>[] collectExpressions,
@@ -55,7 +57,9 @@ public class GroupingProjector implements Projector {
                              RamAccounting ramAccounting,
                              MemoryManager memoryManager,
                              Version minNodeVersion,
-                             Version indexVersionCreated) {
+                             Version indexVersionCreated,
+                             @Nullable Path spillDirectory,
+                             long spillThresholdInBytes) {
         assert keys.size() == keyInputs.size() : "number of key types must match with number of key inputs";
         ensureAllTypesSupported(keys);
 
@@ -68,7 +72,21 @@ public class GroupingProjector implements Projector {
             inputs[i] = aggregation.inputs();
             filters[i] = aggregation.filter();
         }
-        if (keys.size() == 1) {
+        List<DataType<?>> keyTypes = typeView(keys);
+        PackedKey.Layout packedKeyLayout = keys.size() > 1 ? PackedKey.Layout.create(keyTypes) : null;
+        if (spillDirectory == null && PagedGroupingCollector.supports(mode, keyTypes, functions)) {
+            collector = new PagedGroupingCollector(
+                collectExpressions,
+                mode,
+                functions,
+                inputs,
+                filters,
+                ramAccounting,
+                memoryManager,
+                keyInputs.get(0),
+                keyTypes.get(0)
+            );
+        } else if (keys.size() == 1) {
             Symbol key = keys.get(0);
             collector = GroupingCollector.singleKey(
                 collectExpressions,
@@ -81,11 +99,29 @@ public class GroupingProjector implements Projector {
                 minNodeVersion,
                 keyInputs.get(0),
                 key.valueType(),
-                indexVersionCreated
+                indexVersionCreated,
+                spillDirectory,
+                spillThresholdInBytes
+            );
+        } else if (packedKeyLayout != null) {
+            collector = GroupingCollector.packedKeys(
+                collectExpressions,
+                mode,
+                functions,
+                inputs,
+                filters,
+                ramAccounting,
+                memoryManager,
+                minNodeVersion,
+                keyInputs,
+                keyTypes,
+                packedKeyLayout,
+                indexVersionCreated,
+                spillDirectory,
+                spillThresholdInBytes
             );
         } else {
-            //noinspection unchecked
-            collector = (GroupingCollector<Object>) (GroupingCollector) GroupingCollector.manyKeys(
+            collector = GroupingCollector.manyKeys(
                 collectExpressions,
                 mode,
                 functions,
@@ -95,8 +131,10 @@ public class GroupingProjector implements Projector {
                 memoryManager,
                 minNodeVersion,
                 keyInputs,
-                typeView(keys),
-                indexVersionCreated
+                keyTypes,
+                indexVersionCreated,
+                spillDirectory,
+                spillThresholdInBytes
             );
         }
     }
@@ -112,13 +150,31 @@ public class GroupingProjector implements Projector {
 
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
-        return CollectingBatchIterator.newInstance(batchIterator, collector);
+        return CollectingBatchIterator.newInstance(
+            () -> {
+                batchIterator.close();
+                close();
+            },
+            batchIterator::kill,
+            () -> BatchIterators.collect(batchIterator, collector),
+            batchIterator.hasLazyResultSet()
+        );
     }
 
     public Collector<Row, ?, Iterable<Row>> getCollector() {
         return collector;
     }
 
+    /**
+     * Releases resources held by the collector, like spill files.
+     * Must be called once the result of the collector has been consumed.
+     */
+    public void close() {
+        if (collector instanceof GroupingCollector) {
+            ((GroupingCollector<?>) collector).close();
+        }
+    }
+
     @Override
     public boolean providesIndependentScroll() {
         return true;
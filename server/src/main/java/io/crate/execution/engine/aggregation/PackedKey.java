@@ -0,0 +1,299 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.types.BooleanType;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.TimestampType;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Group key for multiple fixed width columns, which packs the values and a null bit per column into longs.
+ * <p>
+ * Lookups can re-use a single instance which is re-encoded for each row, see {@link Layout#encode(PackedKey, List)}.
+ * A {@link #copy()} is only required once a new group is added.
+ */
+public final class PackedKey {
+
+    private static final long SHALLOW_SIZE = RamUsageEstimator.shallowSizeOfInstance(PackedKey.class);
+
+    private final long[] words;
+    private int hash;
+
+    private PackedKey(long[] words) {
+        this.words = words;
+    }
+
+    public PackedKey copy() {
+        PackedKey copy = new PackedKey(words.clone());
+        copy.hash = hash;
+        return copy;
+    }
+
+    private void computeHash() {
+        int h = 1;
+        for (long word : words) {
+            long z = word * 0x9E3779B97F4A7C15L;
+            h = 31 * h + (int) (z ^ (z >>> 32));
+        }
+        hash = h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PackedKey that = (PackedKey) o;
+        return hash == that.hash && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "PackedKey{" + Arrays.toString(words) + '}';
+    }
+
+    /**
+     * The bit positions of the columns within the words of a key.
+     * A column never spans two words.
+     */
+    public static final class Layout {
+
+        private final DataType<?>[] types;
+        private final int[] bitOffsets;
+        private final int[] widths;
+        private final int nullBitsOffset;
+        private final int numWords;
+
+        /**
+         * @return the layout for the given key types or null if not all types have a fixed width.
+         */
+        @Nullable
+        public static Layout create(List<? extends DataType<?>> keyTypes) {
+            int[] widths = new int[keyTypes.size()];
+            for (int i = 0; i < widths.length; i++) {
+                int width = widthInBits(keyTypes.get(i));
+                if (width < 0) {
+                    return null;
+                }
+                widths[i] = width;
+            }
+            return new Layout(keyTypes.toArray(new DataType<?>[0]), widths);
+        }
+
+        private static int widthInBits(DataType<?> type) {
+            switch (type.id()) {
+                case BooleanType.ID:
+                    return 1;
+                case ByteType.ID:
+                    return Byte.SIZE;
+                case ShortType.ID:
+                    return Short.SIZE;
+                case IntegerType.ID:
+                case FloatType.ID:
+                    return Integer.SIZE;
+                case LongType.ID:
+                case DoubleType.ID:
+                case TimestampType.ID_WITH_TZ:
+                case TimestampType.ID_WITHOUT_TZ:
+                    return Long.SIZE;
+
+                default:
+                    return -1;
+            }
+        }
+
+        private Layout(DataType<?>[] types, int[] widths) {
+            this.types = types;
+            this.widths = widths;
+            this.bitOffsets = new int[types.length];
+            int bit = 0;
+            for (int i = 0; i < types.length; i++) {
+                if ((bit % Long.SIZE) + widths[i] > Long.SIZE) {
+                    bit = (bit / Long.SIZE + 1) * Long.SIZE;
+                }
+                bitOffsets[i] = bit;
+                bit += widths[i];
+            }
+            this.nullBitsOffset = bit;
+            bit += types.length;
+            this.numWords = (bit + Long.SIZE - 1) / Long.SIZE;
+        }
+
+        public PackedKey newKey() {
+            return new PackedKey(new long[numWords]);
+        }
+
+        /**
+         * @return the estimated size of a key in bytes
+         */
+        public long keySize() {
+            return SHALLOW_SIZE + RamUsageEstimator.alignObjectSize(
+                RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) Long.BYTES * numWords);
+        }
+
+        /**
+         * Encodes the values of the inputs into {@code key}, overriding its previous values.
+         */
+        public PackedKey encode(PackedKey key, List<Input<?>> inputs) {
+            Arrays.fill(key.words, 0L);
+            for (int i = 0; i < types.length; i++) {
+                set(key.words, i, inputs.get(i).value());
+            }
+            key.computeHash();
+            return key;
+        }
+
+        /**
+         * Creates a new key from the first columns of the row.
+         */
+        public PackedKey fromRow(Row row) {
+            PackedKey key = newKey();
+            for (int i = 0; i < types.length; i++) {
+                set(key.words, i, row.get(i));
+            }
+            key.computeHash();
+            return key;
+        }
+
+        /**
+         * Decodes the values of the key into the first columns of {@code cells}.
+         */
+        public void decode(PackedKey key, Object[] cells) {
+            long[] words = key.words;
+            for (int i = 0; i < types.length; i++) {
+                int nullBit = nullBitsOffset + i;
+                if ((words[nullBit / Long.SIZE] & (1L << (nullBit % Long.SIZE))) != 0) {
+                    cells[i] = null;
+                    continue;
+                }
+                int offset = bitOffsets[i];
+                long bits = words[offset / Long.SIZE] >>> (offset % Long.SIZE);
+                cells[i] = fromBits(types[i], bits);
+            }
+        }
+
+        /**
+         * Resets all columns of {@code key} to 0, to encode new values using {@link #setBits} and {@link #setNull}.
+         * Once all columns are set, the key must be completed using {@link #finish(PackedKey)}.
+         */
+        public void clear(PackedKey key) {
+            Arrays.fill(key.words, 0L);
+        }
+
+        /**
+         * Sets the raw bits of a column. Bits above the width of the column are ignored.
+         */
+        public void setBits(PackedKey key, int column, long bits) {
+            setBits(key.words, column, bits);
+        }
+
+        public void setNull(PackedKey key, int column) {
+            setNull(key.words, column);
+        }
+
+        public PackedKey finish(PackedKey key) {
+            key.computeHash();
+            return key;
+        }
+
+        private void set(long[] words, int column, @Nullable Object value) {
+            if (value == null) {
+                setNull(words, column);
+            } else {
+                setBits(words, column, toBits(types[column], value));
+            }
+        }
+
+        private void setNull(long[] words, int column) {
+            int nullBit = nullBitsOffset + column;
+            words[nullBit / Long.SIZE] |= 1L << (nullBit % Long.SIZE);
+        }
+
+        private void setBits(long[] words, int column, long bits) {
+            int width = widths[column];
+            if (width < Long.SIZE) {
+                bits &= (1L << width) - 1;
+            }
+            int offset = bitOffsets[column];
+            words[offset / Long.SIZE] |= bits << (offset % Long.SIZE);
+        }
+
+        private static long toBits(DataType<?> type, Object value) {
+            switch (type.id()) {
+                case BooleanType.ID:
+                    return ((Boolean) value) ? 1L : 0L;
+                case FloatType.ID:
+                    return Float.floatToIntBits(((Number) value).floatValue());
+                case DoubleType.ID:
+                    return Double.doubleToLongBits(((Number) value).doubleValue());
+
+                default:
+                    return ((Number) value).longValue();
+            }
+        }
+
+        /**
+         * Narrowing casts restore the sign of the values, the bits above the width of a column are ignored.
+         */
+        private static Object fromBits(DataType<?> type, long bits) {
+            switch (type.id()) {
+                case BooleanType.ID:
+                    return (bits & 1L) == 1L;
+                case ByteType.ID:
+                    return (byte) bits;
+                case ShortType.ID:
+                    return (short) bits;
+                case IntegerType.ID:
+                    return (int) bits;
+                case FloatType.ID:
+                    return Float.intBitsToFloat((int) bits);
+                case DoubleType.ID:
+                    return Double.longBitsToDouble(bits);
+
+                default:
+                    return bits;
+            }
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.breaker.RamAccounting;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.expression.InputCondition;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.memory.MemoryManager;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.TimestampType;
+import io.netty.buffer.ByteBuf;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Collector which groups rows by a single integral key and stores the keys and aggregation states
+ * in pages allocated via the {@link MemoryManager}, instead of using a map with a key object and
+ * state objects per group.
+ * <p>
+ * Each group is assigned a sequential id which addresses a fixed size slot within the pages:
+ * <pre>
+ *     | key (8 bytes) | state of aggregation 1 | ... | state of aggregation n |
+ * </pre>
+ * Only the hash table which maps keys to group ids is kept on the heap, in a single int array.
+ * With the {@code off-heap} memory allocation type the grouping doesn't create any objects per group,
+ * apart from the result rows.
+ * <p>
+ * This requires that all aggregations provide a {@link FixedWidthAggregator}, see {@link #supports}.
+ */
+public final class PagedGroupingCollector implements Collector<Row, PagedGroupingCollector.Groups, Iterable<Row>> {
+
+    static final int PAGE_SIZE = 64 * 1024;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int KEY_SIZE = Long.BYTES;
+
+    private final CollectExpression<Row, ?>[] expressions;
+    private final AggregateMode mode;
+    private final AggregationFunction[] functions;
+    private final FixedWidthAggregator[] aggregators;
+    private final Input[][] inputs;
+    private final Input<Boolean>[] filters;
+    private final RamAccounting ramAccounting;
+    private final MemoryManager memoryManager;
+    private final Input<?> keyInput;
+    private final DataType<?> keyType;
+    private final int[] stateOffsets;
+    private final int slotSize;
+    private final int slotsPerPage;
+
+    /**
+     * @return true if the group key and all aggregations can be stored in fixed size slots.
+     */
+    public static boolean supports(AggregateMode mode, List<? extends DataType<?>> keyTypes, AggregationFunction[] functions) {
+        if (mode == AggregateMode.PARTIAL_FINAL || keyTypes.size() != 1 || !isIntegral(keyTypes.get(0))) {
+            return false;
+        }
+        int slotSize = KEY_SIZE;
+        for (AggregationFunction function : functions) {
+            FixedWidthAggregator<?> aggregator = function.getFixedWidthAggregator();
+            if (aggregator == null) {
+                return false;
+            }
+            slotSize += aggregator.stateSize();
+        }
+        return slotSize <= PAGE_SIZE;
+    }
+
+    private static boolean isIntegral(DataType<?> type) {
+        switch (type.id()) {
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    public PagedGroupingCollector(CollectExpression<Row, ?>[] expressions,
+                                  AggregateMode mode,
+                                  AggregationFunction[] functions,
+                                  Input[][] inputs,
+                                  Input<Boolean>[] filters,
+                                  RamAccounting ramAccounting,
+                                  MemoryManager memoryManager,
+                                  Input<?> keyInput,
+                                  DataType<?> keyType) {
+        this.expressions = expressions;
+        this.mode = mode;
+        this.functions = functions;
+        this.inputs = inputs;
+        this.filters = filters;
+        this.ramAccounting = ramAccounting;
+        this.memoryManager = memoryManager;
+        this.keyInput = keyInput;
+        this.keyType = keyType;
+        this.aggregators = new FixedWidthAggregator[functions.length];
+        this.stateOffsets = new int[functions.length];
+        int offset = KEY_SIZE;
+        for (int i = 0; i < functions.length; i++) {
+            FixedWidthAggregator<?> aggregator = functions[i].getFixedWidthAggregator();
+            assert aggregator != null : "Aggregation must support fixed width states: " + functions[i];
+            aggregators[i] = aggregator;
+            stateOffsets[i] = offset;
+            offset += aggregator.stateSize();
+        }
+        this.slotSize = offset;
+        this.slotsPerPage = PAGE_SIZE / slotSize;
+    }
+
+    @Override
+    public Supplier<Groups> supplier() {
+        return Groups::new;
+    }
+
+    @Override
+    public BiConsumer<Groups, Row> accumulator() {
+        return this::iter;
+    }
+
+    @Override
+    public BinaryOperator<Groups> combiner() {
+        return (state1, state2) -> {
+            throw new UnsupportedOperationException("combine not supported");
+        };
+    }
+
+    @Override
+    public Function<Groups, Iterable<Row>> finisher() {
+        return groups -> groups::rows;
+    }
+
+    @Override
+    public Set<Characteristics> characteristics() {
+        return Collections.emptySet();
+    }
+
+    private void iter(Groups groups, Row row) {
+        for (CollectExpression<Row, ?> expression : expressions) {
+            expression.setNextRow(row);
+        }
+        int groupId = groups.groupId(keyInput.value());
+        ByteBuf page = groups.page(groupId);
+        int offset = groups.offset(groupId);
+        for (int i = 0; i < aggregators.length; i++) {
+            if (InputCondition.matches(filters[i])) {
+                //noinspection unchecked
+                aggregators[i].iterate(page, offset + stateOffsets[i], inputs[i]);
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public final class Groups {
+
+        private final List<ByteBuf> pages = new ArrayList<>();
+
+        /**
+         * Open addressing hash table containing {@code groupId + 1}; 0 marks an empty bucket.
+         */
+        private int[] table;
+        private int size = 0;
+        private int nullGroupId = -1;
+
+        Groups() {
+            table = new int[INITIAL_CAPACITY];
+            ramAccounting.addBytes((long) Integer.BYTES * table.length);
+        }
+
+        int groupId(@Nullable Object key) {
+            if (key == null) {
+                if (nullGroupId == -1) {
+                    nullGroupId = newGroup(0L);
+                }
+                return nullGroupId;
+            }
+            long value = ((Number) key).longValue();
+            int mask = table.length - 1;
+            int bucket = hash(value) & mask;
+            while (true) {
+                int entry = table[bucket];
+                if (entry == 0) {
+                    int groupId = newGroup(value);
+                    table[bucket] = groupId + 1;
+                    if (size > table.length - (table.length >>> 2)) {
+                        rehash();
+                    }
+                    return groupId;
+                }
+                int groupId = entry - 1;
+                if (page(groupId).getLong(offset(groupId)) == value) {
+                    return groupId;
+                }
+                bucket = (bucket + 1) & mask;
+            }
+        }
+
+        private int newGroup(long key) {
+            int groupId = size;
+            if (offset(groupId) == 0) {
+                pages.add(memoryManager.allocate(PAGE_SIZE));
+            }
+            size++;
+            ByteBuf page = page(groupId);
+            int offset = offset(groupId);
+            page.setLong(offset, key);
+            for (int i = 0; i < aggregators.length; i++) {
+                aggregators[i].initialState(page, offset + stateOffsets[i]);
+            }
+            return groupId;
+        }
+
+        private void rehash() {
+            int[] newTable = new int[table.length * 2];
+            ramAccounting.addBytes((long) Integer.BYTES * newTable.length);
+            int mask = newTable.length - 1;
+            for (int groupId = 0; groupId < size; groupId++) {
+                if (groupId == nullGroupId) {
+                    continue;
+                }
+                int bucket = hash(page(groupId).getLong(offset(groupId))) & mask;
+                while (newTable[bucket] != 0) {
+                    bucket = (bucket + 1) & mask;
+                }
+                newTable[bucket] = groupId + 1;
+            }
+            ramAccounting.addBytes(- (long) Integer.BYTES * table.length);
+            table = newTable;
+        }
+
+        ByteBuf page(int groupId) {
+            return pages.get(groupId / slotsPerPage);
+        }
+
+        int offset(int groupId) {
+            return (groupId % slotsPerPage) * slotSize;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private Iterator<Row> rows() {
+            Object[] cells = new Object[1 + aggregators.length];
+            RowN row = new RowN(cells);
+            return new Iterator<>() {
+
+                int groupId = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return groupId < size;
+                }
+
+                @Override
+                public Row next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException("Iterator is exhausted");
+                    }
+                    ByteBuf page = page(groupId);
+                    int offset = offset(groupId);
+                    cells[0] = groupId == nullGroupId ? null : keyType.sanitizeValue(page.getLong(offset));
+                    for (int i = 0; i < aggregators.length; i++) {
+                        Object state = aggregators[i].partialState(page, offset + stateOffsets[i]);
+                        //noinspection unchecked
+                        cells[i + 1] = mode.finishCollect(ramAccounting, functions[i], state);
+                    }
+                    groupId++;
+                    return row;
+                }
+            };
+        }
+    }
+}
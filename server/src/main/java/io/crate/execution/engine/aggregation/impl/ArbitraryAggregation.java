@@ -129,6 +129,11 @@ public class ArbitraryAggregation extends AggregationFunction<Object, Object> {
         return state;
     }
 
+    @Override
+    public boolean hasImmutableState() {
+        return true;
+    }
+
     @Nullable
     @Override
     public DocValueAggregator<?> getDocValueAggregator(List<DataType<?>> argumentTypes,
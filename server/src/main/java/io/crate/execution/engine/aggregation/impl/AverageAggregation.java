@@ -27,6 +27,7 @@ import io.crate.common.collections.Lists2;
 import io.crate.data.Input;
 import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.execution.engine.aggregation.DocValueAggregator;
+import io.crate.execution.engine.aggregation.FixedWidthAggregator;
 import io.crate.memory.MemoryManager;
 import io.crate.metadata.functions.Signature;
 import io.crate.types.ByteType;
@@ -38,6 +39,7 @@ import io.crate.types.FloatType;
 import io.crate.types.IntegerType;
 import io.crate.types.LongType;
 import io.crate.types.ShortType;
+import io.netty.buffer.ByteBuf;
 import org.apache.lucene.util.NumericUtils;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.Version;
@@ -271,6 +273,11 @@ public class AverageAggregation extends AggregationFunction<AverageAggregation.A
         return boundSignature;
     }
 
+    @Override
+    public FixedWidthAggregator<AverageState> getFixedWidthAggregator() {
+        return new FixedWidthAverage();
+    }
+
     @Override
     public DocValueAggregator<?> getDocValueAggregator(List<DataType<?>> argumentTypes,
                                                        List<MappedFieldType> fieldTypes) {
@@ -320,5 +327,38 @@ public class AverageAggregation extends AggregationFunction<AverageAggregation.A
                 return null;
         }
     }
-}
 
+    /**
+     * Layout: the sum followed by the count.
+     */
+    private static class FixedWidthAverage implements FixedWidthAggregator<AverageState> {
+
+        @Override
+        public int stateSize() {
+            return Double.BYTES + Long.BYTES;
+        }
+
+        @Override
+        public void initialState(ByteBuf buffer, int offset) {
+            buffer.setDouble(offset, 0d);
+            buffer.setLong(offset + Double.BYTES, 0L);
+        }
+
+        @Override
+        public void iterate(ByteBuf buffer, int offset, Input<?>... args) {
+            Number value = (Number) args[0].value();
+            if (value != null) {
+                buffer.setDouble(offset, buffer.getDouble(offset) + value.doubleValue());
+                buffer.setLong(offset + Double.BYTES, buffer.getLong(offset + Double.BYTES) + 1L);
+            }
+        }
+
+        @Override
+        public AverageState partialState(ByteBuf buffer, int offset) {
+            AverageState state = new AverageState();
+            state.sum = buffer.getDouble(offset);
+            state.count = buffer.getLong(offset + Double.BYTES);
+            return state;
+        }
+    }
+}
@@ -27,6 +27,7 @@ import io.crate.common.MutableLong;
 import io.crate.data.Input;
 import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.execution.engine.aggregation.DocValueAggregator;
+import io.crate.execution.engine.aggregation.FixedWidthAggregator;
 import io.crate.expression.symbol.Function;
 import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.Symbol;
@@ -47,6 +48,7 @@ import io.crate.types.LongType;
 import io.crate.types.ShortType;
 import io.crate.types.StringType;
 import io.crate.types.TimestampType;
+import io.netty.buffer.ByteBuf;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -162,6 +164,42 @@ public class CountAggregation extends AggregationFunction<MutableLong, Long> {
         return state.value();
     }
 
+    @Override
+    public FixedWidthAggregator<MutableLong> getFixedWidthAggregator() {
+        return new FixedWidthCount(hasArgs);
+    }
+
+    private static class FixedWidthCount implements FixedWidthAggregator<MutableLong> {
+
+        private final boolean hasArgs;
+
+        FixedWidthCount(boolean hasArgs) {
+            this.hasArgs = hasArgs;
+        }
+
+        @Override
+        public int stateSize() {
+            return Long.BYTES;
+        }
+
+        @Override
+        public void initialState(ByteBuf buffer, int offset) {
+            buffer.setLong(offset, 0L);
+        }
+
+        @Override
+        public void iterate(ByteBuf buffer, int offset, Input<?>... args) {
+            if (!hasArgs || args[0].value() != null) {
+                buffer.setLong(offset, buffer.getLong(offset) + 1L);
+            }
+        }
+
+        @Override
+        public MutableLong partialState(ByteBuf buffer, int offset) {
+            return new MutableLong(buffer.getLong(offset));
+        }
+    }
+
     public static class LongStateType extends DataType<MutableLong>
         implements FixedWidthType, Streamer<MutableLong> {
 
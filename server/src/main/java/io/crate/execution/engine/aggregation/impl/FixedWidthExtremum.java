@@ -0,0 +1,200 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation.impl;
+
+import io.crate.data.Input;
+import io.crate.execution.engine.aggregation.FixedWidthAggregator;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.TimestampType;
+import io.netty.buffer.ByteBuf;
+
+import javax.annotation.Nullable;
+
+/**
+ * Fixed width states for {@link MinimumAggregation} and {@link MaximumAggregation} on numeric types.
+ * <p>
+ * Layout: 1 byte indicating if a value has been seen, followed by the value.
+ */
+final class FixedWidthExtremum {
+
+    private FixedWidthExtremum() {
+    }
+
+    @Nullable
+    static FixedWidthAggregator<Comparable> create(DataType<?> type, boolean max) {
+        switch (type.id()) {
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                return new LongExtremum(type, max);
+
+            case FloatType.ID:
+                return new FloatExtremum(max);
+            case DoubleType.ID:
+                return new DoubleExtremum(max);
+
+            default:
+                return null;
+        }
+    }
+
+    private static class LongExtremum implements FixedWidthAggregator<Comparable> {
+
+        private final DataType<?> type;
+        private final boolean max;
+
+        LongExtremum(DataType<?> type, boolean max) {
+            this.type = type;
+            this.max = max;
+        }
+
+        @Override
+        public int stateSize() {
+            return 1 + Long.BYTES;
+        }
+
+        @Override
+        public void initialState(ByteBuf buffer, int offset) {
+            buffer.setBoolean(offset, false);
+        }
+
+        @Override
+        public void iterate(ByteBuf buffer, int offset, Input<?>... args) {
+            Number value = (Number) args[0].value();
+            if (value == null) {
+                return;
+            }
+            long newValue = value.longValue();
+            if (buffer.getBoolean(offset) == false) {
+                buffer.setBoolean(offset, true);
+                buffer.setLong(offset + 1, newValue);
+            } else {
+                long current = buffer.getLong(offset + 1);
+                if (max ? newValue > current : newValue < current) {
+                    buffer.setLong(offset + 1, newValue);
+                }
+            }
+        }
+
+        @Override
+        public Comparable partialState(ByteBuf buffer, int offset) {
+            if (buffer.getBoolean(offset)) {
+                return (Comparable) type.sanitizeValue(buffer.getLong(offset + 1));
+            }
+            return null;
+        }
+    }
+
+    private static class DoubleExtremum implements FixedWidthAggregator<Comparable> {
+
+        private final boolean max;
+
+        DoubleExtremum(boolean max) {
+            this.max = max;
+        }
+
+        @Override
+        public int stateSize() {
+            return 1 + Double.BYTES;
+        }
+
+        @Override
+        public void initialState(ByteBuf buffer, int offset) {
+            buffer.setBoolean(offset, false);
+        }
+
+        @Override
+        public void iterate(ByteBuf buffer, int offset, Input<?>... args) {
+            Number value = (Number) args[0].value();
+            if (value == null) {
+                return;
+            }
+            double newValue = value.doubleValue();
+            if (buffer.getBoolean(offset) == false) {
+                buffer.setBoolean(offset, true);
+                buffer.setDouble(offset + 1, newValue);
+            } else {
+                int cmp = Double.compare(newValue, buffer.getDouble(offset + 1));
+                if (max ? cmp > 0 : cmp < 0) {
+                    buffer.setDouble(offset + 1, newValue);
+                }
+            }
+        }
+
+        @Override
+        public Comparable partialState(ByteBuf buffer, int offset) {
+            return buffer.getBoolean(offset) ? buffer.getDouble(offset + 1) : null;
+        }
+    }
+
+    private static class FloatExtremum implements FixedWidthAggregator<Comparable> {
+
+        private final boolean max;
+
+        FloatExtremum(boolean max) {
+            this.max = max;
+        }
+
+        @Override
+        public int stateSize() {
+            return 1 + Float.BYTES;
+        }
+
+        @Override
+        public void initialState(ByteBuf buffer, int offset) {
+            buffer.setBoolean(offset, false);
+        }
+
+        @Override
+        public void iterate(ByteBuf buffer, int offset, Input<?>... args) {
+            Number value = (Number) args[0].value();
+            if (value == null) {
+                return;
+            }
+            float newValue = value.floatValue();
+            if (buffer.getBoolean(offset) == false) {
+                buffer.setBoolean(offset, true);
+                buffer.setFloat(offset + 1, newValue);
+            } else {
+                int cmp = Float.compare(newValue, buffer.getFloat(offset + 1));
+                if (max ? cmp > 0 : cmp < 0) {
+                    buffer.setFloat(offset + 1, newValue);
+                }
+            }
+        }
+
+        @Override
+        public Comparable partialState(ByteBuf buffer, int offset) {
+            return buffer.getBoolean(offset) ? buffer.getFloat(offset + 1) : null;
+        }
+    }
+}
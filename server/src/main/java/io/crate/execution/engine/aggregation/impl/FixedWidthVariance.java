@@ -0,0 +1,82 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation.impl;
+
+import io.crate.data.Input;
+import io.crate.execution.engine.aggregation.FixedWidthAggregator;
+import io.crate.execution.engine.aggregation.statistics.Variance;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Fixed width state for {@link VarianceAggregation} and {@link StandardDeviationAggregation}.
+ * <p>
+ * Layout: the sum of squares, followed by the sum and the count.
+ */
+final class FixedWidthVariance<T extends Variance> implements FixedWidthAggregator<T> {
+
+    private static final int SUM_OFFSET = Double.BYTES;
+    private static final int COUNT_OFFSET = 2 * Double.BYTES;
+
+    interface StateFactory<T> {
+
+        T create(double sumOfSqrs, double sum, long count);
+    }
+
+    private final StateFactory<T> stateFactory;
+
+    FixedWidthVariance(StateFactory<T> stateFactory) {
+        this.stateFactory = stateFactory;
+    }
+
+    @Override
+    public int stateSize() {
+        return 2 * Double.BYTES + Long.BYTES;
+    }
+
+    @Override
+    public void initialState(ByteBuf buffer, int offset) {
+        buffer.setDouble(offset, 0d);
+        buffer.setDouble(offset + SUM_OFFSET, 0d);
+        buffer.setLong(offset + COUNT_OFFSET, 0L);
+    }
+
+    @Override
+    public void iterate(ByteBuf buffer, int offset, Input<?>... args) {
+        Number value = (Number) args[0].value();
+        if (value != null) {
+            double d = value.doubleValue();
+            buffer.setDouble(offset, buffer.getDouble(offset) + d * d);
+            buffer.setDouble(offset + SUM_OFFSET, buffer.getDouble(offset + SUM_OFFSET) + d);
+            buffer.setLong(offset + COUNT_OFFSET, buffer.getLong(offset + COUNT_OFFSET) + 1L);
+        }
+    }
+
+    @Override
+    public T partialState(ByteBuf buffer, int offset) {
+        return stateFactory.create(
+            buffer.getDouble(offset),
+            buffer.getDouble(offset + SUM_OFFSET),
+            buffer.getLong(offset + COUNT_OFFSET)
+        );
+    }
+}
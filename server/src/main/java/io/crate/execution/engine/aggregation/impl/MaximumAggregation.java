@@ -44,6 +44,7 @@ import io.crate.common.MutableLong;
 import io.crate.data.Input;
 import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.execution.engine.aggregation.DocValueAggregator;
+import io.crate.execution.engine.aggregation.FixedWidthAggregator;
 import io.crate.memory.MemoryManager;
 import io.crate.metadata.functions.Signature;
 import io.crate.types.DataType;
@@ -210,6 +211,12 @@ public abstract class MaximumAggregation extends AggregationFunction<Comparable,
             size = ((FixedWidthType) partialType()).fixedSize();
         }
 
+        @Nullable
+        @Override
+        public FixedWidthAggregator<Comparable> getFixedWidthAggregator() {
+            return FixedWidthExtremum.create(partialType(), true);
+        }
+
         @Override
         public DocValueAggregator<?> getDocValueAggregator(List<DataType<?>> argumentTypes,
                                                            List<MappedFieldType> fieldTypes) {
@@ -331,4 +338,9 @@ public abstract class MaximumAggregation extends AggregationFunction<Comparable,
     public Comparable terminatePartial(RamAccounting ramAccounting, Comparable state) {
         return state;
     }
+
+    @Override
+    public boolean hasImmutableState() {
+        return true;
+    }
 }
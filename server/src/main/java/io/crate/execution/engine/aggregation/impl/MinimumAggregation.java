@@ -44,6 +44,7 @@ import io.crate.common.MutableLong;
 import io.crate.data.Input;
 import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.execution.engine.aggregation.DocValueAggregator;
+import io.crate.execution.engine.aggregation.FixedWidthAggregator;
 import io.crate.memory.MemoryManager;
 import io.crate.metadata.functions.Signature;
 import io.crate.types.DataType;
@@ -246,6 +247,12 @@ public abstract class MinimumAggregation extends AggregationFunction<Comparable,
             size = ((FixedWidthType) partialType()).fixedSize();
         }
 
+        @Nullable
+        @Override
+        public FixedWidthAggregator<Comparable> getFixedWidthAggregator() {
+            return FixedWidthExtremum.create(partialType(), false);
+        }
+
         @Override
         public DocValueAggregator<?> getDocValueAggregator(List<DataType<?>> argumentTypes,
                                                            List<MappedFieldType> fieldTypes) {
@@ -322,6 +329,11 @@ public abstract class MinimumAggregation extends AggregationFunction<Comparable,
         return state;
     }
 
+    @Override
+    public boolean hasImmutableState() {
+        return true;
+    }
+
     @Override
     public Comparable iterate(RamAccounting ramAccounting,
                               MemoryManager memoryManager,
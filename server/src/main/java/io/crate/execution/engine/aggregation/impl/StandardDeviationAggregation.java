@@ -27,6 +27,7 @@ import io.crate.common.collections.Lists2;
 import io.crate.data.Input;
 import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.execution.engine.aggregation.DocValueAggregator;
+import io.crate.execution.engine.aggregation.FixedWidthAggregator;
 import io.crate.execution.engine.aggregation.statistics.StandardDeviation;
 import io.crate.memory.MemoryManager;
 import io.crate.metadata.functions.Signature;
@@ -209,6 +210,11 @@ public class StandardDeviationAggregation extends AggregationFunction<StandardDe
         return StdDevStateType.INSTANCE;
     }
 
+    @Override
+    public FixedWidthAggregator<StandardDeviation> getFixedWidthAggregator() {
+        return new FixedWidthVariance<>(StandardDeviation::new);
+    }
+
     @Override
     public DocValueAggregator<?> getDocValueAggregator(List<DataType<?>> argumentTypes,
                                                        List<MappedFieldType> fieldTypes) {
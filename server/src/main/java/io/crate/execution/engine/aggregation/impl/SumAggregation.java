@@ -29,6 +29,7 @@ import io.crate.common.annotations.VisibleForTesting;
 import io.crate.data.Input;
 import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.execution.engine.aggregation.DocValueAggregator;
+import io.crate.execution.engine.aggregation.FixedWidthAggregator;
 import io.crate.memory.MemoryManager;
 import io.crate.metadata.FunctionImplementation;
 import io.crate.metadata.functions.Signature;
@@ -40,6 +41,7 @@ import io.crate.types.FloatType;
 import io.crate.types.IntegerType;
 import io.crate.types.LongType;
 import io.crate.types.ShortType;
+import io.netty.buffer.ByteBuf;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.SortedNumericDocValues;
@@ -199,6 +201,28 @@ public class SumAggregation<T extends Number> extends AggregationFunction<T, T>
         }
     }
 
+    @Nullable
+    @Override
+    public FixedWidthAggregator<T> getFixedWidthAggregator() {
+        FixedWidthAggregator<?> aggregator;
+        switch (returnType.id()) {
+            case LongType.ID:
+                aggregator = new FixedWidthSumLong();
+                break;
+            case DoubleType.ID:
+                aggregator = new FixedWidthSumDouble();
+                break;
+            case FloatType.ID:
+                aggregator = new FixedWidthSumFloat();
+                break;
+
+            default:
+                return null;
+        }
+        //noinspection unchecked
+        return (FixedWidthAggregator<T>) aggregator;
+    }
+
     private static BiFunction<Signature, Signature, FunctionImplementation> getSumAggregationForDoubleFactory() {
         return (signature, boundSignature) -> {
             var kahanSummation = new KahanSummationForDouble();
@@ -334,4 +358,108 @@ public class SumAggregation<T extends Number> extends AggregationFunction<T, T>
             return state.hasValue() ? state.value() : null;
         }
     }
+
+    /**
+     * Layout: 1 byte indicating if a value has been seen, followed by the sum.
+     */
+    private static class FixedWidthSumLong implements FixedWidthAggregator<Long> {
+
+        @Override
+        public int stateSize() {
+            return 1 + Long.BYTES;
+        }
+
+        @Override
+        public void initialState(ByteBuf buffer, int offset) {
+            buffer.setBoolean(offset, false);
+            buffer.setLong(offset + 1, 0L);
+        }
+
+        @Override
+        public void iterate(ByteBuf buffer, int offset, Input<?>... args) {
+            Number value = (Number) args[0].value();
+            if (value != null) {
+                buffer.setBoolean(offset, true);
+                buffer.setLong(offset + 1, Math.addExact(buffer.getLong(offset + 1), value.longValue()));
+            }
+        }
+
+        @Override
+        public Long partialState(ByteBuf buffer, int offset) {
+            return buffer.getBoolean(offset) ? buffer.getLong(offset + 1) : null;
+        }
+    }
+
+    /**
+     * Layout: 1 byte indicating if a value has been seen, followed by the sum and the error of the Kahan summation.
+     * Unlike {@link KahanSummationForDouble} the error is tracked per state.
+     */
+    private static class FixedWidthSumDouble implements FixedWidthAggregator<Double> {
+
+        @Override
+        public int stateSize() {
+            return 1 + 2 * Double.BYTES;
+        }
+
+        @Override
+        public void initialState(ByteBuf buffer, int offset) {
+            buffer.setBoolean(offset, false);
+            buffer.setDouble(offset + 1, 0d);
+            buffer.setDouble(offset + 1 + Double.BYTES, 0d);
+        }
+
+        @Override
+        public void iterate(ByteBuf buffer, int offset, Input<?>... args) {
+            Number value = (Number) args[0].value();
+            if (value != null) {
+                double sum = buffer.getDouble(offset + 1);
+                double correctedValue = value.doubleValue() - buffer.getDouble(offset + 1 + Double.BYTES);
+                double newSum = sum + correctedValue;
+                buffer.setBoolean(offset, true);
+                buffer.setDouble(offset + 1, newSum);
+                buffer.setDouble(offset + 1 + Double.BYTES, (newSum - sum) - correctedValue);
+            }
+        }
+
+        @Override
+        public Double partialState(ByteBuf buffer, int offset) {
+            return buffer.getBoolean(offset) ? buffer.getDouble(offset + 1) : null;
+        }
+    }
+
+    /**
+     * Layout: 1 byte indicating if a value has been seen, followed by the sum and the error of the Kahan summation.
+     */
+    private static class FixedWidthSumFloat implements FixedWidthAggregator<Float> {
+
+        @Override
+        public int stateSize() {
+            return 1 + 2 * Float.BYTES;
+        }
+
+        @Override
+        public void initialState(ByteBuf buffer, int offset) {
+            buffer.setBoolean(offset, false);
+            buffer.setFloat(offset + 1, 0f);
+            buffer.setFloat(offset + 1 + Float.BYTES, 0f);
+        }
+
+        @Override
+        public void iterate(ByteBuf buffer, int offset, Input<?>... args) {
+            Number value = (Number) args[0].value();
+            if (value != null) {
+                float sum = buffer.getFloat(offset + 1);
+                float correctedValue = value.floatValue() - buffer.getFloat(offset + 1 + Float.BYTES);
+                float newSum = sum + correctedValue;
+                buffer.setBoolean(offset, true);
+                buffer.setFloat(offset + 1, newSum);
+                buffer.setFloat(offset + 1 + Float.BYTES, (newSum - sum) - correctedValue);
+            }
+        }
+
+        @Override
+        public Float partialState(ByteBuf buffer, int offset) {
+            return buffer.getBoolean(offset) ? buffer.getFloat(offset + 1) : null;
+        }
+    }
 }
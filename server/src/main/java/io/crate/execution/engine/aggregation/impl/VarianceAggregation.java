@@ -27,6 +27,7 @@ import io.crate.common.collections.Lists2;
 import io.crate.data.Input;
 import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.execution.engine.aggregation.DocValueAggregator;
+import io.crate.execution.engine.aggregation.FixedWidthAggregator;
 import io.crate.execution.engine.aggregation.statistics.Variance;
 import io.crate.memory.MemoryManager;
 import io.crate.metadata.functions.Signature;
@@ -211,6 +212,11 @@ public class VarianceAggregation extends AggregationFunction<Variance, Double> {
         return boundSignature;
     }
 
+    @Override
+    public FixedWidthAggregator<Variance> getFixedWidthAggregator() {
+        return new FixedWidthVariance<>(Variance::new);
+    }
+
     @Override
     public DocValueAggregator<?> getDocValueAggregator(List<DataType<?>> argumentTypes,
                                                        List<MappedFieldType> fieldTypes) {
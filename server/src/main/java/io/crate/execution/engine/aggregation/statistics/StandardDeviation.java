@@ -31,6 +31,10 @@ public class StandardDeviation extends Variance {
     public StandardDeviation() {
     }
 
+    public StandardDeviation(double sumOfSqrs, double sum, long count) {
+        super(sumOfSqrs, sum, count);
+    }
+
     public StandardDeviation(StreamInput in) throws IOException {
         super(in);
     }
@@ -66,6 +66,7 @@ import io.crate.execution.dsl.projection.GroupProjection;
 import io.crate.execution.dsl.projection.Projection;
 import io.crate.execution.engine.aggregation.DocValueAggregator;
 import io.crate.execution.engine.aggregation.GroupByMaps;
+import io.crate.execution.engine.aggregation.PackedKey;
 import io.crate.execution.jobs.SharedShardContext;
 import io.crate.expression.InputFactory;
 import io.crate.expression.reference.doc.lucene.CollectorContext;
@@ -153,7 +154,17 @@ final class DocValuesGroupByOptimizedIterator {
         );
 
         var ramAccounting = collectTask.getRamAccounting();
-        if (columnKeyRefs.size() == 1) {
+        SegmentGroupKeys segmentGroupKeys = SegmentGroupKeys.create(columnKeyRefs);
+        if (segmentGroupKeys != null) {
+            return GroupByIterator.forSegmentKeys(
+                aggregators,
+                searcher.item(),
+                columnKeyRefs,
+                segmentGroupKeys,
+                ramAccounting,
+                queryContext.query()
+            );
+        } else if (columnKeyRefs.size() == 1) {
             return GroupByIterator.forSingleKey(
                 aggregators,
                 searcher.item(),
@@ -240,6 +251,58 @@ final class DocValuesGroupByOptimizedIterator {
             );
         }
 
+        /**
+         * Groups by keys read directly from the segment doc values, see {@link SegmentGroupKeys}.
+         * The states are looked up by the segment local key and the key values are only materialized
+         * once per group and segment to resolve the states of the group across segments.
+         */
+        @VisibleForTesting
+        static BatchIterator<Row> forSegmentKeys(List<DocValueAggregator> aggregators,
+                                                 IndexSearcher indexSearcher,
+                                                 List<Reference> keyColumnRefs,
+                                                 SegmentGroupKeys segmentGroupKeys,
+                                                 RamAccounting ramAccounting,
+                                                 Query query) {
+            BiConsumer<Map<List<Object>, Object[]>, List<Object>> accountForNewKeyEntry = GroupByMaps.accountForNewEntry(
+                ramAccounting,
+                new MultiSizeEstimator(Lists2.map(keyColumnRefs, Reference::valueType)),
+                null
+            );
+            AtomicReference<Throwable> killed = new AtomicReference<>();
+            return CollectingBatchIterator.newInstance(
+                () -> killed.set(BatchIterator.CLOSED),
+                killed::set,
+                () -> {
+                    try {
+                        return CompletableFuture.completedFuture(
+                            getRows(
+                                applyAggregatesGroupedBySegmentKey(
+                                    aggregators,
+                                    indexSearcher,
+                                    segmentGroupKeys,
+                                    accountForNewKeyEntry,
+                                    ramAccounting,
+                                    query,
+                                    killed
+                                ),
+                                keyColumnRefs.size(),
+                                (List<Object> keys, Object[] cells) -> {
+                                    for (int i = 0; i < keys.size(); i++) {
+                                        cells[i] = keys.get(i);
+                                    }
+                                },
+                                aggregators,
+                                ramAccounting
+                            )
+                        );
+                    } catch (Throwable t) {
+                        return CompletableFuture.failedFuture(t);
+                    }
+                },
+                true
+            );
+        }
+
         @VisibleForTesting
         static <K> BatchIterator<Row> getIterator(List<DocValueAggregator> aggregators,
                                                   IndexSearcher indexSearcher,
@@ -380,6 +443,68 @@ final class DocValuesGroupByOptimizedIterator {
             return statesByKey;
         }
 
+        private static Map<List<Object>, Object[]> applyAggregatesGroupedBySegmentKey(
+            List<DocValueAggregator> aggregators,
+            IndexSearcher indexSearcher,
+            SegmentGroupKeys segmentGroupKeys,
+            BiConsumer<Map<List<Object>, Object[]>, List<Object>> accountForNewKeyEntry,
+            RamAccounting ramAccounting,
+            Query query,
+            AtomicReference<Throwable> killed
+        ) throws IOException {
+
+            HashMap<List<Object>, Object[]> statesByKey = new HashMap<>();
+            HashMap<PackedKey, Object[]> statesBySegmentKey = new HashMap<>();
+            Weight weight = indexSearcher.createWeight(
+                indexSearcher.rewrite(query),
+                ScoreMode.COMPLETE_NO_SCORES,
+                1f
+            );
+            List<LeafReaderContext> leaves = indexSearcher.getTopReaderContext().leaves();
+            for (var leaf : leaves) {
+                raiseIfClosedOrKilled(killed);
+                Scorer scorer = weight.scorer(leaf);
+                if (scorer == null) {
+                    continue;
+                }
+                // Segment keys (e.g. ordinals) are not comparable across segments
+                statesBySegmentKey.clear();
+                segmentGroupKeys.setNextReader(leaf.reader());
+                for (int i = 0; i < aggregators.size(); i++) {
+                    aggregators.get(i).loadDocValues(leaf.reader());
+                }
+
+                DocIdSetIterator docs = scorer.iterator();
+                Bits liveDocs = leaf.reader().getLiveDocs();
+                for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+                    raiseIfClosedOrKilled(killed);
+                    if (docDeleted(liveDocs, doc)) {
+                        continue;
+                    }
+                    PackedKey segmentKey = segmentGroupKeys.read(doc);
+                    Object[] states = statesBySegmentKey.get(segmentKey);
+                    if (states == null) {
+                        List<Object> key = segmentGroupKeys.values();
+                        states = statesByKey.get(key);
+                        if (states == null) {
+                            states = new Object[aggregators.size()];
+                            for (int i = 0; i < aggregators.size(); i++) {
+                                states[i] = aggregators.get(i).initialState(ramAccounting);
+                            }
+                            accountForNewKeyEntry.accept(statesByKey, key);
+                            statesByKey.put(key, states);
+                        }
+                        statesBySegmentKey.put(segmentKey.copy(), states);
+                    }
+                    for (int i = 0; i < aggregators.size(); i++) {
+                        //noinspection unchecked
+                        aggregators.get(i).apply(ramAccounting, doc, states[i]);
+                    }
+                }
+            }
+            return statesByKey;
+        }
+
         private static boolean docDeleted(@Nullable Bits liveDocs, int doc) {
             return liveDocs != null && !liveDocs.get(doc);
         }
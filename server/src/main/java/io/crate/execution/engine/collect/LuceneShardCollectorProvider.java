@@ -21,6 +21,9 @@
 
 package io.crate.execution.engine.collect;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.Supplier;
 
 import javax.annotation.Nullable;
@@ -28,6 +31,8 @@ import javax.annotation.Nullable;
 import io.crate.metadata.NodeContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
@@ -67,6 +72,13 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
 
     private static final Logger LOGGER = LogManager.getLogger(LuceneShardCollectorProvider.class);
 
+    /**
+     * Limits for slicing the segments of a shard, see {@link #getUnorderedSliceIterators(RoutedCollectPhase, CollectTask)}.
+     * Same as the defaults used by {@link IndexSearcher} to search segments concurrently.
+     */
+    private static final int MAX_DOCS_PER_SLICE = 250_000;
+    private static final int MAX_SEGMENTS_PER_SLICE = 5;
+
     private final Supplier<String> localNodeId;
     private final LuceneQueryBuilder luceneQueryBuilder;
     private final NodeContext nodeCtx;
@@ -126,6 +138,18 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
     protected BatchIterator<Row> getUnorderedIterator(RoutedCollectPhase collectPhase,
                                                       boolean requiresScroll,
                                                       CollectTask collectTask) {
+        return getUnorderedIterators(collectPhase, collectTask, false).get(0);
+    }
+
+    @Override
+    protected List<BatchIterator<Row>> getUnorderedSliceIterators(RoutedCollectPhase collectPhase,
+                                                                  CollectTask collectTask) {
+        return getUnorderedIterators(collectPhase, collectTask, true);
+    }
+
+    private List<BatchIterator<Row>> getUnorderedIterators(RoutedCollectPhase collectPhase,
+                                                           CollectTask collectTask,
+                                                           boolean sliceSegments) {
         ShardId shardId = indexShard.shardId();
         SharedShardContext sharedShardContext = collectTask.sharedShardContexts().getOrCreateContext(shardId);
         var searcher = sharedShardContext.acquireSearcher("unordered-iterator: " + formatSource(collectPhase));
@@ -141,18 +165,42 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
             table,
             sharedShardContext.indexService().cache()
         );
-        InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx =
-            docInputFactory.extractImplementations(collectTask.txnCtx(), collectPhase);
-
-        return new LuceneBatchIterator(
-            searcher.item(),
-            queryContext.query(),
-            queryContext.minScore(),
-            Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE),
-            new CollectorContext(sharedShardContext.readerId()),
-            docCtx.topLevelInputs(),
-            docCtx.expressions()
-        );
+        IndexSearcher indexSearcher = searcher.item();
+        List<LeafReaderContext> leaves = indexSearcher.getTopReaderContext().leaves();
+        IndexSearcher.LeafSlice[] slices = sliceSegments
+            ? IndexSearcher.slices(leaves, MAX_DOCS_PER_SLICE, MAX_SEGMENTS_PER_SLICE)
+            : new IndexSearcher.LeafSlice[0];
+        boolean doScores = Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE);
+        if (slices.length <= 1) {
+            InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx =
+                docInputFactory.extractImplementations(collectTask.txnCtx(), collectPhase);
+            return List.of(new LuceneBatchIterator(
+                indexSearcher,
+                queryContext.query(),
+                queryContext.minScore(),
+                doScores,
+                new CollectorContext(sharedShardContext.readerId()),
+                docCtx.topLevelInputs(),
+                docCtx.expressions()
+            ));
+        }
+        ArrayList<BatchIterator<Row>> iterators = new ArrayList<>(slices.length);
+        for (IndexSearcher.LeafSlice slice : slices) {
+            // Each slice is consumed by a different thread and needs its own expressions
+            InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx =
+                docInputFactory.extractImplementations(collectTask.txnCtx(), collectPhase);
+            iterators.add(new LuceneBatchIterator(
+                indexSearcher,
+                Arrays.asList(slice.leaves),
+                queryContext.query(),
+                queryContext.minScore(),
+                doScores,
+                new CollectorContext(sharedShardContext.readerId()),
+                docCtx.topLevelInputs(),
+                docCtx.expressions()
+            ));
+        }
+        return iterators;
     }
 
     @Nullable
@@ -0,0 +1,240 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect;
+
+import io.crate.exceptions.GroupByOnArrayUnsupportedException;
+import io.crate.execution.engine.aggregation.PackedKey;
+import io.crate.metadata.Reference;
+import io.crate.types.BooleanType;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.util.NumericUtils;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the group keys of documents directly from the doc values of a segment.
+ * <p>
+ * The key of a document is encoded into a re-used {@link PackedKey}, using the segment ordinals for
+ * string columns and the raw doc values for numeric columns. These keys are only valid within a segment.
+ * The actual values are materialized using {@link #values()}, which is only required once per group and segment.
+ */
+final class SegmentGroupKeys {
+
+    private final KeyColumn[] columns;
+    private final PackedKey.Layout layout;
+    private final PackedKey key;
+
+    /**
+     * @return the keys for the given columns or null if a column type isn't supported.
+     */
+    @Nullable
+    static SegmentGroupKeys create(List<Reference> keyColumns) {
+        KeyColumn[] columns = new KeyColumn[keyColumns.size()];
+        List<DataType<?>> encodedTypes = new ArrayList<>(keyColumns.size());
+        for (int i = 0; i < columns.length; i++) {
+            Reference ref = keyColumns.get(i);
+            String field = ref.column().fqn();
+            DataType<?> type = ref.valueType();
+            switch (type.id()) {
+                case StringType.ID:
+                    columns[i] = new OrdinalKeyColumn(field);
+                    encodedTypes.add(DataTypes.LONG);
+                    break;
+
+                case BooleanType.ID:
+                case ByteType.ID:
+                case ShortType.ID:
+                case IntegerType.ID:
+                case LongType.ID:
+                case TimestampType.ID_WITH_TZ:
+                case TimestampType.ID_WITHOUT_TZ:
+                case FloatType.ID:
+                case DoubleType.ID:
+                    columns[i] = new NumericKeyColumn(field, type);
+                    encodedTypes.add(type);
+                    break;
+
+                default:
+                    return null;
+            }
+        }
+        return new SegmentGroupKeys(columns, PackedKey.Layout.create(encodedTypes));
+    }
+
+    private SegmentGroupKeys(KeyColumn[] columns, PackedKey.Layout layout) {
+        this.columns = columns;
+        this.layout = layout;
+        this.key = layout.newKey();
+    }
+
+    void setNextReader(LeafReader reader) throws IOException {
+        for (KeyColumn column : columns) {
+            column.setNextReader(reader);
+        }
+    }
+
+    /**
+     * @return the key of the document. The instance is re-used for the next document, use
+     *         {@link PackedKey#copy()} to retain it.
+     */
+    PackedKey read(int doc) throws IOException {
+        layout.clear(key);
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].read(doc, key, layout, i);
+        }
+        return layout.finish(key);
+    }
+
+    /**
+     * @return the values of the key which has been read last
+     */
+    List<Object> values() throws IOException {
+        ArrayList<Object> values = new ArrayList<>(columns.length);
+        for (KeyColumn column : columns) {
+            values.add(column.value());
+        }
+        return values;
+    }
+
+    private abstract static class KeyColumn {
+
+        final String field;
+
+        KeyColumn(String field) {
+            this.field = field;
+        }
+
+        abstract void setNextReader(LeafReader reader) throws IOException;
+
+        abstract void read(int doc, PackedKey key, PackedKey.Layout layout, int column) throws IOException;
+
+        @Nullable
+        abstract Object value() throws IOException;
+    }
+
+    private static class OrdinalKeyColumn extends KeyColumn {
+
+        private SortedSetDocValues values;
+        private long ord;
+
+        OrdinalKeyColumn(String field) {
+            super(field);
+        }
+
+        @Override
+        void setNextReader(LeafReader reader) throws IOException {
+            values = DocValues.getSortedSet(reader, field);
+        }
+
+        @Override
+        void read(int doc, PackedKey key, PackedKey.Layout layout, int column) throws IOException {
+            if (values.advanceExact(doc)) {
+                ord = values.nextOrd();
+                if (values.nextOrd() != SortedSetDocValues.NO_MORE_ORDS) {
+                    throw new GroupByOnArrayUnsupportedException(field);
+                }
+                layout.setBits(key, column, ord);
+            } else {
+                ord = -1;
+                layout.setNull(key, column);
+            }
+        }
+
+        @Override
+        Object value() throws IOException {
+            return ord == -1 ? null : values.lookupOrd(ord).utf8ToString();
+        }
+    }
+
+    private static class NumericKeyColumn extends KeyColumn {
+
+        private final DataType<?> type;
+        private SortedNumericDocValues values;
+        private long value;
+        private boolean hasValue;
+
+        NumericKeyColumn(String field, DataType<?> type) {
+            super(field);
+            this.type = type;
+        }
+
+        @Override
+        void setNextReader(LeafReader reader) throws IOException {
+            values = DocValues.getSortedNumeric(reader, field);
+        }
+
+        @Override
+        void read(int doc, PackedKey key, PackedKey.Layout layout, int column) throws IOException {
+            hasValue = values.advanceExact(doc);
+            if (hasValue) {
+                if (values.docValueCount() != 1) {
+                    throw new GroupByOnArrayUnsupportedException(field);
+                }
+                value = values.nextValue();
+                layout.setBits(key, column, value);
+            } else {
+                layout.setNull(key, column);
+            }
+        }
+
+        @Override
+        Object value() {
+            if (!hasValue) {
+                return null;
+            }
+            switch (type.id()) {
+                case BooleanType.ID:
+                    return value == 1L;
+                case ByteType.ID:
+                    return (byte) value;
+                case ShortType.ID:
+                    return (short) value;
+                case IntegerType.ID:
+                    return (int) value;
+                case FloatType.ID:
+                    return NumericUtils.sortableIntToFloat((int) value);
+                case DoubleType.ID:
+                    return NumericUtils.sortableLongToDouble(value);
+
+                default:
+                    return value;
+            }
+        }
+    }
+}
@@ -22,24 +22,36 @@
 
 package io.crate.execution.engine.collect;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.IntSupplier;
 
 import javax.annotation.Nullable;
 
 import io.crate.metadata.NodeContext;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import io.crate.analyze.WhereClause;
 import io.crate.data.BatchIterator;
+import io.crate.data.CompositeBatchIterator;
 import io.crate.data.InMemoryBatchIterator;
 import io.crate.data.Row;
 import io.crate.data.SentinelRow;
 import io.crate.execution.TransportActionProvider;
 import io.crate.execution.dsl.phases.RoutedCollectPhase;
+import io.crate.execution.dsl.projection.AggregationProjection;
+import io.crate.execution.dsl.projection.EvalProjection;
+import io.crate.execution.dsl.projection.FilterProjection;
+import io.crate.execution.dsl.projection.GroupProjection;
+import io.crate.execution.dsl.projection.Projection;
 import io.crate.execution.dsl.projection.Projections;
 import io.crate.execution.engine.collect.collectors.OrderedDocCollector;
 import io.crate.execution.engine.pipeline.ProjectionToProjectorVisitor;
@@ -47,9 +59,11 @@ import io.crate.execution.engine.pipeline.ProjectorFactory;
 import io.crate.execution.engine.pipeline.Projectors;
 import io.crate.execution.jobs.NodeJobsCounter;
 import io.crate.execution.jobs.SharedShardContext;
+import io.crate.execution.support.ThreadPools;
 import io.crate.expression.InputFactory;
 import io.crate.expression.eval.EvaluatingNormalizer;
 import io.crate.expression.reference.sys.shard.ShardRowContext;
+import io.crate.expression.symbol.AggregateMode;
 import io.crate.metadata.RowGranularity;
 import io.crate.metadata.Schemas;
 import io.crate.metadata.shard.ShardReferenceResolver;
@@ -60,6 +74,8 @@ public abstract class ShardCollectorProvider {
     private final ShardRowContext shardRowContext;
     protected final IndexShard indexShard;
     final EvaluatingNormalizer shardNormalizer;
+    private final Executor searchExecutor;
+    private final IntSupplier availableThreads;
 
     ShardCollectorProvider(ClusterService clusterService,
                            CircuitBreakerService circuitBreakerService,
@@ -92,8 +108,12 @@ public abstract class ShardCollectorProvider {
             t -> null,
             t -> null,
             indexShard.indexSettings().getIndexVersionCreated(),
-            indexShard.shardId()
+            indexShard.shardId(),
+            null
         );
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) threadPool.executor(ThreadPool.Names.SEARCH);
+        this.searchExecutor = executor;
+        this.availableThreads = ThreadPools.numIdleThreads(executor, EsExecutors.numberOfProcessors(settings));
     }
 
     public ShardRowContext shardRowContext() {
@@ -130,14 +150,38 @@ public abstract class ShardCollectorProvider {
                 return fusedIterator;
             }
         }
+        Collection<? extends Projection> shardProjections = Projections.shardProjections(collectPhase.projections());
         final BatchIterator<Row> iterator;
         if (isOpenIndex && WhereClause.canMatch(normalizedCollectNode.where())) {
-            iterator = getUnorderedIterator(normalizedCollectNode, requiresScroll, collectTask);
+            if (!requiresScroll && aggregatesPartially(shardProjections)) {
+                List<BatchIterator<Row>> sliceIterators = getUnorderedSliceIterators(normalizedCollectNode, collectTask);
+                if (sliceIterators.size() > 1) {
+                    // Each slice gets its own projectors to aggregate concurrently,
+                    // the partial results are merged like those of different shards.
+                    @SuppressWarnings("unchecked")
+                    BatchIterator<Row>[] projectedSlices = new BatchIterator[sliceIterators.size()];
+                    for (int i = 0; i < projectedSlices.length; i++) {
+                        projectedSlices[i] = Projectors.wrap(
+                            shardProjections,
+                            collectPhase.jobId(),
+                            collectTask.txnCtx(),
+                            collectTask.getRamAccounting(),
+                            collectTask.memoryManager(),
+                            projectorFactory,
+                            sliceIterators.get(i)
+                        );
+                    }
+                    return CompositeBatchIterator.asyncComposite(searchExecutor, availableThreads, projectedSlices);
+                }
+                iterator = sliceIterators.get(0);
+            } else {
+                iterator = getUnorderedIterator(normalizedCollectNode, requiresScroll, collectTask);
+            }
         } else {
             iterator = InMemoryBatchIterator.empty(SentinelRow.SENTINEL);
         }
         return Projectors.wrap(
-            Projections.shardProjections(collectPhase.projections()),
+            shardProjections,
             collectPhase.jobId(),
             collectTask.txnCtx(),
             collectTask.getRamAccounting(),
@@ -147,6 +191,31 @@ public abstract class ShardCollectorProvider {
         );
     }
 
+    /**
+     * @return true if the shard projections aggregate the rows into partial results, which are merged
+     *         downstream. In that case the rows of a shard can be collected and aggregated in slices.
+     */
+    private static boolean aggregatesPartially(Collection<? extends Projection> shardProjections) {
+        boolean aggregates = false;
+        for (Projection projection : shardProjections) {
+            AggregateMode mode;
+            if (projection instanceof GroupProjection) {
+                mode = ((GroupProjection) projection).mode();
+            } else if (projection instanceof AggregationProjection) {
+                mode = ((AggregationProjection) projection).mode();
+            } else if (projection instanceof FilterProjection || projection instanceof EvalProjection) {
+                continue;
+            } else {
+                return false;
+            }
+            if (mode == AggregateMode.ITER_FINAL) {
+                return false;
+            }
+            aggregates = true;
+        }
+        return aggregates;
+    }
+
 
     /**
      * @return A BatchIterator which already applies the transformation described in the shardProjections of the collectPhase.
@@ -161,6 +230,15 @@ public abstract class ShardCollectorProvider {
                                                                boolean requiresScroll,
                                                                CollectTask collectTask);
 
+    /**
+     * @return iterators over disjoint parts of the shard which can be consumed concurrently.
+     *         Defaults to a single iterator over the whole shard.
+     */
+    protected List<BatchIterator<Row>> getUnorderedSliceIterators(RoutedCollectPhase collectPhase,
+                                                                  CollectTask collectTask) {
+        return List.of(getUnorderedIterator(collectPhase, false, collectTask));
+    }
+
     public final CompletableFuture<OrderedDocCollector> getFutureOrderedCollector(RoutedCollectPhase collectPhase,
                                                                                   SharedShardContext sharedShardContext,
                                                                                   CollectTask collectTask,
@@ -79,6 +79,30 @@ public class LuceneBatchIterator implements BatchIterator<Row> {
                                CollectorContext collectorContext,
                                List<? extends Input<?>> inputs,
                                Collection<? extends LuceneCollectorExpression<?>> expressions) {
+        this(
+            indexSearcher,
+            indexSearcher.getTopReaderContext().leaves(),
+            query,
+            minScore,
+            doScores,
+            collectorContext,
+            inputs,
+            expressions
+        );
+    }
+
+    /**
+     * @param leaves the segments of the {@code indexSearcher} to collect. Iterators on distinct leaves can be
+     *               consumed concurrently, given that each iterator uses its own {@code expressions}.
+     */
+    public LuceneBatchIterator(IndexSearcher indexSearcher,
+                               List<LeafReaderContext> leaves,
+                               Query query,
+                               @Nullable Float minScore,
+                               boolean doScores,
+                               CollectorContext collectorContext,
+                               List<? extends Input<?>> inputs,
+                               Collection<? extends LuceneCollectorExpression<?>> expressions) {
         this.indexSearcher = indexSearcher;
         this.query = query;
         this.doScores = doScores || minScore != null;
@@ -86,7 +110,7 @@ public class LuceneBatchIterator implements BatchIterator<Row> {
         this.collectorContext = collectorContext;
         this.row = new InputRow(inputs);
         this.expressions = expressions.toArray(new LuceneCollectorExpression[0]);
-        leaves = indexSearcher.getTopReaderContext().leaves();
+        this.leaves = leaves;
         leavesIt = leaves.iterator();
     }
 
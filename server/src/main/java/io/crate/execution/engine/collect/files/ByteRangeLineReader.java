@@ -0,0 +1,132 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.execution.engine.collect.files;
+
+import org.apache.lucene.util.ArrayUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the lines of a file which start within the byte range {@code [start, end)}.
+ * <p>
+ * A line which starts in a previous range and ends within this range is skipped,
+ * a line which starts within this range and ends after it is read completely.
+ * This allows to read a file concurrently using multiple readers with adjacent ranges.
+ * <p>
+ * Only {@link #readLine()} and {@link #close()} are supported.
+ */
+final class ByteRangeLineReader extends BufferedReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long end;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private byte[] line = new byte[256];
+    private long position;
+    private boolean eof = false;
+
+    static ByteRangeLineReader open(Path path, long start, long end) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (start == 0) {
+                return new ByteRangeLineReader(channel, 0, end);
+            }
+            // Start one byte before the range to detect if the range starts with a new line
+            channel.position(start - 1);
+            ByteRangeLineReader reader = new ByteRangeLineReader(channel, start - 1, end);
+            reader.skipLine();
+            return reader;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private ByteRangeLineReader(FileChannel channel, long position, long end) {
+        super(Reader.nullReader(), 1);
+        this.channel = channel;
+        this.position = position;
+        this.end = end;
+        buffer.flip();
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        if (position >= end) {
+            return null;
+        }
+        int length = 0;
+        int b;
+        while ((b = readByte()) != -1 && b != '\n') {
+            if (length == line.length) {
+                line = ArrayUtil.grow(line, length + 1);
+            }
+            line[length++] = (byte) b;
+        }
+        if (b == -1 && length == 0) {
+            return null;
+        }
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void skipLine() throws IOException {
+        int b;
+        do {
+            b = readByte();
+        } while (b != -1 && b != '\n');
+    }
+
+    private int readByte() throws IOException {
+        if (!buffer.hasRemaining()) {
+            if (eof) {
+                return -1;
+            }
+            buffer.clear();
+            int numRead = channel.read(buffer);
+            buffer.flip();
+            if (numRead <= 0) {
+                eof = true;
+                return -1;
+            }
+        }
+        position++;
+        return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import io.crate.data.BatchIterator;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.exceptions.Exceptions;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Wraps a fully loaded iterator whose {@link BatchIterator#moveNext()} is expensive, like the parsing of the lines
+ * of a file, and materializes up to {@code chunkSize} rows on each {@link #loadNextBatch()} call.
+ * <p>
+ * Combined using {@link io.crate.data.CompositeBatchIterator#asyncComposite}, this allows to consume multiple
+ * iterators concurrently.
+ */
+public final class ChunkingBatchIterator implements BatchIterator<Row> {
+
+    private final BatchIterator<Row> source;
+    private final int chunkSize;
+    private final ArrayList<Object[]> chunk;
+    private final RowN row;
+
+    private int idx = -1;
+    private boolean sourceExhausted = false;
+    private volatile Throwable killed;
+
+    public ChunkingBatchIterator(BatchIterator<Row> source, int numColumns, int chunkSize) {
+        assert source.allLoaded() : "source must be fully loaded";
+        this.source = source;
+        this.chunkSize = chunkSize;
+        this.chunk = new ArrayList<>(chunkSize);
+        this.row = new RowN(numColumns);
+    }
+
+    @Override
+    public Row currentElement() {
+        return row;
+    }
+
+    @Override
+    public void moveToStart() {
+        raiseIfKilled();
+        source.moveToStart();
+        chunk.clear();
+        idx = -1;
+        sourceExhausted = false;
+    }
+
+    @Override
+    public boolean moveNext() {
+        raiseIfKilled();
+        if (idx + 1 < chunk.size()) {
+            idx++;
+            row.cells(chunk.get(idx));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        chunk.clear();
+        source.close();
+        killed = BatchIterator.CLOSED;
+    }
+
+    @Override
+    public CompletableFuture<?> loadNextBatch() throws Exception {
+        if (killed != null) {
+            return CompletableFuture.failedFuture(killed);
+        }
+        if (sourceExhausted) {
+            throw new IllegalStateException("BatchIterator already fully loaded");
+        }
+        chunk.clear();
+        idx = -1;
+        while (chunk.size() < chunkSize) {
+            if (!source.moveNext()) {
+                sourceExhausted = true;
+                break;
+            }
+            chunk.add(source.currentElement().materialize());
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public boolean allLoaded() {
+        return sourceExhausted;
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        killed = throwable;
+        source.kill(throwable);
+    }
+
+    @Override
+    public boolean hasLazyResultSet() {
+        return true;
+    }
+
+    private void raiseIfKilled() {
+        if (killed != null) {
+            Exceptions.rethrowUnchecked(killed);
+        }
+    }
+}
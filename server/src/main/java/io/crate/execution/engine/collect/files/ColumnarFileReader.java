@@ -0,0 +1,250 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import io.crate.execution.engine.export.ColumnarRowWriter;
+import io.crate.execution.engine.export.ColumnarRowWriter.Kind;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads files written by {@link ColumnarRowWriter} and returns each row as a line containing a JSON object
+ * with the column names as keys, so that the rows can be processed like JSON input.
+ * <p>
+ * The footer is read when the reader is opened, the chunks of a row group are read and decoded once the first
+ * row of the row group is requested.
+ * Files which can't be read from the local file system are copied into a temporary file first, as the footer
+ * is located at the end of the file.
+ * <p>
+ * Only {@link #readLine()} and {@link #close()} are supported.
+ */
+final class ColumnarFileReader extends BufferedReader {
+
+    private static final int TAIL_LENGTH = Integer.BYTES + ColumnarRowWriter.MAGIC.length;
+
+    private final FileChannel channel;
+    @Nullable
+    private final Path tempFile;
+    private final String[] names;
+    private final Kind[] kinds;
+    private final boolean compressed;
+    private final int[] rowGroupSizes;
+    private final long[][] chunkOffsets;
+    private final int[][] chunkLengths;
+    private final Object[][] columns;
+
+    private int rowGroup = 0;
+    private int numRows = 0;
+    private int row = 0;
+
+    static ColumnarFileReader open(Path path) throws IOException {
+        return open(FileChannel.open(path, StandardOpenOption.READ), null);
+    }
+
+    static ColumnarFileReader open(InputStream stream) throws IOException {
+        Path tempFile = Files.createTempFile("copy-from-", ".cols");
+        try (stream) {
+            Files.copy(stream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            return open(FileChannel.open(tempFile, StandardOpenOption.READ), tempFile);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    private static ColumnarFileReader open(FileChannel channel, @Nullable Path tempFile) throws IOException {
+        try {
+            return new ColumnarFileReader(channel, tempFile);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private ColumnarFileReader(FileChannel channel, @Nullable Path tempFile) throws IOException {
+        super(Reader.nullReader(), 1);
+        this.channel = channel;
+        this.tempFile = tempFile;
+
+        long size = channel.size();
+        byte[] magic = ColumnarRowWriter.MAGIC;
+        if (size < magic.length + TAIL_LENGTH
+            || !Arrays.equals(read(0, magic.length), magic)
+            || !Arrays.equals(read(size - magic.length, magic.length), magic)) {
+            throw new IOException("Input is not a file of the columnar format");
+        }
+        int footerLength = ByteBuffer.wrap(read(size - TAIL_LENGTH, Integer.BYTES)).getInt();
+        if (footerLength < 0 || footerLength > size - magic.length - TAIL_LENGTH) {
+            throw new IOException("Invalid footer length of columnar file: " + footerLength);
+        }
+        StreamInput footer = StreamInput.wrap(read(size - TAIL_LENGTH - footerLength, footerLength));
+        int version = footer.readVInt();
+        if (version < 1 || version > ColumnarRowWriter.VERSION) {
+            throw new IOException("Unsupported version of columnar file: " + version +
+                                  ", supported versions are 1 to " + ColumnarRowWriter.VERSION);
+        }
+        int numColumns = footer.readVInt();
+        names = new String[numColumns];
+        kinds = new Kind[numColumns];
+        Kind[] allKinds = Kind.values();
+        for (int i = 0; i < numColumns; i++) {
+            names[i] = ColumnarRowWriter.readString(footer);
+            byte kind = footer.readByte();
+            if (kind < 0 || kind >= allKinds.length) {
+                throw new IOException("Unknown kind " + kind + " of column '" + names[i] + "' in columnar file");
+            }
+            kinds[i] = allKinds[kind];
+        }
+        compressed = footer.readByte() == 1;
+        int numRowGroups = footer.readVInt();
+        rowGroupSizes = new int[numRowGroups];
+        chunkOffsets = new long[numRowGroups][numColumns];
+        chunkLengths = new int[numRowGroups][numColumns];
+        for (int i = 0; i < numRowGroups; i++) {
+            rowGroupSizes[i] = footer.readVInt();
+            for (int j = 0; j < numColumns; j++) {
+                chunkOffsets[i][j] = footer.readVLong();
+                chunkLengths[i][j] = footer.readVInt();
+            }
+        }
+        columns = new Object[numColumns][];
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        while (row == numRows) {
+            if (rowGroup == rowGroupSizes.length) {
+                return null;
+            }
+            readRowGroup(rowGroup);
+            rowGroup++;
+        }
+        XContentBuilder builder = JsonXContent.contentBuilder().startObject();
+        for (int i = 0; i < columns.length; i++) {
+            Object value = columns[i][row];
+            builder.field(names[i]);
+            if (value instanceof byte[]) {
+                builder.rawValue(new ByteArrayInputStream((byte[]) value), XContentType.JSON);
+            } else {
+                builder.value(value);
+            }
+        }
+        row++;
+        return Strings.toString(builder.endObject());
+    }
+
+    private void readRowGroup(int rowGroup) throws IOException {
+        numRows = rowGroupSizes[rowGroup];
+        row = 0;
+        for (int i = 0; i < columns.length; i++) {
+            byte[] chunk = read(chunkOffsets[rowGroup][i], chunkLengths[rowGroup][i]);
+            if (compressed) {
+                try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(chunk))) {
+                    chunk = in.readAllBytes();
+                }
+            }
+            columns[i] = readChunk(StreamInput.wrap(chunk), kinds[i], numRows);
+        }
+    }
+
+    private static Object[] readChunk(StreamInput in, Kind kind, int numRows) throws IOException {
+        Object[] values = new Object[numRows];
+        byte encoding = in.readByte();
+        if (encoding == ColumnarRowWriter.DICTIONARY) {
+            Object[] dictionary = new Object[in.readVInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = kind.read(in);
+            }
+            int numRuns = in.readVInt();
+            int row = 0;
+            for (int i = 0; i < numRuns; i++) {
+                int runLength = in.readVInt();
+                int id = in.readVInt();
+                if (runLength > numRows - row || id > dictionary.length) {
+                    throw new IOException("Invalid run in dictionary encoded chunk of columnar file");
+                }
+                Arrays.fill(values, row, row + runLength, id == 0 ? null : dictionary[id - 1]);
+                row += runLength;
+            }
+            if (row != numRows) {
+                throw new IOException("Dictionary encoded chunk of columnar file has " + row +
+                                      " values instead of " + numRows);
+            }
+        } else if (encoding == ColumnarRowWriter.PLAIN) {
+            int numNulls = in.readVInt();
+            byte[] nulls = null;
+            if (numNulls > 0) {
+                nulls = new byte[(numRows + 7) / 8];
+                in.readBytes(nulls, 0, nulls.length);
+            }
+            for (int row = 0; row < numRows; row++) {
+                if (nulls == null || (nulls[row / 8] & (1 << (row % 8))) == 0) {
+                    values[row] = kind.read(in);
+                }
+            }
+        } else {
+            throw new IOException("Unknown encoding " + encoding + " of chunk in columnar file");
+        }
+        return values;
+    }
+
+    private byte[] read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of columnar file");
+            }
+        }
+        return buffer.array();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+}
@@ -62,11 +62,20 @@ public class FileReadingIterator implements BatchIterator<Row> {
 
     private static final Logger LOGGER = LogManager.getLogger(FileReadingIterator.class);
     private static final int MAX_SOCKET_TIMEOUT_RETRIES = 5;
+
+    /**
+     * Minimum number of bytes read by each reader if a file is split into ranges.
+     */
+    static final long MIN_BYTES_PER_RANGE = 16 * 1024 * 1024;
+
     private final Map<String, FileInputFactory> fileInputFactories;
     private final Boolean shared;
     private final int numReaders;
     private final int readerNumber;
     private final boolean compressed;
+    private final int numRanges;
+    private final int rangeNumber;
+    private final long minBytesPerRange;
 
     private static final Pattern HAS_GLOBS_PATTERN = Pattern.compile("(.*)[^\\\\]\\*.*");
     private static final Predicate<URI> MATCH_ALL_PREDICATE = (URI input) -> true;
@@ -83,19 +92,30 @@ public class FileReadingIterator implements BatchIterator<Row> {
     private URI currentUri;
     private BufferedReader currentReader = null;
     private long currentLineNumber;
+    @Nullable
+    private Path currentRangePath;
+    private long currentRangeStart;
+    private long currentRangeEnd;
     private final Row row;
     private LineProcessor lineProcessor;
 
-    private FileReadingIterator(Collection<String> fileUris,
-                                List<? extends Input<?>> inputs,
-                                Iterable<LineCollectorExpression<?>> collectorExpressions,
-                                String compression,
-                                Map<String, FileInputFactory> fileInputFactories,
-                                Boolean shared,
-                                int numReaders,
-                                int readerNumber,
-                                CopyFromParserProperties parserProperties,
-                                FileUriCollectPhase.InputFormat inputFormat) {
+    FileReadingIterator(Collection<String> fileUris,
+                        List<? extends Input<?>> inputs,
+                        Iterable<LineCollectorExpression<?>> collectorExpressions,
+                        String compression,
+                        Map<String, FileInputFactory> fileInputFactories,
+                        Boolean shared,
+                        int numReaders,
+                        int readerNumber,
+                        CopyFromParserProperties parserProperties,
+                        FileUriCollectPhase.InputFormat inputFormat,
+                        int numRanges,
+                        int rangeNumber,
+                        long minBytesPerRange) {
+        assert rangeNumber >= 0 && rangeNumber < numRanges : "rangeNumber must be within [0, numRanges)";
+        this.numRanges = numRanges;
+        this.rangeNumber = rangeNumber;
+        this.minBytesPerRange = minBytesPerRange;
         this.compressed = compression != null && compression.equalsIgnoreCase("gzip");
         this.row = new InputRow(inputs);
         this.fileInputFactories = fileInputFactories;
@@ -129,6 +149,43 @@ public class FileReadingIterator implements BatchIterator<Row> {
                                                  int readerNumber,
                                                  CopyFromParserProperties parserProperties,
                                                  FileUriCollectPhase.InputFormat inputFormat) {
+        return newInstance(
+            fileUris,
+            inputs,
+            collectorExpressions,
+            compression,
+            fileInputFactories,
+            shared,
+            numReaders,
+            readerNumber,
+            parserProperties,
+            inputFormat,
+            1,
+            0);
+    }
+
+    /**
+     * Creates an iterator which reads a part of each file, to read files concurrently using multiple iterators.
+     * <p>
+     * Uncompressed local files are split into {@code numRanges} byte ranges (each at least {@link #MIN_BYTES_PER_RANGE}
+     * large) of which this iterator reads the range {@code rangeNumber}.
+     * Other files, and files of the columnar input format, are read completely by the iterator with
+     * {@code rangeNumber} 0.
+     * <p>
+     * Line numbers are relative to the start of the range.
+     */
+    public static FileReadingIterator newInstance(Collection<String> fileUris,
+                                                  List<? extends Input<?>> inputs,
+                                                  Iterable<LineCollectorExpression<?>> collectorExpressions,
+                                                  String compression,
+                                                  Map<String, FileInputFactory> fileInputFactories,
+                                                  Boolean shared,
+                                                  int numReaders,
+                                                  int readerNumber,
+                                                  CopyFromParserProperties parserProperties,
+                                                  FileUriCollectPhase.InputFormat inputFormat,
+                                                  int numRanges,
+                                                  int rangeNumber) {
         return new FileReadingIterator(
             fileUris,
             inputs,
@@ -139,7 +196,10 @@ public class FileReadingIterator implements BatchIterator<Row> {
             numReaders,
             readerNumber,
             parserProperties,
-            inputFormat);
+            inputFormat,
+            numRanges,
+            rangeNumber,
+            MIN_BYTES_PER_RANGE);
     }
 
     private void initCollectorState() {
@@ -183,6 +243,12 @@ public class FileReadingIterator implements BatchIterator<Row> {
                 return false;
             }
         } catch (IOException e) {
+            if (rangeNumber > 0 && currentReader == null) {
+                // Failures to list or open the files are the same for all ranges,
+                // they're reported by the reader of the first range.
+                // Failures while reading a range must be reported by the reader of that range.
+                return moveNext();
+            }
             lineProcessor.setFailure(e.getMessage());
             return true;
         }
@@ -190,7 +256,36 @@ public class FileReadingIterator implements BatchIterator<Row> {
 
     private void advanceToNextUri(FileInput fileInput) throws IOException {
         currentUri = currentInputIterator.next();
-        initCurrentReader(fileInput, currentUri);
+        if (initRange(currentUri)) {
+            initCurrentReader(fileInput, currentUri);
+        }
+    }
+
+    /**
+     * Determines the byte range of the file to read.
+     *
+     * @return false if this iterator doesn't read any part of the file
+     */
+    private boolean initRange(URI uri) throws IOException {
+        currentRangePath = null;
+        if (numRanges == 1) {
+            return true;
+        }
+        if (compressed
+            || inputFormat == FileUriCollectPhase.InputFormat.COLUMNAR
+            || !"file".equals(uri.getScheme())) {
+            return rangeNumber == 0;
+        }
+        Path path = Paths.get(uri);
+        long size = Files.size(path);
+        int numFileRanges = (int) Math.max(1, Math.min(numRanges, size / minBytesPerRange));
+        if (rangeNumber >= numFileRanges) {
+            return false;
+        }
+        currentRangePath = path;
+        currentRangeStart = size * rangeNumber / numFileRanges;
+        currentRangeEnd = size * (rangeNumber + 1) / numFileRanges;
+        return true;
     }
 
     private void advanceToNextFileInput() throws IOException {
@@ -203,7 +298,7 @@ public class FileReadingIterator implements BatchIterator<Row> {
         if (uris.size() > 0) {
             currentInputIterator = uris.iterator();
             advanceToNextUri(fileInput);
-        } else if (fileUri.preGlobUri != null) {
+        } else if (fileUri.preGlobUri != null && rangeNumber == 0) {
             lineProcessor.startWithUri(fileUri.uri);
             throw new IOException("Cannot find any URI matching: " + fileUri.uri.toString());
         }
@@ -211,10 +306,29 @@ public class FileReadingIterator implements BatchIterator<Row> {
 
     private void initCurrentReader(FileInput fileInput, URI uri) throws IOException {
         lineProcessor.startWithUri(uri);
-        InputStream stream = fileInput.getStream(uri);
-        currentReader = createBufferedReader(stream);
         currentLineNumber = 0;
-        lineProcessor.readFirstLine(currentUri, inputFormat, currentReader);
+        if (inputFormat == FileUriCollectPhase.InputFormat.COLUMNAR) {
+            if ("file".equals(uri.getScheme()) && !compressed) {
+                currentReader = ColumnarFileReader.open(Paths.get(uri));
+            } else {
+                InputStream stream = fileInput.getStream(uri);
+                currentReader = ColumnarFileReader.open(compressed ? new GZIPInputStream(stream) : stream);
+            }
+            lineProcessor.readFirstLine(currentUri, inputFormat, currentReader);
+        } else if (currentRangePath == null) {
+            InputStream stream = fileInput.getStream(uri);
+            currentReader = createBufferedReader(stream);
+            lineProcessor.readFirstLine(currentUri, inputFormat, currentReader);
+        } else {
+            boolean hasHeader;
+            try (BufferedReader headerReader = createBufferedReader(fileInput.getStream(uri))) {
+                hasHeader = lineProcessor.readFirstLine(currentUri, inputFormat, headerReader);
+            }
+            currentReader = ByteRangeLineReader.open(currentRangePath, currentRangeStart, currentRangeEnd);
+            if (hasHeader && currentRangeStart == 0) {
+                currentReader.readLine();
+            }
+        }
     }
 
     private void closeCurrentReader() {
@@ -274,6 +388,7 @@ public class FileReadingIterator implements BatchIterator<Row> {
         currentInputIterator = null;
         currentInput = null;
         currentUri = null;
+        currentRangePath = null;
     }
 
     @Override
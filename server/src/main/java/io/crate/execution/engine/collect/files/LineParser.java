@@ -23,6 +23,7 @@ package io.crate.execution.engine.collect.files;
 
 import io.crate.analyze.CopyFromParserProperties;
 import io.crate.execution.dsl.phases.FileUriCollectPhase;
+import io.crate.expression.reference.file.LineContext;
 import io.crate.operation.collect.files.CSVLineParser;
 
 import java.io.BufferedReader;
@@ -46,27 +47,37 @@ public class LineParser {
         JSON
     }
 
-    public void readFirstLine(URI currentUri,
-                              FileUriCollectPhase.InputFormat inputFormat,
-                              BufferedReader currentReader) throws IOException {
+    /**
+     * @return true if the first line has been consumed as the CSV header
+     */
+    public boolean readFirstLine(URI currentUri,
+                                 FileUriCollectPhase.InputFormat inputFormat,
+                                 BufferedReader currentReader) throws IOException {
         if (isInputCsv(inputFormat, currentUri)) {
             csvLineParser = new CSVLineParser(parserProperties);
             csvLineParser.parseHeader(currentReader.readLine());
             inputType = InputType.CSV;
+            return true;
         } else {
             inputType = InputType.JSON;
+            return false;
         }
     }
 
-    public byte[] getByteArray(String line) throws IOException {
+    /**
+     * Sets the source of the line on the context.
+     * CSV lines are set as parsed map, so that they don't have to be encoded to and parsed from JSON.
+     */
+    public void parse(String line, LineContext lineContext) throws IOException {
         if (inputType == InputType.CSV) {
-            return csvLineParser.parse(line);
+            lineContext.parsedSource(csvLineParser.parseToMap(line));
         } else {
-            return line.getBytes(StandardCharsets.UTF_8);
+            lineContext.rawSource(line.getBytes(StandardCharsets.UTF_8));
         }
     }
 
     private boolean isInputCsv(FileUriCollectPhase.InputFormat inputFormat, URI currentUri) {
-        return (inputFormat == FileUriCollectPhase.InputFormat.CSV) || currentUri.toString().endsWith(".csv");
+        return (inputFormat == FileUriCollectPhase.InputFormat.CSV)
+               || (inputFormat != FileUriCollectPhase.InputFormat.COLUMNAR && currentUri.toString().endsWith(".csv"));
     }
 }
@@ -49,14 +49,16 @@ public final class LineProcessor {
         lineContext.currentUri(currentUri);
     }
 
-    void readFirstLine(URI currentUri, InputFormat inputFormat, BufferedReader currentReader) throws IOException {
-        lineParser.readFirstLine(currentUri, inputFormat, currentReader);
+    /**
+     * @return true if the first line has been consumed as header
+     */
+    boolean readFirstLine(URI currentUri, InputFormat inputFormat, BufferedReader currentReader) throws IOException {
+        return lineParser.readFirstLine(currentUri, inputFormat, currentReader);
     }
 
     public void process(String line) throws IOException {
         lineContext.incrementCurrentLineNumber();
-        byte[] jsonByteArray = lineParser.getByteArray(line);
-        lineContext.rawSource(jsonByteArray);
+        lineParser.parse(line, lineContext);
     }
 
     public void setFailure(String failure) {
@@ -24,15 +24,19 @@ package io.crate.execution.engine.collect.sources;
 import io.crate.analyze.AnalyzedCopyFrom;
 import io.crate.analyze.SymbolEvaluator;
 import io.crate.data.BatchIterator;
+import io.crate.data.CompositeBatchIterator;
 import io.crate.data.Row;
 import io.crate.execution.dsl.phases.CollectPhase;
 import io.crate.execution.dsl.phases.FileUriCollectPhase;
 import io.crate.execution.engine.collect.CollectTask;
+import io.crate.execution.engine.collect.files.ChunkingBatchIterator;
 import io.crate.execution.engine.collect.files.FileInputFactory;
 import io.crate.execution.engine.collect.files.FileReadingIterator;
 import io.crate.execution.engine.collect.files.LineCollectorExpression;
 import io.crate.expression.InputFactory;
+import io.crate.execution.support.ThreadPools;
 import io.crate.expression.reference.file.FileLineReferenceResolver;
+import io.crate.expression.reference.file.SourceLineNumberExpression;
 import io.crate.expression.symbol.Symbol;
 import io.crate.metadata.NodeContext;
 import io.crate.metadata.TransactionContext;
@@ -42,6 +46,8 @@ import io.crate.types.DataTypes;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -49,21 +55,39 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.IntSupplier;
 
 @Singleton
 public class FileCollectSource implements CollectSource {
 
+    /**
+     * Number of rows each reader parses per batch if files are read concurrently
+     */
+    private static final int CHUNK_SIZE = 1000;
+
     private final ClusterService clusterService;
     private final Map<String, FileInputFactory> fileInputFactoryMap;
     private final InputFactory inputFactory;
     private final NodeContext nodeCtx;
+    private final Executor searchExecutor;
+    private final int numProcessors;
+    private final IntSupplier availableThreads;
 
     @Inject
-    public FileCollectSource(NodeContext nodeCtx, ClusterService clusterService, Map<String, FileInputFactory> fileInputFactoryMap) {
+    public FileCollectSource(NodeContext nodeCtx,
+                             ClusterService clusterService,
+                             Map<String, FileInputFactory> fileInputFactoryMap,
+                             ThreadPool threadPool) {
         this.fileInputFactoryMap = fileInputFactoryMap;
         this.nodeCtx = nodeCtx;
         this.inputFactory = new InputFactory(nodeCtx);
         this.clusterService = clusterService;
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) threadPool.executor(ThreadPool.Names.SEARCH);
+        this.searchExecutor = executor;
+        this.numProcessors = EsExecutors.numberOfProcessors(clusterService.getSettings());
+        this.availableThreads = ThreadPools.numIdleThreads(executor, numProcessors);
     }
 
     @Override
@@ -77,18 +101,65 @@ public class FileCollectSource implements CollectSource {
         ctx.add(collectPhase.toCollect());
 
         List<String> fileUris = targetUriToStringList(txnCtx, nodeCtx, fileUriCollectPhase.targetUri());
-        return CompletableFuture.completedFuture(FileReadingIterator.newInstance(
-            fileUris,
-            ctx.topLevelInputs(),
-            ctx.expressions(),
-            fileUriCollectPhase.compression(),
-            fileInputFactoryMap,
-            fileUriCollectPhase.sharedStorage(),
-            fileUriCollectPhase.nodeIds().size(),
-            getReaderNumber(fileUriCollectPhase.nodeIds(), clusterService.state().nodes().getLocalNodeId()),
-            fileUriCollectPhase.parserProperties(),
-            fileUriCollectPhase.inputFormat()
-        ));
+        int readerNumber = getReaderNumber(fileUriCollectPhase.nodeIds(), clusterService.state().nodes().getLocalNodeId());
+        int numRanges = numRanges(fileUriCollectPhase, ctx.expressions());
+        if (numRanges == 1) {
+            return CompletableFuture.completedFuture(FileReadingIterator.newInstance(
+                fileUris,
+                ctx.topLevelInputs(),
+                ctx.expressions(),
+                fileUriCollectPhase.compression(),
+                fileInputFactoryMap,
+                fileUriCollectPhase.sharedStorage(),
+                fileUriCollectPhase.nodeIds().size(),
+                readerNumber,
+                fileUriCollectPhase.parserProperties(),
+                fileUriCollectPhase.inputFormat()
+            ));
+        }
+        // Large files are split into byte ranges which are parsed concurrently;
+        // Each reader needs its own expressions as they're bound to the line of the reader.
+        @SuppressWarnings("unchecked")
+        BatchIterator<Row>[] iterators = new BatchIterator[numRanges];
+        for (int i = 0; i < numRanges; i++) {
+            InputFactory.Context<LineCollectorExpression<?>> rangeCtx =
+                inputFactory.ctxForRefs(txnCtx, FileLineReferenceResolver::getImplementation);
+            rangeCtx.add(collectPhase.toCollect());
+            FileReadingIterator rangeIterator = FileReadingIterator.newInstance(
+                fileUris,
+                rangeCtx.topLevelInputs(),
+                rangeCtx.expressions(),
+                fileUriCollectPhase.compression(),
+                fileInputFactoryMap,
+                fileUriCollectPhase.sharedStorage(),
+                fileUriCollectPhase.nodeIds().size(),
+                readerNumber,
+                fileUriCollectPhase.parserProperties(),
+                fileUriCollectPhase.inputFormat(),
+                numRanges,
+                i
+            );
+            iterators[i] = new ChunkingBatchIterator(rangeIterator, collectPhase.toCollect().size(), CHUNK_SIZE);
+        }
+        return CompletableFuture.completedFuture(
+            CompositeBatchIterator.asyncComposite(searchExecutor, availableThreads, iterators));
+    }
+
+    /**
+     * Line numbers (used for RETURN SUMMARY) are only known if a file is read from the beginning
+     * and compressed files can't be split.
+     */
+    private int numRanges(FileUriCollectPhase collectPhase, Collection<LineCollectorExpression<?>> expressions) {
+        String compression = collectPhase.compression();
+        if (compression != null && compression.equalsIgnoreCase("gzip")) {
+            return 1;
+        }
+        for (LineCollectorExpression<?> expression : expressions) {
+            if (expression instanceof SourceLineNumberExpression) {
+                return 1;
+            }
+        }
+        return Math.max(1, numProcessors);
     }
 
     private static int getReaderNumber(Collection<String> nodeIds, String localNodeId) {
@@ -215,7 +215,8 @@ public class ShardCollectSource implements CollectSource {
             inputFactory,
             nodeNormalizer,
             systemCollectSource::getRowUpdater,
-            systemCollectSource::tableDefinition
+            systemCollectSource::tableDefinition,
+            null
         );
 
         indexEventListenerProxy.addLast(new LifecycleListener());
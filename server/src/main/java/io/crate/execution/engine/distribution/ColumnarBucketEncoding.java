@@ -0,0 +1,345 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.distribution;
+
+import io.crate.Streamer;
+import io.crate.data.Row;
+import io.crate.types.LongType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteArrayDataOutput;
+import org.apache.lucene.util.compress.LZ4;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Column-wise encoding of the rows of a {@link StreamBucket}, used to transfer buckets between nodes.
+ *
+ * <pre>
+ *  compression: byte (0 = none, 1 = LZ4)
+ *  uncompressedLength: vint
+ *  payload: column*  (compressed as a whole if compression is LZ4)
+ *
+ *  column:
+ *      kind: byte
+ *      GENERIC:            value*              (written by the columns streamer)
+ *      LONG_DELTA:         nullBitmap, zlong*  (delta to the previous non-null value)
+ *      STRING_DICTIONARY:  vint numEntries, string*, vint* (index into the dictionary + 1, 0 for null)
+ * </pre>
+ *
+ * Grouping the values by column makes them a lot more compressible than the row format,
+ * long and timestamp columns benefit from the delta encoding and repeating strings are only sent once.
+ */
+final class ColumnarBucketEncoding {
+
+    /**
+     * Buckets with less rows are sent in row format, the overhead of the encoding wouldn't pay off.
+     */
+    static final int MIN_ROWS = 16;
+
+    /**
+     * Payloads smaller than this aren't compressed
+     */
+    static final int MIN_COMPRESS_BYTES = 1024;
+
+    private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    private static final byte UNCOMPRESSED = 0;
+    private static final byte LZ4_COMPRESSED = 1;
+
+    private static final byte GENERIC = 0;
+    private static final byte LONG_DELTA = 1;
+    private static final byte STRING_DICTIONARY = 2;
+
+    private ColumnarBucketEncoding() {
+    }
+
+    /**
+     * Encodes the rows column by column while they're streamed, without materializing the values of a column.
+     * Apart from the dictionary of string columns, the memory needed is bounded by the size of the encoded values.
+     */
+    static BytesReference encode(Streamer<?>[] streamers, Iterator<Row> rows, int size, Version version) throws IOException {
+        ColumnEncoder[] encoders = new ColumnEncoder[streamers.length];
+        for (int c = 0; c < streamers.length; c++) {
+            encoders[c] = ColumnEncoder.of(streamers[c], size, version);
+        }
+        for (int i = 0; i < size; i++) {
+            Row row = rows.next();
+            for (int c = 0; c < encoders.length; c++) {
+                encoders[c].add(row.get(c));
+            }
+        }
+        BytesStreamOutput payload = new BytesStreamOutput();
+        payload.setVersion(version);
+        for (ColumnEncoder encoder : encoders) {
+            encoder.writeTo(payload);
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        int uncompressedLength = payload.size();
+        if (uncompressedLength >= MIN_COMPRESS_BYTES) {
+            byte[] uncompressed = BytesReference.toBytes(payload.bytes());
+            // worst case size of LZ4 for incompressible input
+            byte[] compressed = new byte[uncompressedLength + uncompressedLength / 255 + 16];
+            ByteArrayDataOutput compressedOut = new ByteArrayDataOutput(compressed);
+            LZ4.compress(uncompressed, 0, uncompressedLength, compressedOut, new LZ4.FastCompressionHashTable());
+            int compressedLength = compressedOut.getPosition();
+            if (compressedLength < uncompressedLength) {
+                out.writeByte(LZ4_COMPRESSED);
+                out.writeVInt(uncompressedLength);
+                out.writeBytes(compressed, 0, compressedLength);
+                return out.bytes();
+            }
+        }
+        out.writeByte(UNCOMPRESSED);
+        out.writeVInt(uncompressedLength);
+        payload.bytes().writeTo(out);
+        return out.bytes();
+    }
+
+    static Object[][] decode(BytesReference encoded, Streamer<?>[] streamers, int size, Version version) throws IOException {
+        StreamInput payload;
+        try (StreamInput in = encoded.streamInput()) {
+            byte compression = in.readByte();
+            int uncompressedLength = in.readVInt();
+            switch (compression) {
+                case UNCOMPRESSED:
+                    byte[] bytes = new byte[uncompressedLength];
+                    in.readBytes(bytes, 0, uncompressedLength);
+                    payload = StreamInput.wrap(bytes);
+                    break;
+
+                case LZ4_COMPRESSED:
+                    byte[] compressed = new byte[in.available()];
+                    in.readBytes(compressed, 0, compressed.length);
+                    byte[] uncompressed = new byte[uncompressedLength];
+                    LZ4.decompress(new ByteArrayDataInput(compressed), uncompressedLength, uncompressed, 0);
+                    payload = StreamInput.wrap(uncompressed);
+                    break;
+
+                default:
+                    throw new IllegalStateException("Unknown compression of columnar bucket: " + compression);
+            }
+        }
+        payload.setVersion(version);
+        Object[][] columns = new Object[streamers.length][size];
+        for (int c = 0; c < streamers.length; c++) {
+            Object[] values = columns[c];
+            byte kind = payload.readByte();
+            switch (kind) {
+                case GENERIC:
+                    Streamer<?> streamer = streamers[c];
+                    for (int i = 0; i < size; i++) {
+                        values[i] = streamer.readValueFrom(payload);
+                    }
+                    break;
+
+                case LONG_DELTA:
+                    readLongDelta(payload, values, size);
+                    break;
+
+                case STRING_DICTIONARY:
+                    readStringDictionary(payload, values, size);
+                    break;
+
+                default:
+                    throw new IllegalStateException("Unknown column encoding of columnar bucket: " + kind);
+            }
+        }
+        return columns;
+    }
+
+    private static void readLongDelta(StreamInput in, Object[] values, int size) throws IOException {
+        boolean[] nulls = readNullBitmap(in, size);
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            if (!nulls[i]) {
+                previous += in.readZLong();
+                values[i] = previous;
+            }
+        }
+    }
+
+    private static void readStringDictionary(StreamInput in, Object[] values, int size) throws IOException {
+        String[] entries = new String[in.readVInt()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = in.readString();
+        }
+        for (int i = 0; i < size; i++) {
+            int id = in.readVInt();
+            values[i] = id == 0 ? null : entries[id - 1];
+        }
+    }
+
+    private static boolean[] readNullBitmap(StreamInput in, int size) throws IOException {
+        byte[] bitmap = new byte[(size + 7) / 8];
+        in.readBytes(bitmap, 0, bitmap.length);
+        boolean[] nulls = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            nulls[i] = (bitmap[i >> 3] & (1 << (i & 7))) != 0;
+        }
+        return nulls;
+    }
+
+    private abstract static class ColumnEncoder {
+
+        static ColumnEncoder of(Streamer<?> streamer, int size, Version version) {
+            if (streamer instanceof LongType || streamer instanceof TimestampType) {
+                return new LongDeltaEncoder(size, version);
+            }
+            if (streamer instanceof StringType) {
+                return new StringDictionaryEncoder(streamer, size, version);
+            }
+            return new GenericEncoder(streamer, version);
+        }
+
+        abstract void add(Object value) throws IOException;
+
+        abstract void writeTo(StreamOutput out) throws IOException;
+    }
+
+    private static class GenericEncoder extends ColumnEncoder {
+
+        private final Streamer<?> streamer;
+        private final BytesStreamOutput values = new BytesStreamOutput();
+
+        GenericEncoder(Streamer<?> streamer, Version version) {
+            this.streamer = streamer;
+            values.setVersion(version);
+        }
+
+        @Override
+        void add(Object value) throws IOException {
+            //noinspection unchecked
+            ((Streamer) streamer).writeValueTo(values, value);
+        }
+
+        @Override
+        void writeTo(StreamOutput out) throws IOException {
+            out.writeByte(GENERIC);
+            values.bytes().writeTo(out);
+        }
+    }
+
+    /**
+     * Writes a null bitmap followed by the delta of each non-null value to the previous non-null value.
+     */
+    private static class LongDeltaEncoder extends ColumnEncoder {
+
+        private final byte[] nullBitmap;
+        private final BytesStreamOutput deltas = new BytesStreamOutput();
+        private int position = 0;
+        private long previous = 0;
+
+        LongDeltaEncoder(int size, Version version) {
+            nullBitmap = new byte[(size + 7) / 8];
+            deltas.setVersion(version);
+        }
+
+        @Override
+        void add(Object value) throws IOException {
+            if (value == null) {
+                nullBitmap[position >> 3] |= (byte) (1 << (position & 7));
+            } else {
+                long current = (Long) value;
+                deltas.writeZLong(current - previous);
+                previous = current;
+            }
+            position++;
+        }
+
+        @Override
+        void writeTo(StreamOutput out) throws IOException {
+            out.writeByte(LONG_DELTA);
+            out.writeBytes(nullBitmap);
+            deltas.bytes().writeTo(out);
+        }
+    }
+
+    /**
+     * Builds a dictionary of the values, falls back to the generic encoding if the values are mostly distinct.
+     */
+    private static class StringDictionaryEncoder extends ColumnEncoder {
+
+        private final GenericEncoder generic;
+        private final int maxEntries;
+        private final int[] valueIds;
+        @Nullable
+        private Map<String, Integer> ids = new HashMap<>();
+        private int position = 0;
+
+        StringDictionaryEncoder(Streamer<?> streamer, int size, Version version) {
+            generic = new GenericEncoder(streamer, version);
+            maxEntries = Math.min(MAX_DICTIONARY_SIZE, size / 2);
+            valueIds = new int[size];
+        }
+
+        @Override
+        void add(Object value) throws IOException {
+            generic.add(value);
+            if (ids != null && value != null) {
+                Integer id = ids.get(value);
+                if (id == null) {
+                    if (ids.size() == maxEntries) {
+                        ids = null;
+                        position++;
+                        return;
+                    }
+                    id = ids.size() + 1;
+                    ids.put((String) value, id);
+                }
+                valueIds[position] = id;
+            }
+            position++;
+        }
+
+        @Override
+        void writeTo(StreamOutput out) throws IOException {
+            if (ids == null) {
+                generic.writeTo(out);
+                return;
+            }
+            out.writeByte(STRING_DICTIONARY);
+            String[] entries = new String[ids.size()];
+            for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+                entries[entry.getValue() - 1] = entry.getKey();
+            }
+            out.writeVInt(entries.length);
+            for (String entry : entries) {
+                out.writeString(entry);
+            }
+            for (int i = 0; i < position; i++) {
+                out.writeVInt(valueIds[i]);
+            }
+        }
+    }
+}
@@ -51,10 +51,19 @@ import java.util.concurrent.atomic.AtomicInteger;
  *
  * Every time requests to the downstreams are made consumption of the source BatchIterator is stopped until a response
  * from all downstreams is received.
+ *
+ * Besides the number of rows, the size of a page is limited by {@link #pageBytesLimit}, which adapts to the
+ * back-pressure of the downstreams, see {@link #adaptPageBytesLimit(long)}.
  */
 public class DistributingConsumer implements RowConsumer {
 
     private static final Logger LOGGER = LogManager.getLogger(DistributingConsumer.class);
+
+    /**
+     * Lower bound of {@link #pageBytesLimit}
+     */
+    static final long MIN_PAGE_BYTES = 1024 * 1024;
+
     private final Executor responseExecutor;
     private final UUID jobId;
     private final int targetPhaseId;
@@ -62,6 +71,8 @@ public class DistributingConsumer implements RowConsumer {
     private final int bucketIdx;
     private final TransportDistributedResultAction distributedResultAction;
     private final int pageSize;
+    private final long maxPageBytes;
+    private final long minPageBytes;
     private final StreamBucket[] buckets;
     private final List<Downstream> downstreams;
     private final boolean traceEnabled;
@@ -72,6 +83,11 @@ public class DistributingConsumer implements RowConsumer {
 
     private volatile Throwable failure;
 
+    @VisibleForTesting
+    volatile long pageBytesLimit;
+    private volatile long pageStartedNanos;
+    private volatile long requestsSentNanos;
+
     public DistributingConsumer(Executor responseExecutor,
                                 UUID jobId,
                                 MultiBucketBuilder multiBucketBuilder,
@@ -81,6 +97,29 @@ public class DistributingConsumer implements RowConsumer {
                                 Collection<String> downstreamNodeIds,
                                 TransportDistributedResultAction distributedResultAction,
                                 int pageSize) {
+        this(responseExecutor,
+             jobId,
+             multiBucketBuilder,
+             targetPhaseId,
+             inputId,
+             bucketIdx,
+             downstreamNodeIds,
+             distributedResultAction,
+             pageSize,
+             Paging.MAX_PAGE_BYTES);
+    }
+
+    @VisibleForTesting
+    DistributingConsumer(Executor responseExecutor,
+                         UUID jobId,
+                         MultiBucketBuilder multiBucketBuilder,
+                         int targetPhaseId,
+                         byte inputId,
+                         int bucketIdx,
+                         Collection<String> downstreamNodeIds,
+                         TransportDistributedResultAction distributedResultAction,
+                         int pageSize,
+                         long maxPageBytes) {
         this.traceEnabled = LOGGER.isTraceEnabled();
         this.responseExecutor = responseExecutor;
         this.jobId = jobId;
@@ -90,6 +129,9 @@ public class DistributingConsumer implements RowConsumer {
         this.bucketIdx = bucketIdx;
         this.distributedResultAction = distributedResultAction;
         this.pageSize = pageSize;
+        this.maxPageBytes = maxPageBytes;
+        this.minPageBytes = Math.min(MIN_PAGE_BYTES, maxPageBytes);
+        this.pageBytesLimit = maxPageBytes;
         this.buckets = new StreamBucket[downstreamNodeIds.size()];
         this.completionFuture = new CompletableFuture<>();
         downstreams = new ArrayList<>(downstreamNodeIds.size());
@@ -101,6 +143,7 @@ public class DistributingConsumer implements RowConsumer {
     @Override
     public void accept(BatchIterator<Row> iterator, @Nullable Throwable failure) {
         if (failure == null) {
+            pageStartedNanos = System.nanoTime();
             consumeIt(iterator);
         } else {
             completionFuture.completeExceptionally(failure);
@@ -117,7 +160,7 @@ public class DistributingConsumer implements RowConsumer {
         try {
             while (it.moveNext()) {
                 multiBucketBuilder.add(it.currentElement());
-                if (multiBucketBuilder.size() >= pageSize || multiBucketBuilder.ramBytesUsed() >= Paging.MAX_PAGE_BYTES) {
+                if (multiBucketBuilder.size() >= pageSize || multiBucketBuilder.ramBytesUsed() >= pageBytesLimit) {
                     forwardResults(it, false);
                     return;
                 }
@@ -190,6 +233,7 @@ public class DistributingConsumer implements RowConsumer {
 
     private void forwardResults(BatchIterator<Row> it, boolean isLast) {
         multiBucketBuilder.build(buckets);
+        requestsSentNanos = System.nanoTime();
 
         AtomicInteger numActiveRequests = new AtomicInteger(downstreams.size());
         for (int i = 0; i < downstreams.size(); i++) {
@@ -228,6 +272,7 @@ public class DistributingConsumer implements RowConsumer {
         if (numActiveRequests.decrementAndGet() == 0) {
             if (downstreams.stream().anyMatch(Downstream::needsMoreData)) {
                 if (failure == null) {
+                    adaptPageBytesLimit(System.nanoTime());
                     if (sameExecutor) {
                         consumeIt(it);
                     } else {
@@ -255,6 +300,38 @@ public class DistributingConsumer implements RowConsumer {
         }
     }
 
+    /**
+     * Consumption of the source is paused while the requests of a page are in flight.
+     * The downstreams respond once they're ready to receive more data, so the time it takes to get all responses is a
+     * measure of their back-pressure:
+     *
+     * <ul>
+     *  <li>If waiting for the responses takes longer than filling the page, the downstreams can't keep up.
+     *  Sending smaller pages reduces the amount of data which is buffered in between without reducing the
+     *  throughput.</li>
+     *  <li>If the responses arrive a lot quicker than the page is filled, the downstreams are waiting for data.
+     *  Larger pages reduce the number of round trips.</li>
+     * </ul>
+     *
+     * The limit is in bytes, so wide rows result in fewer rows per page than narrow rows.
+     */
+    private void adaptPageBytesLimit(long nowNanos) {
+        long fillNanos = requestsSentNanos - pageStartedNanos;
+        long waitNanos = nowNanos - requestsSentNanos;
+        long limit = pageBytesLimit;
+        if (waitNanos > fillNanos) {
+            limit = Math.max(minPageBytes, limit / 2);
+        } else if (waitNanos < fillNanos / 4) {
+            limit = Math.min(maxPageBytes, limit * 2);
+        }
+        if (traceEnabled && limit != pageBytesLimit) {
+            LOGGER.trace("adaptPageBytesLimit jobId={} targetPhase={}/{} bucket={} fillMs={} waitMs={} limit={}",
+                jobId, targetPhaseId, inputId, bucketIdx, fillNanos / 1_000_000, waitNanos / 1_000_000, limit);
+        }
+        pageBytesLimit = limit;
+        pageStartedNanos = nowNanos;
+    }
+
     private static class Downstream {
 
         private final String nodeId;
@@ -24,6 +24,7 @@ package io.crate.execution.engine.distribution;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Executor;
 
@@ -32,12 +33,24 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import javax.annotation.Nullable;
+
 import io.crate.Streamer;
 import io.crate.breaker.RamAccounting;
 import io.crate.data.RowConsumer;
+import io.crate.execution.dsl.phases.AbstractProjectionsPhase;
+import io.crate.execution.dsl.phases.ExecutionPhase;
 import io.crate.execution.dsl.phases.ExecutionPhases;
 import io.crate.execution.dsl.phases.NodeOperation;
+import io.crate.execution.dsl.projection.GroupProjection;
+import io.crate.execution.dsl.projection.Projection;
+import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.execution.jobs.PageBucketReceiver;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.expression.symbol.Aggregation;
+import io.crate.metadata.NodeContext;
+import io.crate.metadata.RowGranularity;
+import io.crate.metadata.SearchPath;
 import io.crate.planner.distribution.DistributionInfo;
 import io.crate.planner.node.StreamerVisitor;
 
@@ -49,12 +62,15 @@ public class DistributingConsumerFactory {
     private final ClusterService clusterService;
     private final Executor responseExecutor;
     private final TransportDistributedResultAction transportDistributedResultAction;
+    private final NodeContext nodeCtx;
 
     @Inject
     public DistributingConsumerFactory(ClusterService clusterService,
                                        ThreadPool threadPool,
-                                       TransportDistributedResultAction transportDistributedResultAction) {
+                                       TransportDistributedResultAction transportDistributedResultAction,
+                                       NodeContext nodeCtx) {
         this.clusterService = clusterService;
+        this.nodeCtx = nodeCtx;
         this.responseExecutor = threadPool.executor(RESPONSE_EXECUTOR_NAME);
         this.transportDistributedResultAction = transportDistributedResultAction;
     }
@@ -86,7 +102,8 @@ public class DistributingConsumerFactory {
                         streamers,
                         nodeOperation.downstreamNodes().size(),
                         distributionInfo.distributeByColumn(),
-                        ramAccounting
+                        ramAccounting,
+                        hotKeyCombiner(nodeOperation.executionPhase(), distributionInfo, ramAccounting)
                     );
                 }
                 break;
@@ -114,6 +131,46 @@ public class DistributingConsumerFactory {
         );
     }
 
+    /**
+     * Shard level partial aggregations emit a row per group key and shard, so the same key can be sent multiple times
+     * by a node. These rows can be combined before they're distributed.
+     *
+     * @return a combiner if the phase ends with a shard level partial aggregation, otherwise null
+     */
+    @Nullable
+    private HotKeyCombiner hotKeyCombiner(ExecutionPhase phase,
+                                          DistributionInfo distributionInfo,
+                                          RamAccounting ramAccounting) {
+        if (!(phase instanceof AbstractProjectionsPhase)) {
+            return null;
+        }
+        List<Projection> projections = ((AbstractProjectionsPhase) phase).projections();
+        if (projections.isEmpty()) {
+            return null;
+        }
+        Projection lastProjection = projections.get(projections.size() - 1);
+        if (!(lastProjection instanceof GroupProjection)) {
+            return null;
+        }
+        GroupProjection groupProjection = (GroupProjection) lastProjection;
+        int numKeys = groupProjection.keys().size();
+        if (groupProjection.mode() != AggregateMode.ITER_PARTIAL
+            || groupProjection.requiredGranularity() != RowGranularity.SHARD
+            || distributionInfo.distributeByColumn() >= numKeys) {
+            return null;
+        }
+        List<Aggregation> aggregations = groupProjection.values();
+        AggregationFunction[] functions = new AggregationFunction[aggregations.size()];
+        for (int i = 0; i < functions.length; i++) {
+            // Aggregations are always resolved by their signature, the search path is only a fallback
+            functions[i] = (AggregationFunction) nodeCtx.functions().getQualified(
+                aggregations.get(i),
+                SearchPath.pathWithPGCatalogAndDoc()
+            );
+        }
+        return new HotKeyCombiner(numKeys, functions, ramAccounting);
+    }
+
     /**
      * @return bucketIdx (= phaseInputID (8bit) | idx of localNode in nodeIds (24bit) )
      *
@@ -0,0 +1,138 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.distribution;
+
+import io.crate.breaker.RamAccounting;
+import io.crate.data.Row;
+import io.crate.execution.engine.aggregation.AggregationFunction;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Combines rows of partial aggregation states which share a group key before they are distributed.
+ *
+ * <p>
+ * With shard level partial aggregations each shard emits a row per group key,
+ * so a key which is present in many shards is sent multiple times by a node.
+ * The combiner holds back the rows of up to {@link #MAX_KEYS} keys per page and reduces the states of rows
+ * with the same key into one row. Rows of other keys pass through unchanged.
+ * </p>
+ * <p>
+ * Combining only pays off for frequent keys: If less than {@link #MIN_COMBINED_SHARE} of the
+ * first {@link #SAMPLE_SIZE} rows could be combined, combining is disabled for the rest of the input.
+ * </p>
+ */
+final class HotKeyCombiner {
+
+    static final int MAX_KEYS = 4096;
+    static final int SAMPLE_SIZE = 10_000;
+    static final double MIN_COMBINED_SHARE = 0.1;
+
+    private static final Object NULL_KEY = new Object();
+
+    private final int numKeys;
+    private final AggregationFunction[] functions;
+    private final RamAccounting ramAccounting;
+    private final Map<Object, Object[]> rowsByKey = new HashMap<>();
+
+    private boolean enabled = true;
+    private long numRows = 0;
+    private long numCombinedRows = 0;
+
+    /**
+     * @param numKeys the number of leading columns which form the group key
+     * @param functions the aggregation functions of the states following the keys
+     */
+    HotKeyCombiner(int numKeys, AggregationFunction[] functions, RamAccounting ramAccounting) {
+        this.numKeys = numKeys;
+        this.functions = functions;
+        this.ramAccounting = ramAccounting;
+    }
+
+    /**
+     * @return true if the row has been taken over by the combiner and must not be sent on its own.
+     *         It will be part of the rows passed to {@link #drainTo(Consumer)}.
+     */
+    @SuppressWarnings("unchecked")
+    boolean combine(Row row) {
+        if (!enabled) {
+            return false;
+        }
+        numRows++;
+        boolean combined = true;
+        Object key = key(row);
+        Object[] cells = rowsByKey.get(key);
+        if (cells != null) {
+            for (int i = 0; i < functions.length; i++) {
+                int idx = numKeys + i;
+                cells[idx] = functions[i].reduce(ramAccounting, cells[idx], row.get(idx));
+            }
+            numCombinedRows++;
+        } else if (rowsByKey.size() < MAX_KEYS) {
+            rowsByKey.put(key, row.materialize());
+        } else {
+            combined = false;
+        }
+        if (numRows == SAMPLE_SIZE && numCombinedRows < SAMPLE_SIZE * MIN_COMBINED_SHARE) {
+            // Rows which are already held back are still returned on the next drain
+            enabled = false;
+        }
+        return combined;
+    }
+
+    /**
+     * Passes the held back rows to the consumer and removes them from the combiner.
+     */
+    void drainTo(Consumer<Object[]> consumer) {
+        for (Object[] cells : rowsByKey.values()) {
+            consumer.accept(cells);
+        }
+        rowsByKey.clear();
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the number of rows which have been reduced into the row of another
+     */
+    long numCombinedRows() {
+        return numCombinedRows;
+    }
+
+    private Object key(Row row) {
+        if (numKeys == 1) {
+            Object value = row.get(0);
+            return value == null ? NULL_KEY : value;
+        }
+        Object[] key = new Object[numKeys];
+        for (int i = 0; i < numKeys; i++) {
+            key[i] = row.get(i);
+        }
+        return Arrays.asList(key);
+    }
+}
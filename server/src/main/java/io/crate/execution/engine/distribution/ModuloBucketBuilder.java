@@ -25,6 +25,7 @@ package io.crate.execution.engine.distribution;
 import io.crate.Streamer;
 import io.crate.breaker.RamAccounting;
 import io.crate.data.Row;
+import io.crate.data.RowN;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
@@ -33,17 +34,33 @@ import java.util.List;
 /**
  * builds N buckets where N is passed in the CTOR.
  * The rows that are added via {@link #add(Row)} are assigned to the buckets by modulo calculation.
+ *
+ * If a {@link HotKeyCombiner} is given, rows of partial aggregation states with the same key are combined
+ * and added to their bucket when the buckets are built.
  */
 public class ModuloBucketBuilder implements MultiBucketBuilder {
 
     private final int numBuckets;
     private final List<StreamBucket.Builder> bucketBuilders;
     private final int distributedByColumnIdx;
+    @Nullable
+    private final HotKeyCombiner combiner;
+    private final RowN combinedRow;
     private int size = 0;
 
     public ModuloBucketBuilder(Streamer<?>[] streamers, int numBuckets, int distributedByColumnIdx, RamAccounting ramAccounting) {
+        this(streamers, numBuckets, distributedByColumnIdx, ramAccounting, null);
+    }
+
+    ModuloBucketBuilder(Streamer<?>[] streamers,
+                        int numBuckets,
+                        int distributedByColumnIdx,
+                        RamAccounting ramAccounting,
+                        @Nullable HotKeyCombiner combiner) {
         this.numBuckets = numBuckets;
         this.distributedByColumnIdx = distributedByColumnIdx;
+        this.combiner = combiner;
+        this.combinedRow = new RowN(streamers.length);
         this.bucketBuilders = new ArrayList<>(numBuckets);
         for (int i = 0; i < numBuckets; i++) {
             bucketBuilders.add(new StreamBucket.Builder(streamers, ramAccounting));
@@ -52,6 +69,9 @@ public class ModuloBucketBuilder implements MultiBucketBuilder {
 
     @Override
     public void add(Row row) {
+        if (combiner != null && combiner.combine(row)) {
+            return;
+        }
         StreamBucket.Builder builder = bucketBuilders.get(getBucket(row));
         builder.add(row);
         size++;
@@ -65,6 +85,12 @@ public class ModuloBucketBuilder implements MultiBucketBuilder {
     @Override
     public void build(StreamBucket[] buckets) {
         assert buckets.length == numBuckets : "length of the provided array must match numBuckets";
+        if (combiner != null) {
+            combiner.drainTo(cells -> {
+                combinedRow.cells(cells);
+                bucketBuilders.get(getBucket(combinedRow)).add(combinedRow);
+            });
+        }
         for (int i = 0; i < numBuckets; i++) {
             StreamBucket.Builder builder = bucketBuilders.get(i);
             buckets[i] = builder.build();
@@ -91,6 +117,11 @@ public class ModuloBucketBuilder implements MultiBucketBuilder {
         return value.hashCode();
     }
 
+    @Nullable
+    HotKeyCombiner combiner() {
+        return combiner;
+    }
+
     @Override
     public long ramBytesUsed() {
         long sum = 0;
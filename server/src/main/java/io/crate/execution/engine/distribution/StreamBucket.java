@@ -28,6 +28,7 @@ import io.crate.data.Bucket;
 import io.crate.data.Row;
 import io.crate.data.RowN;
 import org.apache.lucene.util.Accountable;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -43,12 +44,30 @@ import java.util.Iterator;
 
 import static java.util.Objects.requireNonNull;
 
+/**
+ * A bucket of rows which are serialized using {@link Streamer}s.
+ *
+ * <p>
+ * The rows are kept in row format. When a bucket is sent to a node which supports it,
+ * the rows are streamed into the columnar format of {@link ColumnarBucketEncoding}.
+ * Received columnar buckets are decoded lazily once they're iterated.
+ * </p>
+ */
 public class StreamBucket implements Bucket, Writeable {
 
+    private static final byte ROWS = 0;
+    private static final byte COLUMNS = 1;
+
     private Streamer<?>[] streamers;
     private int size = -1;
     private BytesReference bytes;
 
+    @Nullable
+    private BytesReference columnarBytes;
+    private Version columnarVersion;
+    @Nullable
+    private Object[][] columns;
+
     public static class Builder implements Accountable {
 
         private static final int INITIAL_PAGE_SIZE = 1024;
@@ -171,6 +190,36 @@ public class StreamBucket implements Bucket, Writeable {
         }
     }
 
+    private static class ColumnIterator implements Iterator<Row> {
+
+        private final Object[][] columns;
+        private final int size;
+        private final Object[] current;
+        private final RowN row;
+        private int pos = 0;
+
+        private ColumnIterator(Object[][] columns, int size) {
+            this.columns = columns;
+            this.size = size;
+            current = new Object[columns.length];
+            row = new RowN(current);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pos < size;
+        }
+
+        @Override
+        public Row next() {
+            for (int c = 0; c < columns.length; c++) {
+                current[c] = columns[c][pos];
+            }
+            pos++;
+            return row;
+        }
+    }
+
     @Override
     @Nonnull
     public Iterator<Row> iterator() {
@@ -179,12 +228,49 @@ public class StreamBucket implements Bucket, Writeable {
         }
         assert streamers != null : "streamers must not be null";
         try {
+            if (columnarBytes != null) {
+                return new ColumnIterator(columns(), size);
+            }
             return new RowIterator(bytes.streamInput(), streamers, size);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    private Object[][] columns() throws IOException {
+        if (columns == null) {
+            columns = ColumnarBucketEncoding.decode(columnarBytes, streamers, size, columnarVersion);
+        }
+        return columns;
+    }
+
+    private BytesReference rowBytes(Version version) throws IOException {
+        if (bytes == null) {
+            ensureStreamers(version);
+            BytesStreamOutput out = new BytesStreamOutput();
+            out.setVersion(version);
+            Object[][] columns = columns();
+            for (int i = 0; i < size; i++) {
+                for (int c = 0; c < streamers.length; c++) {
+                    //noinspection unchecked
+                    ((Streamer) streamers[c]).writeValueTo(out, columns[c][i]);
+                }
+            }
+            bytes = out.bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * A received bucket can only be sent in another format or for another version if its streamers are set.
+     */
+    private void ensureStreamers(Version version) {
+        if (streamers == null) {
+            throw new IllegalStateException(
+                "Streamers of a received columnar bucket must be set to send it to a node on version " + version);
+        }
+    }
+
     /**
      * Create a StreamBucket by reading from an input stream.
      * The created buckets rows are lazily de-serialized using the provided streamers
@@ -201,7 +287,12 @@ public class StreamBucket implements Bucket, Writeable {
     public StreamBucket(StreamInput in) throws IOException {
         size = in.readVInt();
         if (size > 0) {
-            bytes = in.readBytesReference();
+            if (in.getVersion().onOrAfter(Version.V_4_5_0) && in.readByte() == COLUMNS) {
+                columnarVersion = in.getVersion();
+                columnarBytes = in.readBytesReference();
+            } else {
+                bytes = in.readBytesReference();
+            }
         }
     }
 
@@ -216,8 +307,22 @@ public class StreamBucket implements Bucket, Writeable {
     public void writeTo(StreamOutput out) throws IOException {
         assert size > -1 : "size must be > -1";
         out.writeVInt(size);
-        if (size > 0) {
+        if (size == 0) {
+            return;
+        }
+        Version version = out.getVersion();
+        if (version.before(Version.V_4_5_0)) {
+            out.writeBytesReference(rowBytes(version));
+        } else if (columnarBytes != null && columnarVersion.equals(version)) {
+            out.writeByte(COLUMNS);
+            out.writeBytesReference(columnarBytes);
+        } else if (columnarBytes == null && (size < ColumnarBucketEncoding.MIN_ROWS || streamers == null)) {
+            out.writeByte(ROWS);
             out.writeBytesReference(bytes);
+        } else {
+            ensureStreamers(version);
+            out.writeByte(COLUMNS);
+            out.writeBytesReference(ColumnarBucketEncoding.encode(streamers, iterator(), size, version));
         }
     }
 }
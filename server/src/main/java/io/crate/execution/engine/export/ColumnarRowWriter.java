@@ -0,0 +1,431 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.export;
+
+import com.carrotsearch.hppc.IntArrayList;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.exceptions.UnhandledServerException;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.types.BooleanType;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes rows column by column, buffering up to {@link #ROW_GROUP_SIZE} rows into a row group.
+ *
+ * <pre>
+ * file       := MAGIC chunk* footer footerLength(int32, big endian) MAGIC
+ * footer     := version(vint) numColumns(vint) (name(string) kind(byte))*
+ *               compression(byte, 0 = none, 1 = deflate)
+ *               numRowGroups(vint) (numRows(vint) (offset(vlong) length(vint))*numColumns)*
+ * chunk      := PLAIN numNulls(vint) [nullBitmap] value*
+ *             | DICTIONARY dictionarySize(vint) value* numRuns(vint) (runLength(vint) id(vint))*
+ * </pre>
+ *
+ * Each row group contains one chunk per column, in column order. Offsets in the footer are absolute, so a
+ * reader can read the chunks of the columns it needs only. With compression each chunk is deflated (zlib)
+ * on its own.
+ * <p>
+ * The null bitmap has {@code ceil(numRows / 8)} bytes, the bit {@code row % 8} of byte {@code row / 8} is set
+ * for null values. Only non-null values are written.
+ * Dictionary ids of the runs are 1-based, {@code 0} stands for null.
+ * <p>
+ * vint/vlong are unsigned LEB128, strings are prefixed with their length in bytes as vint and encoded as UTF-8.
+ * Values are encoded depending on the {@link Kind} of the column:
+ * INT64 as zig-zag vlong, FLOAT64 as the big endian IEEE 754 bits, BOOLEAN as a single byte, STRING as string
+ * and all other types as string containing the JSON representation.
+ * </p>
+ * <p>
+ * The layout is part of the user documentation of {@code COPY TO}. {@link #VERSION} must be incremented on
+ * every change of the layout, files of older versions must remain readable by
+ * {@code ColumnarFileReader} of {@code COPY FROM}.
+ * </p>
+ */
+public final class ColumnarRowWriter implements FileWriterCountCollector.RowWriter {
+
+    public static final byte[] MAGIC = new byte[] {'C', 'R', 'C', 'O', 'L', '1', 0, 0};
+    public static final int VERSION = 1;
+    static final int ROW_GROUP_SIZE = 64 * 1024;
+    static final long MAX_ROW_GROUP_BYTES = 32 * 1024 * 1024;
+    static final int MAX_DICTIONARY_SIZE = 16 * 1024;
+
+    public static final byte PLAIN = 0;
+    public static final byte DICTIONARY = 1;
+
+    public enum Kind {
+        INT64 {
+            @Override
+            void write(StreamOutput out, Object value) throws IOException {
+                out.writeZLong(((Number) value).longValue());
+            }
+
+            @Override
+            public Object read(StreamInput in) throws IOException {
+                return in.readZLong();
+            }
+        },
+        FLOAT64 {
+            @Override
+            void write(StreamOutput out, Object value) throws IOException {
+                out.writeDouble(((Number) value).doubleValue());
+            }
+
+            @Override
+            public Object read(StreamInput in) throws IOException {
+                return in.readDouble();
+            }
+        },
+        BOOLEAN {
+            @Override
+            void write(StreamOutput out, Object value) throws IOException {
+                out.writeBoolean((Boolean) value);
+            }
+
+            @Override
+            public Object read(StreamInput in) throws IOException {
+                return in.readBoolean();
+            }
+        },
+        STRING {
+            @Override
+            void write(StreamOutput out, Object value) throws IOException {
+                writeString(out, (String) value);
+            }
+
+            @Override
+            public Object read(StreamInput in) throws IOException {
+                return readString(in);
+            }
+        },
+        JSON {
+            @Override
+            void write(StreamOutput out, Object value) throws IOException {
+                BytesReference json = BytesReference.bytes(JsonXContent.contentBuilder().value(value));
+                out.writeVInt(json.length());
+                json.writeTo(out);
+            }
+
+            /**
+             * @return the JSON representation as UTF-8 encoded bytes
+             */
+            @Override
+            public Object read(StreamInput in) throws IOException {
+                return readBytes(in);
+            }
+        };
+
+        abstract void write(StreamOutput out, Object value) throws IOException;
+
+        public abstract Object read(StreamInput in) throws IOException;
+
+        static Kind of(DataType<?> type) {
+            switch (type.id()) {
+                case ByteType.ID:
+                case ShortType.ID:
+                case IntegerType.ID:
+                case LongType.ID:
+                case TimestampType.ID_WITH_TZ:
+                case TimestampType.ID_WITHOUT_TZ:
+                    return INT64;
+
+                case FloatType.ID:
+                case DoubleType.ID:
+                    return FLOAT64;
+
+                case BooleanType.ID:
+                    return BOOLEAN;
+
+                case StringType.ID:
+                    return STRING;
+
+                default:
+                    return JSON;
+            }
+        }
+    }
+
+    private final OutputStream outputStream;
+    private final Iterable<CollectExpression<Row, ?>> collectExpressions;
+    private final List<Input<?>> inputs;
+    private final List<String> names;
+    private final ColumnBuffer[] columns;
+    private final BytesStreamOutput chunk = new BytesStreamOutput();
+    private final BytesStreamOutput rowGroups = new BytesStreamOutput();
+
+    @Nullable
+    private final Deflater deflater;
+    @Nullable
+    private final BytesStreamOutput compressedChunk;
+
+    private long position;
+    private int numRows;
+    private int numRowGroups;
+
+    ColumnarRowWriter(OutputStream outputStream,
+                      Iterable<CollectExpression<Row, ?>> collectExpressions,
+                      List<Input<?>> inputs,
+                      List<String> names,
+                      List<DataType<?>> types,
+                      boolean compress) throws IOException {
+        assert inputs.size() == names.size() && inputs.size() == types.size()
+            : "Must have a name and a type for each input";
+        this.outputStream = outputStream;
+        this.collectExpressions = collectExpressions;
+        this.inputs = inputs;
+        this.names = names;
+        this.columns = new ColumnBuffer[types.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ColumnBuffer(Kind.of(types.get(i)));
+        }
+        if (compress) {
+            deflater = new Deflater();
+            compressedChunk = new BytesStreamOutput();
+        } else {
+            deflater = null;
+            compressedChunk = null;
+        }
+        outputStream.write(MAGIC);
+        position = MAGIC.length;
+    }
+
+    @Override
+    public void write(Row row) {
+        for (CollectExpression<Row, ?> collectExpression : collectExpressions) {
+            collectExpression.setNextRow(row);
+        }
+        try {
+            long bufferedBytes = 0;
+            for (int i = 0; i < columns.length; i++) {
+                ColumnBuffer column = columns[i];
+                column.add(numRows, inputs.get(i).value());
+                bufferedBytes += column.values.size();
+            }
+            numRows++;
+            if (numRows == ROW_GROUP_SIZE || bufferedBytes >= MAX_ROW_GROUP_BYTES) {
+                flushRowGroup();
+            }
+        } catch (IOException e) {
+            throw new UnhandledServerException("Failed to write row to output", e);
+        }
+    }
+
+    private void flushRowGroup() throws IOException {
+        rowGroups.writeVInt(numRows);
+        for (ColumnBuffer column : columns) {
+            chunk.reset();
+            column.writeChunk(numRows, chunk);
+            BytesReference bytes = deflater == null ? chunk.bytes() : deflate(chunk.bytes());
+            rowGroups.writeVLong(position);
+            rowGroups.writeVInt(bytes.length());
+            bytes.writeTo(outputStream);
+            position += bytes.length();
+            column.reset();
+        }
+        numRowGroups++;
+        numRows = 0;
+    }
+
+    private BytesReference deflate(BytesReference bytes) throws IOException {
+        assert deflater != null && compressedChunk != null : "deflate must only be called if compression is enabled";
+        deflater.reset();
+        compressedChunk.reset();
+        DeflaterOutputStream out = new DeflaterOutputStream(compressedChunk, deflater);
+        bytes.writeTo(out);
+        out.finish();
+        return compressedChunk.bytes();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (numRows > 0) {
+                flushRowGroup();
+            }
+            BytesStreamOutput footer = new BytesStreamOutput();
+            footer.writeVInt(VERSION);
+            footer.writeVInt(columns.length);
+            for (int i = 0; i < columns.length; i++) {
+                writeString(footer, names.get(i));
+                footer.writeByte((byte) columns[i].kind.ordinal());
+            }
+            footer.writeByte((byte) (deflater == null ? 0 : 1));
+            footer.writeVInt(numRowGroups);
+            rowGroups.bytes().writeTo(footer);
+
+            footer.bytes().writeTo(outputStream);
+            int footerLength = footer.size();
+            outputStream.write(footerLength >>> 24);
+            outputStream.write(footerLength >>> 16);
+            outputStream.write(footerLength >>> 8);
+            outputStream.write(footerLength);
+            outputStream.write(MAGIC);
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+            outputStream.close();
+        }
+    }
+
+    private static void writeString(StreamOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeVInt(bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    /**
+     * Reads a string as written by {@link #writeString(StreamOutput, String)}
+     */
+    public static String readString(StreamInput in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(StreamInput in) throws IOException {
+        byte[] bytes = new byte[in.readVInt()];
+        in.readBytes(bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    /**
+     * Buffers the values of a column of the current row group.
+     * The values are encoded both plain and into a dictionary, until the dictionary exceeds
+     * {@link #MAX_DICTIONARY_SIZE}. The smaller encoding is written once the row group is complete.
+     */
+    private static final class ColumnBuffer {
+
+        private final Kind kind;
+        private final BytesStreamOutput values = new BytesStreamOutput();
+        private final BitSet nulls = new BitSet();
+        private final BytesStreamOutput dictionaryValues = new BytesStreamOutput();
+        private final IntArrayList ids = new IntArrayList();
+
+        @Nullable
+        private HashMap<Object, Integer> dictionary = new HashMap<>();
+        private int numNulls;
+
+        ColumnBuffer(Kind kind) {
+            this.kind = kind;
+        }
+
+        void add(int row, @Nullable Object value) throws IOException {
+            if (value == null) {
+                nulls.set(row);
+                numNulls++;
+                if (dictionary != null) {
+                    ids.add(0);
+                }
+                return;
+            }
+            kind.write(values, value);
+            if (dictionary != null) {
+                Integer id = dictionary.get(value);
+                if (id == null) {
+                    if (dictionary.size() == MAX_DICTIONARY_SIZE) {
+                        dictionary = null;
+                        dictionaryValues.reset();
+                        ids.clear();
+                        return;
+                    }
+                    id = dictionary.size() + 1;
+                    dictionary.put(value, id);
+                    kind.write(dictionaryValues, value);
+                }
+                ids.add(id);
+            }
+        }
+
+        void writeChunk(int numRows, StreamOutput out) throws IOException {
+            int nullBitmapLength = numNulls == 0 ? 0 : (numRows + 7) / 8;
+            if (dictionary != null) {
+                int numRuns = numRuns();
+                // Each run takes at least 2 bytes
+                if (dictionaryValues.size() + 2L * numRuns < values.size() + nullBitmapLength) {
+                    out.writeByte(DICTIONARY);
+                    out.writeVInt(dictionary.size());
+                    dictionaryValues.bytes().writeTo(out);
+                    out.writeVInt(numRuns);
+                    int[] buffer = ids.buffer;
+                    int runStart = 0;
+                    for (int i = 1; i <= ids.size(); i++) {
+                        if (i == ids.size() || buffer[i] != buffer[runStart]) {
+                            out.writeVInt(i - runStart);
+                            out.writeVInt(buffer[runStart]);
+                            runStart = i;
+                        }
+                    }
+                    return;
+                }
+            }
+            out.writeByte(PLAIN);
+            out.writeVInt(numNulls);
+            if (numNulls > 0) {
+                out.writeBytes(Arrays.copyOf(nulls.toByteArray(), nullBitmapLength));
+            }
+            values.bytes().writeTo(out);
+        }
+
+        private int numRuns() {
+            int[] buffer = ids.buffer;
+            int numRuns = 0;
+            for (int i = 0; i < ids.size(); i++) {
+                if (i == 0 || buffer[i] != buffer[i - 1]) {
+                    numRuns++;
+                }
+            }
+            return numRuns;
+        }
+
+        void reset() {
+            values.reset();
+            nulls.clear();
+            numNulls = 0;
+            dictionary = new HashMap<>();
+            dictionaryValues.reset();
+            ids.clear();
+        }
+    }
+}
@@ -33,6 +33,7 @@ import io.crate.exceptions.UnsupportedFeatureException;
 import io.crate.execution.dsl.projection.WriterProjection;
 import io.crate.execution.engine.collect.CollectExpression;
 import io.crate.metadata.ColumnIdent;
+import io.crate.types.DataType;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
@@ -71,6 +72,10 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
     @Nullable
     private final List<String> outputNames;
     private final WriterProjection.OutputFormat outputFormat;
+    @Nullable
+    private final List<DataType<?>> inputTypes;
+    @Nullable
+    private final WriterProjection.CompressionType compressionType;
     private Output output;
 
     private final RowWriter rowWriter;
@@ -82,12 +87,18 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
                              Iterable<CollectExpression<Row, ?>> collectExpressions,
                              Map<ColumnIdent, Object> overwrites,
                              @Nullable List<String> outputNames,
-                             WriterProjection.OutputFormat outputFormat) {
+                             WriterProjection.OutputFormat outputFormat,
+                             @Nullable List<DataType<?>> inputTypes) {
         this.collectExpressions = collectExpressions;
         this.inputs = inputs;
         this.overwrites = toNestedStringObjectMap(overwrites);
         this.outputNames = outputNames;
         this.outputFormat = outputFormat;
+        this.inputTypes = inputTypes;
+        this.compressionType = compressionType;
+        // The columnar format compresses each column chunk on its own to keep them individually readable
+        WriterProjection.CompressionType streamCompressionType =
+            outputFormat == WriterProjection.OutputFormat.COLUMNAR ? null : compressionType;
         URI uri1;
         try {
             uri1 = new URI(uri);
@@ -95,9 +106,9 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
             throw new SQLParseException(String.format(Locale.ENGLISH, "Invalid uri '%s'", uri), e);
         }
         if (uri1.getScheme() == null || uri1.getScheme().equals("file")) {
-            this.output = new OutputFile(uri1, compressionType);
+            this.output = new OutputFile(uri1, streamCompressionType);
         } else if (uri1.getScheme().equalsIgnoreCase("s3")) {
-            this.output = new OutputS3(executor, uri1, compressionType);
+            this.output = new OutputS3(executor, uri1, streamCompressionType);
         } else {
             throw new UnsupportedFeatureException(String.format(Locale.ENGLISH, "Unknown scheme '%s'", uri1.getScheme()));
         }
@@ -147,6 +158,16 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
             if (!overwrites.isEmpty()) {
                 return new DocWriter(
                     output.acquireOutputStream(), collectExpressions, overwrites);
+            } else if (outputFormat.equals(WriterProjection.OutputFormat.COLUMNAR)) {
+                assert outputNames != null && inputTypes != null : "The columnar format requires the output names and types";
+                return new ColumnarRowWriter(
+                    output.acquireOutputStream(),
+                    collectExpressions,
+                    inputs,
+                    outputNames,
+                    inputTypes,
+                    compressionType != null
+                );
             } else if (outputFormat.equals(WriterProjection.OutputFormat.JSON_ARRAY)) {
                 return new ColumnRowWriter(output.acquireOutputStream(), collectExpressions, inputs);
             } else if (outputNames != null && outputFormat.equals(WriterProjection.OutputFormat.JSON_OBJECT)) {
@@ -30,6 +30,7 @@ import io.crate.data.Row;
 import io.crate.execution.dsl.projection.WriterProjection;
 import io.crate.execution.engine.collect.CollectExpression;
 import io.crate.metadata.ColumnIdent;
+import io.crate.types.DataType;
 
 import javax.annotation.Nullable;
 import java.util.List;
@@ -46,6 +47,8 @@ public class FileWriterProjector implements Projector {
     private final List<String> outputNames;
     private final WriterProjection.OutputFormat outputFormat;
     private final WriterProjection.CompressionType compressionType;
+    @Nullable
+    private final List<DataType<?>> inputTypes;
     private final Executor executor;
 
     /**
@@ -55,6 +58,7 @@ public class FileWriterProjector implements Projector {
      *               That raw source is then written to the output
      *               <p/>
      *               If inputs is not null the inputs are consumed to write a JSON array to the output.
+     * @param inputTypes the types of the inputs, required for {@link WriterProjection.OutputFormat#COLUMNAR}
      */
     public FileWriterProjector(Executor executor,
                                String uri,
@@ -63,7 +67,8 @@ public class FileWriterProjector implements Projector {
                                Iterable<CollectExpression<Row, ?>> collectExpressions,
                                Map<ColumnIdent, Object> overwrites,
                                @Nullable List<String> outputNames,
-                               WriterProjection.OutputFormat outputFormat) {
+                               WriterProjection.OutputFormat outputFormat,
+                               @Nullable List<DataType<?>> inputTypes) {
         this.collectExpressions = collectExpressions;
         this.executor = executor;
         this.inputs = inputs;
@@ -71,6 +76,7 @@ public class FileWriterProjector implements Projector {
         this.outputNames = outputNames;
         this.outputFormat = outputFormat;
         this.compressionType = compressionType;
+        this.inputTypes = inputTypes;
         this.uri = uri;
     }
 
@@ -86,7 +92,8 @@ public class FileWriterProjector implements Projector {
                 collectExpressions,
                 overwrites,
                 outputNames,
-                outputFormat
+                outputFormat,
+                inputTypes
             )
         );
     }
@@ -23,8 +23,11 @@
 package io.crate.execution.engine.fetch;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import com.carrotsearch.hppc.IntArrayList;
 
 import org.apache.lucene.codecs.StoredFieldsReader;
@@ -34,15 +37,27 @@ import org.elasticsearch.common.lucene.index.SequentialStoredFieldsLeafReader;
 
 import io.crate.Streamer;
 import io.crate.breaker.RamAccounting;
+import io.crate.data.RowN;
 import io.crate.exceptions.Exceptions;
 import io.crate.execution.engine.distribution.StreamBucket;
 import io.crate.expression.InputRow;
 import io.crate.expression.reference.doc.lucene.CollectorContext;
 import io.crate.expression.reference.doc.lucene.LuceneCollectorExpression;
-import io.netty.util.collection.IntObjectHashMap;
 
 class FetchCollector {
 
+    /**
+     * Minimum number of documents of a segment required to use the sequential stored fields reader.
+     */
+    private static final int MIN_SEQUENTIAL_DOCS = 10;
+
+    /**
+     * Maximum average distance between the documents of a segment to use the sequential stored fields reader.
+     * Stored fields are compressed in blocks of several documents and the sequential reader keeps the
+     * last decompressed block, so it pays off if most documents share a block with their predecessor.
+     */
+    private static final int MAX_AVG_DOC_GAP = 8;
+
     private final LuceneCollectorExpression[] collectorExpressions;
     private final InputRow row;
     private final Streamer<?>[] streamers;
@@ -69,45 +84,102 @@ class FetchCollector {
 
     }
 
-    private void setNextDocId(ReaderContext readerContext, int doc) throws IOException {
+    private void setNextReader(ReaderContext readerContext) throws IOException {
         for (LuceneCollectorExpression<?> e : collectorExpressions) {
             e.setNextReader(readerContext);
+        }
+    }
+
+    private void setNextDocId(int doc) throws IOException {
+        for (LuceneCollectorExpression<?> e : collectorExpressions) {
             e.setNextDocId(doc);
         }
     }
 
+    /**
+     * Collects the documents segment by segment in ascending doc id order, independent of the order they were
+     * requested in. This allows to read the stored fields sequentially and to re-use the column readers
+     * of a segment. The rows of the returned bucket are in the same order as the requested doc ids.
+     */
     public StreamBucket collect(IntArrayList docIds) {
-        boolean collectSequential = isSequential(docIds);
+        int numDocs = docIds.size();
+        int[] docs = docIds.toArray();
+        int[] positions = sortByDocId(docs);
+        Object[][] rows = positions == null ? null : new Object[numDocs][];
+
         StreamBucket.Builder builder = new StreamBucket.Builder(streamers, ramAccounting);
         try (var borrowed = fetchTask.searcher(readerId)) {
             var searcher = borrowed.item();
             List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
-            var readerContexts = new IntObjectHashMap<ReaderContext>(leaves.size());
-            for (var cursor : docIds) {
-                int docId = cursor.value;
-                int readerIndex = readerIndex(docId, leaves);
-                LeafReaderContext subReaderContext = leaves.get(readerIndex);
+            int i = 0;
+            while (i < numDocs) {
+                LeafReaderContext subReaderContext = leaves.get(readerIndex(docs[i], leaves));
+                int leafEnd = subReaderContext.docBase + subReaderContext.reader().maxDoc();
+                int from = i;
+                int to = from + 1;
+                while (to < numDocs && docs[to] < leafEnd) {
+                    to++;
+                }
                 try {
-                    var readerContext = readerContexts.get(readerIndex);
-                    if (readerContext == null) {
-                        if (collectSequential) {
-                            var storedFieldReader = sequentialStoredFieldReader(subReaderContext);
-                            readerContext = new ReaderContext(subReaderContext, storedFieldReader::visitDocument);
+                    ReaderContext readerContext;
+                    if (useSequentialReader(docs, from, to)) {
+                        var storedFieldReader = sequentialStoredFieldReader(subReaderContext);
+                        readerContext = new ReaderContext(subReaderContext, storedFieldReader::visitDocument);
+                    } else {
+                        readerContext = new ReaderContext(subReaderContext);
+                    }
+                    setNextReader(readerContext);
+                    for (; i < to; i++) {
+                        setNextDocId(docs[i] - subReaderContext.docBase);
+                        if (rows == null) {
+                            builder.add(row);
                         } else {
-                            readerContext = new ReaderContext(subReaderContext);
+                            rows[positions[i]] = row.materialize();
                         }
-                        readerContexts.put(readerIndex, readerContext);
                     }
-                    setNextDocId(readerContext, docId - subReaderContext.docBase);
                 } catch (IOException e) {
                     Exceptions.rethrowRuntimeException(e);
                 }
-                builder.add(row);
+            }
+        }
+        if (rows != null) {
+            for (Object[] cells : rows) {
+                builder.add(new RowN(cells));
             }
         }
         return builder.build();
     }
 
+    /**
+     * Sorts {@code docs} in place.
+     *
+     * @return null if the docs were already sorted, otherwise the original position of each sorted doc
+     */
+    @Nullable
+    static int[] sortByDocId(int[] docs) {
+        boolean sorted = true;
+        for (int i = 1; i < docs.length; i++) {
+            if (docs[i - 1] > docs[i]) {
+                sorted = false;
+                break;
+            }
+        }
+        if (sorted) {
+            return null;
+        }
+        long[] docsWithPosition = new long[docs.length];
+        for (int i = 0; i < docs.length; i++) {
+            docsWithPosition[i] = ((long) docs[i] << 32) | i;
+        }
+        Arrays.sort(docsWithPosition);
+        int[] positions = new int[docs.length];
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = (int) (docsWithPosition[i] >>> 32);
+            positions[i] = (int) docsWithPosition[i];
+        }
+        return positions;
+    }
+
     private int readerIndex(int docId, List<LeafReaderContext> leaves) {
         int readerIndex = ReaderUtil.subIndex(docId, leaves);
         if (readerIndex == -1) {
@@ -116,16 +188,18 @@ class FetchCollector {
         return readerIndex;
     }
 
-    static boolean isSequential(IntArrayList docIds) {
-        if (docIds.size() < 2) {
+    /**
+     * @param sortedDocs doc ids in ascending order
+     * @return true if the docs within {@code from} (inclusive) and {@code to} (exclusive) are dense enough
+     *         to benefit from the sequential stored fields reader.
+     */
+    static boolean useSequentialReader(int[] sortedDocs, int from, int to) {
+        int numDocs = to - from;
+        if (numDocs < MIN_SEQUENTIAL_DOCS) {
             return false;
         }
-        // checks if doc ids are in sequential order using the following conditions:
-        // (last element - first element) = (number of elements in between first and last)
-        // [3,4,5,6,7] -> 7 - 3 == 4
-        int last = docIds.get(docIds.size() - 1);
-        int first = docIds.get(0);
-        return last - first == docIds.size() - 1;
+        long span = (long) sortedDocs[to - 1] - sortedDocs[from] + 1;
+        return span <= (long) numDocs * MAX_AVG_DOC_GAP;
     }
 
     static StoredFieldsReader sequentialStoredFieldReader(LeafReaderContext context) {
@@ -58,10 +58,9 @@ class ReaderBucket {
     }
 
     IntArrayList sortedDocs() {
-        // The FetchCollector has an optimization that only works if the documents are sequential
-        // We pre-sort the ids here to ensure the optimization could work and also so that we can
-        // map the results to the right rows, because the rows in the bucket we receive from the FetchCollector
-        // are in the same order as the ids we requested.
+        // The FetchCollector reads the documents in doc id order. We pre-sort the ids here so that it doesn't have to
+        // and also so that we can map the results to the right rows, because the rows in the bucket we receive
+        // from the FetchCollector are in the same order as the ids we requested.
         if (sortedDocs == null) {
             int[] keys = docs.keys().toArray();
             Arrays.sort(keys);
@@ -0,0 +1,162 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.indexing;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.index.shard.ShardId;
+
+/**
+ * Adapts the number of items per shard request individually for each target node and bounds the number of
+ * in-flight requests per shard.
+ *
+ * <p>
+ * The bulk size of a node follows an AIMD scheme: It grows by a fixed step for every request answered within
+ * {@link #TARGET_LATENCY_NANOS} and is halved if a request takes longer or is rejected.
+ * This keeps requests to a slow node small, while the other nodes keep receiving large requests.
+ * </p>
+ *
+ * Used as a predicate it signals that a {@link ShardedRequests} partition must be completed
+ * because the most recently extended shard request reached the bulk size of its node.
+ */
+public class AdaptiveShardRequestLimiter implements Predicate<ShardedRequests<?, ?>> {
+
+    static final int MAX_IN_FLIGHT_REQUESTS_PER_SHARD = 2;
+    static final long TARGET_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    static final int MIN_BULK_SIZE = 100;
+    private static final int NUM_INCREASE_STEPS = 20;
+    private static final Logger LOGGER = LogManager.getLogger(AdaptiveShardRequestLimiter.class);
+
+    private final int maxBulkSize;
+    private final int minBulkSize;
+    private final int increaseStep;
+    private final Map<String, AtomicInteger> bulkSizeByNode = new ConcurrentHashMap<>();
+    private final Map<ShardId, AtomicInteger> inFlightRequestsByShard = new ConcurrentHashMap<>();
+
+    AdaptiveShardRequestLimiter(int maxBulkSize) {
+        this.maxBulkSize = maxBulkSize;
+        this.minBulkSize = Math.min(MIN_BULK_SIZE, maxBulkSize);
+        this.increaseStep = Math.max(1, maxBulkSize / NUM_INCREASE_STEPS);
+    }
+
+    @Override
+    public boolean test(ShardedRequests<?, ?> requests) {
+        ShardLocation shardLocation = requests.lastShardLocation();
+        if (shardLocation == null) {
+            return false;
+        }
+        var request = requests.itemsByShard.get(shardLocation);
+        return request != null && request.items().size() >= bulkSize(shardLocation.nodeId);
+    }
+
+    int bulkSize(@Nullable String nodeId) {
+        if (nodeId == null) {
+            return maxBulkSize;
+        }
+        AtomicInteger bulkSize = bulkSizeByNode.get(nodeId);
+        return bulkSize == null ? maxBulkSize : bulkSize.get();
+    }
+
+    int inFlightRequests(ShardId shardId) {
+        AtomicInteger inFlight = inFlightRequestsByShard.get(shardId);
+        return inFlight == null ? 0 : inFlight.get();
+    }
+
+    /**
+     * @return true if any of the shards targeted by {@code requests} has reached
+     *         {@link #MAX_IN_FLIGHT_REQUESTS_PER_SHARD}
+     */
+    boolean hasTooManyInFlightRequests(ShardedRequests<?, ?> requests) {
+        for (ShardLocation shardLocation : requests.itemsByShard.keySet()) {
+            if (inFlightRequests(shardLocation.shardId) >= MAX_IN_FLIGHT_REQUESTS_PER_SHARD) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("reached maximum in-flight requests for shard {}", shardLocation.shardId);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void onRequestSent(ShardLocation shardLocation) {
+        inFlightRequestsByShard.computeIfAbsent(shardLocation.shardId, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    /**
+     * Must be called once per {@link #onRequestSent(ShardLocation)} if the request succeeded.
+     *
+     * @param numItems number of items of the request
+     * @param tookNanos time from sending the request until receiving the response
+     */
+    void onResponse(ShardLocation shardLocation, int numItems, long tookNanos) {
+        decrementInFlight(shardLocation);
+        if (tookNanos > TARGET_LATENCY_NANOS) {
+            decrease(shardLocation.nodeId, numItems);
+        } else if (shardLocation.nodeId != null) {
+            bulkSizeByNode.computeIfAbsent(shardLocation.nodeId, k -> new AtomicInteger(maxBulkSize))
+                .updateAndGet(size -> Math.min(maxBulkSize, size + increaseStep));
+        }
+    }
+
+    /**
+     * Must be called once per {@link #onRequestSent(ShardLocation)} if the request failed.
+     */
+    void onFailure(ShardLocation shardLocation) {
+        decrementInFlight(shardLocation);
+    }
+
+    /**
+     * Called if the target node rejected the request; the request is still in-flight as it will be retried.
+     */
+    void onRejection(ShardLocation shardLocation, int numItems) {
+        decrease(shardLocation.nodeId, numItems);
+    }
+
+    private void decrease(@Nullable String nodeId, int numItems) {
+        if (nodeId == null) {
+            return;
+        }
+        int newSize = bulkSizeByNode.computeIfAbsent(nodeId, k -> new AtomicInteger(maxBulkSize))
+            // Halve based on the actual request size, a limit above it wouldn't reduce the load
+            .updateAndGet(size -> Math.max(minBulkSize, Math.min(size, numItems) / 2));
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Reduced bulk size for node {} to {}", nodeId, newSize);
+        }
+    }
+
+    private void decrementInFlight(ShardLocation shardLocation) {
+        AtomicInteger inFlight = inFlightRequestsByShard.get(shardLocation.shardId);
+        assert inFlight != null : "onRequestSent must be called before the request completes";
+        if (inFlight != null) {
+            inFlight.decrementAndGet();
+        }
+    }
+}
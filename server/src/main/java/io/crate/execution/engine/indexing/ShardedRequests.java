@@ -29,6 +29,8 @@ import org.apache.lucene.util.Accountable;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.index.shard.ShardId;
 
+import javax.annotation.Nullable;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -49,6 +51,8 @@ public final class ShardedRequests<TReq extends ShardRequest<TReq, TItem>, TItem
 
     private int location = -1;
     private long usedMemoryEstimate = 0L;
+    @Nullable
+    private ShardLocation lastShardLocation = null;
 
     /**
      * @param requestFactory function to create a request
@@ -79,6 +83,7 @@ public final class ShardedRequests<TReq extends ShardRequest<TReq, TItem>, TItem
         location++;
         req.add(location, item);
         rowSourceInfos.add(rowSourceInfo);
+        lastShardLocation = shardLocation;
     }
 
     void addFailedItem(String sourceUri, String readFailure, Long lineNumber) {
@@ -105,6 +110,14 @@ public final class ShardedRequests<TReq extends ShardRequest<TReq, TItem>, TItem
         return itemsByShard;
     }
 
+    /**
+     * @return the location of the shard request to which an item was added most recently
+     */
+    @Nullable
+    ShardLocation lastShardLocation() {
+        return lastShardLocation;
+    }
+
     public static class ItemAndRoutingAndSourceInfo<TItem> {
         final TItem item;
         final String routing;
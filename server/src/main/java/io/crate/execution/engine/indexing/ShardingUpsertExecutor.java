@@ -22,8 +22,6 @@
 
 package io.crate.execution.engine.indexing;
 
-import static io.crate.execution.jobs.NodeJobsCounter.MAX_NODE_CONCURRENT_OPERATIONS;
-
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -94,6 +92,7 @@ public class ShardingUpsertExecutor
     private final BulkRequestExecutor<ShardUpsertRequest> requestExecutor;
     private final TransportCreatePartitionsAction createPartitionsAction;
     private final BulkShardCreationLimiter bulkShardCreationLimiter;
+    private final AdaptiveShardRequestLimiter shardRequestLimiter;
     private final UpsertResultCollector resultCollector;
     private final boolean isDebugEnabled;
     private final CircuitBreaker queryCircuitBreaker;
@@ -145,6 +144,7 @@ public class ShardingUpsertExecutor
             targetTableNumShards,
             targetTableNumReplicas,
             clusterService.state().nodes().getDataNodes().size());
+        shardRequestLimiter = new AdaptiveShardRequestLimiter(bulkSize);
         this.resultCollector = upsertResultContext.getResultCollector();
         isDebugEnabled = LOGGER.isDebugEnabled();
     }
@@ -199,11 +199,16 @@ public class ShardingUpsertExecutor
             ShardUpsertRequest request = entry.getValue();
             it.remove();
 
-            String nodeId = entry.getKey().nodeId;
+            ShardLocation shardLocation = entry.getKey();
+            String nodeId = shardLocation.nodeId;
+            int numItems = request.items().size();
             nodeJobsCounter.increment(nodeId);
-            ActionListener<ShardResponse> listener =
+            shardRequestLimiter.onRequestSent(shardLocation);
+            ShardResponseActionListener responseListener =
                 new ShardResponseActionListener(
-                    nodeId,
+                    shardLocation,
+                    numItems,
+                    System.nanoTime(),
                     numRequests,
                     interrupt,
                     upsertResults,
@@ -211,15 +216,18 @@ public class ShardingUpsertExecutor
                     requests.rowSourceInfos,
                     resultFuture);
 
-            listener = new RetryListener<>(
+            ActionListener<ShardResponse> listener = new RetryListener<>(
                 scheduler,
                 l -> {
                     if (isDebugEnabled) {
                         LOGGER.debug("Executing retry Listener for nodeId: {} request: {}", nodeId, request);
                     }
+                    // Retries are only triggered by rejections of the target node
+                    shardRequestLimiter.onRejection(shardLocation, numItems);
+                    responseListener.onRetry();
                     requestExecutor.execute(request, l);
                 },
-                listener,
+                responseListener,
                 BACKOFF_POLICY
             );
             requestExecutor.execute(request, listener);
@@ -236,19 +244,6 @@ public class ShardingUpsertExecutor
         return listener;
     }
 
-    private boolean shouldPauseOnTargetNodeJobsCounter(ShardedRequests<ShardUpsertRequest, ShardUpsertRequest.Item> requests) {
-        for (ShardLocation shardLocation : requests.itemsByShard.keySet()) {
-            String requestNodeId = shardLocation.nodeId;
-            if (nodeJobsCounter.getInProgressJobsForNode(requestNodeId) >= MAX_NODE_CONCURRENT_OPERATIONS) {
-                if (isDebugEnabled) {
-                    LOGGER.debug("reached maximum concurrent operations for node {}", requestNodeId);
-                }
-                return true;
-            }
-        }
-        return false;
-    }
-
     /** @noinspection unused*/
     private boolean shouldPauseOnPartitionCreation(ShardedRequests<ShardUpsertRequest, ShardUpsertRequest.Item> ignore) {
         if (createPartitionsRequestOngoing) {
@@ -286,16 +281,16 @@ public class ShardingUpsertExecutor
             bulkSize,
             () -> new ShardedRequests<>(requestFactory, ramAccounting),
             grouper,
-            bulkShardCreationLimiter.or(isUsedBytesOverThreshold)
+            bulkShardCreationLimiter.or(isUsedBytesOverThreshold).or(shardRequestLimiter)
         );
-        // If IO is involved the source iterator should pause when the target node reaches a concurrent job counter limit.
+        // If IO is involved the source iterator should pause when a target shard reaches the in-flight request limit.
         // Without IO, we assume that the source iterates over in-memory structures which should be processed as
         // fast as possible to free resources.
         Predicate<ShardedRequests<ShardUpsertRequest, ShardUpsertRequest.Item>> shouldPause =
             this::shouldPauseOnPartitionCreation;
         if (batchIterator.hasLazyResultSet()) {
             shouldPause = shouldPause
-                .or(this::shouldPauseOnTargetNodeJobsCounter)
+                .or(shardRequestLimiter::hasTooManyInFlightRequests)
                 .or(isUsedBytesOverThreshold);
         }
         BatchIteratorBackpressureExecutor<ShardedRequests<ShardUpsertRequest, ShardUpsertRequest.Item>, UpsertResults> executor =
@@ -318,22 +313,28 @@ public class ShardingUpsertExecutor
     }
 
     private class ShardResponseActionListener implements ActionListener<ShardResponse> {
-        private final String operationNodeId;
+        private final ShardLocation shardLocation;
+        private final int numItems;
         private final UpsertResultCollector.Accumulator resultAccumulator;
         private final List<RowSourceInfo> rowSourceInfos;
         private final UpsertResults upsertResults;
         private final AtomicInteger numRequests;
         private final AtomicReference<Exception> interrupt;
         private final CompletableFuture<UpsertResults> upsertResultFuture;
+        private volatile long startedAtNanos;
 
-        ShardResponseActionListener(String operationNodeId,
+        ShardResponseActionListener(ShardLocation shardLocation,
+                                    int numItems,
+                                    long startedAtNanos,
                                     AtomicInteger numRequests,
                                     AtomicReference<Exception> interrupt,
                                     UpsertResults upsertResults,
                                     UpsertResultCollector.Accumulator resultAccumulator,
                                     List<RowSourceInfo> rowSourceInfos,
                                     CompletableFuture<UpsertResults> upsertResultFuture) {
-            this.operationNodeId = operationNodeId;
+            this.shardLocation = shardLocation;
+            this.numItems = numItems;
+            this.startedAtNanos = startedAtNanos;
             this.numRequests = numRequests;
             this.interrupt = interrupt;
             this.upsertResults = upsertResults;
@@ -342,9 +343,18 @@ public class ShardingUpsertExecutor
             this.upsertResultFuture = upsertResultFuture;
         }
 
+        /**
+         * The latency is measured from the last attempt, the backoff delay of a retry doesn't show that the
+         * node is slow and the rejection already reduced the bulk size.
+         */
+        void onRetry() {
+            startedAtNanos = System.nanoTime();
+        }
+
         @Override
         public void onResponse(ShardResponse shardResponse) {
-            nodeJobsCounter.decrement(operationNodeId);
+            nodeJobsCounter.decrement(shardLocation.nodeId);
+            shardRequestLimiter.onResponse(shardLocation, numItems, System.nanoTime() - startedAtNanos);
             resultAccumulator.accept(upsertResults, shardResponse, rowSourceInfos);
             maybeSetInterrupt(shardResponse.failure());
             countdown();
@@ -352,7 +362,8 @@ public class ShardingUpsertExecutor
 
         @Override
         public void onFailure(Exception e) {
-            nodeJobsCounter.decrement(operationNodeId);
+            nodeJobsCounter.decrement(shardLocation.nodeId);
+            shardRequestLimiter.onFailure(shardLocation);
             countdown();
         }
 
@@ -0,0 +1,494 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import io.crate.breaker.SizeEstimator;
+import io.crate.breaker.SizeEstimatorFactory;
+import io.crate.data.Row;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.TimestampType;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Build side of a hash join.
+ * <p>
+ * Instead of keeping a materialized {@code Object[]} per row inside a list per hash bucket,
+ * the rows are stored column-wise. Columns of type bigint, timestamp, integer, double and real
+ * are stored in primitive arrays, all other columns in an {@code Object[]}.
+ * <p>
+ * The rows are addressed by a row id (insertion order). Rows with the same bucket are chained via row ids:
+ *
+ * <pre>
+ *     heads[hash & mask] -> rowId -> next[rowId] -> ... -> -1
+ * </pre>
+ *
+ * So the per-row overhead is two ints (hash and next pointer) plus a share of the bucket array,
+ * instead of an ArrayList, an Object[] and boxed values.
+ * <p>
+ * Chaining is used instead of open addressing because the build side of a join often contains many rows
+ * with the same key. With open addressing these would occupy consecutive slots, and each probe would have to
+ * skip over all of them. With chaining, the column arrays stay in insertion order and are independent of
+ * the bucket array, so a rehash only has to rebuild the {@code heads} and {@code next} pointers.
+ * <p>
+ * Usage:
+ * <pre>
+ *     for (int rowId = table.firstRowId(hash); rowId != -1; rowId = table.nextRowId(rowId)) {
+ *         Row row = table.row(rowId);
+ *     }
+ * </pre>
+ * Rows returned by {@link #row(int)} are a shared view that changes on the next {@link #row(int)} call.
+ */
+public final class ColumnarHashTable {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * bytes for the hash and the next pointer, plus the (amortized) slot in the heads array.
+     */
+    private static final int BYTES_PER_ROW = Integer.BYTES * 2 + (int) (Integer.BYTES / LOAD_FACTOR);
+
+    private final Column[] columns;
+    private final ColumnarRow row;
+
+    private int[] heads;
+    private int[] hashes;
+    private int[] next;
+    private int mask;
+    private int size;
+
+    public ColumnarHashTable(List<? extends DataType<?>> columnTypes) {
+        this.columns = new Column[columnTypes.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = createColumn(columnTypes.get(i));
+        }
+        this.row = new ColumnarRow(columns);
+        clear();
+    }
+
+    /**
+     * @return the number of bytes a row of the given types occupies in a {@link ColumnarHashTable},
+     *         or -1 if the size depends on the values because at least one of the columns isn't stored in a
+     *         primitive array.
+     */
+    public static long fixedRowSize(List<? extends DataType<?>> columnTypes) {
+        long size = BYTES_PER_ROW;
+        for (DataType<?> type : columnTypes) {
+            int valueSize = primitiveValueSize(type);
+            if (valueSize < 0) {
+                return -1;
+            }
+            size += valueSize;
+        }
+        return size;
+    }
+
+    /**
+     * Adds a row, copying its values.
+     *
+     * @return the estimated number of bytes added to the table. This is the size of values which are not stored
+     *         in a primitive array, plus the growth of the internal arrays if they had to be resized for the row.
+     *         The arrays allocated for the initial capacity are not included.
+     */
+    public long add(Row row, int hash) {
+        long bytes = 0;
+        if (size == hashes.length) {
+            int newCapacity = ArrayUtil.oversize(size + 1, Integer.BYTES);
+            bytes += (long) (newCapacity - hashes.length) * Integer.BYTES * 2;
+            hashes = Arrays.copyOf(hashes, newCapacity);
+            next = Arrays.copyOf(next, newCapacity);
+            for (Column column : columns) {
+                bytes += column.grow(newCapacity);
+            }
+        }
+        int rowId = size;
+        for (int i = 0; i < columns.length; i++) {
+            bytes += columns[i].set(rowId, row.get(i));
+        }
+        hashes[rowId] = hash;
+        size++;
+        if (size > heads.length * LOAD_FACTOR) {
+            // the new bucket array is twice the size of the old one, which becomes garbage
+            bytes += (long) heads.length * Integer.BYTES;
+            rehash(heads.length << 1);
+        } else {
+            link(rowId);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the id of the first row with the given hash or -1 if there is none
+     */
+    public int firstRowId(int hash) {
+        int rowId = heads[bucket(hash)];
+        while (rowId != -1 && hashes[rowId] != hash) {
+            rowId = next[rowId];
+        }
+        return rowId;
+    }
+
+    /**
+     * @return the id of the next row with the same hash as the given rowId or -1 if there is none
+     */
+    public int nextRowId(int rowId) {
+        int hash = hashes[rowId];
+        int nextRowId = next[rowId];
+        while (nextRowId != -1 && hashes[nextRowId] != hash) {
+            nextRowId = next[nextRowId];
+        }
+        return nextRowId;
+    }
+
+    public Row row(int rowId) {
+        assert rowId >= 0 && rowId < size : "rowId must be within [0, size)";
+        row.rowId = rowId;
+        return row;
+    }
+
+    public int hash(int rowId) {
+        return hashes[rowId];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all rows and shrinks the table back to its initial capacity.
+     */
+    public void clear() {
+        size = 0;
+        hashes = new int[INITIAL_CAPACITY];
+        next = new int[INITIAL_CAPACITY];
+        for (Column column : columns) {
+            column.reset(INITIAL_CAPACITY);
+        }
+        heads = new int[INITIAL_CAPACITY * 2];
+        Arrays.fill(heads, -1);
+        mask = heads.length - 1;
+    }
+
+    private int bucket(int hash) {
+        // spread the higher bits, the hash of small integral values only uses the lower bits
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void link(int rowId) {
+        int bucket = bucket(hashes[rowId]);
+        next[rowId] = heads[bucket];
+        heads[bucket] = rowId;
+    }
+
+    private void rehash(int newNumBuckets) {
+        heads = new int[newNumBuckets];
+        Arrays.fill(heads, -1);
+        mask = newNumBuckets - 1;
+        for (int rowId = 0; rowId < size; rowId++) {
+            link(rowId);
+        }
+    }
+
+    private static int primitiveValueSize(DataType<?> type) {
+        switch (type.id()) {
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+            case DoubleType.ID:
+                return Long.BYTES;
+
+            case IntegerType.ID:
+            case FloatType.ID:
+                return Integer.BYTES;
+
+            default:
+                return -1;
+        }
+    }
+
+    private static Column createColumn(DataType<?> type) {
+        switch (type.id()) {
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                return new LongColumn();
+
+            case IntegerType.ID:
+                return new IntColumn();
+
+            case DoubleType.ID:
+                return new DoubleColumn();
+
+            case FloatType.ID:
+                return new FloatColumn();
+
+            default:
+                return new ObjectColumn(SizeEstimatorFactory.create(type));
+        }
+    }
+
+    private static final class ColumnarRow extends Row {
+
+        private final Column[] columns;
+        private int rowId;
+
+        ColumnarRow(Column[] columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public int numColumns() {
+            return columns.length;
+        }
+
+        @Override
+        public Object get(int index) {
+            return columns[index].get(rowId);
+        }
+    }
+
+    private abstract static class Column {
+
+        /**
+         * @return the estimated number of bytes used to store the value, excluding its slot in the column array
+         */
+        abstract long set(int rowId, Object value);
+
+        abstract Object get(int rowId);
+
+        /**
+         * @return the number of bytes the column grew by
+         */
+        abstract long grow(int capacity);
+
+        abstract void reset(int capacity);
+    }
+
+    private abstract static class PrimitiveColumn extends Column {
+
+        private BitSet nulls = new BitSet();
+        private int capacity;
+
+        final boolean setNull(int rowId, Object value) {
+            if (value == null) {
+                nulls.set(rowId);
+                return true;
+            }
+            nulls.clear(rowId);
+            return false;
+        }
+
+        final boolean isNull(int rowId) {
+            return nulls.get(rowId);
+        }
+
+        /**
+         * @return the number of bytes the null bits of the column grow by
+         */
+        final long growNulls(int newCapacity) {
+            long bytes = ((newCapacity + 7) >> 3) - ((capacity + 7) >> 3);
+            capacity = newCapacity;
+            return bytes;
+        }
+
+        @Override
+        void reset(int capacity) {
+            nulls = new BitSet(capacity);
+            this.capacity = capacity;
+        }
+    }
+
+    private static final class LongColumn extends PrimitiveColumn {
+
+        private static final int SLOT_BYTES = Long.BYTES;
+
+        private long[] values;
+
+        @Override
+        long set(int rowId, Object value) {
+            if (!setNull(rowId, value)) {
+                values[rowId] = ((Number) value).longValue();
+            }
+            return 0;
+        }
+
+        @Override
+        Object get(int rowId) {
+            return isNull(rowId) ? null : values[rowId];
+        }
+
+        @Override
+        long grow(int capacity) {
+            long bytes = (long) (capacity - values.length) * SLOT_BYTES + growNulls(capacity);
+            values = Arrays.copyOf(values, capacity);
+            return bytes;
+        }
+
+        @Override
+        void reset(int capacity) {
+            super.reset(capacity);
+            values = new long[capacity];
+        }
+    }
+
+    private static final class IntColumn extends PrimitiveColumn {
+
+        private static final int SLOT_BYTES = Integer.BYTES;
+
+        private int[] values;
+
+        @Override
+        long set(int rowId, Object value) {
+            if (!setNull(rowId, value)) {
+                values[rowId] = ((Number) value).intValue();
+            }
+            return 0;
+        }
+
+        @Override
+        Object get(int rowId) {
+            return isNull(rowId) ? null : values[rowId];
+        }
+
+        @Override
+        long grow(int capacity) {
+            long bytes = (long) (capacity - values.length) * SLOT_BYTES + growNulls(capacity);
+            values = Arrays.copyOf(values, capacity);
+            return bytes;
+        }
+
+        @Override
+        void reset(int capacity) {
+            super.reset(capacity);
+            values = new int[capacity];
+        }
+    }
+
+    private static final class DoubleColumn extends PrimitiveColumn {
+
+        private static final int SLOT_BYTES = Double.BYTES;
+
+        private double[] values;
+
+        @Override
+        long set(int rowId, Object value) {
+            if (!setNull(rowId, value)) {
+                values[rowId] = ((Number) value).doubleValue();
+            }
+            return 0;
+        }
+
+        @Override
+        Object get(int rowId) {
+            return isNull(rowId) ? null : values[rowId];
+        }
+
+        @Override
+        long grow(int capacity) {
+            long bytes = (long) (capacity - values.length) * SLOT_BYTES + growNulls(capacity);
+            values = Arrays.copyOf(values, capacity);
+            return bytes;
+        }
+
+        @Override
+        void reset(int capacity) {
+            super.reset(capacity);
+            values = new double[capacity];
+        }
+    }
+
+    private static final class FloatColumn extends PrimitiveColumn {
+
+        private static final int SLOT_BYTES = Float.BYTES;
+
+        private float[] values;
+
+        @Override
+        long set(int rowId, Object value) {
+            if (!setNull(rowId, value)) {
+                values[rowId] = ((Number) value).floatValue();
+            }
+            return 0;
+        }
+
+        @Override
+        Object get(int rowId) {
+            return isNull(rowId) ? null : values[rowId];
+        }
+
+        @Override
+        long grow(int capacity) {
+            long bytes = (long) (capacity - values.length) * SLOT_BYTES + growNulls(capacity);
+            values = Arrays.copyOf(values, capacity);
+            return bytes;
+        }
+
+        @Override
+        void reset(int capacity) {
+            super.reset(capacity);
+            values = new float[capacity];
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+
+        private final SizeEstimator<Object> sizeEstimator;
+        private Object[] values;
+
+        ObjectColumn(SizeEstimator<Object> sizeEstimator) {
+            this.sizeEstimator = sizeEstimator;
+        }
+
+        @Override
+        long set(int rowId, Object value) {
+            values[rowId] = value;
+            return sizeEstimator.estimateSize(value);
+        }
+
+        @Override
+        Object get(int rowId) {
+            return values[rowId];
+        }
+
+        @Override
+        long grow(int capacity) {
+            long bytes = (long) (capacity - values.length) * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+            values = Arrays.copyOf(values, capacity);
+            return bytes;
+        }
+
+        @Override
+        void reset(int capacity) {
+            values = new Object[capacity];
+        }
+    }
+}
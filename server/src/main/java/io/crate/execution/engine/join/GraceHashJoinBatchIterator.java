@@ -0,0 +1,459 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.CloseableIterator;
+import io.crate.data.Row;
+import io.crate.data.join.CombinedRow;
+import io.crate.data.join.JoinBatchIterator;
+import io.crate.exceptions.Exceptions;
+import io.crate.execution.engine.spill.SpillFile;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+
+import javax.annotation.Nonnull;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Hash join which falls back to a partitioned (grace) hash join if the left side doesn't fit into memory.
+ *
+ * <pre>
+ *     Build Phase:
+ *     for (leftRow in left) {
+ *         if (buffer contains blockSize rows) {
+ *             switch to Partition Phase
+ *         }
+ *         calculate hash and put in Buffer ({@link ColumnarHashTable})
+ *     }
+ *     // Whole left side fits into memory
+ *     for (rightRow in right) {
+ *         emit matching rows (same as in {@link HashInnerJoinBatchIterator})
+ *     }
+ *
+ *     Partition Phase:
+ *     write all rows in Buffer and all remaining leftRows into left partition files, using partition = f(hash)
+ *     write all rightRows into right partition files, using partition = f(hash)
+ *
+ *     Partition Join Phase:
+ *     for (partition in partitions) {
+ *         load left partition rows into Buffer (in blocks of at most blockSize rows)
+ *         for (rightRow in right partition) {
+ *             emit matching rows
+ *         }
+ *     }
+ * </pre>
+ *
+ * Compared to {@link HashInnerJoinBatchIterator}, the right side is read only once from the upstream
+ * (and at most once more per block of a partition from the local disk)
+ * instead of once per block of the left side.
+ * <p>
+ * Both sides are fully consumed before the first row is emitted if the join needs to spill.
+ */
+public class GraceHashJoinBatchIterator extends JoinBatchIterator<Row, Row, Row> {
+
+    static final int MIN_PARTITIONS = 2;
+    static final int MAX_PARTITIONS = 256;
+
+    private enum Phase {
+        BUILD,
+        PROBE,
+        PARTITION_LEFT,
+        PARTITION_RIGHT,
+        JOIN_PARTITIONS
+    }
+
+    private final RamAccounting ramAccounting;
+    private final Predicate<Row> joinCondition;
+    private final ToIntFunction<Row> hashBuilderForLeft;
+    private final ToIntFunction<Row> hashBuilderForRight;
+    private final IntSupplier calculateBlockSize;
+    private final long estimatedNumberOfRowsForLeft;
+    private final Path spillDirectory;
+    private final Streamer<?>[] leftStreamers;
+    private final Streamer<?>[] rightStreamers;
+    private final ColumnarHashTable buffer;
+
+    private Phase phase = Phase.BUILD;
+    private int blockSize;
+    private int numberOfRowsInBuffer = 0;
+    private int leftMatchingRowId = -1;
+    private Throwable killed;
+
+    private SpillFile[] leftPartitions;
+    private SpillFile[] rightPartitions;
+    private int currentPartition;
+    private CloseableIterator<Row> leftPartitionRows;
+    private CloseableIterator<Row> rightPartitionRows;
+
+    public GraceHashJoinBatchIterator(BatchIterator<Row> left,
+                                      BatchIterator<Row> right,
+                                      RamAccounting ramAccounting,
+                                      CombinedRow combiner,
+                                      Predicate<Row> joinCondition,
+                                      ToIntFunction<Row> hashBuilderForLeft,
+                                      ToIntFunction<Row> hashBuilderForRight,
+                                      IntSupplier calculateBlockSize,
+                                      long estimatedNumberOfRowsForLeft,
+                                      Path spillDirectory,
+                                      List<? extends DataType<?>> leftTypes,
+                                      List<? extends DataType<?>> rightTypes) {
+        super(left, right, combiner);
+        this.ramAccounting = ramAccounting;
+        this.joinCondition = joinCondition;
+        this.hashBuilderForLeft = hashBuilderForLeft;
+        this.hashBuilderForRight = hashBuilderForRight;
+        this.calculateBlockSize = calculateBlockSize;
+        this.estimatedNumberOfRowsForLeft = estimatedNumberOfRowsForLeft;
+        this.spillDirectory = spillDirectory;
+        this.leftStreamers = DataTypes.getStreamers(leftTypes);
+        this.rightStreamers = DataTypes.getStreamers(rightTypes);
+        this.buffer = new ColumnarHashTable(leftTypes);
+        resetBuffer();
+    }
+
+    @Override
+    public Row currentElement() {
+        return combiner.currentElement();
+    }
+
+    @Override
+    public void moveToStart() {
+        raiseIfKilled();
+        leftMatchingRowId = -1;
+        switch (phase) {
+            case PROBE:
+                // the whole left side is still in the buffer
+                right.moveToStart();
+                break;
+
+            case JOIN_PARTITIONS:
+                // both sides are on disk
+                closePartitionIterators();
+                resetBuffer();
+                currentPartition = -1;
+                break;
+
+            default:
+                left.moveToStart();
+                right.moveToStart();
+                closePartitions();
+                resetBuffer();
+                phase = Phase.BUILD;
+                activeIt = left;
+                break;
+        }
+    }
+
+    @Override
+    public CompletionStage<?> loadNextBatch() throws Exception {
+        if (phase == Phase.JOIN_PARTITIONS) {
+            throw new IllegalStateException("All batches already loaded");
+        }
+        return super.loadNextBatch();
+    }
+
+    @Override
+    public boolean allLoaded() {
+        return phase == Phase.JOIN_PARTITIONS || super.allLoaded();
+    }
+
+    @Override
+    public boolean moveNext() {
+        raiseIfKilled();
+        while (true) {
+            switch (phase) {
+                case BUILD:
+                    if (buildBuffer() == false) {
+                        // left needs the next batch loaded
+                        return false;
+                    }
+                    break;
+
+                case PROBE:
+                    return probe(right);
+
+                case PARTITION_LEFT:
+                    if (partition(left, hashBuilderForLeft, leftPartitions) == false) {
+                        return false;
+                    }
+                    phase = Phase.PARTITION_RIGHT;
+                    activeIt = right;
+                    break;
+
+                case PARTITION_RIGHT:
+                    if (partition(right, hashBuilderForRight, rightPartitions) == false) {
+                        return false;
+                    }
+                    phase = Phase.JOIN_PARTITIONS;
+                    currentPartition = -1;
+                    break;
+
+                case JOIN_PARTITIONS:
+                    return joinPartitions();
+
+                default:
+                    throw new AssertionError("Unexpected phase: " + phase);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        closePartitions();
+        buffer.clear();
+        ramAccounting.release();
+        killed = BatchIterator.CLOSED;
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        killed = throwable;
+        super.kill(throwable);
+    }
+
+    /**
+     * @return true if the left side has been fully consumed or if it needs to spill, false if the next batch of the
+     *         left side must be loaded.
+     */
+    private boolean buildBuffer() {
+        while (left.moveNext()) {
+            Row row = left.currentElement();
+            if (numberOfRowsInBuffer == blockSize) {
+                spillBuffer();
+                writeToPartition(leftPartitions, row, hashBuilderForLeft.applyAsInt(row));
+                phase = Phase.PARTITION_LEFT;
+                return true;
+            }
+            addToBuffer(row, hashBuilderForLeft.applyAsInt(row));
+        }
+        if (left.allLoaded()) {
+            phase = Phase.PROBE;
+            activeIt = right;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the source has been fully partitioned, false if the next batch must be loaded.
+     */
+    private static boolean partition(BatchIterator<Row> source, ToIntFunction<Row> hashBuilder, SpillFile[] partitions) {
+        while (source.moveNext()) {
+            Row row = source.currentElement();
+            writeToPartition(partitions, row, hashBuilder.applyAsInt(row));
+        }
+        if (source.allLoaded()) {
+            for (SpillFile partition : partitions) {
+                partition.finishWriting();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean probe(Iterator<Row> rightRows) {
+        if (findMatchingRows()) {
+            return true;
+        }
+        while (rightRows.hasNext()) {
+            Row rightRow = rightRows.next();
+            leftMatchingRowId = buffer.firstRowId(hashBuilderForRight.applyAsInt(rightRow));
+            if (leftMatchingRowId != -1) {
+                combiner.setRight(rightRow);
+                if (findMatchingRows()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean probe(BatchIterator<Row> rightRows) {
+        if (findMatchingRows()) {
+            return true;
+        }
+        while (rightRows.moveNext()) {
+            Row rightRow = rightRows.currentElement();
+            leftMatchingRowId = buffer.firstRowId(hashBuilderForRight.applyAsInt(rightRow));
+            if (leftMatchingRowId != -1) {
+                combiner.setRight(rightRow);
+                if (findMatchingRows()) {
+                    return true;
+                }
+            }
+        }
+        // need to load the next batch of the right relation or it is exhausted
+        return false;
+    }
+
+    private boolean joinPartitions() {
+        while (true) {
+            if (rightPartitionRows != null) {
+                if (probe(rightPartitionRows)) {
+                    return true;
+                }
+                rightPartitionRows.close();
+                rightPartitionRows = null;
+            }
+            if (loadNextBlockOfPartitions() == false) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Loads the next block of rows of the current left partition into the buffer,
+     * moving on to the next partition if the current one is exhausted.
+     *
+     * @return false if all partitions have been processed.
+     */
+    private boolean loadNextBlockOfPartitions() {
+        resetBuffer();
+        while (leftPartitionRows == null || leftPartitionRows.hasNext() == false) {
+            if (leftPartitionRows != null) {
+                leftPartitionRows.close();
+                leftPartitionRows = null;
+            }
+            currentPartition++;
+            if (currentPartition >= leftPartitions.length) {
+                return false;
+            }
+            // An inner join can't produce rows if one side of the partition is empty
+            if (leftPartitions[currentPartition].numRows() > 0 && rightPartitions[currentPartition].numRows() > 0) {
+                leftPartitionRows = leftPartitions[currentPartition].rows();
+            }
+        }
+        // If a single partition doesn't fit into memory it is processed in blocks,
+        // each block requires another pass over the right partition.
+        while (numberOfRowsInBuffer < blockSize && leftPartitionRows.hasNext()) {
+            Row row = leftPartitionRows.next();
+            addToBuffer(row, hashBuilderForLeft.applyAsInt(row));
+        }
+        rightPartitionRows = rightPartitions[currentPartition].rows();
+        return true;
+    }
+
+    private void spillBuffer() {
+        int numPartitions = numPartitions(estimatedNumberOfRowsForLeft, blockSize);
+        leftPartitions = new SpillFile[numPartitions];
+        rightPartitions = new SpillFile[numPartitions];
+        for (int i = 0; i < numPartitions; i++) {
+            leftPartitions[i] = SpillFile.create(spillDirectory, "hash-join-left-", leftStreamers);
+            rightPartitions[i] = SpillFile.create(spillDirectory, "hash-join-right-", rightStreamers);
+        }
+        for (int rowId = 0; rowId < buffer.size(); rowId++) {
+            writeToPartition(leftPartitions, buffer.row(rowId), buffer.hash(rowId));
+        }
+        resetBuffer();
+    }
+
+    /**
+     * The number of partitions is chosen so that each left partition is expected to fit into a single block.
+     */
+    static int numPartitions(long estimatedNumberOfRowsForLeft, int blockSize) {
+        long expectedBlocks = estimatedNumberOfRowsForLeft / Math.max(1, blockSize);
+        int numPartitions = MIN_PARTITIONS;
+        // use twice as many partitions as blocks, to have some headroom for skew
+        while (numPartitions / 2 <= expectedBlocks && numPartitions < MAX_PARTITIONS) {
+            numPartitions <<= 1;
+        }
+        return numPartitions;
+    }
+
+    static int partitionIdx(int hash, int numPartitions) {
+        // numPartitions is a power of two, spread the higher bits
+        return (hash ^ (hash >>> 16)) & (numPartitions - 1);
+    }
+
+    private static void writeToPartition(SpillFile[] partitions, Row row, int hash) {
+        partitions[partitionIdx(hash, partitions.length)].write(row);
+    }
+
+    private void addToBuffer(Row row, int hash) {
+        ramAccounting.addBytes(buffer.add(row, hash));
+        numberOfRowsInBuffer++;
+    }
+
+    private boolean findMatchingRows() {
+        while (leftMatchingRowId != -1) {
+            combiner.setLeft(buffer.row(leftMatchingRowId));
+            leftMatchingRowId = buffer.nextRowId(leftMatchingRowId);
+            if (joinCondition.test(combiner.currentElement())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void resetBuffer() {
+        blockSize = calculateBlockSize.getAsInt();
+        buffer.clear();
+        numberOfRowsInBuffer = 0;
+        leftMatchingRowId = -1;
+        ramAccounting.release();
+    }
+
+    private void closePartitionIterators() {
+        if (leftPartitionRows != null) {
+            leftPartitionRows.close();
+            leftPartitionRows = null;
+        }
+        if (rightPartitionRows != null) {
+            rightPartitionRows.close();
+            rightPartitionRows = null;
+        }
+    }
+
+    private void closePartitions() {
+        closePartitionIterators();
+        if (leftPartitions != null) {
+            for (int i = 0; i < leftPartitions.length; i++) {
+                // partitions may be null if the creation of the spill files failed
+                if (leftPartitions[i] != null) {
+                    leftPartitions[i].close();
+                }
+                if (rightPartitions[i] != null) {
+                    rightPartitions[i].close();
+                }
+            }
+            leftPartitions = null;
+            rightPartitions = null;
+        }
+    }
+
+    private void raiseIfKilled() {
+        if (killed != null) {
+            Exceptions.rethrowUnchecked(killed);
+        }
+    }
+}
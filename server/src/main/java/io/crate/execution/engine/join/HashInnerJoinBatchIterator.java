@@ -22,17 +22,14 @@
 
 package io.crate.execution.engine.join;
 
-import io.crate.breaker.RowAccounting;
+import io.crate.breaker.RamAccounting;
 import io.crate.data.BatchIterator;
 import io.crate.data.Paging;
 import io.crate.data.Row;
-import io.crate.data.UnsafeArrayRow;
 import io.crate.data.join.CombinedRow;
 import io.crate.data.join.JoinBatchIterator;
-import io.netty.util.collection.IntObjectHashMap;
+import io.crate.types.DataType;
 
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CompletionStage;
 import java.util.function.IntSupplier;
@@ -43,7 +40,7 @@ import java.util.function.ToIntFunction;
  * <pre>
  *     Build Phase:
  *     for (leftRow in left) {
- *         calculate hash and put in Buffer (HashMap) until the blockSize is reached
+ *         calculate hash and put in Buffer ({@link ColumnarHashTable}) until the blockSize is reached
  *     }
  *
  *     Probe Phase:
@@ -79,43 +76,42 @@ import java.util.function.ToIntFunction;
  */
 public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row> {
 
-    private final RowAccounting<Object[]> leftRowAccounting;
+    private final RamAccounting ramAccounting;
     private final Predicate<Row> joinCondition;
 
-    /**
-     * Used to avoid instantiating multiple times RowN in {@link #findMatchingRows()}
-     */
-    private final UnsafeArrayRow leftRow = new UnsafeArrayRow();
     private final ToIntFunction<Row> hashBuilderForLeft;
     private final ToIntFunction<Row> hashBuilderForRight;
     private final IntSupplier calculateBlockSize;
-    private final IntObjectHashMap<List<Object[]>> buffer;
-
-    private final UnsafeArrayRow unsafeArrayRow = new UnsafeArrayRow();
+    private final ColumnarHashTable buffer;
 
     private int blockSize;
     private int numberOfRowsInBuffer = 0;
     private boolean leftBatchHasItems = false;
     private int numberOfLeftBatchesForBlock;
     private int numberOfLeftBatchesLoadedForBlock;
-    private Iterator<Object[]> leftMatchingRowsIterator;
+
+    /**
+     * Row id of the next candidate in the buffer for the current right row, or -1 if there is none.
+     * Used to continue with the next match (duplicate values or hash collisions) on the next {@link #moveNext()}.
+     */
+    private int leftMatchingRowId = -1;
 
     public HashInnerJoinBatchIterator(BatchIterator<Row> left,
                                       BatchIterator<Row> right,
-                                      RowAccounting<Object[]> leftRowAccounting,
+                                      RamAccounting ramAccounting,
                                       CombinedRow combiner,
                                       Predicate<Row> joinCondition,
                                       ToIntFunction<Row> hashBuilderForLeft,
                                       ToIntFunction<Row> hashBuilderForRight,
-                                      IntSupplier calculateBlockSize) {
+                                      IntSupplier calculateBlockSize,
+                                      List<DataType<?>> leftTypes) {
         super(left, right, combiner);
-        this.leftRowAccounting = leftRowAccounting;
+        this.ramAccounting = ramAccounting;
         this.joinCondition = joinCondition;
         this.hashBuilderForLeft = hashBuilderForLeft;
         this.hashBuilderForRight = hashBuilderForRight;
         this.calculateBlockSize = calculateBlockSize;
-        // resized upon block size calculation
-        this.buffer = new IntObjectHashMap<>();
+        this.buffer = new ColumnarHashTable(leftTypes);
         resetBuffer();
         numberOfLeftBatchesLoadedForBlock = 0;
         this.activeIt = left;
@@ -132,7 +128,7 @@ public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row>
         right.moveToStart();
         activeIt = left;
         resetBuffer();
-        leftMatchingRowsIterator = null;
+        leftMatchingRowId = -1;
     }
 
     @Override
@@ -169,7 +165,7 @@ public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row>
         blockSize = calculateBlockSize.getAsInt();
         buffer.clear();
         numberOfRowsInBuffer = 0;
-        leftRowAccounting.release();
+        ramAccounting.release();
 
         // A batch is not guaranteed to deliver PAGE_SIZE number of rows. It could be more or less.
         // So we cannot rely on that to decide if processing 1 block is done, we must also know and track how much
@@ -181,10 +177,10 @@ public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row>
     private boolean buildBufferAndMatchRight() {
         if (activeIt == left) {
             while (leftBatchHasItems = left.moveNext()) {
-                Object[] leftRow = left.currentElement().materialize();
-                leftRowAccounting.accountForAndMaybeBreak(leftRow);
-                int hash = hashBuilderForLeft.applyAsInt(unsafeArrayRow.cells(leftRow));
-                addToBuffer(leftRow, hash);
+                Row leftRow = left.currentElement();
+                int hash = hashBuilderForLeft.applyAsInt(leftRow);
+                ramAccounting.addBytes(buffer.add(leftRow, hash));
+                numberOfRowsInBuffer++;
                 if (numberOfRowsInBuffer == blockSize) {
                     break;
                 }
@@ -201,15 +197,13 @@ public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row>
         }
 
         // In case of multiple matches on the left side (duplicate values or hash collisions)
-        if (leftMatchingRowsIterator != null && findMatchingRows()) {
+        if (leftMatchingRowId != -1 && findMatchingRows()) {
             return true;
         }
-        leftMatchingRowsIterator = null;
         while (right.moveNext()) {
             int rightHash = hashBuilderForRight.applyAsInt(right.currentElement());
-            List<Object[]> leftMatchingRows = buffer.get(rightHash);
-            if (leftMatchingRows != null) {
-                leftMatchingRowsIterator = leftMatchingRows.iterator();
+            leftMatchingRowId = buffer.firstRowId(rightHash);
+            if (leftMatchingRowId != -1) {
                 combiner.setRight(right.currentElement());
                 if (findMatchingRows()) {
                     return true;
@@ -221,20 +215,10 @@ public class HashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row>
         return false;
     }
 
-    private void addToBuffer(Object[] currentRow, int hash) {
-        List<Object[]> existingRows = buffer.get(hash);
-        if (existingRows == null) {
-            existingRows = new ArrayList<>();
-            buffer.put(hash, existingRows);
-        }
-        existingRows.add(currentRow);
-        numberOfRowsInBuffer++;
-    }
-
     private boolean findMatchingRows() {
-        while (leftMatchingRowsIterator.hasNext()) {
-            leftRow.cells(leftMatchingRowsIterator.next());
-            combiner.setLeft(leftRow);
+        while (leftMatchingRowId != -1) {
+            combiner.setLeft(buffer.row(leftMatchingRowId));
+            leftMatchingRowId = buffer.nextRowId(leftMatchingRowId);
             if (joinCondition.test(combiner.currentElement())) {
                 return true;
             }
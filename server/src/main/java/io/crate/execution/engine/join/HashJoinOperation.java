@@ -22,7 +22,7 @@
 
 package io.crate.execution.engine.join;
 
-import io.crate.breaker.RowAccounting;
+import io.crate.breaker.RamAccounting;
 import io.crate.concurrent.CompletionListenable;
 import io.crate.data.BatchIterator;
 import io.crate.data.CapturingRowConsumer;
@@ -34,8 +34,12 @@ import io.crate.execution.engine.collect.CollectExpression;
 import io.crate.expression.InputFactory;
 import io.crate.expression.symbol.Symbol;
 import io.crate.metadata.TransactionContext;
+import io.crate.types.DataType;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
@@ -53,12 +57,15 @@ public class HashJoinOperation implements CompletionListenable {
                              Predicate<Row> joinPredicate,
                              List<Symbol> joinLeftInputs,
                              List<Symbol> joinRightInputs,
-                             RowAccounting<Object[]> rowAccounting,
+                             RamAccounting ramAccounting,
                              TransactionContext txnCtx,
                              InputFactory inputFactory,
                              CircuitBreaker circuitBreaker,
                              long estimatedRowSizeForLeft,
-                             long numberOfRowsForLeft) {
+                             long numberOfRowsForLeft,
+                             Collection<DataType<?>> leftOutputTypes,
+                             @Nullable Collection<DataType<?>> rightOutputTypes,
+                             @Nullable Path spillDirectory) {
 
         this.resultConsumer = nlResultConsumer;
         this.leftConsumer = new CapturingRowConsumer(nlResultConsumer.requiresScroll(), nlResultConsumer.completionFuture());
@@ -68,22 +75,52 @@ public class HashJoinOperation implements CompletionListenable {
                 if (failure == null) {
                     BatchIterator<Row> joinIterator;
                     try {
-                        joinIterator = createHashJoinIterator(
-                            leftConsumer.capturedBatchIterator().join(),
-                            numLeftCols,
-                            rightConsumer.capturedBatchIterator().join(),
-                            numRightCols,
-                            joinPredicate,
-                            getHashBuilderFromSymbols(txnCtx, inputFactory, joinLeftInputs),
-                            getHashBuilderFromSymbols(txnCtx, inputFactory, joinRightInputs),
-                            rowAccounting,
-                            new RamBlockSizeCalculator(
-                                Paging.PAGE_SIZE,
-                                circuitBreaker,
-                                estimatedRowSizeForLeft,
-                                numberOfRowsForLeft
-                            )
-                        );
+                        List<DataType<?>> leftTypes = List.copyOf(leftOutputTypes);
+                        long fixedRowSize = ColumnarHashTable.fixedRowSize(leftTypes);
+                        if (canSpill(circuitBreaker, estimatedRowSizeForLeft, rightOutputTypes, spillDirectory)) {
+                            joinIterator = createGraceHashJoinIterator(
+                                leftConsumer.capturedBatchIterator().join(),
+                                numLeftCols,
+                                rightConsumer.capturedBatchIterator().join(),
+                                numRightCols,
+                                joinPredicate,
+                                getHashBuilderFromSymbols(txnCtx, inputFactory, joinLeftInputs),
+                                getHashBuilderFromSymbols(txnCtx, inputFactory, joinRightInputs),
+                                ramAccounting,
+                                // The block size is only limited by the available memory,
+                                // exceeding it results in partitioning both sides to disk.
+                                // If all columns are stored in primitive arrays the exact row size is known,
+                                // which is usually a lot smaller than the estimate which is based on boxed values.
+                                new RamBlockSizeCalculator(
+                                    Integer.MAX_VALUE,
+                                    circuitBreaker,
+                                    fixedRowSize > 0 ? fixedRowSize : estimatedRowSizeForLeft,
+                                    Long.MAX_VALUE
+                                ),
+                                numberOfRowsForLeft,
+                                spillDirectory,
+                                leftTypes,
+                                List.copyOf(rightOutputTypes)
+                            );
+                        } else {
+                            joinIterator = createHashJoinIterator(
+                                leftConsumer.capturedBatchIterator().join(),
+                                numLeftCols,
+                                rightConsumer.capturedBatchIterator().join(),
+                                numRightCols,
+                                joinPredicate,
+                                getHashBuilderFromSymbols(txnCtx, inputFactory, joinLeftInputs),
+                                getHashBuilderFromSymbols(txnCtx, inputFactory, joinRightInputs),
+                                ramAccounting,
+                                new RamBlockSizeCalculator(
+                                    Paging.PAGE_SIZE,
+                                    circuitBreaker,
+                                    fixedRowSize > 0 ? fixedRowSize : estimatedRowSizeForLeft,
+                                    numberOfRowsForLeft
+                                ),
+                                leftTypes
+                            );
+                        }
                         nlResultConsumer.accept(joinIterator, null);
                     } catch (Exception e) {
                         nlResultConsumer.accept(null, e);
@@ -126,6 +163,50 @@ public class HashJoinOperation implements CompletionListenable {
         };
     }
 
+    /**
+     * Spilling requires the types of both sides and a row size estimate.
+     * Without an estimate the in-memory block size would fall back to {@link RamBlockSizeCalculator#FALLBACK_SIZE}
+     * and every join with more left rows would spill.
+     */
+    private static boolean canSpill(CircuitBreaker circuitBreaker,
+                                    long estimatedRowSizeForLeft,
+                                    @Nullable Collection<DataType<?>> rightOutputTypes,
+                                    @Nullable Path spillDirectory) {
+        return spillDirectory != null
+               && rightOutputTypes != null
+               && estimatedRowSizeForLeft > 0
+               && circuitBreaker.getLimit() != -1;
+    }
+
+    private static BatchIterator<Row> createGraceHashJoinIterator(BatchIterator<Row> left,
+                                                                  int leftNumCols,
+                                                                  BatchIterator<Row> right,
+                                                                  int rightNumCols,
+                                                                  Predicate<Row> joinCondition,
+                                                                  ToIntFunction<Row> hashBuilderForLeft,
+                                                                  ToIntFunction<Row> hashBuilderForRight,
+                                                                  RamAccounting ramAccounting,
+                                                                  RamBlockSizeCalculator blockSizeCalculator,
+                                                                  long numberOfRowsForLeft,
+                                                                  Path spillDirectory,
+                                                                  List<DataType<?>> leftTypes,
+                                                                  List<DataType<?>> rightTypes) {
+        CombinedRow combiner = new CombinedRow(leftNumCols, rightNumCols);
+        return new GraceHashJoinBatchIterator(
+            left,
+            right,
+            ramAccounting,
+            combiner,
+            joinCondition,
+            hashBuilderForLeft,
+            hashBuilderForRight,
+            blockSizeCalculator,
+            numberOfRowsForLeft,
+            spillDirectory,
+            leftTypes,
+            rightTypes);
+    }
+
     private static BatchIterator<Row> createHashJoinIterator(BatchIterator<Row> left,
                                                              int leftNumCols,
                                                              BatchIterator<Row> right,
@@ -133,17 +214,19 @@ public class HashJoinOperation implements CompletionListenable {
                                                              Predicate<Row> joinCondition,
                                                              ToIntFunction<Row> hashBuilderForLeft,
                                                              ToIntFunction<Row> hashBuilderForRight,
-                                                             RowAccounting<Object[]> rowAccounting,
-                                                             RamBlockSizeCalculator blockSizeCalculator) {
+                                                             RamAccounting ramAccounting,
+                                                             RamBlockSizeCalculator blockSizeCalculator,
+                                                             List<DataType<?>> leftTypes) {
         CombinedRow combiner = new CombinedRow(leftNumCols, rightNumCols);
         return new HashInnerJoinBatchIterator(
             left,
             right,
-            rowAccounting,
+            ramAccounting,
             combiner,
             joinCondition,
             hashBuilderForLeft,
             hashBuilderForRight,
-            blockSizeCalculator);
+            blockSizeCalculator,
+            leftTypes);
     }
 }
@@ -72,6 +72,7 @@ import io.crate.execution.engine.indexing.IndexWriterProjector;
 import io.crate.execution.engine.indexing.ShardDMLExecutor;
 import io.crate.execution.engine.indexing.ShardingUpsertExecutor;
 import io.crate.execution.engine.indexing.UpsertResultContext;
+import io.crate.execution.engine.sort.NormalizedSortKey;
 import io.crate.execution.engine.sort.OrderingByPosition;
 import io.crate.execution.engine.sort.SortingProjector;
 import io.crate.execution.engine.sort.SortingTopNProjector;
@@ -97,12 +98,14 @@ import io.crate.metadata.RowGranularity;
 import io.crate.metadata.TransactionContext;
 import io.crate.metadata.sys.SysNodeChecksTableInfo;
 import io.crate.planner.operators.SubQueryResults;
+import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import io.crate.types.StringType;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.settings.Settings;
 import io.crate.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
@@ -112,6 +115,7 @@ import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -154,6 +158,8 @@ public class ProjectionToProjectorVisitor
     private final Version indexVersionCreated;
     @Nullable
     private final ShardId shardId;
+    @Nullable
+    private final Path spillDirectory;
     private final int numProcessors;
 
 
@@ -169,7 +175,8 @@ public class ProjectionToProjectorVisitor
                                         Function<RelationName, SysRowUpdater<?>> sysUpdaterGetter,
                                         Function<RelationName, StaticTableDefinition<?>> staticTableDefinitionGetter,
                                         Version indexVersionCreated,
-                                        @Nullable ShardId shardId) {
+                                        @Nullable ShardId shardId,
+                                        @Nullable Path spillDirectory) {
         this.clusterService = clusterService;
         this.nodeJobsCounter = nodeJobsCounter;
         this.circuitBreakerService = circuitBreakerService;
@@ -183,6 +190,7 @@ public class ProjectionToProjectorVisitor
         this.staticTableDefinitionGetter = staticTableDefinitionGetter;
         this.indexVersionCreated = indexVersionCreated;
         this.shardId = shardId;
+        this.spillDirectory = spillDirectory;
         this.numProcessors = EsExecutors.numberOfProcessors(settings);
     }
 
@@ -196,7 +204,8 @@ public class ProjectionToProjectorVisitor
                                         InputFactory inputFactory,
                                         EvaluatingNormalizer normalizer,
                                         Function<RelationName, SysRowUpdater<?>> sysUpdaterGetter,
-                                        Function<RelationName, StaticTableDefinition<?>> staticTableDefinitionGetter) {
+                                        Function<RelationName, StaticTableDefinition<?>> staticTableDefinitionGetter,
+                                        @Nullable Path spillDirectory) {
         this(clusterService,
             nodeJobsCounter,
             circuitBreakerService,
@@ -209,7 +218,8 @@ public class ProjectionToProjectorVisitor
             sysUpdaterGetter,
             staticTableDefinitionGetter,
             Version.CURRENT,
-            null
+            null,
+            spillDirectory
         );
     }
 
@@ -246,21 +256,35 @@ public class ProjectionToProjectorVisitor
         }
 
         int rowMemoryOverhead = 32; // priority queues implementation are backed by an arrayList
+        List<DataType<?>> rowTypes = Symbols.typeView(Lists2.concat(projection.outputs(), projection.orderBy()));
         RowCellsAccountingWithEstimators rowAccounting = new RowCellsAccountingWithEstimators(
-            Symbols.typeView(Lists2.concat(projection.outputs(), projection.orderBy())),
+            rowTypes,
             context.ramAccounting,
             rowMemoryOverhead
         );
-        if (projection.limit() > TopN.NO_LIMIT) {
+        // An unbounded TopN collector keeps up to limit + offset rows in memory and can't spill,
+        // so large limits are handled by a spilling sort which stops after the limit instead.
+        boolean spillLargeLimit = spillDirectory != null
+            && (long) projection.limit() + projection.offset() > UNBOUNDED_COLLECTOR_THRESHOLD;
+        if (projection.limit() > TopN.NO_LIMIT && spillLargeLimit == false) {
+            NormalizedSortKey sortKey = NormalizedSortKey.create(
+                rowTypes,
+                orderByIndices,
+                projection.reverseFlags(),
+                projection.nullsFirst()
+            );
             return new SortingTopNProjector(
-                rowAccounting,
+                sortKey == null
+                    ? rowAccounting
+                    : sortKey.rowAccounting(rowTypes, context.ramAccounting, rowMemoryOverhead),
                 inputs,
                 ctx.expressions(),
                 numOutputs,
                 OrderingByPosition.arrayOrdering(orderByIndices, projection.reverseFlags(), projection.nullsFirst()),
                 projection.limit(),
                 projection.offset(),
-                UNBOUNDED_COLLECTOR_THRESHOLD
+                UNBOUNDED_COLLECTOR_THRESHOLD,
+                sortKey
             );
         }
         return new SortingProjector(
@@ -269,7 +293,12 @@ public class ProjectionToProjectorVisitor
             ctx.expressions(),
             numOutputs,
             OrderingByPosition.arrayOrdering(orderByIndices, projection.reverseFlags(), projection.nullsFirst()),
-            projection.offset()
+            projection.limit(),
+            projection.offset(),
+            context.ramAccounting,
+            rowTypes,
+            spillDirectory,
+            spillThresholdInBytes()
         );
     }
 
@@ -291,6 +320,10 @@ public class ProjectionToProjectorVisitor
 
     @Override
     public Projector visitEvalProjection(EvalProjection projection, Context context) {
+        Projector vectorized = VectorizedEvalProjector.create(projection.outputs());
+        if (vectorized != null) {
+            return vectorized;
+        }
         InputFactory.Context<CollectExpression<Row, ?>> ctx = inputFactory.ctxForInputColumns(context.txnCtx, projection.outputs());
         return new InputRowProjector(ctx.topLevelInputs(), ctx.expressions());
     }
@@ -312,10 +345,24 @@ public class ProjectionToProjectorVisitor
             context.ramAccounting,
             context.memoryManager,
             clusterService.state().getNodes().getMinNodeVersion(),
-            indexVersionCreated
+            indexVersionCreated,
+            spillDirectory,
+            spillThresholdInBytes()
         );
     }
 
+    /**
+     * Operations spill to disk once they occupy half of the memory which is available when the operation starts.
+     * Without a breaker limit there is no reference point, so everything is kept in memory.
+     */
+    private long spillThresholdInBytes() {
+        CircuitBreaker breaker = circuitBreakerService.getBreaker(HierarchyCircuitBreakerService.QUERY);
+        if (breaker.getLimit() == -1) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0L, breaker.getLimit() - breaker.getUsed()) / 2;
+    }
+
     @Override
     public Projector visitMergeCountProjection(MergeCountProjection projection, Context context) {
         return new MergeCountProjector();
@@ -352,7 +399,11 @@ public class ProjectionToProjectorVisitor
         assert uri != null : "URI must not be null";
 
         StringBuilder sb = new StringBuilder(uri);
-        Symbol resolvedFileName = normalizer.normalize(WriterProjection.DIRECTORY_TO_FILENAME, context.txnCtx);
+        boolean columnar = projection.outputFormat() == WriterProjection.OutputFormat.COLUMNAR;
+        Symbol resolvedFileName = normalizer.normalize(
+            columnar ? WriterProjection.DIRECTORY_TO_COLUMNAR_FILENAME : WriterProjection.DIRECTORY_TO_FILENAME,
+            context.txnCtx
+        );
         assert resolvedFileName instanceof Literal : "resolvedFileName must be a Literal, but is: " + resolvedFileName;
         assert DataTypes.isSameType(resolvedFileName.valueType(), StringType.INSTANCE) :
             "resolvedFileName.valueType() must be " + StringType.INSTANCE;
@@ -362,7 +413,8 @@ public class ProjectionToProjectorVisitor
             sb.append("/");
         }
         sb.append(fileName);
-        if (projection.compressionType() == WriterProjection.CompressionType.GZIP) {
+        // Columnar files compress their chunks individually and aren't gzip files
+        if (projection.compressionType() == WriterProjection.CompressionType.GZIP && !columnar) {
             sb.append(".gz");
         }
         uri = sb.toString();
@@ -378,7 +430,8 @@ public class ProjectionToProjectorVisitor
             ctx.expressions(),
             overwrites,
             projection.outputNames(),
-            projection.outputFormat()
+            projection.outputFormat(),
+            inputs == null ? null : Symbols.typeView(projection.inputs())
         );
     }
 
@@ -506,6 +559,10 @@ public class ProjectionToProjectorVisitor
 
     @Override
     public Projector visitFilterProjection(FilterProjection projection, Context context) {
+        Projector vectorized = VectorizedFilterProjector.create(projection.query());
+        if (vectorized != null) {
+            return vectorized;
+        }
         Predicate<Row> rowFilter = RowFilter.create(context.txnCtx, inputFactory, projection.query());
         return new FilterProjector(rowFilter);
     }
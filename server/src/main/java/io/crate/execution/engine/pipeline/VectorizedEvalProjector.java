@@ -0,0 +1,189 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.pipeline;
+
+import io.crate.data.BatchIterator;
+import io.crate.data.ColumnBatch;
+import io.crate.data.ColumnBatchingIterator;
+import io.crate.data.DoubleVector;
+import io.crate.data.LongVector;
+import io.crate.data.Projector;
+import io.crate.data.Row;
+import io.crate.expression.symbol.Function;
+import io.crate.expression.symbol.InputColumn;
+import io.crate.expression.symbol.Symbol;
+import io.crate.expression.vector.DoubleVectorExpression;
+import io.crate.expression.vector.LongVectorExpression;
+import io.crate.expression.vector.VectorExpressions;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Evaluates scalars in batches of {@link ColumnBatch#DEFAULT_CAPACITY} using vectorized expressions.
+ * Used instead of the {@link InputRowProjector} if all outputs are either input columns or can be vectorized.
+ */
+class VectorizedEvalProjector implements Projector {
+
+    private final List<Symbol> outputs;
+
+    private VectorizedEvalProjector(List<Symbol> outputs) {
+        this.outputs = outputs;
+    }
+
+    /**
+     * @return the projector or null if the outputs don't contain any functions or cannot be evaluated vectorized
+     */
+    @Nullable
+    static VectorizedEvalProjector create(List<Symbol> outputs) {
+        boolean hasFunction = false;
+        for (Symbol output : outputs) {
+            if (output instanceof Function) {
+                if (VectorExpressions.compileLong(output) == null && VectorExpressions.compileDouble(output) == null) {
+                    return null;
+                }
+                hasFunction = true;
+            } else if (!(output instanceof InputColumn)) {
+                return null;
+            }
+        }
+        return hasFunction ? new VectorizedEvalProjector(outputs) : null;
+    }
+
+    @Override
+    public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
+        // Expressions keep state between evaluations, each iterator needs its own instances
+        int numOutputs = outputs.size();
+        int[] inputs = new int[numOutputs];
+        LongVectorExpression[] longExpressions = new LongVectorExpression[numOutputs];
+        DoubleVectorExpression[] doubleExpressions = new DoubleVectorExpression[numOutputs];
+        for (int i = 0; i < numOutputs; i++) {
+            Symbol output = outputs.get(i);
+            if (output instanceof InputColumn) {
+                inputs[i] = ((InputColumn) output).index();
+            } else {
+                inputs[i] = -1;
+                longExpressions[i] = VectorExpressions.compileLong(output);
+                if (longExpressions[i] == null) {
+                    doubleExpressions[i] = VectorExpressions.compileDouble(output);
+                }
+            }
+        }
+        return new ColumnBatchingIterator(batchIterator, ColumnBatch.DEFAULT_CAPACITY) {
+
+            private final LongVector[] longResults = new LongVector[numOutputs];
+            private final DoubleVector[] doubleResults = new DoubleVector[numOutputs];
+            private final BatchRow row = new BatchRow(inputs, longResults, doubleResults);
+            private final int[] singleRow = new int[1];
+
+            @Override
+            protected int process(ColumnBatch batch, int[] selection) {
+                int size = batch.size();
+                for (int i = 0; i < size; i++) {
+                    selection[i] = i;
+                }
+                try {
+                    evaluate(batch, selection, size);
+                } catch (RuntimeException e) {
+                    return evaluateRowByRow(batch);
+                }
+                return size;
+            }
+
+            /**
+             * A failure (e.g. a division by zero) of a row must only fail the query if the row is emitted,
+             * like it would using the {@link InputRowProjector}, and not if it follows a row which ends the consumption.
+             *
+             * @return the number of rows preceding the first failing row
+             */
+            private int evaluateRowByRow(ColumnBatch batch) {
+                for (int i = 0; i < batch.size(); i++) {
+                    singleRow[0] = i;
+                    try {
+                        evaluate(batch, singleRow, 1);
+                    } catch (RuntimeException e) {
+                        failAfterSelection(e);
+                        return i;
+                    }
+                }
+                return batch.size();
+            }
+
+            private void evaluate(ColumnBatch batch, int[] selection, int numSelected) {
+                for (int i = 0; i < numOutputs; i++) {
+                    if (longExpressions[i] != null) {
+                        longResults[i] = longExpressions[i].evaluate(batch, selection, numSelected);
+                    } else if (doubleExpressions[i] != null) {
+                        doubleResults[i] = doubleExpressions[i].evaluate(batch, selection, numSelected);
+                    }
+                }
+            }
+
+            @Override
+            protected Row rowAt(ColumnBatch batch, int position) {
+                row.batch = batch;
+                row.position = position;
+                return row;
+            }
+        };
+    }
+
+    @Override
+    public boolean providesIndependentScroll() {
+        return false;
+    }
+
+    private static final class BatchRow extends Row {
+
+        private final int[] inputs;
+        private final LongVector[] longResults;
+        private final DoubleVector[] doubleResults;
+        private ColumnBatch batch;
+        private int position;
+
+        BatchRow(int[] inputs, LongVector[] longResults, DoubleVector[] doubleResults) {
+            this.inputs = inputs;
+            this.longResults = longResults;
+            this.doubleResults = doubleResults;
+        }
+
+        @Override
+        public int numColumns() {
+            return inputs.length;
+        }
+
+        @Override
+        public Object get(int index) {
+            int input = inputs[index];
+            if (input >= 0) {
+                return batch.get(input, position);
+            }
+            LongVector longResult = longResults[index];
+            if (longResult != null) {
+                return longResult.nulls()[position] ? null : longResult.values()[position];
+            }
+            DoubleVector doubleResult = doubleResults[index];
+            return doubleResult.nulls()[position] ? null : doubleResult.values()[position];
+        }
+    }
+}
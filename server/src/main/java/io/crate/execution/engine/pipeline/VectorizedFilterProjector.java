@@ -0,0 +1,128 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.pipeline;
+
+import io.crate.data.BatchIterator;
+import io.crate.data.ColumnBatch;
+import io.crate.data.ColumnBatchingIterator;
+import io.crate.data.Projector;
+import io.crate.data.Row;
+import io.crate.expression.symbol.Symbol;
+import io.crate.expression.vector.VectorExpressions;
+import io.crate.expression.vector.VectorPredicate;
+
+import javax.annotation.Nullable;
+
+/**
+ * Filters rows in batches of {@link ColumnBatch#DEFAULT_CAPACITY} using a {@link VectorPredicate}.
+ * Used instead of the {@link FilterProjector} if the whole query can be vectorized.
+ */
+class VectorizedFilterProjector implements Projector {
+
+    private final Symbol query;
+
+    private VectorizedFilterProjector(Symbol query) {
+        this.query = query;
+    }
+
+    /**
+     * @return the projector or null if the query cannot be evaluated vectorized
+     */
+    @Nullable
+    static VectorizedFilterProjector create(Symbol query) {
+        return VectorExpressions.compilePredicate(query) == null ? null : new VectorizedFilterProjector(query);
+    }
+
+    @Override
+    public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
+        // Expressions keep state between evaluations, each iterator needs its own instances
+        VectorPredicate predicate = VectorExpressions.compilePredicate(query);
+        assert predicate != null : "Query must be supported if the projector has been created";
+        return new ColumnBatchingIterator(batchIterator, ColumnBatch.DEFAULT_CAPACITY) {
+
+            private final BatchRow row = new BatchRow();
+            private final int[] singleRow = new int[1];
+
+            @Override
+            protected int process(ColumnBatch batch, int[] selection) {
+                int size = batch.size();
+                for (int i = 0; i < size; i++) {
+                    selection[i] = i;
+                }
+                try {
+                    return predicate.selectTrue(batch, selection, size, selection);
+                } catch (RuntimeException e) {
+                    return selectRowByRow(batch, selection);
+                }
+            }
+
+            /**
+             * A failure (e.g. a division by zero) of a row must only fail the query if the row is reached,
+             * like it would using the {@link FilterProjector}, and not if it follows a row which ends the consumption.
+             */
+            private int selectRowByRow(ColumnBatch batch, int[] selection) {
+                int numSelected = 0;
+                for (int i = 0; i < batch.size(); i++) {
+                    singleRow[0] = i;
+                    try {
+                        if (predicate.selectTrue(batch, singleRow, 1, singleRow) == 1) {
+                            selection[numSelected++] = i;
+                        }
+                    } catch (RuntimeException e) {
+                        failAfterSelection(e);
+                        break;
+                    }
+                }
+                return numSelected;
+            }
+
+            @Override
+            protected Row rowAt(ColumnBatch batch, int position) {
+                row.batch = batch;
+                row.position = position;
+                return row;
+            }
+        };
+    }
+
+    @Override
+    public boolean providesIndependentScroll() {
+        return false;
+    }
+
+    private static final class BatchRow extends Row {
+
+        private ColumnBatch batch;
+        private int position;
+
+        @Override
+        public int numColumns() {
+            return batch.numColumns();
+        }
+
+        @Override
+        public Object get(int index) {
+            return batch.get(index, position);
+        }
+    }
+}
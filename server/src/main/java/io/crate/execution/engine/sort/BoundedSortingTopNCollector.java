@@ -30,6 +30,7 @@ import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
 import org.apache.lucene.util.ArrayUtil;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -55,6 +56,8 @@ public class BoundedSortingTopNCollector implements Collector<Row, RowPriorityQu
     private final int offset;
     private final int maxSize;
     private final RowAccounting<Object[]> rowAccounting;
+    @Nullable
+    private final NormalizedSortKey sortKey;
 
     private Object[] spare;
 
@@ -74,6 +77,21 @@ public class BoundedSortingTopNCollector implements Collector<Row, RowPriorityQu
                                        Comparator<Object[]> comparator,
                                        int limit,
                                        int offset) {
+        this(rowAccounting, inputs, expressions, numOutputs, comparator, limit, offset, null);
+    }
+
+    /**
+     * @param sortKey if not null, the key is added to each row and the rows are compared using
+     *                {@link NormalizedSortKey#comparator()} instead of {@code comparator}
+     */
+    public BoundedSortingTopNCollector(RowAccounting<Object[]> rowAccounting,
+                                       Collection<? extends Input<?>> inputs,
+                                       Iterable<? extends CollectExpression<Row, ?>> expressions,
+                                       int numOutputs,
+                                       Comparator<Object[]> comparator,
+                                       int limit,
+                                       int offset,
+                                       @Nullable NormalizedSortKey sortKey) {
         if (limit <= 0) {
             throw new IllegalArgumentException("Invalid LIMIT: value must be > 0; got: " + limit);
         }
@@ -85,7 +103,8 @@ public class BoundedSortingTopNCollector implements Collector<Row, RowPriorityQu
         this.inputs = inputs;
         this.expressions = expressions;
         this.numOutputs = numOutputs;
-        this.comparator = comparator;
+        this.comparator = sortKey == null ? comparator : sortKey.comparator();
+        this.sortKey = sortKey;
         this.offset = offset;
         this.maxSize = limit + offset;
 
@@ -131,7 +150,7 @@ public class BoundedSortingTopNCollector implements Collector<Row, RowPriorityQu
         }
         boolean accountForExtraSpare = false;
         if (spare == null) {
-            spare = new Object[inputs.size()];
+            spare = new Object[sortKey == null ? inputs.size() : sortKey.numCells()];
             accountForExtraSpare = true;
         }
         int i = 0;
@@ -139,6 +158,9 @@ public class BoundedSortingTopNCollector implements Collector<Row, RowPriorityQu
             spare[i] = input.value();
             i++;
         }
+        if (sortKey != null) {
+            sortKey.setKey(spare);
+        }
         if (accountForExtraSpare) {
             rowAccounting.accountForAndMaybeBreak(spare);
         }
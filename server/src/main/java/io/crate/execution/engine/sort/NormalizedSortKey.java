@@ -0,0 +1,264 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.sort;
+
+import io.crate.breaker.RamAccounting;
+import io.crate.breaker.RowAccounting;
+import io.crate.breaker.SizeEstimator;
+import io.crate.breaker.SizeEstimatorFactory;
+import io.crate.types.BooleanType;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Encodes the ORDER BY columns of a row into a single byte array, which sorts in the same order as the
+ * row would using {@link OrderingByPosition#arrayOrdering(int[], boolean[], boolean[])}, if compared using
+ * {@link Arrays#compareUnsigned(byte[], byte[])}.
+ * <p>
+ * The key is stored as an additional cell after the {@code inputs} of a row, see {@link #keyPosition()}.
+ * As the number of outputs of a sort is always smaller than the number of inputs, the key is not part of the result.
+ * <p>
+ * Encoding per column:
+ * <ul>
+ *     <li>1 byte null marker, ordering nulls before or after the values</li>
+ *     <li>numeric values: 8 bytes big endian, with the sign bit flipped and the bits of negative
+ *     floating point values inverted</li>
+ *     <li>strings: the UTF-16 chars as 2 bytes big endian, 0x00 bytes are escaped as 0x00 0xFF and the
+ *     value is terminated by 0x00 0x00</li>
+ * </ul>
+ * The bytes of the values are inverted for descending order.
+ * <p>
+ * Not thread-safe, an instance must only be used by a single sort operation.
+ */
+public final class NormalizedSortKey {
+
+    private static final byte NULL_FIRST = 0x00;
+    private static final byte NOT_NULL = 0x01;
+    private static final byte NULL_LAST = 0x02;
+
+    private final int keyPosition;
+    private final int[] positions;
+    private final DataType<?>[] types;
+    private final boolean[] reverseFlags;
+    private final boolean[] nullsFirst;
+
+    private byte[] buffer = new byte[64];
+    private int length;
+
+    /**
+     * @param rowTypes     the types of the inputs of the rows
+     * @param positions    the positions of the ORDER BY columns within the inputs
+     * @return the sort key or null if there is only a single ORDER BY column, which is compared cheaply enough
+     *         without a key, or if the type of an ORDER BY column is not supported
+     */
+    @Nullable
+    public static NormalizedSortKey create(List<? extends DataType<?>> rowTypes,
+                                           int[] positions,
+                                           boolean[] reverseFlags,
+                                           boolean[] nullsFirst) {
+        if (positions.length < 2) {
+            return null;
+        }
+        DataType<?>[] types = new DataType[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            DataType<?> type = rowTypes.get(positions[i]);
+            switch (type.id()) {
+                case BooleanType.ID:
+                case ByteType.ID:
+                case ShortType.ID:
+                case IntegerType.ID:
+                case LongType.ID:
+                case TimestampType.ID_WITH_TZ:
+                case TimestampType.ID_WITHOUT_TZ:
+                case FloatType.ID:
+                case DoubleType.ID:
+                case StringType.ID:
+                    types[i] = type;
+                    break;
+
+                default:
+                    return null;
+            }
+        }
+        return new NormalizedSortKey(rowTypes.size(), positions, types, reverseFlags, nullsFirst);
+    }
+
+    private NormalizedSortKey(int keyPosition,
+                              int[] positions,
+                              DataType<?>[] types,
+                              boolean[] reverseFlags,
+                              boolean[] nullsFirst) {
+        this.keyPosition = keyPosition;
+        this.positions = positions;
+        this.types = types;
+        this.reverseFlags = reverseFlags;
+        this.nullsFirst = nullsFirst;
+    }
+
+    /**
+     * @return the position of the key within the row cells
+     */
+    public int keyPosition() {
+        return keyPosition;
+    }
+
+    /**
+     * @return the number of cells of a row including the key
+     */
+    public int numCells() {
+        return keyPosition + 1;
+    }
+
+    /**
+     * Compares rows by the key at {@link #keyPosition()}
+     */
+    public Comparator<Object[]> comparator() {
+        int pos = keyPosition;
+        return (row1, row2) -> Arrays.compareUnsigned((byte[]) row1[pos], (byte[]) row2[pos]);
+    }
+
+    /**
+     * Encodes the ORDER BY columns of the row and sets the key at {@link #keyPosition()}.
+     */
+    public void setKey(Object[] cells) {
+        assert cells.length == numCells() : "Row must have a cell for the sort key";
+        length = 0;
+        for (int i = 0; i < positions.length; i++) {
+            Object value = cells[positions[i]];
+            if (value == null) {
+                ensureCapacity(1);
+                buffer[length++] = nullsFirst[i] ? NULL_FIRST : NULL_LAST;
+                continue;
+            }
+            ensureCapacity(1);
+            buffer[length++] = NOT_NULL;
+            int start = length;
+            switch (types[i].id()) {
+                case BooleanType.ID:
+                    ensureCapacity(1);
+                    buffer[length++] = ((Boolean) value) ? (byte) 1 : (byte) 0;
+                    break;
+
+                case FloatType.ID:
+                case DoubleType.ID:
+                    long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+                    writeLong(bits < 0 ? ~bits : bits ^ Long.MIN_VALUE);
+                    break;
+
+                case StringType.ID:
+                    writeString((String) value);
+                    break;
+
+                default:
+                    writeLong(((Number) value).longValue() ^ Long.MIN_VALUE);
+                    break;
+            }
+            if (reverseFlags[i]) {
+                for (int b = start; b < length; b++) {
+                    buffer[b] = (byte) ~buffer[b];
+                }
+            }
+        }
+        cells[keyPosition] = Arrays.copyOf(buffer, length);
+    }
+
+    private void writeLong(long value) {
+        ensureCapacity(Long.BYTES);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[length++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void writeString(String value) {
+        // worst case: both bytes of each char are escaped
+        ensureCapacity(value.length() * 4 + 2);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            writeEscaped((byte) (c >>> 8));
+            writeEscaped((byte) c);
+        }
+        buffer[length++] = 0x00;
+        buffer[length++] = 0x00;
+    }
+
+    private void writeEscaped(byte b) {
+        buffer[length++] = b;
+        if (b == 0x00) {
+            buffer[length++] = (byte) 0xFF;
+        }
+    }
+
+    private void ensureCapacity(int numBytes) {
+        if (length + numBytes > buffer.length) {
+            buffer = ArrayUtil.grow(buffer, length + numBytes);
+        }
+    }
+
+    /**
+     * Accounts for rows which include the sort key. The cells before the key are estimated based on the row types.
+     *
+     * @param extraSizePerCell see {@link io.crate.breaker.RowCellsAccountingWithEstimators}
+     */
+    public RowAccounting<Object[]> rowAccounting(List<? extends DataType<?>> rowTypes,
+                                                 RamAccounting ramAccounting,
+                                                 int extraSizePerCell) {
+        assert rowTypes.size() == keyPosition : "Number of row types must match the position of the key";
+        ArrayList<SizeEstimator<Object>> estimators = new ArrayList<>(rowTypes.size());
+        for (DataType<?> type : rowTypes) {
+            estimators.add(SizeEstimatorFactory.create(type));
+        }
+        return new RowAccounting<>() {
+
+            @Override
+            public void accountForAndMaybeBreak(Object[] cells) {
+                assert cells.length == numCells() : "Row must contain the sort key";
+                long size = 0;
+                for (int i = 0; i < keyPosition; i++) {
+                    size += estimators.get(i).estimateSize(cells[i]) + extraSizePerCell;
+                }
+                size += RamUsageEstimator.sizeOf((byte[]) cells[keyPosition]) + extraSizePerCell;
+                ramAccounting.addBytes(size);
+            }
+
+            @Override
+            public void release() {
+                ramAccounting.release();
+            }
+        };
+    }
+}
@@ -22,8 +22,10 @@
 
 package io.crate.execution.engine.sort;
 
+import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccounting;
 import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
 import io.crate.data.Bucket;
 import io.crate.data.CollectingBatchIterator;
 import io.crate.data.CollectionBucket;
@@ -31,7 +33,11 @@ import io.crate.data.Input;
 import io.crate.data.Projector;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.pipeline.TopN;
+import io.crate.types.DataType;
 
+import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
@@ -41,7 +47,7 @@ import java.util.stream.Collectors;
 /**
  * Sort rows by ordering criteria and process given offset before emitting.
  * <p>
- * Compared to {@link SortingTopNProjector} this projector does not support limiting,
+ * Compared to {@link SortingTopNProjector} this projector only supports limiting if it can spill to disk,
  * while the {@link SortingTopNProjector} does not work WITHOUT a limit.
  */
 public class SortingProjector implements Projector {
@@ -50,9 +56,17 @@ public class SortingProjector implements Projector {
     private final Iterable<? extends CollectExpression<Row, ?>> collectExpressions;
 
     private final Comparator<Object[]> comparator;
+    private final int limit;
     private final int offset;
     private final int numOutputs;
     private final RowAccounting<Object[]> rowAccounting;
+    @Nullable
+    private final RamAccounting ramAccounting;
+    @Nullable
+    private final List<? extends DataType<?>> rowTypes;
+    @Nullable
+    private final Path spillDirectory;
+    private final long spillThresholdInBytes;
 
     /**
      * @param rowAccounting               sorting is a pipeline breaker so account for the used memory
@@ -68,20 +82,87 @@ public class SortingProjector implements Projector {
                             int numOutputs,
                             Comparator<Object[]> comparator,
                             int offset) {
+        this(
+            rowAccounting,
+            inputs,
+            collectExpressions,
+            numOutputs,
+            comparator,
+            TopN.NO_LIMIT,
+            offset,
+            null,
+            null,
+            null,
+            Long.MAX_VALUE
+        );
+    }
+
+    /**
+     * @param limit                 the max number of rows to emit or {@link TopN#NO_LIMIT}.
+     *                              A limit is only supported if a {@code spillDirectory} is given,
+     *                              otherwise {@link SortingTopNProjector} must be used.
+     * @param ramAccounting         the accounting of the phase, used by the {@link SpillingSortCollector}
+     * @param rowTypes              the types of the {@code inputs}
+     * @param spillDirectory        if not null, the rows are sorted using an external merge sort once the
+     *                              memory accounted for them exceeds {@code spillThresholdInBytes}.
+     *                              See {@link SpillingSortCollector}
+     */
+    public SortingProjector(RowAccounting<Object[]> rowAccounting,
+                            Collection<? extends Input<?>> inputs,
+                            Iterable<? extends CollectExpression<Row, ?>> collectExpressions,
+                            int numOutputs,
+                            Comparator<Object[]> comparator,
+                            int limit,
+                            int offset,
+                            @Nullable RamAccounting ramAccounting,
+                            @Nullable List<? extends DataType<?>> rowTypes,
+                            @Nullable Path spillDirectory,
+                            long spillThresholdInBytes) {
         if (offset < 0) {
             throw new IllegalArgumentException("invalid offset " + offset);
         }
+        assert limit == TopN.NO_LIMIT || spillDirectory != null
+            : "A limit requires a spillDirectory, use the SortingTopNProjector otherwise";
         this.rowAccounting = rowAccounting;
         this.numOutputs = numOutputs;
         this.inputs = inputs;
         this.collectExpressions = collectExpressions;
         this.comparator = comparator;
+        this.limit = limit;
         this.offset = offset;
+        this.ramAccounting = ramAccounting;
+        this.rowTypes = rowTypes;
+        this.spillDirectory = spillDirectory;
+        this.spillThresholdInBytes = spillThresholdInBytes;
     }
 
 
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
+        if (spillDirectory != null) {
+            assert ramAccounting != null && rowTypes != null : "Spilling requires the ramAccounting and rowTypes";
+            SpillingSortCollector spillingCollector = new SpillingSortCollector(
+                ramAccounting,
+                inputs,
+                collectExpressions,
+                numOutputs,
+                comparator,
+                limit,
+                offset,
+                rowTypes,
+                spillDirectory,
+                spillThresholdInBytes
+            );
+            return CollectingBatchIterator.newInstance(
+                () -> {
+                    batchIterator.close();
+                    spillingCollector.close();
+                },
+                batchIterator::kill,
+                () -> BatchIterators.collect(batchIterator, spillingCollector),
+                batchIterator.hasLazyResultSet()
+            );
+        }
         Collector<Row, ?, Bucket> collector = Collectors.mapping(
             this::getCells,
             Collectors.collectingAndThen(Collectors.toList(), this::sortAndCreateBucket));
@@ -31,6 +31,7 @@ import io.crate.data.Projector;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.stream.Collector;
@@ -58,6 +59,23 @@ public class SortingTopNProjector implements Projector {
                                 int limit,
                                 int offset,
                                 int unboundedCollectorThreshold) {
+        this(rowAccounting, inputs, collectExpressions, numOutputs, ordering, limit, offset, unboundedCollectorThreshold, null);
+    }
+
+    /**
+     * @param sortKey if not null, rows are compared using a normalized key instead of the {@code ordering}.
+     *                The {@code rowAccounting} must account for the key, see
+     *                {@link NormalizedSortKey#rowAccounting}
+     */
+    public SortingTopNProjector(RowAccounting<Object[]> rowAccounting,
+                                Collection<? extends Input<?>> inputs,
+                                Iterable<? extends CollectExpression<Row, ?>> collectExpressions,
+                                int numOutputs,
+                                Comparator<Object[]> ordering,
+                                int limit,
+                                int offset,
+                                int unboundedCollectorThreshold,
+                                @Nullable NormalizedSortKey sortKey) {
         /**
          * We'll use an unbounded queue with the initial capacity of {@link unboundedCollectorThreshold}
          * if the maximum number of rows we have to accommodate in the queue in order to maintain correctness is
@@ -75,7 +93,8 @@ public class SortingTopNProjector implements Projector {
                 ordering,
                 unboundedCollectorThreshold,
                 limit,
-                offset
+                offset,
+                sortKey
             );
         } else {
             collector = new BoundedSortingTopNCollector(
@@ -85,7 +104,8 @@ public class SortingTopNProjector implements Projector {
                 numOutputs,
                 ordering,
                 limit,
-                offset
+                offset,
+                sortKey
             );
         }
     }
@@ -0,0 +1,244 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.sort;
+
+import com.google.common.collect.Iterators;
+import io.crate.Streamer;
+import io.crate.breaker.BlockBasedRamAccounting;
+import io.crate.breaker.RamAccounting;
+import io.crate.breaker.RowAccounting;
+import io.crate.breaker.RowCellsAccountingWithEstimators;
+import io.crate.data.Buckets;
+import io.crate.data.CloseableIterator;
+import io.crate.data.CollectionBucket;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.distribution.merge.KeyIterable;
+import io.crate.execution.engine.distribution.merge.SortedPagingIterator;
+import io.crate.execution.engine.pipeline.TopN;
+import io.crate.execution.engine.spill.SpillFile;
+import io.crate.types.DataType;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Collector which sorts the rows using an external merge sort.
+ * <p>
+ * Rows are buffered in memory until the memory accounted for them exceeds {@code spillThresholdInBytes}.
+ * The buffered rows are then sorted and written to a {@link SpillFile} as a sorted run.
+ * Once all rows are collected, the runs and the remaining in-memory rows are merged using a {@link SortedPagingIterator}.
+ * <p>
+ * The buffered rows are accounted in a child accounting of the given {@link RamAccounting}, which is shared with
+ * other operations of the phase. Spilling only releases the bytes of the spilled rows.
+ * <p>
+ * If a limit is given, only the first {@code limit + offset} rows of each sorted run are written to disk,
+ * as the other rows can't be part of the result.
+ * <p>
+ * The spill files are deleted on {@link #close()}, which must be called once the result has been consumed.
+ * An instance must only be used for a single collect operation.
+ */
+public final class SpillingSortCollector implements Collector<Row, List<Object[]>, Iterable<Row>>, AutoCloseable {
+
+    private final Collection<? extends Input<?>> inputs;
+    private final Iterable<? extends CollectExpression<Row, ?>> expressions;
+    private final int numOutputs;
+    private final Comparator<Object[]> comparator;
+    private final int limit;
+    private final int offset;
+    private final RowAccounting<Object[]> rowAccounting;
+    private final RamAccounting ramAccounting;
+    private final Path spillDirectory;
+    private final long spillThresholdInBytes;
+    private final Streamer<?>[] streamers;
+
+    /**
+     * Block size used to reserve memory of the buffered rows from the phase accounting
+     */
+    private static final int ROWS_ACCOUNTING_BLOCK_SIZE = 64 * 1024;
+
+    private final List<SpillFile> runs = new ArrayList<>();
+    private final List<CloseableIterator<Row>> openRuns = new ArrayList<>();
+
+    /**
+     * @param ramAccounting         the accounting of the phase, the buffered rows are accounted in a child of it
+     * @param inputs                contains output {@link Input}s and orderBy {@link Input}s
+     * @param expressions           expressions linked to the inputs
+     * @param numOutputs            number of output columns
+     * @param comparator            used to sort the rows
+     * @param limit                 the max number of rows the result should contain, or {@link TopN#NO_LIMIT}
+     * @param offset                the number of rows to skip (after sort)
+     * @param rowTypes              the types of the {@code inputs}, used to account for the rows and to write them
+     *                              to disk
+     * @param spillDirectory        directory for the spill files
+     * @param spillThresholdInBytes buffered rows are spilled once the memory accounted for them exceeds this threshold
+     */
+    public SpillingSortCollector(RamAccounting ramAccounting,
+                                 Collection<? extends Input<?>> inputs,
+                                 Iterable<? extends CollectExpression<Row, ?>> expressions,
+                                 int numOutputs,
+                                 Comparator<Object[]> comparator,
+                                 int limit,
+                                 int offset,
+                                 List<? extends DataType<?>> rowTypes,
+                                 Path spillDirectory,
+                                 long spillThresholdInBytes) {
+        assert rowTypes.size() == inputs.size() : "There must be a type for each input";
+        this.ramAccounting = new BlockBasedRamAccounting(ramAccounting::addBytes, ROWS_ACCOUNTING_BLOCK_SIZE);
+        this.rowAccounting = new RowCellsAccountingWithEstimators(rowTypes, this.ramAccounting, 0);
+        this.inputs = inputs;
+        this.expressions = expressions;
+        this.numOutputs = numOutputs;
+        this.comparator = comparator;
+        this.limit = limit;
+        this.offset = offset;
+        this.spillDirectory = spillDirectory;
+        this.spillThresholdInBytes = spillThresholdInBytes;
+        this.streamers = new Streamer[rowTypes.size()];
+        for (int i = 0; i < streamers.length; i++) {
+            streamers[i] = rowTypes.get(i).streamer();
+        }
+    }
+
+    @Override
+    public Supplier<List<Object[]>> supplier() {
+        return ArrayList::new;
+    }
+
+    @Override
+    public BiConsumer<List<Object[]>, Row> accumulator() {
+        return this::onNextRow;
+    }
+
+    @Override
+    public BinaryOperator<List<Object[]>> combiner() {
+        return (rows1, rows2) -> {
+            throw new UnsupportedOperationException("combine not supported");
+        };
+    }
+
+    @Override
+    public Function<List<Object[]>, Iterable<Row>> finisher() {
+        return this::finish;
+    }
+
+    @Override
+    public Set<Characteristics> characteristics() {
+        return Collections.emptySet();
+    }
+
+    private void onNextRow(List<Object[]> rows, Row row) {
+        for (CollectExpression<Row, ?> expression : expressions) {
+            expression.setNextRow(row);
+        }
+        Object[] cells = new Object[inputs.size()];
+        int i = 0;
+        for (Input<?> input : inputs) {
+            cells[i++] = input.value();
+        }
+        rowAccounting.accountForAndMaybeBreak(cells);
+        rows.add(cells);
+        if (ramAccounting.totalBytes() >= spillThresholdInBytes) {
+            spill(rows);
+        }
+    }
+
+    private void spill(List<Object[]> rows) {
+        rows.sort(comparator);
+        SpillFile run = SpillFile.create(spillDirectory, "sort-", streamers);
+        runs.add(run);
+        for (Object[] cells : rows.subList(0, maxRows(rows.size()))) {
+            run.write(cells);
+        }
+        run.finishWriting();
+        rows.clear();
+        rowAccounting.release();
+    }
+
+    /**
+     * @return the number of rows of a sorted run which can be part of the result
+     */
+    private int maxRows(int numRows) {
+        if (limit == TopN.NO_LIMIT) {
+            return numRows;
+        }
+        return (int) Math.min(numRows, (long) limit + offset);
+    }
+
+    private Iterable<Row> finish(List<Object[]> rows) {
+        rows.sort(comparator);
+        if (runs.isEmpty()) {
+            int end = maxRows(rows.size());
+            if (offset == 0 && end == rows.size()) {
+                return new CollectionBucket(rows, numOutputs);
+            }
+            return new CollectionBucket(rows.subList(Math.min(offset, end), end), numOutputs);
+        }
+        ArrayList<KeyIterable<Integer, Object[]>> sortedRuns = new ArrayList<>(runs.size() + 1);
+        sortedRuns.add(new KeyIterable<>(0, rows));
+        for (int i = 0; i < runs.size(); i++) {
+            SpillFile run = runs.get(i);
+            sortedRuns.add(new KeyIterable<>(i + 1, () -> {
+                CloseableIterator<Row> runRows = run.rows();
+                openRuns.add(runRows);
+                return Iterators.transform(runRows, Row::materialize);
+            }));
+        }
+        return () -> {
+            SortedPagingIterator<Integer, Object[]> sortedRows = new SortedPagingIterator<>(comparator, false);
+            sortedRows.merge(sortedRuns);
+            sortedRows.finish();
+            Iterators.advance(sortedRows, offset);
+            Iterator<Object[]> resultRows = limit == TopN.NO_LIMIT ? sortedRows : Iterators.limit(sortedRows, limit);
+            return Iterators.transform(resultRows, Buckets.arrayToSharedRow(numOutputs)::apply);
+        };
+    }
+
+    /**
+     * Deletes the spill files, if any, and releases the memory accounted for the buffered rows.
+     */
+    @Override
+    public void close() {
+        rowAccounting.release();
+        for (CloseableIterator<Row> runRows : openRuns) {
+            runRows.close();
+        }
+        openRuns.clear();
+        for (SpillFile run : runs) {
+            run.close();
+        }
+        runs.clear();
+    }
+}
@@ -30,6 +30,7 @@ import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
 import org.apache.lucene.util.ArrayUtil;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -57,6 +58,8 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
     private final int offset;
     private final int maxNumberOfRowsInQueue;
     private final RowAccounting<Object[]> rowAccounting;
+    @Nullable
+    private final NormalizedSortKey sortKey;
 
     /**
      * @param rowAccounting   sorting is a pipeline breaker so account for the used memory
@@ -76,6 +79,22 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
                                          int initialCapacity,
                                          int limit,
                                          int offset) {
+        this(rowAccounting, inputs, expressions, numOutputs, comparator, initialCapacity, limit, offset, null);
+    }
+
+    /**
+     * @param sortKey if not null, the key is added to each row and the rows are compared using
+     *                {@link NormalizedSortKey#comparator()} instead of {@code comparator}
+     */
+    public UnboundedSortingTopNCollector(RowAccounting<Object[]> rowAccounting,
+                                         Collection<? extends Input<?>> inputs,
+                                         Iterable<? extends CollectExpression<Row, ?>> expressions,
+                                         int numOutputs,
+                                         Comparator<Object[]> comparator,
+                                         int initialCapacity,
+                                         int limit,
+                                         int offset,
+                                         @Nullable NormalizedSortKey sortKey) {
         if (initialCapacity <= 0) {
             throw new IllegalArgumentException("Invalid initial capacity: value must be > 0; got: " + initialCapacity);
         }
@@ -89,7 +108,8 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
         this.inputs = inputs;
         this.expressions = expressions;
         this.numOutputs = numOutputs;
-        this.comparator = comparator;
+        this.comparator = sortKey == null ? comparator : sortKey.comparator();
+        this.sortKey = sortKey;
         this.initialCapacity = initialCapacity;
         this.offset = offset;
         this.maxNumberOfRowsInQueue = limit + offset;
@@ -134,12 +154,15 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
         for (CollectExpression<Row, ?> expression : expressions) {
             expression.setNextRow(row);
         }
-        Object[] rowCells = new Object[inputs.size()];
+        Object[] rowCells = new Object[sortKey == null ? inputs.size() : sortKey.numCells()];
         int i = 0;
         for (Input<?> input : inputs) {
             rowCells[i] = input.value();
             i++;
         }
+        if (sortKey != null) {
+            sortKey.setKey(rowCells);
+        }
         rowAccounting.accountForAndMaybeBreak(rowCells);
         if (pq.size() == maxNumberOfRowsInQueue) {
             Object[] highestElementInOrder = pq.peek();
@@ -0,0 +1,218 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.spill;
+
+import io.crate.Streamer;
+import io.crate.data.CloseableIterator;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+
+/**
+ * A node-local temporary file used by operations to spill rows to disk once they'd exceed the memory budget.
+ * <p>
+ * Rows are encoded using the same {@link Streamer}s that are used to transfer rows between nodes
+ * (See {@link io.crate.execution.engine.distribution.StreamBucket}).
+ * <p>
+ * Usage:
+ * <pre>
+ *     spillFile.write(row); // n times
+ *     spillFile.finishWriting();
+ *     try (var rows = spillFile.rows()) { // can be called repeatedly
+ *          ...
+ *     }
+ *     spillFile.close(); // deletes the file
+ * </pre>
+ * Not thread-safe.
+ */
+public final class SpillFile implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final Streamer<?>[] streamers;
+
+    private OutputStreamStreamOutput out;
+    private long numRows = 0;
+
+    public static SpillFile create(Path directory, String prefix, Streamer<?>[] streamers) {
+        try {
+            Files.createDirectories(directory);
+            return new SpillFile(Files.createTempFile(directory, prefix, ".spill"), streamers);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private SpillFile(Path path, Streamer<?>[] streamers) throws IOException {
+        this.path = path;
+        this.streamers = streamers;
+        this.out = new OutputStreamStreamOutput(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+    }
+
+    public void write(Row row) {
+        assert out != null : "Must not write to a SpillFile after finishWriting() has been called";
+        assert row.numColumns() == streamers.length : "number of streamer must match row size";
+        try {
+            for (int i = 0; i < streamers.length; i++) {
+                //noinspection unchecked
+                ((Streamer) streamers[i]).writeValueTo(out, row.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        numRows++;
+    }
+
+    public void write(Object[] cells) {
+        assert out != null : "Must not write to a SpillFile after finishWriting() has been called";
+        assert cells.length == streamers.length : "number of streamer must match row size";
+        try {
+            for (int i = 0; i < streamers.length; i++) {
+                //noinspection unchecked
+                ((Streamer) streamers[i]).writeValueTo(out, cells[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        numRows++;
+    }
+
+    /**
+     * Flushes and closes the write side. Must be called before {@link #rows()}
+     */
+    public void finishWriting() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            out = null;
+        }
+    }
+
+    public long numRows() {
+        return numRows;
+    }
+
+    /**
+     * @return an iterator over the rows in the file in insertion order.
+     *         The returned {@link Row} instance is shared, it must be materialized if it needs to be retained.
+     */
+    public CloseableIterator<Row> rows() {
+        assert out == null : "finishWriting() must be called before reading the rows of a SpillFile";
+        if (numRows == 0) {
+            return CloseableIterator.fromIterator(Collections.emptyIterator());
+        }
+        try {
+            return new RowIterator(
+                new InputStreamStreamInput(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE)),
+                streamers,
+                numRows
+            );
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        } catch (IOException ignored) {
+            // the file is deleted anyway
+        } finally {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static class RowIterator implements CloseableIterator<Row> {
+
+        private final StreamInput in;
+        private final Streamer<?>[] streamers;
+        private final long numRows;
+        private final Object[] cells;
+        private final RowN row;
+        private long pos = 0;
+
+        RowIterator(StreamInput in, Streamer<?>[] streamers, long numRows) {
+            this.in = in;
+            this.streamers = streamers;
+            this.numRows = numRows;
+            this.cells = new Object[streamers.length];
+            this.row = new RowN(cells);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pos < numRows;
+        }
+
+        @Override
+        public Row next() {
+            if (pos >= numRows) {
+                throw new NoSuchElementException("SpillFile has no more rows");
+            }
+            try {
+                for (int i = 0; i < streamers.length; i++) {
+                    cells[i] = streamers[i].readValueFrom(in);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pos++;
+            return row;
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -56,6 +56,9 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
     private int seenFrameUpperBound = -1;
     private Object resultForCurrentFrame;
 
+    @Nullable
+    private FrameSegmentTree segmentTree;
+
     AggregateToWindowFunctionAdapter(AggregationFunction aggregationFunction,
                                      ExpressionsInput<Row, Boolean> filter,
                                      Version indexVersionCreated,
@@ -97,7 +100,12 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
                           List<? extends CollectExpression<Row, ?>> expressions,
                           Input... args) {
         if (idxInPartition == 0) {
+            segmentTree = null;
             recomputeFunction(frame, expressions, args);
+        } else if (segmentTree != null) {
+            if (frame.lowerBound() != seenFrameLowerBound || frame.upperBoundExclusive() != seenFrameUpperBound) {
+                aggregateUsingSegmentTree(frame);
+            }
         } else if (isLowerBoundIncreasing(frame, seenFrameLowerBound)) {
             if (aggregationFunction.isRemovableCumulative()) {
                 removeSeenRowsFromAccumulatedState(frame, expressions, args);
@@ -108,6 +116,20 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
                 }
                 seenFrameLowerBound = frame.lowerBound();
                 seenFrameUpperBound = frame.upperBoundExclusive();
+            } else if (aggregationFunction.hasImmutableState()) {
+                // The frame is sliding, from now on all frames of the partition are aggregated using the tree
+                segmentTree = new FrameSegmentTree(
+                    aggregationFunction,
+                    filter,
+                    ramAccounting,
+                    indexVersionCreated,
+                    minNodeVersion,
+                    memoryManager,
+                    frame,
+                    expressions,
+                    args
+                );
+                aggregateUsingSegmentTree(frame);
             } else {
                 recomputeFunction(frame, expressions, args);
             }
@@ -117,6 +139,12 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
         return resultForCurrentFrame;
     }
 
+    private void aggregateUsingSegmentTree(WindowFrameState frame) {
+        resultForCurrentFrame = segmentTree.aggregate(frame.lowerBound(), frame.upperBoundExclusive());
+        seenFrameLowerBound = frame.lowerBound();
+        seenFrameUpperBound = frame.upperBoundExclusive();
+    }
+
     private void removeSeenRowsFromAccumulatedState(WindowFrameState frame,
                                                     List<? extends CollectExpression<Row, ?>> expressions,
                                                     Input[] args) {
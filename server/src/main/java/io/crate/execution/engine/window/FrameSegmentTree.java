@@ -0,0 +1,122 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.window;
+
+import io.crate.breaker.RamAccounting;
+import io.crate.data.ArrayRow;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.execution.engine.aggregation.AggregationFunction;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.expression.ExpressionsInput;
+import io.crate.memory.MemoryManager;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.Version;
+
+import java.util.List;
+
+/**
+ * A segment tree over the aggregated states of the rows of a partition.
+ * <p>
+ * Each inner node holds the reduced states of its children, so the aggregate of any frame
+ * can be computed by reducing O(log n) states instead of aggregating all rows of the frame.
+ * This requires an aggregation with {@link AggregationFunction#hasImmutableState()}, as the states
+ * of the nodes are shared between the aggregates of different frames.
+ */
+final class FrameSegmentTree {
+
+    private final AggregationFunction<Object, ?> aggregationFunction;
+    private final RamAccounting ramAccounting;
+    private final Version indexVersionCreated;
+    private final Version minNodeVersion;
+    private final MemoryManager memoryManager;
+    private final int numLeaves;
+    private final Object[] nodes;
+
+    @SuppressWarnings("unchecked")
+    FrameSegmentTree(AggregationFunction<?, ?> aggregationFunction,
+                     ExpressionsInput<Row, Boolean> filter,
+                     RamAccounting ramAccounting,
+                     Version indexVersionCreated,
+                     Version minNodeVersion,
+                     MemoryManager memoryManager,
+                     WindowFrameState frame,
+                     List<? extends CollectExpression<Row, ?>> expressions,
+                     Input[] args) {
+        assert aggregationFunction.hasImmutableState() : "Segment tree requires an aggregation with immutable states";
+        this.aggregationFunction = (AggregationFunction<Object, ?>) aggregationFunction;
+        this.ramAccounting = ramAccounting;
+        this.indexVersionCreated = indexVersionCreated;
+        this.minNodeVersion = minNodeVersion;
+        this.memoryManager = memoryManager;
+        this.numLeaves = frame.partitionSize();
+        ramAccounting.addBytes(RamUsageEstimator.alignObjectSize(
+            RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) RamUsageEstimator.NUM_BYTES_OBJECT_REF * 2 * numLeaves));
+        this.nodes = new Object[2 * numLeaves];
+
+        var row = new ArrayRow();
+        for (int i = 0; i < numLeaves; i++) {
+            Object[] cells = frame.getRowInPartitionAtIndexOrNull(i);
+            assert cells != null : "No row at idx=" + i + " in current partition=" + frame;
+            row.cells(cells);
+            for (int j = 0, expressionsSize = expressions.size(); j < expressionsSize; j++) {
+                expressions.get(j).setNextRow(row);
+            }
+            Object state = newState();
+            if (filter.value(row)) {
+                state = this.aggregationFunction.iterate(ramAccounting, memoryManager, state, args);
+            }
+            nodes[numLeaves + i] = state;
+        }
+        for (int i = numLeaves - 1; i > 0; i--) {
+            nodes[i] = this.aggregationFunction.reduce(ramAccounting, nodes[2 * i], nodes[2 * i + 1]);
+        }
+    }
+
+    /**
+     * @return the partial result of the aggregation over the rows of the partition in [lowerBound, upperBoundExclusive)
+     */
+    Object aggregate(int lowerBound, int upperBoundExclusive) {
+        Object left = newState();
+        Object right = newState();
+        // The order of the rows is retained, some aggregations like arbitrary depend on it
+        for (int l = lowerBound + numLeaves, r = upperBoundExclusive + numLeaves; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                left = aggregationFunction.reduce(ramAccounting, left, nodes[l]);
+                l++;
+            }
+            if ((r & 1) == 1) {
+                r--;
+                right = aggregationFunction.reduce(ramAccounting, nodes[r], right);
+            }
+        }
+        return aggregationFunction.terminatePartial(
+            ramAccounting,
+            aggregationFunction.reduce(ramAccounting, left, right)
+        );
+    }
+
+    private Object newState() {
+        return aggregationFunction.newState(ramAccounting, indexVersionCreated, minNodeVersion, memoryManager);
+    }
+}
@@ -39,7 +39,6 @@ import io.crate.breaker.BlockBasedRamAccounting;
 import io.crate.breaker.ConcurrentRamAccounting;
 import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccountingWithEstimators;
-import io.crate.breaker.RowCellsAccountingWithEstimators;
 import io.crate.common.collections.Tuple;
 import io.crate.data.Paging;
 import io.crate.data.Row;
@@ -102,6 +101,7 @@ import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.Environment;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
@@ -110,6 +110,7 @@ import org.elasticsearch.node.Node;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
@@ -131,11 +132,17 @@ public class JobSetup {
 
     private static final Logger LOGGER = LogManager.getLogger(JobSetup.class);
 
+    /**
+     * Directory within the node's temporary directory used by operations to spill to disk.
+     */
+    public static final String SPILL_DIRECTORY_NAME = "spill";
+
     private final MapSideDataCollectOperation collectOperation;
     private final ClusterService clusterService;
     private final CircuitBreakerService circuitBreakerService;
     private final CountOperation countOperation;
     private final MemoryManagerFactory memoryManagerFactory;
+    private final Path spillDirectory;
     private final DistributingConsumerFactory distributingConsumerFactory;
     private final InnerPreparer innerPreparer;
     private final InputFactory inputFactory;
@@ -160,7 +167,8 @@ public class JobSetup {
                     NodeContext nodeCtx,
                     SystemCollectSource systemCollectSource,
                     ShardCollectSource shardCollectSource,
-                    MemoryManagerFactory memoryManagerFactory) {
+                    MemoryManagerFactory memoryManagerFactory,
+                    Environment environment) {
         this.nodeName = Node.NODE_NAME_SETTING.get(settings);
         this.schemas = schemas;
         this.collectOperation = collectOperation;
@@ -168,6 +176,7 @@ public class JobSetup {
         this.circuitBreakerService = circuitBreakerService;
         this.countOperation = countOperation;
         this.memoryManagerFactory = memoryManagerFactory;
+        this.spillDirectory = environment.tmpFile().resolve(SPILL_DIRECTORY_NAME);
         this.pkLookupOperation = new PKLookupOperation(indicesService, shardCollectSource);
         this.distributingConsumerFactory = distributingConsumerFactory;
         innerPreparer = new InnerPreparer();
@@ -185,7 +194,8 @@ public class JobSetup {
             inputFactory,
             normalizer,
             systemCollectSource::getRowUpdater,
-            systemCollectSource::tableDefinition
+            systemCollectSource::tableDefinition,
+            spillDirectory
         );
     }
 
@@ -679,6 +689,8 @@ public class JobSetup {
                         memoryManager,
                         phase.jobId()
                     );
+                    // The collector may have spilled groups to disk; the files are needed until the result is consumed
+                    finalRowConsumer.completionFuture().whenComplete((result, err) -> groupingProjector.close());
                     collector = groupingProjector.getCollector();
                     projections = projections.subList(1, projections.size());
                 } else if (firstProjection instanceof AggregationProjection) {
@@ -928,16 +940,15 @@ public class JobSetup {
                 joinCondition,
                 phase.leftJoinConditionInputs(),
                 phase.rightJoinConditionInputs(),
-                // 110 extra bytes per row =
-                //    96 bytes for each ArrayList +
-                //    7 bytes per key for the IntHashObjectHashMap  (should be 4 but the map pre-allocates more)
-                //    7 bytes perv value (pointer from the map to the list) (should be 4 but the map pre-allocates more)
-                new RowCellsAccountingWithEstimators(phase.leftOutputTypes(), ramAccountingOfOperation, 110),
+                ramAccountingOfOperation,
                 context.transactionContext,
                 inputFactory,
                 breaker(),
                 phase.estimatedRowSizeForLeft(),
-                phase.numberOfRowsForLeft());
+                phase.numberOfRowsForLeft(),
+                phase.leftOutputTypes(),
+                phase.rightOutputTypes(),
+                spillDirectory);
             DistResultRXTask left = pageDownstreamContextForNestedLoop(
                 phase.phaseId(),
                 context,
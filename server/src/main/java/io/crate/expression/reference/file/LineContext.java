@@ -25,11 +25,15 @@ import io.crate.metadata.ColumnIdent;
 import org.apache.lucene.util.UnicodeUtil;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.compress.NotXContentException;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.Map;
 
@@ -43,6 +47,13 @@ public class LineContext {
 
     @Nullable
     String sourceAsString() {
+        if (rawSource == null && parsedSource != null) {
+            try {
+                rawSource = BytesReference.toBytes(BytesReference.bytes(JsonXContent.contentBuilder().map(parsedSource)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
         if (rawSource != null) {
             char[] chars = new char[rawSource.length];
             int len = UnicodeUtil.UTF8toUTF16(rawSource, 0, rawSource.length, chars);
@@ -78,6 +89,14 @@ public class LineContext {
         this.parsedSource = null;
     }
 
+    /**
+     * Sets an already parsed source. It's only encoded as JSON if the raw source is requested.
+     */
+    public void parsedSource(Map<String, Object> source) {
+        this.rawSource = null;
+        this.parsedSource = source;
+    }
+
     /**
      * Sets the current URI to the context. This is expected to happen when starting to process a new URI.
      * Any existing URI processing failure must have been consumed already as it will be overwritten/reset.
@@ -0,0 +1,39 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.expression.vector;
+
+import io.crate.data.ColumnBatch;
+import io.crate.data.LongVector;
+
+/**
+ * An expression evaluating to long values for a selection of rows of a {@link ColumnBatch}.
+ */
+public interface LongVectorExpression {
+
+    /**
+     * @param selection the positions of the rows to evaluate, in ascending order
+     * @return a vector containing the results at the selected positions. Other positions are undefined.
+     *         The vector is owned by the expression or the batch and only valid until the next evaluation.
+     */
+    LongVector evaluate(ColumnBatch batch, int[] selection, int numSelected);
+}
@@ -0,0 +1,897 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.expression.vector;
+
+import io.crate.data.ColumnBatch;
+import io.crate.data.DoubleVector;
+import io.crate.data.LongVector;
+import io.crate.expression.operator.AndOperator;
+import io.crate.expression.operator.EqOperator;
+import io.crate.expression.operator.GtOperator;
+import io.crate.expression.operator.GteOperator;
+import io.crate.expression.operator.LtOperator;
+import io.crate.expression.operator.LteOperator;
+import io.crate.expression.operator.OrOperator;
+import io.crate.expression.predicate.NotPredicate;
+import io.crate.expression.scalar.arithmetic.ArithmeticFunctions;
+import io.crate.expression.scalar.cast.ExplicitCastFunction;
+import io.crate.expression.scalar.cast.ImplicitCastFunction;
+import io.crate.expression.symbol.Function;
+import io.crate.expression.symbol.InputColumn;
+import io.crate.expression.symbol.Literal;
+import io.crate.expression.symbol.Symbol;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.TimestampType;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiles scalar expressions into expressions which evaluate a selection of rows of a {@link ColumnBatch} at once.
+ * <p>
+ * Supported are comparisons, arithmetic, numeric casts, {@code AND}, {@code OR} and {@code NOT} on top of
+ * input columns and literals of integral, timestamp and floating point types.
+ * Integral and timestamp values are evaluated as long, floating point values as double,
+ * with the same semantics as the row based implementations of the functions.
+ * </p>
+ * <p>
+ * The compile methods return null if an expression or one of its arguments isn't supported,
+ * in which case the row based implementation must be used.
+ * </p>
+ */
+public final class VectorExpressions {
+
+    private VectorExpressions() {
+    }
+
+    @Nullable
+    public static VectorPredicate compilePredicate(Symbol symbol) {
+        if (!(symbol instanceof Function)) {
+            return null;
+        }
+        Function function = (Function) symbol;
+        if (function.fqnName().schema() != null) {
+            return null;
+        }
+        List<Symbol> args = function.arguments();
+        switch (function.name()) {
+            case AndOperator.NAME: {
+                VectorPredicate left = compilePredicate(args.get(0));
+                VectorPredicate right = compilePredicate(args.get(1));
+                return left == null || right == null ? null : new And(left, right);
+            }
+
+            case OrOperator.NAME: {
+                VectorPredicate left = compilePredicate(args.get(0));
+                VectorPredicate right = compilePredicate(args.get(1));
+                return left == null || right == null ? null : new Or(left, right);
+            }
+
+            case NotPredicate.NAME: {
+                VectorPredicate arg = compilePredicate(args.get(0));
+                return arg == null ? null : new Not(arg);
+            }
+
+            case EqOperator.NAME:
+                return compileComparison(Comparison.EQ, args);
+
+            case LtOperator.NAME:
+                return compileComparison(Comparison.LT, args);
+
+            case LteOperator.NAME:
+                return compileComparison(Comparison.LTE, args);
+
+            case GtOperator.NAME:
+                return compileComparison(Comparison.GT, args);
+
+            case GteOperator.NAME:
+                return compileComparison(Comparison.GTE, args);
+
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    public static LongVectorExpression compileLong(Symbol symbol) {
+        DataType<?> type = symbol.valueType();
+        if (!isIntegral(type)) {
+            return null;
+        }
+        if (symbol instanceof InputColumn) {
+            return new LongColumn(((InputColumn) symbol).index());
+        }
+        if (symbol instanceof Literal) {
+            Object value = ((Literal<?>) symbol).value();
+            return new LongLiteral(value == null ? null : ((Number) value).longValue());
+        }
+        if (!(symbol instanceof Function) || ((Function) symbol).fqnName().schema() != null) {
+            return null;
+        }
+        Function function = (Function) symbol;
+        List<Symbol> args = function.arguments();
+        switch (function.name()) {
+            case ImplicitCastFunction.NAME:
+            case ExplicitCastFunction.NAME:
+                // Narrowing casts can fail, only casts to long and timestamps keep the value as is
+                return isLong(type) && isIntegral(args.get(0).valueType())
+                    ? compileLong(args.get(0))
+                    : null;
+
+            default:
+                Arithmetic op = Arithmetic.of(function.name());
+                // Arithmetic on integers is evaluated on int values and overflows differently
+                if (op == null || !isLong(type)) {
+                    return null;
+                }
+                LongVectorExpression left = compileLong(args.get(0));
+                LongVectorExpression right = compileLong(args.get(1));
+                return left == null || right == null ? null : new LongArithmetic(op, left, right);
+        }
+    }
+
+    @Nullable
+    public static DoubleVectorExpression compileDouble(Symbol symbol) {
+        DataType<?> type = symbol.valueType();
+        if (!isFloatingPoint(type)) {
+            return null;
+        }
+        if (symbol instanceof InputColumn) {
+            return new DoubleColumn(((InputColumn) symbol).index());
+        }
+        if (symbol instanceof Literal) {
+            Object value = ((Literal<?>) symbol).value();
+            return new DoubleLiteral(value == null ? null : ((Number) value).doubleValue());
+        }
+        if (!(symbol instanceof Function) || ((Function) symbol).fqnName().schema() != null) {
+            return null;
+        }
+        Function function = (Function) symbol;
+        List<Symbol> args = function.arguments();
+        switch (function.name()) {
+            case ImplicitCastFunction.NAME:
+            case ExplicitCastFunction.NAME: {
+                if (type.id() != DoubleType.ID) {
+                    return null;
+                }
+                Symbol arg = args.get(0);
+                if (isIntegral(arg.valueType())) {
+                    LongVectorExpression source = compileLong(arg);
+                    return source == null ? null : new LongToDouble(source);
+                }
+                return compileDouble(arg);
+            }
+
+            default:
+                Arithmetic op = Arithmetic.of(function.name());
+                // Arithmetic on floats is evaluated on float values and rounds differently
+                if (op == null || type.id() != DoubleType.ID) {
+                    return null;
+                }
+                DoubleVectorExpression left = compileDouble(args.get(0));
+                DoubleVectorExpression right = compileDouble(args.get(1));
+                return left == null || right == null ? null : new DoubleArithmetic(op, left, right);
+        }
+    }
+
+    @Nullable
+    private static VectorPredicate compileComparison(Comparison op, List<Symbol> args) {
+        Symbol left = args.get(0);
+        Symbol right = args.get(1);
+        if (isIntegral(left.valueType()) && isIntegral(right.valueType())) {
+            LongVectorExpression l = compileLong(left);
+            LongVectorExpression r = compileLong(right);
+            return l == null || r == null ? null : new LongComparison(op, l, r);
+        }
+        if (isFloatingPoint(left.valueType()) && isFloatingPoint(right.valueType())) {
+            DoubleVectorExpression l = compileDouble(left);
+            DoubleVectorExpression r = compileDouble(right);
+            return l == null || r == null ? null : new DoubleComparison(op, l, r);
+        }
+        return null;
+    }
+
+    private static boolean isIntegral(DataType<?> type) {
+        switch (type.id()) {
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isLong(DataType<?> type) {
+        switch (type.id()) {
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isFloatingPoint(DataType<?> type) {
+        return type.id() == FloatType.ID || type.id() == DoubleType.ID;
+    }
+
+    private enum Arithmetic {
+        ADD,
+        SUBTRACT,
+        MULTIPLY,
+        DIVIDE,
+        MODULUS;
+
+        @Nullable
+        static Arithmetic of(String functionName) {
+            switch (functionName) {
+                case ArithmeticFunctions.Names.ADD:
+                    return ADD;
+                case ArithmeticFunctions.Names.SUBTRACT:
+                    return SUBTRACT;
+                case ArithmeticFunctions.Names.MULTIPLY:
+                    return MULTIPLY;
+                case ArithmeticFunctions.Names.DIVIDE:
+                    return DIVIDE;
+                case ArithmeticFunctions.Names.MODULUS:
+                case ArithmeticFunctions.Names.MOD:
+                    return MODULUS;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private enum Comparison {
+        EQ,
+        NEQ,
+        LT,
+        LTE,
+        GT,
+        GTE;
+
+        Comparison negate() {
+            switch (this) {
+                case EQ:
+                    return NEQ;
+                case NEQ:
+                    return EQ;
+                case LT:
+                    return GTE;
+                case LTE:
+                    return GT;
+                case GT:
+                    return LTE;
+                case GTE:
+                    return LT;
+                default:
+                    throw new AssertionError("Unexpected comparison: " + this);
+            }
+        }
+    }
+
+    private static final class LongColumn implements LongVectorExpression {
+
+        private final int index;
+
+        LongColumn(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public LongVector evaluate(ColumnBatch batch, int[] selection, int numSelected) {
+            return batch.longVector(index);
+        }
+    }
+
+    private static final class DoubleColumn implements DoubleVectorExpression {
+
+        private final int index;
+
+        DoubleColumn(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public DoubleVector evaluate(ColumnBatch batch, int[] selection, int numSelected) {
+            return batch.doubleVector(index);
+        }
+    }
+
+    private static final class LongLiteral implements LongVectorExpression {
+
+        @Nullable
+        private final Long value;
+        private LongVector vector;
+
+        LongLiteral(@Nullable Long value) {
+            this.value = value;
+        }
+
+        @Override
+        public LongVector evaluate(ColumnBatch batch, int[] selection, int numSelected) {
+            if (vector == null || vector.values().length < batch.capacity()) {
+                vector = new LongVector(batch.capacity());
+                if (value == null) {
+                    Arrays.fill(vector.nulls(), true);
+                } else {
+                    Arrays.fill(vector.values(), value);
+                }
+            }
+            return vector;
+        }
+    }
+
+    private static final class DoubleLiteral implements DoubleVectorExpression {
+
+        @Nullable
+        private final Double value;
+        private DoubleVector vector;
+
+        DoubleLiteral(@Nullable Double value) {
+            this.value = value;
+        }
+
+        @Override
+        public DoubleVector evaluate(ColumnBatch batch, int[] selection, int numSelected) {
+            if (vector == null || vector.values().length < batch.capacity()) {
+                vector = new DoubleVector(batch.capacity());
+                if (value == null) {
+                    Arrays.fill(vector.nulls(), true);
+                } else {
+                    Arrays.fill(vector.values(), value);
+                }
+            }
+            return vector;
+        }
+    }
+
+    private static final class LongToDouble implements DoubleVectorExpression {
+
+        private final LongVectorExpression source;
+        private DoubleVector result;
+
+        LongToDouble(LongVectorExpression source) {
+            this.source = source;
+        }
+
+        @Override
+        public DoubleVector evaluate(ColumnBatch batch, int[] selection, int numSelected) {
+            LongVector vector = source.evaluate(batch, selection, numSelected);
+            if (result == null || result.values().length < batch.capacity()) {
+                result = new DoubleVector(batch.capacity());
+            }
+            long[] values = vector.values();
+            boolean[] nulls = vector.nulls();
+            double[] resultValues = result.values();
+            boolean[] resultNulls = result.nulls();
+            for (int i = 0; i < numSelected; i++) {
+                int pos = selection[i];
+                resultNulls[pos] = nulls[pos];
+                resultValues[pos] = values[pos];
+            }
+            return result;
+        }
+    }
+
+    private static final class LongArithmetic implements LongVectorExpression {
+
+        private final Arithmetic op;
+        private final LongVectorExpression left;
+        private final LongVectorExpression right;
+        private LongVector result;
+
+        LongArithmetic(Arithmetic op, LongVectorExpression left, LongVectorExpression right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public LongVector evaluate(ColumnBatch batch, int[] selection, int numSelected) {
+            LongVector l = left.evaluate(batch, selection, numSelected);
+            LongVector r = right.evaluate(batch, selection, numSelected);
+            if (result == null || result.values().length < batch.capacity()) {
+                result = new LongVector(batch.capacity());
+            }
+            long[] lValues = l.values();
+            long[] rValues = r.values();
+            boolean[] lNulls = l.nulls();
+            boolean[] rNulls = r.nulls();
+            long[] values = result.values();
+            boolean[] nulls = result.nulls();
+            for (int i = 0; i < numSelected; i++) {
+                int pos = selection[i];
+                nulls[pos] = lNulls[pos] || rNulls[pos];
+            }
+            try {
+                switch (op) {
+                    case ADD:
+                        for (int i = 0; i < numSelected; i++) {
+                            int pos = selection[i];
+                            if (!nulls[pos]) {
+                                values[pos] = Math.addExact(lValues[pos], rValues[pos]);
+                            }
+                        }
+                        break;
+
+                    case SUBTRACT:
+                        for (int i = 0; i < numSelected; i++) {
+                            int pos = selection[i];
+                            if (!nulls[pos]) {
+                                values[pos] = Math.subtractExact(lValues[pos], rValues[pos]);
+                            }
+                        }
+                        break;
+
+                    case MULTIPLY:
+                        for (int i = 0; i < numSelected; i++) {
+                            int pos = selection[i];
+                            if (!nulls[pos]) {
+                                values[pos] = Math.multiplyExact(lValues[pos], rValues[pos]);
+                            }
+                        }
+                        break;
+
+                    case DIVIDE:
+                        for (int i = 0; i < numSelected; i++) {
+                            int pos = selection[i];
+                            if (!nulls[pos]) {
+                                values[pos] = lValues[pos] / rValues[pos];
+                            }
+                        }
+                        break;
+
+                    case MODULUS:
+                        for (int i = 0; i < numSelected; i++) {
+                            int pos = selection[i];
+                            if (!nulls[pos]) {
+                                values[pos] = lValues[pos] % rValues[pos];
+                            }
+                        }
+                        break;
+
+                    default:
+                        throw new AssertionError("Unexpected arithmetic operation: " + op);
+                }
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+            return result;
+        }
+    }
+
+    private static final class DoubleArithmetic implements DoubleVectorExpression {
+
+        private final Arithmetic op;
+        private final DoubleVectorExpression left;
+        private final DoubleVectorExpression right;
+        private DoubleVector result;
+
+        DoubleArithmetic(Arithmetic op, DoubleVectorExpression left, DoubleVectorExpression right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public DoubleVector evaluate(ColumnBatch batch, int[] selection, int numSelected) {
+            DoubleVector l = left.evaluate(batch, selection, numSelected);
+            DoubleVector r = right.evaluate(batch, selection, numSelected);
+            if (result == null || result.values().length < batch.capacity()) {
+                result = new DoubleVector(batch.capacity());
+            }
+            double[] lValues = l.values();
+            double[] rValues = r.values();
+            boolean[] lNulls = l.nulls();
+            boolean[] rNulls = r.nulls();
+            double[] values = result.values();
+            boolean[] nulls = result.nulls();
+            // Values at null positions are computed as well but never read
+            switch (op) {
+                case ADD:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        values[pos] = lValues[pos] + rValues[pos];
+                    }
+                    break;
+
+                case SUBTRACT:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        values[pos] = lValues[pos] - rValues[pos];
+                    }
+                    break;
+
+                case MULTIPLY:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        values[pos] = lValues[pos] * rValues[pos];
+                    }
+                    break;
+
+                case DIVIDE:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        values[pos] = lValues[pos] / rValues[pos];
+                    }
+                    break;
+
+                case MODULUS:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        values[pos] = lValues[pos] % rValues[pos];
+                    }
+                    break;
+
+                default:
+                    throw new AssertionError("Unexpected arithmetic operation: " + op);
+            }
+            for (int i = 0; i < numSelected; i++) {
+                int pos = selection[i];
+                nulls[pos] = lNulls[pos] || rNulls[pos];
+            }
+            return result;
+        }
+    }
+
+    private static final class LongComparison implements VectorPredicate {
+
+        private final Comparison op;
+        private final LongVectorExpression left;
+        private final LongVectorExpression right;
+
+        LongComparison(Comparison op, LongVectorExpression left, LongVectorExpression right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public int selectTrue(ColumnBatch batch, int[] selection, int numSelected, int[] result) {
+            return select(op, batch, selection, numSelected, result);
+        }
+
+        @Override
+        public int selectFalse(ColumnBatch batch, int[] selection, int numSelected, int[] result) {
+            return select(op.negate(), batch, selection, numSelected, result);
+        }
+
+        private int select(Comparison cmp, ColumnBatch batch, int[] selection, int numSelected, int[] result) {
+            LongVector l = left.evaluate(batch, selection, numSelected);
+            LongVector r = right.evaluate(batch, selection, numSelected);
+            long[] lValues = l.values();
+            long[] rValues = r.values();
+            boolean[] lNulls = l.nulls();
+            boolean[] rNulls = r.nulls();
+            int numResults = 0;
+            switch (cmp) {
+                case EQ:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        if (!lNulls[pos] && !rNulls[pos] && lValues[pos] == rValues[pos]) {
+                            result[numResults++] = pos;
+                        }
+                    }
+                    return numResults;
+
+                case NEQ:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        if (!lNulls[pos] && !rNulls[pos] && lValues[pos] != rValues[pos]) {
+                            result[numResults++] = pos;
+                        }
+                    }
+                    return numResults;
+
+                case LT:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        if (!lNulls[pos] && !rNulls[pos] && lValues[pos] < rValues[pos]) {
+                            result[numResults++] = pos;
+                        }
+                    }
+                    return numResults;
+
+                case LTE:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        if (!lNulls[pos] && !rNulls[pos] && lValues[pos] <= rValues[pos]) {
+                            result[numResults++] = pos;
+                        }
+                    }
+                    return numResults;
+
+                case GT:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        if (!lNulls[pos] && !rNulls[pos] && lValues[pos] > rValues[pos]) {
+                            result[numResults++] = pos;
+                        }
+                    }
+                    return numResults;
+
+                case GTE:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        if (!lNulls[pos] && !rNulls[pos] && lValues[pos] >= rValues[pos]) {
+                            result[numResults++] = pos;
+                        }
+                    }
+                    return numResults;
+
+                default:
+                    throw new AssertionError("Unexpected comparison: " + cmp);
+            }
+        }
+    }
+
+    /**
+     * Compares using {@link Double#compare(double, double)} like the row based operators,
+     * so that {@code NaN} is equal to itself and greater than any other value and {@code -0.0} is less than {@code 0.0}.
+     */
+    private static final class DoubleComparison implements VectorPredicate {
+
+        private final Comparison op;
+        private final DoubleVectorExpression left;
+        private final DoubleVectorExpression right;
+
+        DoubleComparison(Comparison op, DoubleVectorExpression left, DoubleVectorExpression right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public int selectTrue(ColumnBatch batch, int[] selection, int numSelected, int[] result) {
+            return select(op, batch, selection, numSelected, result);
+        }
+
+        @Override
+        public int selectFalse(ColumnBatch batch, int[] selection, int numSelected, int[] result) {
+            return select(op.negate(), batch, selection, numSelected, result);
+        }
+
+        private int select(Comparison cmp, ColumnBatch batch, int[] selection, int numSelected, int[] result) {
+            DoubleVector l = left.evaluate(batch, selection, numSelected);
+            DoubleVector r = right.evaluate(batch, selection, numSelected);
+            double[] lValues = l.values();
+            double[] rValues = r.values();
+            boolean[] lNulls = l.nulls();
+            boolean[] rNulls = r.nulls();
+            int numResults = 0;
+            switch (cmp) {
+                case EQ:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        if (!lNulls[pos] && !rNulls[pos] && Double.compare(lValues[pos], rValues[pos]) == 0) {
+                            result[numResults++] = pos;
+                        }
+                    }
+                    return numResults;
+
+                case NEQ:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        if (!lNulls[pos] && !rNulls[pos] && Double.compare(lValues[pos], rValues[pos]) != 0) {
+                            result[numResults++] = pos;
+                        }
+                    }
+                    return numResults;
+
+                case LT:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        if (!lNulls[pos] && !rNulls[pos] && Double.compare(lValues[pos], rValues[pos]) < 0) {
+                            result[numResults++] = pos;
+                        }
+                    }
+                    return numResults;
+
+                case LTE:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        if (!lNulls[pos] && !rNulls[pos] && Double.compare(lValues[pos], rValues[pos]) <= 0) {
+                            result[numResults++] = pos;
+                        }
+                    }
+                    return numResults;
+
+                case GT:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        if (!lNulls[pos] && !rNulls[pos] && Double.compare(lValues[pos], rValues[pos]) > 0) {
+                            result[numResults++] = pos;
+                        }
+                    }
+                    return numResults;
+
+                case GTE:
+                    for (int i = 0; i < numSelected; i++) {
+                        int pos = selection[i];
+                        if (!lNulls[pos] && !rNulls[pos] && Double.compare(lValues[pos], rValues[pos]) >= 0) {
+                            result[numResults++] = pos;
+                        }
+                    }
+                    return numResults;
+
+                default:
+                    throw new AssertionError("Unexpected comparison: " + cmp);
+            }
+        }
+    }
+
+    /**
+     * Selects the positions contained in either of the two sorted arrays, without duplicates.
+     */
+    private static int union(int[] a, int numA, int[] b, int numB, int[] result) {
+        int i = 0;
+        int j = 0;
+        int numResults = 0;
+        while (i < numA && j < numB) {
+            int posA = a[i];
+            int posB = b[j];
+            if (posA < posB) {
+                result[numResults++] = posA;
+                i++;
+            } else if (posB < posA) {
+                result[numResults++] = posB;
+                j++;
+            } else {
+                result[numResults++] = posA;
+                i++;
+                j++;
+            }
+        }
+        while (i < numA) {
+            result[numResults++] = a[i++];
+        }
+        while (j < numB) {
+            result[numResults++] = b[j++];
+        }
+        return numResults;
+    }
+
+    /**
+     * Selects the positions of {@code selection} which are not contained in {@code exclude}.
+     * Both arrays must be sorted and {@code exclude} must be a subset of {@code selection}.
+     */
+    private static int difference(int[] selection, int numSelected, int[] exclude, int numExcluded, int[] result) {
+        int j = 0;
+        int numResults = 0;
+        for (int i = 0; i < numSelected; i++) {
+            int pos = selection[i];
+            if (j < numExcluded && exclude[j] == pos) {
+                j++;
+            } else {
+                result[numResults++] = pos;
+            }
+        }
+        return numResults;
+    }
+
+    /**
+     * {@code a AND b} is true if both are true and false if either one is false.
+     */
+    private static final class And implements VectorPredicate {
+
+        private final VectorPredicate left;
+        private final VectorPredicate right;
+        private int[] leftFalse;
+        private int[] remaining;
+        private int[] rightFalse;
+
+        And(VectorPredicate left, VectorPredicate right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public int selectTrue(ColumnBatch batch, int[] selection, int numSelected, int[] result) {
+            int numTrue = left.selectTrue(batch, selection, numSelected, result);
+            return right.selectTrue(batch, result, numTrue, result);
+        }
+
+        @Override
+        public int selectFalse(ColumnBatch batch, int[] selection, int numSelected, int[] result) {
+            if (leftFalse == null || leftFalse.length < batch.capacity()) {
+                leftFalse = new int[batch.capacity()];
+                remaining = new int[batch.capacity()];
+                rightFalse = new int[batch.capacity()];
+            }
+            int numLeftFalse = left.selectFalse(batch, selection, numSelected, leftFalse);
+            int numRemaining = difference(selection, numSelected, leftFalse, numLeftFalse, remaining);
+            int numRightFalse = right.selectFalse(batch, remaining, numRemaining, rightFalse);
+            return union(leftFalse, numLeftFalse, rightFalse, numRightFalse, result);
+        }
+    }
+
+    /**
+     * {@code a OR b} is true if either one is true and false if both are false.
+     */
+    private static final class Or implements VectorPredicate {
+
+        private final VectorPredicate left;
+        private final VectorPredicate right;
+        private int[] leftTrue;
+        private int[] remaining;
+        private int[] rightTrue;
+
+        Or(VectorPredicate left, VectorPredicate right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public int selectTrue(ColumnBatch batch, int[] selection, int numSelected, int[] result) {
+            if (leftTrue == null || leftTrue.length < batch.capacity()) {
+                leftTrue = new int[batch.capacity()];
+                remaining = new int[batch.capacity()];
+                rightTrue = new int[batch.capacity()];
+            }
+            int numLeftTrue = left.selectTrue(batch, selection, numSelected, leftTrue);
+            int numRemaining = difference(selection, numSelected, leftTrue, numLeftTrue, remaining);
+            int numRightTrue = right.selectTrue(batch, remaining, numRemaining, rightTrue);
+            return union(leftTrue, numLeftTrue, rightTrue, numRightTrue, result);
+        }
+
+        @Override
+        public int selectFalse(ColumnBatch batch, int[] selection, int numSelected, int[] result) {
+            int numFalse = left.selectFalse(batch, selection, numSelected, result);
+            return right.selectFalse(batch, result, numFalse, result);
+        }
+    }
+
+    private static final class Not implements VectorPredicate {
+
+        private final VectorPredicate arg;
+
+        Not(VectorPredicate arg) {
+            this.arg = arg;
+        }
+
+        @Override
+        public int selectTrue(ColumnBatch batch, int[] selection, int numSelected, int[] result) {
+            return arg.selectFalse(batch, selection, numSelected, result);
+        }
+
+        @Override
+        public int selectFalse(ColumnBatch batch, int[] selection, int numSelected, int[] result) {
+            return arg.selectTrue(batch, selection, numSelected, result);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.expression.vector;
+
+import io.crate.data.ColumnBatch;
+
+/**
+ * A boolean expression evaluated for a selection of rows of a {@link ColumnBatch}.
+ * <p>
+ * Following the three-valued logic, rows for which the expression evaluates to null are selected
+ * by neither {@link #selectTrue} nor {@link #selectFalse}.
+ * </p>
+ */
+public interface VectorPredicate {
+
+    /**
+     * @param selection the positions of the rows to evaluate, in ascending order
+     * @param result receives the positions of the rows for which the expression is true, in ascending order.
+     *               May be the same array as {@code selection}.
+     * @return the number of positions written to {@code result}
+     */
+    int selectTrue(ColumnBatch batch, int[] selection, int numSelected, int[] result);
+
+    /**
+     * Like {@link #selectTrue(ColumnBatch, int[], int, int[])}, but selects the rows for which the expression is false.
+     */
+    int selectFalse(ColumnBatch batch, int[] selection, int numSelected, int[] result);
+}
@@ -46,8 +46,13 @@ import io.crate.expression.reference.doc.lucene.CollectorContext;
 import io.crate.expression.reference.doc.lucene.LuceneCollectorExpression;
 import io.crate.expression.reference.doc.lucene.LuceneReferenceResolver;
 import io.crate.expression.scalar.ArrayUpperFunction;
+import io.crate.expression.scalar.DateTruncFunction;
+import io.crate.expression.scalar.ExtractFunctions;
 import io.crate.expression.scalar.Ignore3vlFunction;
 import io.crate.expression.scalar.SubscriptFunction;
+import io.crate.expression.scalar.arithmetic.ArithmeticFunctions;
+import io.crate.expression.scalar.cast.ExplicitCastFunction;
+import io.crate.expression.scalar.cast.ImplicitCastFunction;
 import io.crate.expression.scalar.geo.DistanceFunction;
 import io.crate.expression.scalar.geo.WithinFunction;
 import io.crate.expression.symbol.Function;
@@ -66,6 +71,7 @@ import io.crate.metadata.TransactionContext;
 import io.crate.metadata.doc.DocSysColumns;
 import io.crate.metadata.doc.DocTableInfo;
 import io.crate.sql.tree.ColumnPolicy;
+import io.crate.sql.tree.Extract;
 import io.crate.types.DataTypes;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -161,8 +167,10 @@ public class LuceneQueryBuilder {
         final DocInputFactory docInputFactory;
         final MapperService mapperService;
         final IndexCache indexCache;
-        private final TransactionContext txnCtx;
+        final TransactionContext txnCtx;
+        final NodeContext nodeCtx;
         final QueryShardContext queryShardContext;
+        private final List<Reference> partitionColumns;
 
         Context(TransactionContext txnCtx,
                 NodeContext nodeCtx,
@@ -172,6 +180,7 @@ public class LuceneQueryBuilder {
                 String indexName,
                 List<Reference> partitionColumns) {
             this.txnCtx = txnCtx;
+            this.nodeCtx = nodeCtx;
             this.queryShardContext = queryShardContext;
             FieldTypeLookup typeLookup = mapperService::fullName;
             this.docInputFactory = new DocInputFactory(
@@ -184,6 +193,7 @@ public class LuceneQueryBuilder {
             );
             this.mapperService = mapperService;
             this.indexCache = indexCache;
+            this.partitionColumns = partitionColumns;
         }
 
         public Query query() {
@@ -229,6 +239,13 @@ public class LuceneQueryBuilder {
             return mapperService.fullName(fqColumnName);
         }
 
+        /**
+         * Partition columns are not stored in the documents, their value is part of the index name.
+         */
+        boolean isPartitionColumn(Reference ref) {
+            return partitionColumns.contains(ref);
+        }
+
         public QueryShardContext queryShardContext() {
             return queryShardContext;
         }
@@ -311,12 +328,21 @@ public class LuceneQueryBuilder {
             entry(RegexpMatchCaseInsensitiveOperator.NAME, new RegexMatchQueryCaseInsensitive())
         );
 
-        private final Map<String, InnerFunctionToQuery> innerFunctions = Map.of(
-            DistanceFunction.NAME, new DistanceQuery(),
-            WithinFunction.NAME, WITHIN_QUERY,
-            SubscriptFunction.NAME, new SubscriptQuery(),
-            ArrayUpperFunction.ARRAY_LENGTH, new ArrayLengthQuery(),
-            ArrayUpperFunction.ARRAY_UPPER, new ArrayLengthQuery()
+        private static final InnerFunctionToQuery MONOTONIC_FUNCTION_QUERY = new MonotonicFunctionQuery();
+
+        private final Map<String, InnerFunctionToQuery> innerFunctions = Map.ofEntries(
+            entry(DistanceFunction.NAME, new DistanceQuery()),
+            entry(WithinFunction.NAME, WITHIN_QUERY),
+            entry(SubscriptFunction.NAME, new SubscriptQuery()),
+            entry(ArrayUpperFunction.ARRAY_LENGTH, new ArrayLengthQuery()),
+            entry(ArrayUpperFunction.ARRAY_UPPER, new ArrayLengthQuery()),
+            entry(ImplicitCastFunction.NAME, MONOTONIC_FUNCTION_QUERY),
+            entry(ExplicitCastFunction.NAME, MONOTONIC_FUNCTION_QUERY),
+            entry(DateTruncFunction.NAME, MONOTONIC_FUNCTION_QUERY),
+            entry(ExtractFunctions.functionNameFrom(Extract.Field.YEAR), MONOTONIC_FUNCTION_QUERY),
+            entry(ExtractFunctions.functionNameFrom(Extract.Field.EPOCH), MONOTONIC_FUNCTION_QUERY),
+            entry(ArithmeticFunctions.Names.ADD, MONOTONIC_FUNCTION_QUERY),
+            entry(ArithmeticFunctions.Names.SUBTRACT, MONOTONIC_FUNCTION_QUERY)
         );
 
         @Override
@@ -463,6 +489,16 @@ public class LuceneQueryBuilder {
             r -> r.columnPolicy() == ColumnPolicy.IGNORED
                  || r.valueType() == DataTypes.GEO_POINT);
 
+        Function condition = function;
+        Query vectorizedQuery = VectorizedFunctionQuery.tryCreate(
+            function, context, () -> genericFunctionQuery(condition, context));
+        if (vectorizedQuery != null) {
+            return vectorizedQuery;
+        }
+        return genericFunctionQuery(function, context);
+    }
+
+    private static GenericFunctionQuery genericFunctionQuery(Function function, Context context) {
         final InputFactory.Context<? extends LuceneCollectorExpression<?>> ctx = context.docInputFactory.getCtx(context.txnCtx);
         @SuppressWarnings("unchecked")
         final Input<Boolean> condition = (Input<Boolean>) ctx.add(function);
@@ -0,0 +1,417 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.lucene;
+
+import static java.util.Map.entry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+import java.util.function.ToIntFunction;
+
+import javax.annotation.Nullable;
+
+import org.apache.lucene.search.Query;
+import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.index.mapper.MappedFieldType;
+
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.expression.InputFactory;
+import io.crate.expression.operator.EqOperator;
+import io.crate.expression.operator.GtOperator;
+import io.crate.expression.operator.GteOperator;
+import io.crate.expression.operator.LtOperator;
+import io.crate.expression.operator.LteOperator;
+import io.crate.expression.scalar.DateTruncFunction;
+import io.crate.expression.scalar.ExtractFunctions;
+import io.crate.expression.scalar.arithmetic.ArithmeticFunctions;
+import io.crate.expression.scalar.cast.ExplicitCastFunction;
+import io.crate.expression.scalar.cast.ImplicitCastFunction;
+import io.crate.expression.symbol.Function;
+import io.crate.expression.symbol.InputColumn;
+import io.crate.expression.symbol.Literal;
+import io.crate.expression.symbol.RefReplacer;
+import io.crate.expression.symbol.Symbol;
+import io.crate.expression.symbol.SymbolType;
+import io.crate.metadata.Reference;
+import io.crate.sql.tree.Extract;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.TimestampType;
+
+/**
+ * Rewrites a comparison of a monotonic function of a column with a literal into a range query on the column.
+ *
+ * <pre>
+ * {@code
+ *  date_trunc('day', ts) = '2026-01-01'
+ *      |                 |
+ *    inner             parent
+ *
+ *  -> ts >= '2026-01-01T00:00:00.000' AND ts <= '2026-01-01T23:59:59.999'
+ * }
+ * </pre>
+ *
+ * The inner function may be a chain of functions from {@link #NON_DECREASING_FUNCTIONS} on top of a single integral
+ * or timestamp column, with literals as the other arguments. As the chain is non-decreasing in the column,
+ * the column values matching the comparison form a single range. Its bounds are found with a binary search over
+ * the column values, evaluating the function itself, so the query is exact and no residual filter is needed.
+ * If the bounds can't be determined, e.g. because the function fails for some values, no query is built and the
+ * caller falls back to a generic function query.
+ */
+final class MonotonicFunctionQuery implements InnerFunctionToQuery {
+
+    /**
+     * Values of 64 bit columns are searched within +/- 2^62, which covers timestamps of more than 100 million years.
+     * Bounds at the edge of this domain are not used, as values outside of it could match as well.
+     */
+    private static final long MAX_SEARCH_VALUE = 1L << 62;
+
+    /**
+     * Functions which are monotonically non-decreasing in one of their arguments if all other arguments are literals,
+     * mapped to the position of that argument or -1 if the function isn't monotonic for the given argument types.
+     * <p>
+     * A function must be non-decreasing across the whole search domain of the column, which for 64 bit columns
+     * includes values far from the epoch and timestamps BC, otherwise the query silently misses matching rows.
+     * Every entry must be covered by a test with such values.
+     * </p>
+     */
+    private static final Map<String, ToIntFunction<Function>> NON_DECREASING_FUNCTIONS = Map.ofEntries(
+        entry(ImplicitCastFunction.NAME, MonotonicFunctionQuery::castArgument),
+        entry(ExplicitCastFunction.NAME, MonotonicFunctionQuery::castArgument),
+        entry(DateTruncFunction.NAME, f -> f.arguments().size() - 1),
+        entry(ExtractFunctions.functionNameFrom(Extract.Field.YEAR), f -> 0),
+        entry(ExtractFunctions.functionNameFrom(Extract.Field.EPOCH), f -> 0),
+        // x + c, c + x, ts + interval, interval + ts
+        entry(ArithmeticFunctions.Names.ADD, f -> f.arguments().get(0) instanceof Literal ? 1 : 0),
+        // x - c, ts - interval; c - x is decreasing
+        entry(ArithmeticFunctions.Names.SUBTRACT, f -> 0)
+    );
+
+    /**
+     * Widening casts between numeric and timestamp types keep the order, as the range of the target type contains
+     * the range of the source type. Narrowing casts don't, a cast from bigint to smallint for example overflows,
+     * and neither does a cast to text.
+     */
+    private static int castArgument(Function cast) {
+        return isWidening(cast.arguments().get(0).valueType(), cast.valueType()) ? 0 : -1;
+    }
+
+    private static boolean isWidening(DataType<?> source, DataType<?> target) {
+        int sourceWidth = integralWidth(source);
+        switch (target.id()) {
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+                return sourceWidth > 0 && sourceWidth <= integralWidth(target);
+
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                return sourceWidth > 0 || isTimestamp(source);
+
+            case FloatType.ID:
+                return sourceWidth > 0 || isTimestamp(source) || source.id() == FloatType.ID;
+
+            case DoubleType.ID:
+                return sourceWidth > 0 || isTimestamp(source) || source.id() == FloatType.ID
+                       || source.id() == DoubleType.ID;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return the number of bytes of an integral type, 0 for all other types
+     */
+    private static int integralWidth(DataType<?> type) {
+        switch (type.id()) {
+            case ByteType.ID:
+                return Byte.BYTES;
+            case ShortType.ID:
+                return Short.BYTES;
+            case IntegerType.ID:
+                return Integer.BYTES;
+            case LongType.ID:
+                return Long.BYTES;
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean isTimestamp(DataType<?> type) {
+        return type.id() == TimestampType.ID_WITH_TZ || type.id() == TimestampType.ID_WITHOUT_TZ;
+    }
+
+    @Nullable
+    @Override
+    public Query apply(Function parent, Function inner, LuceneQueryBuilder.Context context) {
+        List<Symbol> parentArgs = parent.arguments();
+        if (parentArgs.size() != 2) {
+            return null;
+        }
+        String operator = parent.name();
+        Symbol cmpSymbol;
+        if (parentArgs.get(0) == inner) {
+            cmpSymbol = parentArgs.get(1);
+        } else {
+            cmpSymbol = parentArgs.get(0);
+            operator = flip(operator);
+        }
+        if (operator == null || !(cmpSymbol instanceof Literal)) {
+            return null;
+        }
+        Object cmpValue = ((Literal<?>) cmpSymbol).value();
+        if (cmpValue == null) {
+            return null;
+        }
+        Reference column = monotonicColumn(inner);
+        if (column == null) {
+            return null;
+        }
+        MappedFieldType fieldType = columnFieldType(column, context);
+        if (fieldType == null) {
+            return null;
+        }
+        long min;
+        long max;
+        switch (column.valueType().id()) {
+            case ByteType.ID:
+                min = Byte.MIN_VALUE;
+                max = Byte.MAX_VALUE;
+                break;
+            case ShortType.ID:
+                min = Short.MIN_VALUE;
+                max = Short.MAX_VALUE;
+                break;
+            case IntegerType.ID:
+                min = Integer.MIN_VALUE;
+                max = Integer.MAX_VALUE;
+                break;
+            default:
+                min = -MAX_SEARCH_VALUE;
+                max = MAX_SEARCH_VALUE;
+                break;
+        }
+        boolean fullDomain = max < MAX_SEARCH_VALUE;
+
+        // lower: the first value with f(x) >= cmpValue; upper: the last value with f(x) <= cmpValue
+        long lower;
+        long upper;
+        try {
+            MonotonicFunction function = new MonotonicFunction(inner, column, context);
+            lower = firstMatch(min, max, x -> function.compareTo(x, cmpValue) >= 0);
+            upper = firstMatch(min, max, x -> function.compareTo(x, cmpValue) > 0) - 1;
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (!fullDomain && (lower <= min || lower > max || upper < min || upper >= max)) {
+            return null;
+        }
+        switch (operator) {
+            case GteOperator.NAME:
+                return rangeQuery(fieldType, column, lower, null, min, max, context);
+
+            case GtOperator.NAME:
+                return rangeQuery(fieldType, column, upper + 1, null, min, max, context);
+
+            case LteOperator.NAME:
+                return rangeQuery(fieldType, column, null, upper, min, max, context);
+
+            case LtOperator.NAME:
+                return rangeQuery(fieldType, column, null, lower - 1, min, max, context);
+
+            case EqOperator.NAME:
+                return rangeQuery(fieldType, column, lower, upper, min, max, context);
+
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    private static String flip(String operator) {
+        switch (operator) {
+            case EqOperator.NAME:
+                return EqOperator.NAME;
+            case GtOperator.NAME:
+                return LtOperator.NAME;
+            case GteOperator.NAME:
+                return LteOperator.NAME;
+            case LtOperator.NAME:
+                return GtOperator.NAME;
+            case LteOperator.NAME:
+                return GteOperator.NAME;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the column if {@code symbol} is a chain of non-decreasing functions on top of it, otherwise null.
+     */
+    @Nullable
+    private static Reference monotonicColumn(Symbol symbol) {
+        if (symbol instanceof Reference) {
+            return (Reference) symbol;
+        }
+        if (!(symbol instanceof Function)) {
+            return null;
+        }
+        Function function = (Function) symbol;
+        ToIntFunction<Function> argPosition = NON_DECREASING_FUNCTIONS.get(function.name());
+        if (argPosition == null || function.fqnName().schema() != null) {
+            return null;
+        }
+        int position = argPosition.applyAsInt(function);
+        if (position < 0) {
+            return null;
+        }
+        List<Symbol> args = function.arguments();
+        for (int i = 0; i < args.size(); i++) {
+            if (i != position && !(args.get(i) instanceof Literal)) {
+                return null;
+            }
+        }
+        return monotonicColumn(args.get(position));
+    }
+
+    @Nullable
+    private static MappedFieldType columnFieldType(Reference column, LuceneQueryBuilder.Context context) {
+        if (column.symbolType() != SymbolType.REFERENCE
+            || column.column().isSystemColumn()
+            || context.isPartitionColumn(column)) {
+            return null;
+        }
+        switch (column.valueType().id()) {
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                break;
+
+            default:
+                return null;
+        }
+        MappedFieldType fieldType = context.getFieldTypeOrNull(column.column().fqn());
+        return fieldType == null || !fieldType.isSearchable() ? null : fieldType;
+    }
+
+    /**
+     * @param matches must be false up to some value and true from there on
+     * @return the first value within [min, max] which matches, or max + 1 if there is none
+     */
+    private static long firstMatch(long min, long max, LongPredicate matches) {
+        long low = min;
+        long high = max + 1;
+        while (low < high) {
+            long mid = low + ((high - low) >>> 1);
+            if (matches.test(mid)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private static Query rangeQuery(MappedFieldType fieldType,
+                                    Reference column,
+                                    @Nullable Long lower,
+                                    @Nullable Long upper,
+                                    long min,
+                                    long max,
+                                    LuceneQueryBuilder.Context context) {
+        if ((lower != null && lower > max) || (upper != null && upper < min) || (lower != null && upper != null && lower > upper)) {
+            return Queries.newMatchNoDocsQuery("no column value matches " + column.column().fqn());
+        }
+        return fieldType.rangeQuery(
+            lower == null || lower <= min ? null : columnValue(column, lower),
+            upper == null || upper >= max ? null : columnValue(column, upper),
+            true,
+            true,
+            null,
+            null,
+            context.queryShardContext
+        );
+    }
+
+    private static Object columnValue(Reference column, long value) {
+        switch (column.valueType().id()) {
+            case ByteType.ID:
+                return (byte) value;
+            case ShortType.ID:
+                return (short) value;
+            case IntegerType.ID:
+                return (int) value;
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Evaluates the inner function for a value of the column.
+     */
+    private static class MonotonicFunction {
+
+        private final Reference column;
+        private final DataType<Object> returnType;
+        private final Input<?> input;
+        private final List<? extends CollectExpression<Row, ?>> expressions;
+        private final Object[] cells = new Object[1];
+        private final Row row = new RowN(cells);
+
+        @SuppressWarnings("unchecked")
+        MonotonicFunction(Function function, Reference column, LuceneQueryBuilder.Context context) {
+            this.column = column;
+            this.returnType = (DataType<Object>) function.valueType();
+            InputFactory.Context<CollectExpression<Row, ?>> ctx =
+                new InputFactory(context.nodeCtx).ctxForInputColumns(context.txnCtx);
+            this.input = ctx.add(RefReplacer.replaceRefs(function, ref -> new InputColumn(0, ref.valueType())));
+            this.expressions = ctx.expressions();
+        }
+
+        int compareTo(long columnValue, Object value) {
+            cells[0] = columnValue(column, columnValue);
+            for (int i = 0; i < expressions.size(); i++) {
+                expressions.get(i).setNextRow(row);
+            }
+            Object result = input.value();
+            if (result == null) {
+                throw new IllegalStateException("Monotonic function must not return null for a non-null value");
+            }
+            return returnType.compare(result, value);
+        }
+    }
+}
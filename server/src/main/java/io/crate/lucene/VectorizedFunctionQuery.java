@@ -0,0 +1,414 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.lucene;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.index.mapper.MappedFieldType;
+
+import io.crate.data.ColumnBatch;
+import io.crate.data.DoubleVector;
+import io.crate.data.LongVector;
+import io.crate.expression.symbol.Function;
+import io.crate.expression.symbol.InputColumn;
+import io.crate.expression.symbol.RefReplacer;
+import io.crate.expression.symbol.Symbol;
+import io.crate.expression.symbol.SymbolType;
+import io.crate.expression.vector.VectorExpressions;
+import io.crate.expression.vector.VectorPredicate;
+import io.crate.metadata.Reference;
+import io.crate.types.ByteType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.TimestampType;
+
+/**
+ * Alternative to {@link GenericFunctionQuery} for conditions which can be compiled with {@link VectorExpressions}
+ * and only refer to numeric columns with doc values.
+ *
+ * Instead of evaluating the condition per docId, the doc values of the referenced columns are read for a block of
+ * docIds into primitive vectors, and the condition is evaluated for the whole block at once.
+ * The block size adapts to the access pattern: it shrinks if only few docIds of a block are checked,
+ * e.g. within a conjunction with a selective query, and grows again for sequential access.
+ *
+ * A block also contains docIds which are never checked, e.g. docIds rejected by other clauses or deleted docs.
+ * If the evaluation of a block fails, e.g. because of a division by zero, or if a doc of the block has more
+ * than one value, the checked docIds of the block are evaluated one by one using the {@code fallback} query.
+ * A failure is then only raised for the docIds which are actually checked.
+ */
+class VectorizedFunctionQuery extends Query {
+
+    static final int MIN_BLOCK_SIZE = 32;
+
+    private enum ColumnType {
+        LONG,
+        FLOAT,
+        DOUBLE
+    }
+
+    private final Function function;
+    private final String[] columns;
+    private final ColumnType[] columnTypes;
+    private final VectorPredicate predicate;
+    private final Query fallback;
+
+    private VectorizedFunctionQuery(Function function,
+                                    String[] columns,
+                                    ColumnType[] columnTypes,
+                                    VectorPredicate predicate,
+                                    Query fallback) {
+        this.function = function;
+        this.columns = columns;
+        this.columnTypes = columnTypes;
+        this.predicate = predicate;
+        this.fallback = fallback;
+    }
+
+    /**
+     * @param fallback query evaluating {@code function} per docId, used for blocks which can't be evaluated at once
+     * @return a query evaluating {@code function} on blocks of doc values,
+     *         or null if the function or one of the referenced columns isn't supported.
+     */
+    @Nullable
+    static VectorizedFunctionQuery tryCreate(Function function,
+                                             LuceneQueryBuilder.Context context,
+                                             Supplier<Query> fallback) {
+        List<Reference> refs = new ArrayList<>();
+        List<ColumnType> columnTypes = new ArrayList<>();
+        boolean[] supported = new boolean[] { true };
+        Symbol condition = RefReplacer.replaceRefs(function, ref -> {
+            int idx = refs.indexOf(ref);
+            if (idx < 0) {
+                ColumnType columnType = columnType(ref, context);
+                if (columnType == null) {
+                    supported[0] = false;
+                    return ref;
+                }
+                idx = refs.size();
+                refs.add(ref);
+                columnTypes.add(columnType);
+            }
+            return new InputColumn(idx, ref.valueType());
+        });
+        if (!supported[0]) {
+            return null;
+        }
+        VectorPredicate predicate = VectorExpressions.compilePredicate(condition);
+        if (predicate == null) {
+            return null;
+        }
+        String[] columns = new String[refs.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = refs.get(i).column().fqn();
+        }
+        return new VectorizedFunctionQuery(
+            function,
+            columns,
+            columnTypes.toArray(new ColumnType[0]),
+            predicate,
+            fallback.get()
+        );
+    }
+
+    @Nullable
+    private static ColumnType columnType(Reference ref, LuceneQueryBuilder.Context context) {
+        if (ref.symbolType() != SymbolType.REFERENCE
+            || ref.column().isSystemColumn()
+            || context.isPartitionColumn(ref)) {
+            return null;
+        }
+        MappedFieldType fieldType = context.getFieldTypeOrNull(ref.column().fqn());
+        if (fieldType == null || !fieldType.hasDocValues()) {
+            return null;
+        }
+        switch (ref.valueType().id()) {
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                return ColumnType.LONG;
+
+            case FloatType.ID:
+                return ColumnType.FLOAT;
+
+            case DoubleType.ID:
+                return ColumnType.DOUBLE;
+
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        VectorizedFunctionQuery that = (VectorizedFunctionQuery) o;
+
+        return function.equals(that.function);
+    }
+
+    @Override
+    public int hashCode() {
+        return function.hashCode();
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+        Weight fallbackWeight = fallback.createWeight(searcher, scoreMode, boost);
+        return new Weight(this) {
+            @Override
+            public boolean isCacheable(LeafReaderContext ctx) {
+                return DocValues.isCacheable(ctx, columns);
+            }
+
+            @Override
+            public void extractTerms(Set<Term> terms) {
+            }
+
+            @Override
+            public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+                TwoPhaseIterator twoPhase = scorer(context).twoPhaseIterator();
+                if (twoPhase.approximation().advance(doc) == doc && twoPhase.matches()) {
+                    return Explanation.match(0f, "Match on id " + doc);
+                } else {
+                    return Explanation.match(0f, "No match on id " + doc);
+                }
+            }
+
+            @Override
+            public Scorer scorer(LeafReaderContext context) throws IOException {
+                SortedNumericDocValues[] values = new SortedNumericDocValues[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    values[i] = DocValues.getSortedNumeric(context.reader(), columns[i]);
+                }
+                return new ConstantScoreScorer(
+                    this,
+                    0f,
+                    scoreMode,
+                    new BlockTwoPhaseIterator(context.reader().maxDoc(), values, fallbackWeight, context)
+                );
+            }
+        };
+    }
+
+    @Override
+    public String toString(String field) {
+        return function.toString();
+    }
+
+    private class BlockTwoPhaseIterator extends TwoPhaseIterator {
+
+        private final int maxDoc;
+        private final SortedNumericDocValues[] values;
+        private final ColumnBatch batch;
+        private final int[] selection;
+        private final int[] selected;
+        private final long[] matchingBits;
+        private final Weight fallbackWeight;
+        private final LeafReaderContext context;
+
+        @Nullable
+        private TwoPhaseIterator fallbackIterator;
+        private int blockSize;
+        private int blockStart = 0;
+        private int blockEnd = 0;
+        private int numChecked = 0;
+        private boolean evaluateDocByDoc = false;
+
+        BlockTwoPhaseIterator(int maxDoc,
+                              SortedNumericDocValues[] values,
+                              Weight fallbackWeight,
+                              LeafReaderContext context) {
+            super(DocIdSetIterator.all(maxDoc));
+            this.maxDoc = maxDoc;
+            this.values = values;
+            this.fallbackWeight = fallbackWeight;
+            this.context = context;
+            int capacity = Math.max(1, Math.min(ColumnBatch.DEFAULT_CAPACITY, maxDoc));
+            this.batch = new ColumnBatch(values.length, capacity);
+            this.selection = new int[capacity];
+            for (int i = 0; i < capacity; i++) {
+                selection[i] = i;
+            }
+            this.selected = new int[capacity];
+            this.matchingBits = new long[(capacity + 63) >>> 6];
+            this.blockSize = capacity;
+        }
+
+        @Override
+        public boolean matches() throws IOException {
+            int doc = approximation.docID();
+            if (doc < blockStart || doc >= blockEnd) {
+                adaptBlockSize();
+                evaluateBlock(doc);
+            }
+            numChecked++;
+            if (evaluateDocByDoc) {
+                return fallbackMatches(doc);
+            }
+            int offset = doc - blockStart;
+            return (matchingBits[offset >>> 6] & (1L << offset)) != 0;
+        }
+
+        private boolean fallbackMatches(int doc) throws IOException {
+            if (fallbackIterator == null) {
+                fallbackIterator = fallbackWeight.scorer(context).twoPhaseIterator();
+            }
+            DocIdSetIterator fallbackApproximation = fallbackIterator.approximation();
+            if (fallbackApproximation.docID() < doc) {
+                fallbackApproximation.advance(doc);
+            }
+            return fallbackApproximation.docID() == doc && fallbackIterator.matches();
+        }
+
+        private void adaptBlockSize() {
+            int evaluated = blockEnd - blockStart;
+            if (evaluated == 0) {
+                return;
+            }
+            if (numChecked * 4 < evaluated) {
+                blockSize = Math.max(Math.min(MIN_BLOCK_SIZE, batch.capacity()), blockSize >>> 1);
+            } else {
+                blockSize = Math.min(batch.capacity(), blockSize << 1);
+            }
+        }
+
+        private void evaluateBlock(int start) throws IOException {
+            int size = Math.min(blockSize, maxDoc - start);
+            blockStart = start;
+            blockEnd = start + size;
+            numChecked = 0;
+            evaluateDocByDoc = !readBlock(start, size) || !selectMatching(size);
+        }
+
+        /**
+         * @return false if a doc has more than one value for a column, the block can't be evaluated at once then.
+         */
+        private boolean readBlock(int start, int size) throws IOException {
+            batch.clear();
+            for (int c = 0; c < values.length; c++) {
+                boolean singleValued;
+                if (columnTypes[c] == ColumnType.LONG) {
+                    LongVector vector = batch.writableLongVector(c);
+                    singleValued = readLongs(c, start, size, vector.values(), vector.nulls());
+                } else {
+                    DoubleVector vector = batch.writableDoubleVector(c);
+                    singleValued = readDoubles(c, start, size, vector.values(), vector.nulls());
+                }
+                if (!singleValued) {
+                    return false;
+                }
+            }
+            batch.setSize(size);
+            return true;
+        }
+
+        /**
+         * @return false if the evaluation failed for any doc of the block, which may not even be checked.
+         */
+        private boolean selectMatching(int size) {
+            int numSelected;
+            try {
+                numSelected = predicate.selectTrue(batch, selection, size, selected);
+            } catch (RuntimeException e) {
+                return false;
+            }
+            Arrays.fill(matchingBits, 0L);
+            for (int i = 0; i < numSelected; i++) {
+                int position = selected[i];
+                matchingBits[position >>> 6] |= 1L << position;
+            }
+            return true;
+        }
+
+        private boolean readLongs(int column, int start, int size, long[] result, boolean[] nulls) throws IOException {
+            SortedNumericDocValues docValues = values[column];
+            for (int i = 0; i < size; i++) {
+                if (docValues.advanceExact(start + i)) {
+                    if (docValues.docValueCount() != 1) {
+                        return false;
+                    }
+                    result[i] = docValues.nextValue();
+                    nulls[i] = false;
+                } else {
+                    nulls[i] = true;
+                }
+            }
+            return true;
+        }
+
+        private boolean readDoubles(int column, int start, int size, double[] result, boolean[] nulls) throws IOException {
+            SortedNumericDocValues docValues = values[column];
+            boolean isFloat = columnTypes[column] == ColumnType.FLOAT;
+            for (int i = 0; i < size; i++) {
+                if (docValues.advanceExact(start + i)) {
+                    if (docValues.docValueCount() != 1) {
+                        return false;
+                    }
+                    long value = docValues.nextValue();
+                    result[i] = isFloat
+                        ? NumericUtils.sortableIntToFloat((int) value)
+                        : NumericUtils.sortableLongToDouble(value);
+                    nulls[i] = false;
+                } else {
+                    nulls[i] = true;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public float matchCost() {
+            // Amortized over a block the condition is evaluated on primitive values
+            return 1;
+        }
+    }
+}
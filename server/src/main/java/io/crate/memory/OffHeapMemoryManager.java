@@ -23,7 +23,7 @@
 package io.crate.memory;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.PooledByteBufAllocator;
 
 import java.util.ArrayList;
 
@@ -36,7 +36,8 @@ public final class OffHeapMemoryManager implements MemoryManager {
 
     @Override
     public ByteBuf allocate(int capacity) {
-        ByteBuf byteBuf = Unpooled.directBuffer(capacity);
+        // Pooled to avoid allocating and freeing native memory for each of the many pages used by a grouping
+        ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.directBuffer(capacity);
         allocatedBuffers.add(byteBuf);
         return byteBuf;
     }
@@ -34,6 +34,8 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class CSVLineParser {
 
@@ -65,18 +67,27 @@ public class CSVLineParser {
     }
 
     public byte[] parse(String row) throws IOException {
-        MappingIterator<Object> iterator = csvReader.readValues(row.getBytes(StandardCharsets.UTF_8));
+        Map<String, Object> source = parseToMap(row);
         out.reset();
-        XContentBuilder jsonBuilder = new XContentBuilder(JsonXContent.JSON_XCONTENT, out).startObject();
+        XContentBuilder jsonBuilder = new XContentBuilder(JsonXContent.JSON_XCONTENT, out).map(source);
+        jsonBuilder.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Parses the row into a map of the header keys to the cell values, without encoding it as JSON.
+     */
+    public Map<String, Object> parseToMap(String row) throws IOException {
+        MappingIterator<Object> iterator = csvReader.readValues(row.getBytes(StandardCharsets.UTF_8));
+        LinkedHashMap<String, Object> source = new LinkedHashMap<>(keyList.size());
         int i = 0;
         while (iterator.hasNext()) {
             if (i >= keyList.size()) {
                 throw new IllegalArgumentException("Number of values exceeds number of keys");
             }
-            jsonBuilder.field(keyList.get(i), iterator.next());
+            source.put(keyList.get(i), iterator.next());
             i++;
         }
-        jsonBuilder.endObject().close();
-        return out.toByteArray();
+        return source;
     }
 }
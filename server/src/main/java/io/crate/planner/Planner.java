@@ -197,6 +197,10 @@ public class Planner extends AnalyzedStatementVisitor<PlannerContext, Plan> {
         return clusterService.state();
     }
 
+    public TableStats tableStats() {
+        return tableStats;
+    }
+
     /**
      * dispatch plan creation based on analyzed statement
      *
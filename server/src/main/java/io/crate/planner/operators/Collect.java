@@ -91,7 +91,7 @@ public class Collect implements LogicalPlan {
     private final long numExpectedRows;
     private final long estimatedRowSize;
 
-    WhereClause where;
+    final WhereClause where;
 
     public static Collect create(AbstractTableRelation<?> relation,
                                  List<Symbol> toCollect,
@@ -138,15 +138,8 @@ public class Collect implements LogicalPlan {
                                @Nullable Integer pageSizeHint,
                                Row params,
                                SubQueryResults subQueryResults) {
-        EvaluatingNormalizer normalizer = new EvaluatingNormalizer(
-            plannerContext.nodeContext(),
-            RowGranularity.CLUSTER,
-            null,
-            relation
-        );
-        var binder = new SubQueryAndParamBinder(params, subQueryResults)
-            .andThen(x -> normalizer.normalize(x, plannerContext.transactionContext()));
-        RoutedCollectPhase collectPhase = createPhase(plannerContext, binder);
+        var binder = binder(plannerContext, params, subQueryResults);
+        RoutedCollectPhase collectPhase = createPhase(plannerContext, binder, boundWhere(plannerContext, binder));
         PositionalOrderBy positionalOrderBy = getPositionalOrderBy(order, outputs);
         if (positionalOrderBy != null) {
             if (preferSourceLookup) {
@@ -231,7 +224,32 @@ public class Collect implements LogicalPlan {
         }
     }
 
-    private RoutedCollectPhase createPhase(PlannerContext plannerContext, java.util.function.Function<Symbol, Symbol> binder) {
+    private java.util.function.Function<Symbol, Symbol> binder(PlannerContext plannerContext,
+                                                               Row params,
+                                                               SubQueryResults subQueryResults) {
+        EvaluatingNormalizer normalizer = new EvaluatingNormalizer(
+            plannerContext.nodeContext(),
+            RowGranularity.CLUSTER,
+            null,
+            relation
+        );
+        return new SubQueryAndParamBinder(params, subQueryResults)
+            .andThen(x -> normalizer.normalize(x, plannerContext.transactionContext()));
+    }
+
+    /**
+     * Binds all parameters and possible subQuery values and re-analyzes the query
+     * (could result in a NO_MATCH, routing could've changed, etc).
+     * <p>
+     * Outer operators can use this to build different plans based on the collect routing (e.g. GroupHashAggregate).
+     * The {@code where} field is never changed, because a plan may be cached and executed
+     * concurrently with different parameters.
+     */
+    WhereClause boundWhere(PlannerContext plannerContext, Row params, SubQueryResults subQueryResults) {
+        return boundWhere(plannerContext, binder(plannerContext, params, subQueryResults));
+    }
+
+    private WhereClause boundWhere(PlannerContext plannerContext, java.util.function.Function<Symbol, Symbol> binder) {
         WhereClause boundWhere = where.map(binder);
         if (tableInfo instanceof DocTableInfo) {
             DocTableInfo docTable = (DocTableInfo) tableInfo;
@@ -245,16 +263,16 @@ public class Collect implements LogicalPlan {
                 boundWhere = new WhereClause(query, boundWhere.partitions(), boundWhere.clusteredBy());
             }
         }
-
-        // bind all parameters and possible subQuery values and re-analyze the query
-        // (could result in a NO_MATCH, routing could've changed, etc).
-        // the <p>where</p> instance variable must be overwritten as the plan creation of outer operators relies on it
-        // (e.g. GroupHashAggregate will build different plans based on the collect routing)
-        where = WhereClauseAnalyzer.resolvePartitions(
+        return WhereClauseAnalyzer.resolvePartitions(
             boundWhere,
             relation,
             plannerContext.transactionContext(),
             plannerContext.nodeContext());
+    }
+
+    private RoutedCollectPhase createPhase(PlannerContext plannerContext,
+                                           java.util.function.Function<Symbol, Symbol> binder,
+                                           WhereClause where) {
         if (where.hasVersions()) {
             throw VersioninigValidationException.versionInvalidUsage();
         } else if (where.hasSeqNoAndPrimaryTerm()) {
@@ -31,6 +31,7 @@ import io.crate.planner.node.fetch.FetchSource;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -48,6 +49,18 @@ public final class FetchRewrite {
         this.plan = plan;
     }
 
+    /**
+     * Creates a FetchRewrite for a plan that has nothing to fetch, all outputs are kept as they are.
+     * This is used for join sides which can't be rewritten if the other side can.
+     */
+    static FetchRewrite unchanged(LogicalPlan plan) {
+        LinkedHashMap<Symbol, Symbol> replacedOutputs = new LinkedHashMap<>();
+        for (Symbol output : plan.outputs()) {
+            replacedOutputs.put(output, output);
+        }
+        return new FetchRewrite(replacedOutputs, plan);
+    }
+
     public LogicalPlan newPlan() {
         return plan;
     }
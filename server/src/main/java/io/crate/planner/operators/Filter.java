@@ -101,6 +101,18 @@ public final class Filter extends ForwardingLogicalPlan {
         return new Filter(newSource, query);
     }
 
+    @Nullable
+    @Override
+    public FetchRewrite rewriteToFetch(TableStats tableStats, Collection<Symbol> usedColumns) {
+        LinkedHashSet<Symbol> allUsedColumns = new LinkedHashSet<>(usedColumns);
+        SymbolVisitors.intersection(query, source.outputs(), allUsedColumns::add);
+        FetchRewrite fetchRewrite = source.rewriteToFetch(tableStats, allUsedColumns);
+        if (fetchRewrite == null) {
+            return null;
+        }
+        return new FetchRewrite(fetchRewrite.replacedOutputs(), new Filter(fetchRewrite.newPlan(), query));
+    }
+
     @Override
     public LogicalPlan replaceSources(List<LogicalPlan> sources) {
         return new Filter(Lists2.getOnlyElement(sources), query);
@@ -144,7 +144,7 @@ public class GroupHashAggregate extends ForwardingLogicalPlan {
         SubQueryAndParamBinder paramBinder = new SubQueryAndParamBinder(params, subQueryResults);
 
         List<Symbol> sourceOutputs = source.outputs();
-        if (shardsContainAllGroupKeyValues()) {
+        if (shardsContainAllGroupKeyValues(plannerContext, params, subQueryResults)) {
             GroupProjection groupProjection = projectionBuilder.groupProjection(
                 sourceOutputs,
                 groupKeys,
@@ -295,12 +295,14 @@ public class GroupHashAggregate extends ForwardingLogicalPlan {
      * @return true if it's guaranteed that a group-key-value doesn't occur in more than 1 shard.
      *         Each shard has "group or row authority"
      */
-    private boolean shardsContainAllGroupKeyValues() {
+    private boolean shardsContainAllGroupKeyValues(PlannerContext plannerContext,
+                                                   Row params,
+                                                   SubQueryResults subQueryResults) {
         return source instanceof Collect &&
                ((Collect) source).tableInfo instanceof DocTableInfo &&
                GroupByConsumer.groupedByClusteredColumnOrPrimaryKeys(
                    ((DocTableInfo) ((Collect) source).tableInfo),
-                   ((Collect) source).where,
+                   ((Collect) source).boundWhere(plannerContext, params, subQueryResults),
                    groupKeys);
     }
 
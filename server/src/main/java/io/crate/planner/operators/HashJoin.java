@@ -198,6 +198,7 @@ public class HashJoin implements LogicalPlan {
             InputColumns.create(Lists2.map(hashSymbols.v1(), paramBinder), new InputColumns.SourceSymbols(leftOutputs)),
             InputColumns.create(Lists2.map(hashSymbols.v2(), paramBinder), new InputColumns.SourceSymbols(rightOutputs)),
             Symbols.typeView(leftOutputs),
+            Symbols.typeView(rightOutputs),
             leftLogicalPlan.estimatedRowSize(),
             leftLogicalPlan.numExpectedRows());
         return new Join(
@@ -272,13 +273,17 @@ public class HashJoin implements LogicalPlan {
         SymbolVisitors.intersection(joinCondition, lhs.outputs(), usedFromLeft::add);
         SymbolVisitors.intersection(joinCondition, rhs.outputs(), usedFromRight::add);
         FetchRewrite lhsFetchRewrite = lhs.rewriteToFetch(tableStats, usedFromLeft);
-        if (lhsFetchRewrite == null) {
-            return null;
-        }
         FetchRewrite rhsFetchRewrite = rhs.rewriteToFetch(tableStats, usedFromRight);
-        if (rhsFetchRewrite == null) {
+        if (lhsFetchRewrite == null && rhsFetchRewrite == null) {
             return null;
         }
+        // A side with nothing to fetch (e.g. only the join keys are selected) keeps its outputs,
+        // the other side can still benefit from fetching its columns after the join.
+        if (lhsFetchRewrite == null) {
+            lhsFetchRewrite = FetchRewrite.unchanged(lhs);
+        } else if (rhsFetchRewrite == null) {
+            rhsFetchRewrite = FetchRewrite.unchanged(rhs);
+        }
         LinkedHashMap<Symbol, Symbol> allReplacedOutputs = new LinkedHashMap<>(lhsFetchRewrite.replacedOutputs());
         allReplacedOutputs.putAll(rhsFetchRewrite.replacedOutputs());
         return new FetchRewrite(
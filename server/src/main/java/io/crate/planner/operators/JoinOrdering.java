@@ -27,10 +27,12 @@ import io.crate.common.annotations.VisibleForTesting;
 import io.crate.metadata.RelationName;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -39,6 +41,12 @@ import java.util.Set;
  */
 final class JoinOrdering {
 
+    /**
+     * Exhaustive enumeration of left-deep join trees is feasible up to this number of relations (2^n subsets)
+     */
+    @VisibleForTesting
+    static final int MAX_RELATIONS_FOR_EXHAUSTIVE_SEARCH = 10;
+
     private JoinOrdering() {
     }
 
@@ -131,4 +139,165 @@ final class JoinOrdering {
         // Add the rest of the relations to the end of the collection
         sets.forEach(bestOrder::addAll);
     }
+
+    /**
+     * Returns the relations in the order which results in the lowest estimated cost of a left-deep join tree.
+     * The cost of a join tree is the sum of the estimated number of rows of all intermediate join results.
+     * <p>
+     * All orders are enumerated using dynamic programming over the subsets of relations
+     * for up to {@link #MAX_RELATIONS_FOR_EXHAUSTIVE_SEARCH} relations, for more relations a greedy search
+     * is used which starts with the cheapest pair and adds the relation that results in the smallest result next.
+     * If several orders have the same cost, the one closest to the given order is preferred.
+     *
+     * @param relations    all relations, e.g. [t1, t2, t3]
+     * @param numRows      the estimated number of rows of each relation, in the same order as {@code relations}
+     * @param selectivities the estimated selectivity of the conditions between the relations,
+     *                      e.g. {{t1, t2}: 0.01, {t2, t3}: 0.5}
+     */
+    static List<RelationName> orderByCost(List<RelationName> relations,
+                                          long[] numRows,
+                                          Map<? extends Set<RelationName>, Double> selectivities) {
+        int numRelations = relations.size();
+        assert numRelations == numRows.length : "Must have a row count for each relation";
+        assert numRelations < Integer.SIZE : "Relations must fit into an int bit set";
+
+        int[] conditionMasks = new int[selectivities.size()];
+        double[] conditionSelectivities = new double[selectivities.size()];
+        int numConditions = 0;
+        for (Map.Entry<? extends Set<RelationName>, Double> entry : selectivities.entrySet()) {
+            int mask = 0;
+            for (RelationName relationName : entry.getKey()) {
+                int idx = relations.indexOf(relationName);
+                if (idx >= 0) {
+                    mask |= 1 << idx;
+                }
+            }
+            conditionMasks[numConditions] = mask;
+            conditionSelectivities[numConditions] = entry.getValue();
+            numConditions++;
+        }
+        JoinCardinality cardinality = new JoinCardinality(numRows, conditionMasks, conditionSelectivities);
+        if (numRelations <= MAX_RELATIONS_FOR_EXHAUSTIVE_SEARCH) {
+            return orderExhaustive(relations, cardinality);
+        }
+        return orderGreedy(relations, cardinality);
+    }
+
+    private static List<RelationName> orderExhaustive(List<RelationName> relations, JoinCardinality cardinality) {
+        int numRelations = relations.size();
+        int numSubsets = 1 << numRelations;
+        double[] costs = new double[numSubsets];
+        double[] rows = new double[numSubsets];
+        int[] lastRelation = new int[numSubsets];
+        for (int subset = 1; subset < numSubsets; subset++) {
+            if (Integer.bitCount(subset) == 1) {
+                int idx = Integer.numberOfTrailingZeros(subset);
+                rows[subset] = cardinality.numRows(idx);
+                lastRelation[subset] = idx;
+                continue;
+            }
+            double bestCost = Double.POSITIVE_INFINITY;
+            int bestLast = -1;
+            // Iterate from the last relation downwards so that on ties the order of the relations is preserved
+            for (int idx = numRelations - 1; idx >= 0; idx--) {
+                int bit = 1 << idx;
+                if ((subset & bit) == 0) {
+                    continue;
+                }
+                int rest = subset & ~bit;
+                double cost = costs[rest];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestLast = idx;
+                }
+            }
+            int rest = subset & ~(1 << bestLast);
+            rows[subset] = cardinality.join(rows[rest], rest, bestLast);
+            costs[subset] = bestCost + rows[subset];
+            lastRelation[subset] = bestLast;
+        }
+        RelationName[] order = new RelationName[numRelations];
+        int subset = numSubsets - 1;
+        for (int i = numRelations - 1; i >= 0; i--) {
+            int idx = lastRelation[subset];
+            order[i] = relations.get(idx);
+            subset &= ~(1 << idx);
+        }
+        return Arrays.asList(order);
+    }
+
+    private static List<RelationName> orderGreedy(List<RelationName> relations, JoinCardinality cardinality) {
+        int numRelations = relations.size();
+        int first = -1;
+        int second = -1;
+        double bestRows = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < numRelations; i++) {
+            for (int j = i + 1; j < numRelations; j++) {
+                double rows = cardinality.join(cardinality.numRows(i), 1 << i, j);
+                if (rows < bestRows) {
+                    bestRows = rows;
+                    first = i;
+                    second = j;
+                }
+            }
+        }
+        ArrayList<RelationName> order = new ArrayList<>(numRelations);
+        order.add(relations.get(first));
+        order.add(relations.get(second));
+        int joined = (1 << first) | (1 << second);
+        double joinedRows = bestRows;
+        while (order.size() < numRelations) {
+            int next = -1;
+            double nextRows = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < numRelations; i++) {
+                if ((joined & (1 << i)) != 0) {
+                    continue;
+                }
+                double rows = cardinality.join(joinedRows, joined, i);
+                if (rows < nextRows) {
+                    nextRows = rows;
+                    next = i;
+                }
+            }
+            order.add(relations.get(next));
+            joined |= 1 << next;
+            joinedRows = nextRows;
+        }
+        return order;
+    }
+
+    private static final class JoinCardinality {
+
+        private final long[] numRows;
+        private final int[] conditionMasks;
+        private final double[] conditionSelectivities;
+
+        private JoinCardinality(long[] numRows, int[] conditionMasks, double[] conditionSelectivities) {
+            this.numRows = numRows;
+            this.conditionMasks = conditionMasks;
+            this.conditionSelectivities = conditionSelectivities;
+        }
+
+        double numRows(int relation) {
+            // Avoid that empty relations make every order look equally cheap
+            return Math.max(1, numRows[relation]);
+        }
+
+        /**
+         * @return the estimated number of rows after joining the relation {@code next} to the already joined
+         *         relations, applying all conditions which become resolvable.
+         */
+        double join(double joinedRows, int joined, int next) {
+            int nextBit = 1 << next;
+            int result = joined | nextBit;
+            double rows = joinedRows * numRows(next);
+            for (int i = 0; i < conditionMasks.length; i++) {
+                int mask = conditionMasks[i];
+                if ((mask & nextBit) != 0 && (mask & ~result) == 0) {
+                    rows *= conditionSelectivities[i];
+                }
+            }
+            return Math.max(1, rows);
+        }
+    }
 }
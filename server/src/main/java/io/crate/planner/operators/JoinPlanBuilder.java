@@ -22,20 +22,28 @@
 
 package io.crate.planner.operators;
 
+import io.crate.analyze.relations.AbstractTableRelation;
+import io.crate.analyze.relations.AliasedAnalyzedRelation;
 import io.crate.analyze.relations.AnalyzedRelation;
 import io.crate.analyze.relations.JoinPair;
 import io.crate.analyze.relations.QuerySplitter;
 import io.crate.common.collections.Lists2;
 import io.crate.execution.engine.join.JoinOperations;
 import io.crate.expression.operator.AndOperator;
+import io.crate.expression.symbol.ScopedSymbol;
 import io.crate.expression.symbol.Symbol;
+import io.crate.metadata.Reference;
 import io.crate.metadata.RelationName;
 import io.crate.planner.node.dql.join.JoinType;
+import io.crate.planner.selectivity.SelectivityFunctions;
+import io.crate.statistics.ColumnStats;
+import io.crate.statistics.TableStats;
 import org.elasticsearch.common.util.set.Sets;
 
 import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -62,21 +70,36 @@ public class JoinPlanBuilder {
     static LogicalPlan buildJoinTree(List<AnalyzedRelation> from,
                                      Symbol whereClause,
                                      List<JoinPair> joinPairs,
-                                     Function<AnalyzedRelation, LogicalPlan> plan,
-                                     boolean hashJoinEnabled) {
+                                     Function<AnalyzedRelation, LogicalPlan> planRelation,
+                                     boolean hashJoinEnabled,
+                                     TableStats tableStats) {
         if (from.size() == 1) {
-            return Filter.create(plan.apply(from.get(0)), whereClause);
+            return Filter.create(planRelation.apply(from.get(0)), whereClause);
         }
         Map<Set<RelationName>, Symbol> queryParts = QuerySplitter.split(whereClause);
         LinkedHashMap<Set<RelationName>, JoinPair> joinPairsByRelations =
             JoinOperations.buildRelationsToJoinPairsMap(
                 JoinOperations.convertImplicitJoinConditionsToJoinPairs(joinPairs, queryParts));
 
-        Collection<RelationName> orderedRelationNames = JoinOrdering.getOrderedRelationNames(
-            Lists2.map(from, AnalyzedRelation::relationName),
-            joinPairsByRelations.keySet(),
-            queryParts.keySet()
+        // Each relation is planned once; the cost based ordering needs the plans before the join tree is built
+        HashMap<RelationName, LogicalPlan> plansByRelation = new HashMap<>();
+        Function<AnalyzedRelation, LogicalPlan> plan =
+            rel -> plansByRelation.computeIfAbsent(rel.relationName(), name -> planRelation.apply(rel));
+
+        Collection<RelationName> orderedRelationNames = orderByCost(
+            from,
+            joinPairsByRelations,
+            queryParts,
+            plan,
+            tableStats
         );
+        if (orderedRelationNames == null) {
+            orderedRelationNames = JoinOrdering.getOrderedRelationNames(
+                Lists2.map(from, AnalyzedRelation::relationName),
+                joinPairsByRelations.keySet(),
+                queryParts.keySet()
+            );
+        }
 
         Iterator<RelationName> it = orderedRelationNames.iterator();
 
@@ -139,6 +162,83 @@ public class JoinPlanBuilder {
         return joinPlan;
     }
 
+    /**
+     * Orders the relations using {@link JoinOrdering#orderByCost(List, long[], Map)} based on the
+     * estimated number of rows of each relation and the selectivity of the join conditions.
+     *
+     * @return the ordered relations or null if the relations can't be re-ordered freely
+     *         (outer, semi or anti joins) or if statistics are missing.
+     */
+    @Nullable
+    private static List<RelationName> orderByCost(List<AnalyzedRelation> from,
+                                                  Map<Set<RelationName>, JoinPair> joinPairsByRelations,
+                                                  Map<Set<RelationName>, Symbol> queryParts,
+                                                  Function<AnalyzedRelation, LogicalPlan> plan,
+                                                  TableStats tableStats) {
+        // Two relations are handled by the join operators, which switch the sides based on the number of rows
+        if (from.size() <= 2 || from.size() >= Integer.SIZE) {
+            return null;
+        }
+        for (JoinPair joinPair : joinPairsByRelations.values()) {
+            JoinType joinType = joinPair.joinType();
+            if (joinType != JoinType.INNER && joinType != JoinType.CROSS) {
+                return null;
+            }
+        }
+        Map<RelationName, AnalyzedRelation> sources = new HashMap<>();
+        long[] numRows = new long[from.size()];
+        for (int i = 0; i < from.size(); i++) {
+            AnalyzedRelation relation = from.get(i);
+            sources.put(relation.relationName(), relation);
+            AnalyzedRelation source = relation instanceof AliasedAnalyzedRelation
+                ? ((AliasedAnalyzedRelation) relation).relation()
+                : relation;
+            numRows[i] = plan.apply(relation).numExpectedRows();
+            if (source instanceof AbstractTableRelation<?>) {
+                if (tableStats.numDocs(((AbstractTableRelation<?>) source).tableInfo().ident()) < 0) {
+                    return null;
+                }
+            } else if (numRows[i] <= 0) {
+                // Estimates of sub-queries without statistics are rounded to 0
+                return null;
+            }
+        }
+        Function<Symbol, ColumnStats<?>> columnStats = symbol -> columnStats(symbol, sources, tableStats);
+        HashMap<Set<RelationName>, Double> selectivities = new HashMap<>();
+        for (Map.Entry<Set<RelationName>, JoinPair> entry : joinPairsByRelations.entrySet()) {
+            Symbol condition = entry.getValue().condition();
+            if (condition != null) {
+                double selectivity = SelectivityFunctions.estimateJoinSelectivity(condition, columnStats);
+                selectivities.merge(entry.getKey(), selectivity, (a, b) -> a * b);
+            }
+        }
+        for (Map.Entry<Set<RelationName>, Symbol> entry : queryParts.entrySet()) {
+            if (entry.getKey().size() > 1) {
+                double selectivity = SelectivityFunctions.estimateJoinSelectivity(entry.getValue(), columnStats);
+                selectivities.merge(entry.getKey(), selectivity, (a, b) -> a * b);
+            }
+        }
+        return JoinOrdering.orderByCost(Lists2.map(from, AnalyzedRelation::relationName), numRows, selectivities);
+    }
+
+    @Nullable
+    private static ColumnStats<?> columnStats(Symbol symbol,
+                                              Map<RelationName, AnalyzedRelation> sources,
+                                              TableStats tableStats) {
+        if (symbol instanceof ScopedSymbol) {
+            ScopedSymbol field = (ScopedSymbol) symbol;
+            AnalyzedRelation relation = sources.get(field.relation());
+            if (relation instanceof AliasedAnalyzedRelation) {
+                symbol = ((AliasedAnalyzedRelation) relation).resolveField(field);
+            }
+        }
+        if (symbol instanceof Reference) {
+            Reference ref = (Reference) symbol;
+            return tableStats.getStats(ref.ident().tableIdent()).statsByColumn().get(ref.column());
+        }
+        return null;
+    }
+
     private static LogicalPlan createJoinPlan(LogicalPlan lhsPlan,
                                               LogicalPlan rhsPlan,
                                               JoinType joinType,
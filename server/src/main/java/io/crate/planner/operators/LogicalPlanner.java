@@ -372,7 +372,8 @@ public class LogicalPlanner {
                         return rel.accept(this, List.copyOf(toCollect));
                     }
                 },
-                txnCtx.sessionContext().isHashJoinEnabled()
+                txnCtx.sessionContext().isHashJoinEnabled(),
+                tableStats
             );
             return MultiPhase.createIfNeeded(
                 Eval.create(
@@ -63,6 +63,57 @@ public class SelectivityFunctions {
         return (long) (stats.numDocs() * query.accept(estimator, null));
     }
 
+    /**
+     * Estimates the fraction of the cross product of two or more relations that matches the given join condition.
+     *
+     * @param columnStats returns the statistics for a column of one of the joined relations, or null if unavailable.
+     */
+    public static double estimateJoinSelectivity(Symbol condition,
+                                                 java.util.function.Function<Symbol, ColumnStats<?>> columnStats) {
+        if (condition instanceof Literal) {
+            return condition.accept(new SelectivityEstimator(Stats.EMPTY, null), null);
+        }
+        if (!(condition instanceof Function)) {
+            return MAGIC_SEL;
+        }
+        Function function = (Function) condition;
+        switch (function.name()) {
+            case AndOperator.NAME: {
+                double selectivity = 1.0;
+                for (Symbol argument : function.arguments()) {
+                    selectivity *= estimateJoinSelectivity(argument, columnStats);
+                }
+                return selectivity;
+            }
+
+            case EqOperator.NAME: {
+                List<Symbol> arguments = function.arguments();
+                return eqJoinSelectivity(columnStats.apply(arguments.get(0)), columnStats.apply(arguments.get(1)));
+            }
+
+            default:
+                return MAGIC_SEL;
+        }
+    }
+
+    /**
+     * See `eqjoinsel_inner` in PostgreSQL `src/backend/utils/adt/selfuncs.c`, without the matching of the MCVs
+     */
+    private static double eqJoinSelectivity(@Nullable ColumnStats<?> leftStats, @Nullable ColumnStats<?> rightStats) {
+        if (leftStats == null && rightStats == null) {
+            return DEFAULT_EQ_SEL;
+        }
+        double leftDistinct = leftStats == null ? 0.0 : leftStats.approxDistinct();
+        double rightDistinct = rightStats == null ? 0.0 : rightStats.approxDistinct();
+        double maxDistinct = Math.max(leftDistinct, rightDistinct);
+        if (maxDistinct < 1.0) {
+            return DEFAULT_EQ_SEL;
+        }
+        double leftNotNull = leftStats == null ? 1.0 : 1.0 - leftStats.nullFraction();
+        double rightNotNull = rightStats == null ? 1.0 : 1.0 - rightStats.nullFraction();
+        return leftNotNull * rightNotNull / maxDistinct;
+    }
+
     static class SelectivityEstimator extends SymbolVisitor<Void, Double> {
 
         private final Stats stats;
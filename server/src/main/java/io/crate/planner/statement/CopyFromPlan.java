@@ -34,6 +34,7 @@ import io.crate.common.annotations.VisibleForTesting;
 import io.crate.common.collections.Lists2;
 import io.crate.data.Row;
 import io.crate.data.RowConsumer;
+import io.crate.exceptions.UnsupportedFeatureException;
 import io.crate.execution.dsl.phases.FileUriCollectPhase;
 import io.crate.execution.dsl.phases.NodeOperationTree;
 import io.crate.execution.dsl.projection.AbstractIndexWriterProjection;
@@ -66,6 +67,7 @@ import io.crate.planner.PlannerContext;
 import io.crate.planner.node.dql.Collect;
 import io.crate.planner.operators.SubQueryResults;
 import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.common.settings.Settings;
@@ -180,6 +182,11 @@ public final class CopyFromPlan implements Plan {
             context.nodeContext(),
             params,
             subQueryResults);
+        if (boundedCopyFrom.inputFormat() == FileUriCollectPhase.InputFormat.COLUMNAR
+            && allNodes.getMinNodeVersion().before(Version.V_4_5_0)) {
+            throw new UnsupportedFeatureException(
+                "The columnar input format requires all nodes to be on version 4.5.0 or later");
+        }
 
         /*
          * Create a plan that reads json-objects-lines from a file
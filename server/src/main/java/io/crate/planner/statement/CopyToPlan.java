@@ -64,6 +64,7 @@ import io.crate.planner.optimizer.rule.RewriteCollectToGet;
 import io.crate.sql.tree.Assignment;
 import io.crate.statistics.TableStats;
 import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.settings.Settings;
 
 import java.util.ArrayList;
@@ -140,6 +141,10 @@ public final class CopyToPlan implements Plan {
         if (outputFormat == null) {
             outputFormat = boundedCopyTo.columnsDefined() ?
                 WriterProjection.OutputFormat.JSON_ARRAY : WriterProjection.OutputFormat.JSON_OBJECT;
+        } else if (outputFormat == WriterProjection.OutputFormat.COLUMNAR
+                   && context.clusterState().nodes().getMinNodeVersion().before(Version.V_4_5_0)) {
+            throw new UnsupportedFeatureException(
+                "The columnar output format requires all nodes to be on version 4.5.0 or later");
         }
 
         WriterProjection projection = ProjectionBuilder.writerProjection(
@@ -244,7 +249,8 @@ public final class CopyToPlan implements Plan {
         WriterProjection.OutputFormat outputFormat =
             settingAsEnum(WriterProjection.OutputFormat.class, OUTPUT_FORMAT_SETTING.get(settings));
 
-        if (!columnsDefined && outputFormat == WriterProjection.OutputFormat.JSON_ARRAY) {
+        if (!columnsDefined && (outputFormat == WriterProjection.OutputFormat.JSON_ARRAY
+                                || outputFormat == WriterProjection.OutputFormat.COLUMNAR)) {
             throw new UnsupportedFeatureException("Output format not supported without specifying columns.");
         }
 
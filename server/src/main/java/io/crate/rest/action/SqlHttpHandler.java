@@ -46,9 +46,12 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.QueryStringDecoder;
 import org.apache.logging.log4j.LogManager;
@@ -57,7 +60,8 @@ import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
-import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.http.netty4.cors.Netty4CorsConfig;
 import org.elasticsearch.http.netty4.cors.Netty4CorsHandler;
 import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
@@ -109,18 +113,30 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
         if (request.uri().startsWith("/_sql")) {
-            Session session = ensureSession(request);
             Map<String, List<String>> parameters = new QueryStringDecoder(request.uri()).parameters();
+            // Chunked responses require HTTP/1.1
+            boolean stream = paramContainFlag(parameters, "stream")
+                             && !request.protocolVersion().equals(HttpVersion.HTTP_1_0);
+            // A streamed result is fetched in pages after the request has been handled,
+            // it must not be affected by the next request on the same connection
+            Session session = stream ? newSession(request) : ensureSession(request);
             ByteBuf content = request.content();
-            handleSQLRequest(session, content, paramContainFlag(parameters, "types"))
+            XContentType contentType = resultContentType(request);
+            handleSQLRequest(session, ctx, request, content, paramContainFlag(parameters, "types"), contentType, stream)
                 .whenComplete((result, t) -> {
                     try {
-                        sendResponse(session, ctx, request, parameters, result, t);
+                        // A streamed result has already been sent
+                        if (result != null || t != null) {
+                            sendResponse(session, ctx, request, parameters, result, t);
+                        }
                     } catch (Throwable ex) {
                         LOGGER.error("Error sending response", ex);
                         throw ex;
                     } finally {
                         request.release();
+                        if (stream) {
+                            session.close();
+                        }
                     }
                 });
         } else {
@@ -136,6 +152,17 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         return values != null && (values.equals(singletonList("")) || values.equals(singletonList("true")));
     }
 
+    /**
+     * @return SMILE if the client accepts it, JSON otherwise
+     */
+    private static XContentType resultContentType(FullHttpRequest request) {
+        String accept = request.headers().get(HttpHeaderNames.ACCEPT);
+        if (accept != null && accept.contains(XContentType.SMILE.mediaTypeWithoutParameters())) {
+            return XContentType.SMILE;
+        }
+        return XContentType.JSON;
+    }
+
     @Override
     public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
         if (session != null) {
@@ -188,7 +215,13 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         ctx.writeAndFlush(resp, promise);
     }
 
-    private CompletableFuture<XContentBuilder> handleSQLRequest(Session session, ByteBuf content, boolean includeTypes) {
+    private CompletableFuture<XContentBuilder> handleSQLRequest(Session session,
+                                                                ChannelHandlerContext ctx,
+                                                                FullHttpRequest request,
+                                                                ByteBuf content,
+                                                                boolean includeTypes,
+                                                                XContentType contentType,
+                                                                boolean stream) {
         SQLRequestParseContext parseContext;
         try {
             parseContext = SQLRequestParser.parseSource(Netty4Utils.toBytesReference(content));
@@ -203,9 +236,10 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         }
         try {
             if (args != null || bulkArgs == null) {
-                return executeSimpleRequest(session, parseContext.stmt(), args, includeTypes);
+                return executeSimpleRequest(
+                    session, ctx, request, parseContext.stmt(), args, includeTypes, contentType, stream);
             } else {
-                return executeBulkRequest(session, parseContext.stmt(), bulkArgs);
+                return executeBulkRequest(session, parseContext.stmt(), bulkArgs, contentType);
             }
         } catch (Throwable t) {
             return CompletableFuture.failedFuture(t);
@@ -234,43 +268,75 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         return session;
     }
 
+    private Session newSession(FullHttpRequest request) {
+        return sqlOperations.createSession(
+            request.headers().get(REQUEST_HEADER_SCHEMA),
+            userFromAuthHeader(request.headers().get(HttpHeaderNames.AUTHORIZATION))
+        );
+    }
+
     private CompletableFuture<XContentBuilder> executeSimpleRequest(Session session,
+                                                                    ChannelHandlerContext ctx,
+                                                                    FullHttpRequest request,
                                                                     String stmt,
                                                                     List<Object> args,
-                                                                    boolean includeTypes) throws IOException {
+                                                                    boolean includeTypes,
+                                                                    XContentType contentType,
+                                                                    boolean stream) throws IOException {
         long startTimeInNs = System.nanoTime();
         session.parse(UNNAMED, stmt, emptyList());
         session.bind(UNNAMED, UNNAMED, args == null ? emptyList() : args, null);
         DescribeResult description = session.describe('P', UNNAMED);
         List<Symbol> resultFields = description.getFields();
         ResultReceiver<XContentBuilder> resultReceiver;
+        int maxRows = 0;
         if (resultFields == null) {
-            resultReceiver = new RestRowCountReceiver(JsonXContent.contentBuilder(), startTimeInNs, includeTypes);
+            resultReceiver = new RestRowCountReceiver(XContentFactory.contentBuilder(contentType), startTimeInNs, includeTypes);
         } else {
             CircuitBreaker breaker = circuitBreakerProvider.apply(HierarchyCircuitBreakerService.QUERY);
             RamAccounting ramAccounting = new BlockBasedRamAccounting(
                 b -> breaker.addEstimateBytesAndMaybeBreak(b, "http-result"),
                 MAX_BLOCK_SIZE_IN_BYTES);
-            resultReceiver = new RestResultSetReceiver(
-                JsonXContent.contentBuilder(),
-                resultFields,
-                startTimeInNs,
-                new RowAccountingWithEstimators(
-                    Symbols.typeView(resultFields),
-                    ramAccounting
-                ),
-                includeTypes
+            RowAccountingWithEstimators rowAccounting = new RowAccountingWithEstimators(
+                Symbols.typeView(resultFields),
+                ramAccounting
             );
+            if (stream) {
+                maxRows = StreamingResultSetReceiver.PAGE_SIZE;
+                resultReceiver = new StreamingResultSetReceiver(
+                    ctx.channel(),
+                    streamingResponse(request, contentType),
+                    isCloseConnection(request),
+                    contentType,
+                    resultFields,
+                    startTimeInNs,
+                    rowAccounting,
+                    includeTypes,
+                    receiver -> {
+                        session.execute(UNNAMED, StreamingResultSetReceiver.PAGE_SIZE, receiver);
+                        session.sync();
+                    }
+                );
+            } else {
+                resultReceiver = new RestResultSetReceiver(
+                    XContentFactory.contentBuilder(contentType),
+                    resultFields,
+                    startTimeInNs,
+                    rowAccounting,
+                    includeTypes
+                );
+            }
             resultReceiver.completionFuture().whenComplete((result, error) -> ramAccounting.close());
         }
-        session.execute(UNNAMED, 0, resultReceiver);
+        session.execute(UNNAMED, maxRows, resultReceiver);
         return session.sync()
             .thenCompose(ignored -> resultReceiver.completionFuture());
     }
 
     private CompletableFuture<XContentBuilder> executeBulkRequest(Session session,
                                                                   String stmt,
-                                                                  List<List<Object>> bulkArgs) {
+                                                                  List<List<Object>> bulkArgs,
+                                                                  XContentType contentType) {
         final long startTimeInNs = System.nanoTime();
         session.parse(UNNAMED, stmt, emptyList());
         final RestBulkRowCountReceiver.Result[] results = new RestBulkRowCountReceiver.Result[bulkArgs.size()];
@@ -289,7 +355,7 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         return session.sync()
             .thenApply(ignored -> {
                 try {
-                    return ResultToXContentBuilder.builder(JsonXContent.contentBuilder())
+                    return ResultToXContentBuilder.builder(XContentFactory.contentBuilder(contentType))
                         .cols(emptyList())
                         .duration(startTimeInNs)
                         .bulkRows(results)
@@ -300,6 +366,14 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
             });
     }
 
+    private HttpResponse streamingResponse(FullHttpRequest request, XContentType contentType) {
+        HttpResponse response = new DefaultHttpResponse(request.protocolVersion(), HttpResponseStatus.OK);
+        response.headers().add(HttpHeaderNames.CONTENT_TYPE, contentType.mediaType());
+        HttpUtil.setTransferEncodingChunked(response, true);
+        Netty4CorsHandler.setCorsResponseHeaders(request, response, corsConfig);
+        return response;
+    }
+
     User userFromAuthHeader(@Nullable String authHeaderValue) {
         String username = Headers.extractCredentialsFromHttpBasicAuthHeader(authHeaderValue).v1();
         // Fallback to trusted user from configuration
@@ -0,0 +1,234 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.crate.action.sql.ResultReceiver;
+import io.crate.breaker.RowAccounting;
+import io.crate.data.Row;
+import io.crate.expression.symbol.Symbol;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Streams a result set as chunked HTTP response.
+ * <p>
+ * The statement is expected to be executed with {@link #PAGE_SIZE} as max rows.
+ * Each page is written as one chunk and the next page is only requested, using {@code fetchNextPage},
+ * once the chunk has been written to the client. A slow client therefore also slows down the consumption of the
+ * result and only a single page is accounted for in the circuit breaker.
+ * </p>
+ * The response status and headers are sent with the first chunk. A failure after that can't be reported
+ * using an error response anymore, so the connection is closed instead which leaves the client with an incomplete
+ * body. The completion future completes exceptionally only if nothing has been written yet.
+ */
+class StreamingResultSetReceiver implements ResultReceiver<XContentBuilder> {
+
+    private static final Logger LOGGER = LogManager.getLogger(StreamingResultSetReceiver.class);
+
+    static final int PAGE_SIZE = 1000;
+
+    private final Channel channel;
+    private final HttpResponse response;
+    private final boolean closeConnection;
+    private final List<Symbol> outputFields;
+    private final long startTimeNs;
+    private final RowAccounting<Row> rowAccounting;
+    private final Consumer<ResultReceiver<XContentBuilder>> fetchNextPage;
+    private final ChunkOutputStream out;
+    private final XContentBuilder xContentBuilder;
+    private final ResultToXContentBuilder builder;
+    private final CompletableFuture<XContentBuilder> result = new CompletableFuture<>();
+
+    private boolean responseSent = false;
+    private long rowCount;
+
+    StreamingResultSetReceiver(Channel channel,
+                               HttpResponse response,
+                               boolean closeConnection,
+                               XContentType contentType,
+                               List<Symbol> outputFields,
+                               long startTimeNs,
+                               RowAccounting<Row> rowAccounting,
+                               boolean includeTypesOnResponse,
+                               Consumer<ResultReceiver<XContentBuilder>> fetchNextPage) throws IOException {
+        this.channel = channel;
+        this.response = response;
+        this.closeConnection = closeConnection;
+        this.outputFields = outputFields;
+        this.startTimeNs = startTimeNs;
+        this.rowAccounting = rowAccounting;
+        this.fetchNextPage = fetchNextPage;
+        this.out = new ChunkOutputStream(channel);
+        this.xContentBuilder = XContentFactory.contentBuilder(contentType, out);
+        this.builder = ResultToXContentBuilder.builder(xContentBuilder);
+        this.builder.cols(outputFields);
+        if (includeTypesOnResponse) {
+            this.builder.colTypes(outputFields);
+        }
+        this.builder.startRows();
+    }
+
+    @Override
+    public void setNextRow(Row row) {
+        try {
+            rowAccounting.accountForAndMaybeBreak(row);
+            builder.addRow(row, outputFields.size());
+            rowCount++;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void batchFinished() {
+        try {
+            writeChunk(false).addListener((ChannelFutureListener) future -> {
+                if (future.isSuccess()) {
+                    rowAccounting.release();
+                    try {
+                        fetchNextPage.accept(this);
+                    } catch (Throwable t) {
+                        fail(t);
+                    }
+                } else {
+                    fail(future.cause());
+                }
+            });
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void allFinished(boolean interrupted) {
+        if (result.isDone()) {
+            // Closing the session after a failure finishes the suspended consumer
+            return;
+        }
+        try {
+            builder
+                .finishRows()
+                .rowCount(rowCount)
+                .duration(startTimeNs)
+                .build();
+            ChannelFuture future = writeChunk(true);
+            if (closeConnection) {
+                future.addListener(ChannelFutureListener.CLOSE);
+            }
+            result.complete(null);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void fail(@Nonnull Throwable t) {
+        out.release();
+        if (responseSent) {
+            LOGGER.debug("Failure after the response has been partially sent, closing the connection", t);
+            channel.close();
+            result.complete(null);
+        } else {
+            result.completeExceptionally(t);
+        }
+    }
+
+    private ChannelFuture writeChunk(boolean last) throws IOException {
+        xContentBuilder.flush();
+        if (!responseSent) {
+            channel.write(response);
+            responseSent = true;
+        }
+        ByteBuf chunk = out.takeChunk();
+        HttpContent content = last ? new DefaultLastHttpContent(chunk) : new DefaultHttpContent(chunk);
+        return channel.writeAndFlush(content);
+    }
+
+    @Override
+    public CompletableFuture<XContentBuilder> completionFuture() {
+        return result;
+    }
+
+    /**
+     * Writes into a buffer which is handed over to the channel as a whole once a chunk is complete.
+     */
+    private static final class ChunkOutputStream extends OutputStream {
+
+        private final Channel channel;
+        @Nullable
+        private ByteBuf buffer;
+
+        ChunkOutputStream(Channel channel) {
+            this.channel = channel;
+        }
+
+        private ByteBuf buffer() {
+            if (buffer == null) {
+                buffer = channel.alloc().buffer();
+            }
+            return buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer().writeByte(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            buffer().writeBytes(b, off, len);
+        }
+
+        ByteBuf takeChunk() {
+            ByteBuf chunk = buffer();
+            buffer = null;
+            return chunk;
+        }
+
+        void release() {
+            if (buffer != null) {
+                buffer.release();
+                buffer = null;
+            }
+        }
+    }
+}
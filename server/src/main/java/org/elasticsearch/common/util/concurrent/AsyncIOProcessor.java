@@ -21,6 +21,7 @@ package org.elasticsearch.common.util.concurrent;
 
 import org.apache.logging.log4j.Logger;
 import io.crate.common.collections.Tuple;
+import io.crate.common.unit.TimeValue;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -28,6 +29,8 @@ import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 /**
@@ -35,17 +38,30 @@ import java.util.function.Consumer;
  * This can be used to ensure that threads can continue with other work while the actual IO operation is still processed
  * by a single worker. A worker in this context can be any caller of the {@link #put(Object, Consumer)} method since it will
  * hijack a worker if nobody else is currently processing queued items. If the internal queue has reached it's capacity incoming threads
- * might be blocked until other items are processed
+ * might be blocked until other items are processed.
+ *
+ * If a max coalesce delay is set and the previous write processed items of concurrent callers, the worker waits up to
+ * that delay for the same number of items to be queued before processing them. This trades a small latency for fewer
+ * IO operations under concurrent load, similar to a group commit.
  */
 public abstract class AsyncIOProcessor<Item> {
 
     private final Logger logger;
     private final ArrayBlockingQueue<Tuple<Item, Consumer<Exception>>> queue;
     private final Semaphore promiseSemaphore = new Semaphore(1);
+    private final long maxCoalesceDelayNanos;
+    private volatile int lastBatchSize = 0;
+
+    private static final long COALESCE_POLL_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
 
     protected AsyncIOProcessor(Logger logger, int queueSize) {
+        this(logger, queueSize, TimeValue.ZERO);
+    }
+
+    protected AsyncIOProcessor(Logger logger, int queueSize, TimeValue maxCoalesceDelay) {
         this.logger = logger;
         this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.maxCoalesceDelayNanos = maxCoalesceDelay.nanos();
     }
 
     /**
@@ -97,11 +113,30 @@ public abstract class AsyncIOProcessor<Item> {
     }
 
     private void drainAndProcess(List<Tuple<Item, Consumer<Exception>>> candidates) {
+        awaitConcurrentItems(candidates.size());
         queue.drainTo(candidates);
+        lastBatchSize = candidates.size();
         processList(candidates);
         candidates.clear();
     }
 
+    /**
+     * Waits up to {@link #maxCoalesceDelayNanos} until as many items are available as were processed by the previous
+     * write. Without concurrent callers the previous write processed a single item and there is no wait.
+     */
+    private void awaitConcurrentItems(int numCandidates) {
+        int numExpectedQueuedItems = lastBatchSize - numCandidates;
+        if (maxCoalesceDelayNanos <= 0 || numExpectedQueuedItems <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        while (queue.size() < numExpectedQueuedItems
+               && System.nanoTime() - start < maxCoalesceDelayNanos
+               && Thread.currentThread().isInterrupted() == false) {
+            LockSupport.parkNanos(COALESCE_POLL_INTERVAL_NANOS);
+        }
+    }
+
     private void processList(List<Tuple<Item, Consumer<Exception>>> candidates) {
         Exception exception = null;
         if (candidates.isEmpty() == false) {
@@ -26,7 +26,7 @@ import org.elasticsearch.common.joda.FormatDateTimeFormatter;
 import org.elasticsearch.common.xcontent.LoggingDeprecationHandler;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
-import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.support.MapXContentParser;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.mapper.DynamicTemplate.XContentFieldType;
 import org.elasticsearch.index.mapper.KeywordFieldMapper.KeywordFieldType;
@@ -40,6 +40,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.StreamSupport;
 
 /** A parser for documents, given mappings from a DocumentMapper */
@@ -60,10 +61,8 @@ final class DocumentParser {
 
         final Mapping mapping = docMapper.mapping();
         final ParseContext.InternalParseContext context;
-        final XContentType xContentType = source.getXContentType();
 
-        try (XContentParser parser = XContentHelper.createParser(docMapperParser.getXContentRegistry(),
-            LoggingDeprecationHandler.INSTANCE, source.source(), xContentType)) {
+        try (XContentParser parser = createParser(source)) {
             context = new ParseContext.InternalParseContext(indexSettings, docMapperParser, docMapper, source, parser);
             validateStart(parser);
             internalParseDocument(mapping, metadataFieldsMappers, context, parser);
@@ -87,6 +86,19 @@ final class DocumentParser {
         );
     }
 
+    private XContentParser createParser(SourceToParse source) throws IOException {
+        Map<String, Object> sourceAsMap = source.sourceAsMap();
+        if (sourceAsMap == null) {
+            return XContentHelper.createParser(
+                docMapperParser.getXContentRegistry(),
+                LoggingDeprecationHandler.INSTANCE,
+                source.source(),
+                source.getXContentType()
+            );
+        }
+        return new MapXContentParser(docMapperParser.getXContentRegistry(), LoggingDeprecationHandler.INSTANCE, sourceAsMap);
+    }
+
     private static boolean containsDisabledObjectMapper(ObjectMapper objectMapper, String[] subfields) {
         for (int i = 0; i < subfields.length - 1; ++i) {
             Mapper mapper = objectMapper.getMapper(subfields[i]);
@@ -23,7 +23,9 @@ import javax.annotation.Nullable;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.support.MapXContentParser;
 
+import java.util.Map;
 import java.util.Objects;
 
 public class SourceToParse {
@@ -38,7 +40,20 @@ public class SourceToParse {
 
     private final XContentType xContentType;
 
-    public SourceToParse(String index, String id, BytesReference source, XContentType xContentType, @Nullable String routing) {
+    @Nullable
+    private final Map<String, Object> sourceAsMap;
+
+    /**
+     * @param sourceAsMap the already parsed source. If present, the document is parsed from the map instead of the
+     *                    source bytes. The source bytes must be the JSON representation of the map and are still stored.
+     *                    See {@link MapXContentParser#canParse(Map)}
+     */
+    public SourceToParse(String index,
+                         String id,
+                         BytesReference source,
+                         XContentType xContentType,
+                         @Nullable String routing,
+                         @Nullable Map<String, Object> sourceAsMap) {
         this.index = Objects.requireNonNull(index);
         this.id = Objects.requireNonNull(id);
         // we always convert back to byte array, since we store it and Field only supports bytes..
@@ -46,6 +61,13 @@ public class SourceToParse {
         this.source = new BytesArray(Objects.requireNonNull(source).toBytesRef());
         this.xContentType = Objects.requireNonNull(xContentType);
         this.routing = routing;
+        assert sourceAsMap == null || MapXContentParser.canParse(sourceAsMap)
+            : "sourceAsMap must only contain values supported by the MapXContentParser";
+        this.sourceAsMap = sourceAsMap;
+    }
+
+    public SourceToParse(String index, String id, BytesReference source, XContentType xContentType, @Nullable String routing) {
+        this(index, id, source, xContentType, routing, null);
     }
 
     public SourceToParse(String index, String id, BytesReference source, XContentType xContentType) {
@@ -72,6 +94,11 @@ public class SourceToParse {
         return this.xContentType;
     }
 
+    @Nullable
+    public Map<String, Object> sourceAsMap() {
+        return sourceAsMap;
+    }
+
     public enum Origin {
         PRIMARY,
         REPLICA
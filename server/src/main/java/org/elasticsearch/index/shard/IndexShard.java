@@ -2932,7 +2932,13 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return indexShardOperationPermits.getActiveOperations();
     }
 
-    private final AsyncIOProcessor<Translog.Location> translogSyncProcessor = new AsyncIOProcessor<Translog.Location>(logger, 1024) {
+    /**
+     * Maximum time a sync waits for concurrent write operations to join it, so that a single fsync covers all of them.
+     */
+    private static final TimeValue TRANSLOG_SYNC_MAX_COALESCE_DELAY = TimeValue.timeValueMillis(1);
+
+    private final AsyncIOProcessor<Translog.Location> translogSyncProcessor =
+        new AsyncIOProcessor<Translog.Location>(logger, 1024, TRANSLOG_SYNC_MAX_COALESCE_DELAY) {
         @Override
         protected void write(List<Tuple<Translog.Location, Consumer<Exception>>> candidates) throws IOException {
             try {
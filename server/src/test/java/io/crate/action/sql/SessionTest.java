@@ -28,15 +28,23 @@ import io.crate.analyze.Relations;
 import io.crate.analyze.TableDefinitions;
 import io.crate.auth.AccessControl;
 import io.crate.data.Row;
+import io.crate.data.Row1;
 import io.crate.data.RowConsumer;
+import io.crate.execution.dsl.phases.NodeOperation;
+import io.crate.execution.dsl.phases.NodeOperationTree;
+import io.crate.execution.dsl.phases.RoutedCollectPhase;
 import io.crate.execution.engine.collect.stats.JobsLogs;
 import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.ParameterSymbol;
 import io.crate.expression.symbol.Symbol;
+import io.crate.metadata.PartitionName;
+import io.crate.metadata.RelationName;
 import io.crate.planner.DependencyCarrier;
 import io.crate.planner.Plan;
 import io.crate.planner.Planner;
 import io.crate.planner.PlannerContext;
+import io.crate.planner.operators.LogicalPlan;
+import io.crate.planner.operators.LogicalPlanner;
 import io.crate.planner.operators.SubQueryResults;
 import io.crate.protocols.postgres.Portal;
 import io.crate.sql.parser.SqlParser;
@@ -44,6 +52,13 @@ import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SQLExecutor;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodeRole;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.test.ClusterServiceUtils;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.hamcrest.Matchers;
 import org.junit.Test;
@@ -54,7 +69,10 @@ import org.mockito.stubbing.Answer;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -595,4 +613,184 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
         DataType[] parameterTypes = typeExtractor.getParameterTypes(stmt::visitSymbols);
         assertThat(parameterTypes, arrayContaining(DataTypes.STRING));
     }
+
+    @Test
+    public void test_prepared_select_statements_are_shared_through_plan_cache_until_metadata_changes() {
+        SQLExecutor sqlExecutor = SQLExecutor.builder(clusterService).build();
+        PlanCache planCache = new PlanCache(10);
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            sessions.add(new Session(
+                sqlExecutor.nodeCtx,
+                sqlExecutor.analyzer,
+                sqlExecutor.planner,
+                new JobsLogs(() -> false),
+                false,
+                mock(DependencyCarrier.class),
+                AccessControl.DISABLED,
+                SessionContext.systemSessionContext(),
+                planCache));
+        }
+        String stmt = "select name from sys.cluster where name = ?";
+        sessions.get(0).parse("S_1", stmt, List.of());
+        sessions.get(1).parse("S_1", stmt, List.of());
+
+        AnalyzedStatement analyzedStatement = sessions.get(0).preparedStatements.get("S_1").analyzedStatement();
+        assertThat(planCache.size(), is(1));
+        assertThat(
+            sessions.get(1).preparedStatements.get("S_1").analyzedStatement(),
+            Matchers.sameInstance(analyzedStatement));
+        assertThat(sessions.get(1).getParamType("S_1", 0), is(DataTypes.STRING));
+
+        var metadata = clusterService.state().metadata();
+        ClusterServiceUtils.setState(
+            clusterService,
+            ClusterState.builder(clusterService.state())
+                .metadata(Metadata.builder(metadata).version(metadata.version() + 1)));
+
+        sessions.get(1).parse("S_2", stmt, List.of());
+        assertThat(
+            sessions.get(1).preparedStatements.get("S_2").analyzedStatement(),
+            Matchers.not(Matchers.sameInstance(analyzedStatement)));
+    }
+
+    @Test
+    public void test_plan_cache_entries_are_invalidated_by_table_stats_updates_and_node_version_changes() {
+        SQLExecutor sqlExecutor = SQLExecutor.builder(clusterService).build();
+        PlanCache planCache = new PlanCache(10);
+        Session session = new Session(
+            sqlExecutor.nodeCtx,
+            sqlExecutor.analyzer,
+            sqlExecutor.planner,
+            new JobsLogs(() -> false),
+            false,
+            mock(DependencyCarrier.class),
+            AccessControl.DISABLED,
+            SessionContext.systemSessionContext(),
+            planCache);
+        String stmt = "select name from sys.cluster where name = ?";
+        session.parse("S_1", stmt, List.of());
+        AnalyzedStatement analyzedStatement = session.preparedStatements.get("S_1").analyzedStatement();
+
+        session.parse("S_2", stmt, List.of());
+        assertThat(
+            session.preparedStatements.get("S_2").analyzedStatement(),
+            Matchers.sameInstance(analyzedStatement));
+
+        sqlExecutor.planner.tableStats().updateTableStats(Map.of());
+        session.parse("S_3", stmt, List.of());
+        analyzedStatement = session.preparedStatements.get("S_3").analyzedStatement();
+        assertThat(
+            analyzedStatement,
+            Matchers.not(Matchers.sameInstance(session.preparedStatements.get("S_2").analyzedStatement())));
+
+        ClusterState state = clusterService.state();
+        ClusterServiceUtils.setState(
+            clusterService,
+            ClusterState.builder(state)
+                .nodes(DiscoveryNodes.builder(state.nodes())
+                    .add(new DiscoveryNode(
+                        "n2",
+                        "n2",
+                        buildNewFakeTransportAddress(),
+                        Map.of(),
+                        DiscoveryNodeRole.BUILT_IN_ROLES,
+                        Version.V_4_4_0))));
+        session.parse("S_4", stmt, List.of());
+        assertThat(
+            session.preparedStatements.get("S_4").analyzedStatement(),
+            Matchers.not(Matchers.sameInstance(analyzedStatement)));
+    }
+
+    @Test
+    public void test_cached_plan_is_not_changed_by_executing_it_with_parameters() throws Exception {
+        RelationName partedPks = new RelationName("doc", "parted_pks");
+        String firstPartition = new PartitionName(partedPks, List.of("1395874800000")).asIndexName();
+        String secondPartition = new PartitionName(partedPks, List.of("1395961200000")).asIndexName();
+        SQLExecutor sqlExecutor = SQLExecutor.builder(clusterService)
+            .addPartitionedTable(TableDefinitions.PARTED_PKS_TABLE_DEFINITION, firstPartition, secondPartition)
+            .build();
+        PlanCache planCache = new PlanCache(10);
+        DependencyCarrier executor = mock(DependencyCarrier.class, Answers.RETURNS_MOCKS);
+        SessionContext sessionContext = SessionContext.systemSessionContext();
+        Session session = new Session(
+            sqlExecutor.nodeCtx,
+            sqlExecutor.analyzer,
+            sqlExecutor.planner,
+            new JobsLogs(() -> false),
+            false,
+            executor,
+            AccessControl.DISABLED,
+            sessionContext,
+            planCache);
+
+        String stmt = "select id from doc.parted_pks where date = ?";
+        session.quickExec(stmt, new BaseResultReceiver(), new Row1(1395874800000L));
+        session.quickExec(stmt, new BaseResultReceiver(), new Row1(1395961200000L));
+
+        PlanCache.Entry entry = planCache.get(
+            planCache.key(stmt, List.of(), sessionContext),
+            PlanCache.StateVersion.of(clusterService.state(), sqlExecutor.planner.tableStats()));
+        assertThat(entry.plan, Matchers.notNullValue());
+        LogicalPlan plan = (LogicalPlan) entry.plan;
+        assertThat(
+            collectedIndices(sqlExecutor, plan, new Row1(1395874800000L)),
+            Matchers.contains(firstPartition));
+        assertThat(
+            collectedIndices(sqlExecutor, plan, new Row1(1395961200000L)),
+            Matchers.contains(secondPartition));
+    }
+
+    @Test
+    public void test_plan_of_statement_with_non_deterministic_function_is_not_cached() throws Exception {
+        SQLExecutor sqlExecutor = SQLExecutor.builder(clusterService)
+            .addTable("create table doc.events (id int primary key, ts timestamp with time zone)")
+            .build();
+        PlanCache planCache = new PlanCache(10);
+        DependencyCarrier executor = mock(DependencyCarrier.class, Answers.RETURNS_MOCKS);
+        SessionContext sessionContext = SessionContext.systemSessionContext();
+        Session session = new Session(
+            sqlExecutor.nodeCtx,
+            sqlExecutor.analyzer,
+            sqlExecutor.planner,
+            new JobsLogs(() -> false),
+            false,
+            executor,
+            AccessControl.DISABLED,
+            sessionContext,
+            planCache);
+
+        String stmt = "select id from doc.events where id = ? and ts > now() - interval '1 hour'";
+        session.quickExec(stmt, new BaseResultReceiver(), new Row1(1));
+        PlanCache.Key key = planCache.key(stmt, List.of(), sessionContext);
+        var stateVersion = PlanCache.StateVersion.of(clusterService.state(), sqlExecutor.planner.tableStats());
+        PlanCache.Entry entry = planCache.get(key, stateVersion);
+        assertThat(entry, Matchers.notNullValue());
+        assertThat(entry.plan, Matchers.nullValue());
+
+        session.quickExec(stmt, new BaseResultReceiver(), new Row1(2));
+        PlanCache.Entry secondEntry = planCache.get(key, stateVersion);
+        assertThat(secondEntry.analyzedStatement, Matchers.sameInstance(entry.analyzedStatement));
+        assertThat(secondEntry.plan, Matchers.nullValue());
+    }
+
+    private Set<String> collectedIndices(SQLExecutor sqlExecutor, LogicalPlan plan, Row params) {
+        NodeOperationTree nodeOperationTree = LogicalPlanner.getNodeOperationTree(
+            plan,
+            mock(DependencyCarrier.class),
+            sqlExecutor.getPlannerContext(clusterService.state()),
+            params,
+            SubQueryResults.EMPTY
+        );
+        Set<String> indices = new HashSet<>();
+        for (NodeOperation nodeOperation : nodeOperationTree.nodeOperations()) {
+            if (nodeOperation.executionPhase() instanceof RoutedCollectPhase) {
+                RoutedCollectPhase collectPhase = (RoutedCollectPhase) nodeOperation.executionPhase();
+                for (var indicesByNode : collectPhase.routing().locations().values()) {
+                    indices.addAll(indicesByNode.keySet());
+                }
+            }
+        }
+        return indices;
+    }
 }
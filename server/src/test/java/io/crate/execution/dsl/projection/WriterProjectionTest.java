@@ -25,6 +25,8 @@ import io.crate.expression.symbol.InputColumn;
 import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.Symbol;
 import io.crate.metadata.ColumnIdent;
+import io.crate.testing.Asserts;
+import org.elasticsearch.Version;
 import org.elasticsearch.test.ESTestCase;
 import io.crate.common.collections.MapBuilder;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
@@ -32,6 +34,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.Map;
 
 public class WriterProjectionTest extends ESTestCase {
 
@@ -55,4 +58,28 @@ public class WriterProjectionTest extends ESTestCase {
 
         assertEquals(p, p2);
     }
+
+    @Test
+    public void test_columnar_output_format_cannot_be_streamed_to_nodes_before_4_5() throws Exception {
+        WriterProjection p = new WriterProjection(
+            List.of(new InputColumn(0)),
+            Literal.of("/foo"),
+            null,
+            Map.of(),
+            List.of("foo"),
+            WriterProjection.OutputFormat.COLUMNAR
+        );
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(Version.V_4_4_0);
+        Asserts.assertThrows(
+            () -> Projection.toStream(p, out),
+            UnsupportedOperationException.class,
+            "The columnar output format is not supported by nodes before version 4.5.0"
+        );
+
+        BytesStreamOutput currentOut = new BytesStreamOutput();
+        Projection.toStream(p, currentOut);
+        assertEquals(p, Projection.fromStream(currentOut.bytes().streamInput()));
+    }
 }
@@ -0,0 +1,333 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.breaker.ConcurrentRamAccounting;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.CollectionBucket;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Row;
+import io.crate.execution.engine.aggregation.impl.CountAggregation;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.expression.InputFactory;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.expression.symbol.Aggregation;
+import io.crate.expression.symbol.InputColumn;
+import io.crate.expression.symbol.Symbol;
+import io.crate.memory.MemoryManager;
+import io.crate.memory.OffHeapMemoryManager;
+import io.crate.memory.OnHeapMemoryManager;
+import io.crate.metadata.CoordinatorTxnCtx;
+import io.crate.metadata.functions.Signature;
+import io.crate.testing.TestingRowConsumer;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static io.crate.data.SentinelRow.SENTINEL;
+import static io.crate.testing.TestingHelpers.createNodeContext;
+import static io.crate.testing.TestingHelpers.isRow;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+public class GroupingProjectorTest extends ESTestCase {
+
+    private static final Signature AVG_SIGNATURE = Signature.aggregate(
+        "avg",
+        DataTypes.INTEGER.getTypeSignature(),
+        DataTypes.DOUBLE.getTypeSignature()
+    );
+
+    private final InputFactory inputFactory = new InputFactory(createNodeContext());
+
+    private GroupingProjector createProjector(List<Symbol> keys,
+                                              @Nullable Path spillDirectory,
+                                              long spillThresholdInBytes) {
+        List<Aggregation> aggregations = List.of(
+            new Aggregation(AVG_SIGNATURE, DataTypes.DOUBLE, List.of(new InputColumn(1, DataTypes.INTEGER))),
+            new Aggregation(CountAggregation.SIGNATURE, DataTypes.LONG, List.of(new InputColumn(0, DataTypes.STRING)))
+        );
+        return createProjector(keys, aggregations, new OnHeapMemoryManager(usedBytes -> {}), spillDirectory, spillThresholdInBytes);
+    }
+
+    private GroupingProjector createProjector(List<Symbol> keys,
+                                              List<Aggregation> aggregations,
+                                              MemoryManager memoryManager,
+                                              @Nullable Path spillDirectory,
+                                              long spillThresholdInBytes) {
+        return createProjector(
+            keys, aggregations, RamAccounting.NO_ACCOUNTING, memoryManager, spillDirectory, spillThresholdInBytes);
+    }
+
+    private GroupingProjector createProjector(List<Symbol> keys,
+                                              List<Aggregation> aggregations,
+                                              RamAccounting ramAccounting,
+                                              MemoryManager memoryManager,
+                                              @Nullable Path spillDirectory,
+                                              long spillThresholdInBytes) {
+        InputFactory.Context<CollectExpression<Row, ?>> ctx =
+            inputFactory.ctxForAggregations(CoordinatorTxnCtx.systemTransactionContext());
+        ctx.add(keys);
+        ctx.add(aggregations);
+        return new GroupingProjector(
+            keys,
+            ctx.topLevelInputs(),
+            ctx.expressions().toArray(new CollectExpression[0]),
+            AggregateMode.ITER_FINAL,
+            ctx.aggregations().toArray(new AggregationContext[0]),
+            ramAccounting,
+            memoryManager,
+            Version.CURRENT,
+            Version.CURRENT,
+            spillDirectory,
+            spillThresholdInBytes
+        );
+    }
+
+    private static BatchIterator<Row> source() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rows.add(new Object[] { "race" + (i % 10), i % 10, "gender" + (i % 2) });
+        }
+        return InMemoryBatchIterator.of(new CollectionBucket(rows), SENTINEL, true);
+    }
+
+    private static List<Object[]> execute(GroupingProjector projector) throws Exception {
+        return execute(projector, source());
+    }
+
+    private static List<Object[]> execute(GroupingProjector projector, BatchIterator<Row> source) throws Exception {
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(projector.apply(source), null);
+        return consumer.getResult();
+    }
+
+    private static long numFiles(Path directory) throws Exception {
+        if (Files.exists(directory) == false) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void test_single_key_group_by_spills_and_merges_partitions() throws Exception {
+        Path spillDirectory = createTempDir().resolve("spill");
+        List<Symbol> keys = List.of(new InputColumn(0, DataTypes.STRING));
+        List<Object[]> expected = execute(createProjector(keys, null, 0L));
+        List<Object[]> result = execute(createProjector(keys, spillDirectory, 0L));
+
+        assertThat(result.size(), is(10));
+        assertThat(result, containsInAnyOrder(expected.toArray()));
+        assertThat(numFiles(spillDirectory), is(0L));
+    }
+
+    @Test
+    public void test_many_keys_group_by_spills_and_merges_partitions() throws Exception {
+        Path spillDirectory = createTempDir().resolve("spill");
+        List<Symbol> keys = List.of(new InputColumn(0, DataTypes.STRING), new InputColumn(2, DataTypes.STRING));
+        GroupingProjector projector = createProjector(keys, spillDirectory, 0L);
+        List<Object[]> result = execute(projector);
+
+        assertThat(result.size(), is(10));
+        assertThat(result.get(0).length, is(4));
+        assertThat(numFiles(spillDirectory), is(0L));
+    }
+
+    @Test
+    public void test_group_by_on_fixed_width_keys_uses_packed_keys() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Integer tenant = i % 10 == 0 ? null : -(i % 7);
+            rows.add(new Object[] { tenant, i, (long) (i % 3) });
+        }
+        List<Symbol> keys = List.of(new InputColumn(0, DataTypes.INTEGER), new InputColumn(2, DataTypes.LONG));
+        List<Aggregation> aggregations = List.of(
+            new Aggregation(CountAggregation.SIGNATURE, DataTypes.LONG, List.of(new InputColumn(1, DataTypes.INTEGER)))
+        );
+        Map<List<Object>, Long> expected = new HashMap<>();
+        for (Object[] row : rows) {
+            expected.merge(Arrays.asList(row[0], row[2]), 1L, Long::sum);
+        }
+
+        Path spillDirectory = createTempDir().resolve("spill");
+        for (long spillThreshold : new long[] { Long.MAX_VALUE, 0L }) {
+            GroupingProjector projector = createProjector(
+                keys, aggregations, new OnHeapMemoryManager(usedBytes -> {}), spillDirectory, spillThreshold);
+            List<Object[]> result = execute(projector, InMemoryBatchIterator.of(new CollectionBucket(rows), SENTINEL, true));
+
+            Map<List<Object>, Long> actual = new HashMap<>();
+            for (Object[] row : result) {
+                actual.put(Arrays.asList(row[0], row[1]), (Long) row[2]);
+            }
+            assertThat(actual, is(expected));
+        }
+    }
+
+    @Test
+    public void test_group_by_does_not_spill_below_threshold() throws Exception {
+        Path spillDirectory = createTempDir().resolve("spill");
+        List<Symbol> keys = List.of(new InputColumn(1, DataTypes.INTEGER));
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(createProjector(keys, spillDirectory, Long.MAX_VALUE).apply(source()), null);
+        assertThat(consumer.getBucket(), containsInAnyOrder(
+            isRow(0, 0.0, 10L),
+            isRow(1, 1.0, 10L),
+            isRow(2, 2.0, 10L),
+            isRow(3, 3.0, 10L),
+            isRow(4, 4.0, 10L),
+            isRow(5, 5.0, 10L),
+            isRow(6, 6.0, 10L),
+            isRow(7, 7.0, 10L),
+            isRow(8, 8.0, 10L),
+            isRow(9, 9.0, 10L)
+        ));
+        assertThat(Files.exists(spillDirectory), is(false));
+    }
+
+    @Test
+    public void test_spilling_only_considers_and_releases_memory_of_the_groups() throws Exception {
+        List<Symbol> keys = List.of(new InputColumn(0, DataTypes.STRING));
+        List<Aggregation> aggregations = List.of(
+            new Aggregation(CountAggregation.SIGNATURE, DataTypes.LONG, List.of(new InputColumn(0, DataTypes.STRING)))
+        );
+        // memory accounted by other operations of the phase
+        long otherBytes = 2_000_000L;
+        ConcurrentRamAccounting phaseAccounting = new ConcurrentRamAccounting(bytes -> {}, bytes -> {});
+        phaseAccounting.addBytes(otherBytes);
+
+        Path spillDirectory = createTempDir().resolve("spill");
+        GroupingProjector projector = createProjector(
+            keys, aggregations, phaseAccounting, new OnHeapMemoryManager(usedBytes -> {}), spillDirectory, 1_000_000L);
+        assertThat(execute(projector).size(), is(10));
+        assertThat(Files.exists(spillDirectory), is(false));
+        assertThat(phaseAccounting.totalBytes(), is(otherBytes));
+
+        projector = createProjector(
+            keys, aggregations, phaseAccounting, new OnHeapMemoryManager(usedBytes -> {}), spillDirectory, 0L);
+        assertThat(execute(projector).size(), is(10));
+        assertThat(Files.exists(spillDirectory), is(true));
+        assertThat(phaseAccounting.totalBytes(), is(otherBytes));
+    }
+
+    @Test
+    public void test_group_by_integral_key_with_fixed_width_aggregations_uses_pages() throws Exception {
+        // key, double value, long value
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            Long key = i % 97 == 0 ? null : (long) (i % 5_000);
+            Double doubleValue = i % 11 == 0 ? null : (double) (i % 13);
+            rows.add(new Object[] { key, doubleValue, (long) i });
+        }
+        List<Symbol> keys = List.of(new InputColumn(0, DataTypes.LONG));
+        InputColumn doubleValue = new InputColumn(1, DataTypes.DOUBLE);
+        InputColumn longValue = new InputColumn(2, DataTypes.LONG);
+        List<Aggregation> aggregations = List.of(
+            aggregation("sum", doubleValue, DataTypes.DOUBLE),
+            aggregation("sum", longValue, DataTypes.LONG),
+            new Aggregation(CountAggregation.SIGNATURE, DataTypes.LONG, List.of(doubleValue)),
+            aggregation("min", doubleValue, DataTypes.DOUBLE),
+            aggregation("max", longValue, DataTypes.LONG),
+            aggregation("avg", doubleValue, DataTypes.DOUBLE),
+            aggregation("variance", doubleValue, DataTypes.DOUBLE),
+            aggregation("stddev", longValue, DataTypes.DOUBLE)
+        );
+
+        GroupingProjector mapBased = createProjector(
+            keys, aggregations, new OnHeapMemoryManager(usedBytes -> {}), createTempDir(), Long.MAX_VALUE);
+        assertThat(mapBased.getCollector(), instanceOf(GroupingCollector.class));
+        List<Object[]> expected = execute(mapBased, InMemoryBatchIterator.of(new CollectionBucket(rows), SENTINEL, true));
+
+        for (MemoryManager memoryManager : List.of(new OnHeapMemoryManager(usedBytes -> {}), new OffHeapMemoryManager())) {
+            try (memoryManager) {
+                GroupingProjector paged = createProjector(keys, aggregations, memoryManager, null, Long.MAX_VALUE);
+                assertThat(paged.getCollector(), instanceOf(PagedGroupingCollector.class));
+                List<Object[]> result = execute(paged, InMemoryBatchIterator.of(new CollectionBucket(rows), SENTINEL, true));
+                assertThat(result.size(), is(5_001));
+                assertThat(result, containsInAnyOrder(expected.toArray()));
+            }
+        }
+    }
+
+    @Test
+    public void test_paged_group_by_only_accounts_for_the_current_hash_table() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        int numGroups = 100_000;
+        for (int i = 0; i < numGroups; i++) {
+            rows.add(new Object[] { (long) i });
+        }
+        InputColumn key = new InputColumn(0, DataTypes.LONG);
+        ConcurrentRamAccounting ramAccounting = new ConcurrentRamAccounting(bytes -> {}, bytes -> {});
+        GroupingProjector projector = createProjector(
+            List.of(key),
+            List.of(new Aggregation(CountAggregation.SIGNATURE, DataTypes.LONG, List.of(key))),
+            ramAccounting,
+            new OnHeapMemoryManager(usedBytes -> {}),
+            null,
+            Long.MAX_VALUE
+        );
+        assertThat(projector.getCollector(), instanceOf(PagedGroupingCollector.class));
+        assertThat(execute(projector, InMemoryBatchIterator.of(new CollectionBucket(rows), SENTINEL, true)).size(),
+                   is(numGroups));
+
+        // 100_000 groups with a load factor of 0.75 fit into a table of 2^18 buckets
+        assertThat(ramAccounting.totalBytes(), is((long) Integer.BYTES * (1 << 18)));
+    }
+
+    @Test
+    public void test_group_by_on_aggregation_without_fixed_width_state_uses_map() {
+        InputColumn stringValue = new InputColumn(1, DataTypes.STRING);
+        GroupingProjector projector = createProjector(
+            List.of(new InputColumn(0, DataTypes.INTEGER)),
+            List.of(aggregation("max", stringValue, DataTypes.STRING)),
+            new OnHeapMemoryManager(usedBytes -> {}),
+            null,
+            Long.MAX_VALUE
+        );
+        assertThat(projector.getCollector(), instanceOf(GroupingCollector.class));
+    }
+
+    private static Aggregation aggregation(String name, Symbol argument, DataType<?> returnType) {
+        Signature signature = Signature.aggregate(
+            name,
+            argument.valueType().getTypeSignature(),
+            returnType.getTypeSignature()
+        );
+        return new Aggregation(signature, returnType, List.of(argument));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.data.Input;
+import io.crate.data.RowN;
+import io.crate.types.DataTypes;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+public class PackedKeyTest extends ESTestCase {
+
+    private static List<Input<?>> inputs(Object... values) {
+        List<Input<?>> inputs = new ArrayList<>(values.length);
+        for (Object value : values) {
+            inputs.add(() -> value);
+        }
+        return inputs;
+    }
+
+    @Test
+    public void test_layout_is_null_for_variable_width_types() {
+        assertThat(PackedKey.Layout.create(List.of(DataTypes.INTEGER, DataTypes.STRING)), nullValue());
+    }
+
+    @Test
+    public void test_encode_and_decode_round_trip() {
+        var layout = PackedKey.Layout.create(List.of(
+            DataTypes.INTEGER,
+            DataTypes.SHORT,
+            DataTypes.TIMESTAMPZ,
+            DataTypes.BYTE,
+            DataTypes.DOUBLE,
+            DataTypes.FLOAT,
+            DataTypes.BOOLEAN
+        ));
+        Object[] values = new Object[] { -42, (short) -3, 1_600_000_000_000L, (byte) 127, -1.5d, 0.25f, true };
+        PackedKey key = layout.encode(layout.newKey(), inputs(values));
+
+        Object[] cells = new Object[values.length];
+        layout.decode(key, cells);
+        assertThat(cells, is(values));
+    }
+
+    @Test
+    public void test_null_values_are_distinct_from_zero() {
+        var layout = PackedKey.Layout.create(List.of(DataTypes.INTEGER, DataTypes.INTEGER));
+        PackedKey withNull = layout.encode(layout.newKey(), inputs(1, null)).copy();
+        PackedKey withZero = layout.encode(layout.newKey(), inputs(1, 0));
+
+        assertThat(withNull, not(withZero));
+        Object[] cells = new Object[2];
+        layout.decode(withNull, cells);
+        assertThat(cells, is(new Object[] { 1, null }));
+    }
+
+    @Test
+    public void test_re_encoded_key_equals_key_created_from_row() {
+        var layout = PackedKey.Layout.create(List.of(DataTypes.LONG, DataTypes.INTEGER));
+        PackedKey lookupKey = layout.newKey();
+        layout.encode(lookupKey, inputs(10L, 20));
+        layout.encode(lookupKey, inputs(-7L, Integer.MIN_VALUE));
+
+        PackedKey fromRow = layout.fromRow(new RowN(-7L, Integer.MIN_VALUE, "ignored"));
+        assertThat(lookupKey, is(fromRow));
+        assertThat(lookupKey.hashCode(), is(fromRow.hashCode()));
+        assertThat(lookupKey.copy(), is(fromRow));
+    }
+}
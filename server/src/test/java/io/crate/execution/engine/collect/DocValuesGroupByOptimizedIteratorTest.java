@@ -64,6 +64,7 @@ import java.util.function.Consumer;
 import static io.crate.testing.TestingHelpers.createNodeContext;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
 
 public class DocValuesGroupByOptimizedIteratorTest extends CrateDummyClusterServiceUnitTest {
 
@@ -192,6 +193,85 @@ public class DocValuesGroupByOptimizedIteratorTest extends CrateDummyClusterServ
         );
     }
 
+    @Test
+    public void test_group_by_segment_keys_merges_groups_across_segments() throws Exception {
+        var indexWriter = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig());
+        Object[][] segments = new Object[][]{
+            {"b", 1L, 1L, "a", 2L, 2L},
+            {"a", 2L, 3L, "b", 1L, 4L, "c", 1L, 5L}
+        };
+        for (Object[] segment : segments) {
+            for (int i = 0; i < segment.length; i += 3) {
+                Document doc = new Document();
+                doc.add(new SortedSetDocValuesField("x", BytesRefs.toBytesRef(segment[i])));
+                doc.add(new NumericDocValuesField("y", (Long) segment[i + 1]));
+                doc.add(new NumericDocValuesField("z", (Long) segment[i + 2]));
+                indexWriter.addDocument(doc);
+            }
+            indexWriter.commit();
+        }
+        // document without key values is grouped as null
+        Document doc = new Document();
+        doc.add(new NumericDocValuesField("z", 6L));
+        indexWriter.addDocument(doc);
+        indexWriter.commit();
+        var searcher = new IndexSearcher(DirectoryReader.open(indexWriter));
+        assertThat(searcher.getIndexReader().leaves().size(), is(3));
+
+        SumAggregation<?> sumAggregation = (SumAggregation<?>) functions.getQualified(
+            Signature.aggregate(
+                SumAggregation.NAME,
+                DataTypes.LONG.getTypeSignature(),
+                DataTypes.LONG.getTypeSignature()
+            ),
+            List.of(DataTypes.LONG),
+            DataTypes.LONG
+        );
+        var aggregationField = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+        aggregationField.setName("z");
+        var sumDocValuesAggregator = sumAggregation.getDocValueAggregator(
+            List.of(DataTypes.LONG),
+            List.of(aggregationField)
+        );
+        List<Reference> keyRefs = List.of(
+            new Reference(
+                new ReferenceIdent(RelationName.fromIndexName("test"), "x"),
+                RowGranularity.DOC,
+                DataTypes.STRING,
+                null,
+                null
+            ),
+            new Reference(
+                new ReferenceIdent(RelationName.fromIndexName("test"), "y"),
+                RowGranularity.DOC,
+                DataTypes.LONG,
+                null,
+                null
+            )
+        );
+
+        var it = DocValuesGroupByOptimizedIterator.GroupByIterator.forSegmentKeys(
+            List.of(sumDocValuesAggregator),
+            searcher,
+            keyRefs,
+            SegmentGroupKeys.create(keyRefs),
+            RamAccounting.NO_ACCOUNTING,
+            new MatchAllDocsQuery()
+        );
+
+        var rowConsumer = new TestingRowConsumer();
+        rowConsumer.accept(it, null);
+        assertThat(
+            rowConsumer.getResult(),
+            containsInAnyOrder(
+                new Object[]{"a", 2L, 5L},
+                new Object[]{"b", 1L, 5L},
+                new Object[]{"c", 1L, 5L},
+                new Object[]{null, null, 6L}
+            )
+        );
+    }
+
     @Test
     public void test_optimized_iterator_stop_processing_on_kill() throws Exception {
         Throwable expectedException = stopOnInterrupting(it -> it.kill(new InterruptedException("killed")));
@@ -31,8 +31,13 @@ import io.crate.expression.symbol.Literal;
 import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.CoordinatorTxnCtx;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
+import io.crate.testing.Asserts;
 import io.crate.testing.TestingRowConsumer;
 import io.crate.types.DataTypes;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.hamcrest.Matcher;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -42,8 +47,10 @@ import java.io.FileOutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -51,7 +58,9 @@ import static io.crate.testing.TestingHelpers.createNodeContext;
 import static io.crate.testing.TestingHelpers.createReference;
 import static io.crate.testing.TestingHelpers.isRow;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 
 public class MapSideDataCollectOperationTest extends CrateDummyClusterServiceUnitTest {
@@ -61,7 +70,7 @@ public class MapSideDataCollectOperationTest extends CrateDummyClusterServiceUni
 
     @Test
     public void testFileUriCollect() throws Exception {
-        FileCollectSource fileCollectSource = new FileCollectSource(createNodeContext(), clusterService, Collections.emptyMap());
+        FileCollectSource fileCollectSource = new FileCollectSource(createNodeContext(), clusterService, Collections.emptyMap(), THREAD_POOL);
 
         File tmpFile = temporaryFolder.newFile("fileUriCollectOperation.json");
         try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
@@ -95,4 +104,83 @@ public class MapSideDataCollectOperationTest extends CrateDummyClusterServiceUni
             isRow("Trillian", 33)
         ));
     }
+
+    @Test
+    public void test_file_uri_collect_reads_ranges_concurrently() throws Exception {
+        ClusterService clusterServiceWithProcessors = mock(ClusterService.class);
+        when(clusterServiceWithProcessors.getSettings())
+            .thenReturn(Settings.builder().put(EsExecutors.PROCESSORS_SETTING.getKey(), 4).build());
+        when(clusterServiceWithProcessors.state()).thenReturn(clusterService.state());
+        FileCollectSource fileCollectSource = new FileCollectSource(
+            createNodeContext(), clusterServiceWithProcessors, Collections.emptyMap(), THREAD_POOL);
+
+        File tmpFile = temporaryFolder.newFile("fileUriCollectOperation.json");
+        List<Matcher<? super Row>> expectedRows = new ArrayList<>();
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < 2500; i++) {
+                writer.write("{\"name\": \"Arthur\", \"id\": " + i + "}\n");
+                expectedRows.add(isRow("Arthur", i));
+            }
+        }
+        FileUriCollectPhase collectPhase = new FileUriCollectPhase(
+            UUID.randomUUID(),
+            0,
+            "test",
+            Collections.singletonList("noop_id"),
+            Literal.of(Paths.get(tmpFile.toURI()).toUri().toString()),
+            Arrays.asList(
+                createReference("name", DataTypes.STRING),
+                createReference("id", DataTypes.INTEGER)
+            ),
+            Collections.emptyList(),
+            null,
+            false,
+            CopyFromParserProperties.DEFAULT,
+            FileUriCollectPhase.InputFormat.JSON
+        );
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        BatchIterator<Row> iterator = fileCollectSource.getIterator(
+            CoordinatorTxnCtx.systemTransactionContext(), collectPhase, mock(CollectTask.class), false).get(5, TimeUnit.SECONDS);
+        consumer.accept(iterator, null);
+        assertThat(new CollectionBucket(consumer.getResult()), containsInAnyOrder(expectedRows));
+    }
+
+    @Test
+    public void test_failure_while_reading_ranges_concurrently_fails_the_collect() throws Exception {
+        ClusterService clusterServiceWithProcessors = mock(ClusterService.class);
+        when(clusterServiceWithProcessors.getSettings())
+            .thenReturn(Settings.builder().put(EsExecutors.PROCESSORS_SETTING.getKey(), 4).build());
+        when(clusterServiceWithProcessors.state()).thenReturn(clusterService.state());
+        FileCollectSource fileCollectSource = new FileCollectSource(
+            createNodeContext(), clusterServiceWithProcessors, Collections.emptyMap(), THREAD_POOL);
+
+        File tmpFile = temporaryFolder.newFile("fileUriCollectOperation.csv");
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
+            writer.write("name,id\n");
+            writer.write("Arthur,1\n");
+            writer.write("Trillian,2,too,many,values\n");
+        }
+        FileUriCollectPhase collectPhase = new FileUriCollectPhase(
+            UUID.randomUUID(),
+            0,
+            "test",
+            Collections.singletonList("noop_id"),
+            Literal.of(Paths.get(tmpFile.toURI()).toUri().toString()),
+            List.of(createReference("name", DataTypes.STRING)),
+            Collections.emptyList(),
+            null,
+            false,
+            CopyFromParserProperties.DEFAULT,
+            FileUriCollectPhase.InputFormat.CSV
+        );
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        BatchIterator<Row> iterator = fileCollectSource.getIterator(
+            CoordinatorTxnCtx.systemTransactionContext(), collectPhase, mock(CollectTask.class), false).get(5, TimeUnit.SECONDS);
+        consumer.accept(iterator, null);
+        Asserts.assertThrows(
+            consumer::getResult,
+            IllegalArgumentException.class,
+            "Number of values exceeds number of keys"
+        );
+    }
 }
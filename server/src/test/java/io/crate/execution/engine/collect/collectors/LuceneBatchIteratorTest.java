@@ -32,6 +32,7 @@ import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.store.ByteBuffersDirectory;
@@ -42,6 +43,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import static org.hamcrest.Matchers.is;
+
 public class LuceneBatchIteratorTest extends ESTestCase {
 
     private List<LongColumnReference> columnRefs;
@@ -80,4 +83,35 @@ public class LuceneBatchIteratorTest extends ESTestCase {
         );
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
     }
+
+    @Test
+    public void test_lucene_batch_iterator_only_collects_given_leaves() throws Exception {
+        IndexWriter iw = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        for (long i = 0; i < 20; i++) {
+            Document doc = new Document();
+            doc.add(new NumericDocValuesField("x", i));
+            iw.addDocument(doc);
+            if (i % 10 == 9) {
+                iw.commit();
+            }
+        }
+        IndexSearcher searcher = new IndexSearcher(DirectoryReader.open(iw));
+        List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
+        assertThat(leaves.size(), is(2));
+
+        List<Object[]> expectedSecondSegment = expectedResult.subList(10, 20);
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> new LuceneBatchIterator(
+                searcher,
+                leaves.subList(1, 2),
+                new MatchAllDocsQuery(),
+                null,
+                false,
+                new CollectorContext(),
+                columnRefs,
+                columnRefs
+            )
+        );
+        tester.verifyResultAndEdgeCaseBehaviour(expectedSecondSegment);
+    }
 }
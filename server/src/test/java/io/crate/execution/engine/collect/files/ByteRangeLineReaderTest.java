@@ -0,0 +1,67 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+
+public class ByteRangeLineReaderTest extends ESTestCase {
+
+    private static List<String> readRange(Path file, long start, long end) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (ByteRangeLineReader reader = ByteRangeLineReader.open(file, start, end)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    public void test_adjacent_ranges_read_every_line_exactly_once() throws Exception {
+        List<String> expectedLines = List.of("{\"id\": 1}", "", "{\"name\": \"\u00c4rthur\"}", "{\"id\": 3}", "last");
+        Path file = createTempFile();
+        Files.writeString(file, "{\"id\": 1}\n\n{\"name\": \"\u00c4rthur\"}\r\n{\"id\": 3}\nlast", StandardCharsets.UTF_8);
+        long size = Files.size(file);
+
+        for (long split1 = 0; split1 <= size; split1++) {
+            for (long split2 = split1; split2 <= size; split2++) {
+                List<String> lines = new ArrayList<>();
+                lines.addAll(readRange(file, 0, split1));
+                lines.addAll(readRange(file, split1, split2));
+                lines.addAll(readRange(file, split2, size));
+                assertThat("splits at " + split1 + ", " + split2, lines, is(expectedLines));
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+
+package io.crate.execution.engine.collect.files;
+
+import io.crate.data.BatchIterator;
+import io.crate.data.Row;
+import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.TestingBatchIterators;
+import io.crate.testing.TestingRowConsumer;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+
+public class ChunkingBatchIteratorTest extends ESTestCase {
+
+    private static List<Object[]> expectedResult(int numRows) {
+        List<Object[]> expectedResult = new ArrayList<>(numRows);
+        for (int i = 0; i < numRows; i++) {
+            expectedResult.add(new Object[]{i});
+        }
+        return expectedResult;
+    }
+
+    @Test
+    public void test_chunking_iterator_contract() throws Exception {
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> new ChunkingBatchIterator(TestingBatchIterators.range(0, 10), 1, 3));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult(10));
+    }
+
+    @Test
+    public void test_chunking_iterator_contract_with_chunk_size_matching_the_number_of_rows() throws Exception {
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> new ChunkingBatchIterator(TestingBatchIterators.range(0, 10), 1, 10));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult(10));
+    }
+
+    @Test
+    public void test_each_batch_materializes_at_most_chunk_size_rows() throws Exception {
+        BatchIterator<Row> iterator = new ChunkingBatchIterator(TestingBatchIterators.range(0, 5), 1, 2);
+        List<Integer> batchSizes = new ArrayList<>();
+        while (!iterator.allLoaded()) {
+            iterator.loadNextBatch().get(5, TimeUnit.SECONDS);
+            int batchSize = 0;
+            while (iterator.moveNext()) {
+                batchSize++;
+            }
+            batchSizes.add(batchSize);
+        }
+        assertThat(batchSizes, is(List.of(2, 2, 1)));
+        iterator.close();
+    }
+
+    @Test
+    public void test_failure_of_the_source_fails_the_batch() throws Exception {
+        BatchIterator<Row> failingSource = TestingBatchIterators.range(0, 5);
+        failingSource.kill(new IllegalArgumentException("bad line"));
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(new ChunkingBatchIterator(failingSource, 1, 2), null);
+
+        expectThrows(IllegalArgumentException.class, consumer::getResult);
+    }
+}
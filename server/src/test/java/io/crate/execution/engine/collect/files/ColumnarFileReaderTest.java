@@ -0,0 +1,193 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.dsl.projection.WriterProjection;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.execution.engine.export.ColumnarRowWriter;
+import io.crate.execution.engine.export.FileWriterProjector;
+import io.crate.testing.TestingRowConsumer;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static io.crate.data.SentinelRow.SENTINEL;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+
+public class ColumnarFileReaderTest extends ESTestCase {
+
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+    @After
+    public void shutdownExecutor() throws Exception {
+        executorService.shutdown();
+        executorService.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private Path write(List<String> names,
+                       List<DataType<?>> types,
+                       List<Row> rows,
+                       boolean compress) throws Exception {
+        Path file = createTempFile("out", ".cols");
+        List<Input<?>> inputs = new ArrayList<>();
+        List<CollectExpression<Row, ?>> expressions = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            InputCollectExpression expression = new InputCollectExpression(i);
+            inputs.add(expression);
+            expressions.add(expression);
+        }
+        FileWriterProjector fileWriterProjector = new FileWriterProjector(
+            executorService,
+            file.toUri().toString(),
+            compress ? WriterProjection.CompressionType.GZIP : null,
+            inputs,
+            expressions,
+            new HashMap<>(),
+            names,
+            WriterProjection.OutputFormat.COLUMNAR,
+            types
+        );
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(fileWriterProjector.apply(InMemoryBatchIterator.of(rows, SENTINEL, true)), null);
+        assertThat(consumer.getResult().get(0)[0], is((long) rows.size()));
+        return file;
+    }
+
+    private static List<String> readLines(BufferedReader reader) throws IOException {
+        try (reader) {
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        }
+    }
+
+    private static String toJson(List<String> names, Object[] values) throws IOException {
+        Map<String, Object> object = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            object.put(names.get(i), values[i]);
+        }
+        return Strings.toString(JsonXContent.contentBuilder().map(object));
+    }
+
+    @Test
+    public void test_rows_written_in_columnar_format_are_read_back_as_json_objects() throws Exception {
+        List<String> names = List.of("id", "price", "active", "name", "attrs");
+        List<DataType<?>> types = List.of(
+            DataTypes.LONG, DataTypes.DOUBLE, DataTypes.BOOLEAN, DataTypes.STRING, DataTypes.UNTYPED_OBJECT);
+        List<Row> rows = new ArrayList<>();
+        List<String> expectedLines = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Object[] values = new Object[] {
+                (long) i - 100,
+                i % 7 == 0 ? null : i * 1.5,
+                i % 3 == 0 ? null : i % 2 == 0,
+                i % 10 == 0 ? null : "name" + (i / 20),
+                i % 5 == 0 ? null : Map.of("x", i % 4)
+            };
+            rows.add(new RowN(values));
+            expectedLines.add(toJson(names, values));
+        }
+        for (boolean compress : new boolean[] {false, true}) {
+            Path file = write(names, types, rows, compress);
+            assertThat(readLines(ColumnarFileReader.open(file)), is(expectedLines));
+            assertThat(readLines(ColumnarFileReader.open(Files.newInputStream(file))), is(expectedLines));
+        }
+    }
+
+    @Test
+    public void test_rows_of_multiple_row_groups_are_read_in_order() throws Exception {
+        List<String> names = List.of("id");
+        List<Row> rows = new ArrayList<>();
+        // More than the 64K rows of one row group
+        int numRows = 64 * 1024 + 10;
+        for (int i = 0; i < numRows; i++) {
+            rows.add(new RowN((long) i));
+        }
+        Path file = write(names, List.of(DataTypes.LONG), rows, false);
+
+        List<String> lines = readLines(ColumnarFileReader.open(file));
+        assertThat(lines.size(), is(numRows));
+        for (int i = 0; i < numRows; i += 1000) {
+            assertThat(lines.get(i), is("{\"id\":" + i + "}"));
+        }
+        assertThat(lines.get(numRows - 1), is("{\"id\":" + (numRows - 1) + "}"));
+    }
+
+    @Test
+    public void test_file_without_rows_has_no_lines() throws Exception {
+        Path file = write(List.of("id"), List.of(DataTypes.LONG), List.of(), true);
+        assertThat(readLines(ColumnarFileReader.open(file)), is(List.of()));
+    }
+
+    @Test
+    public void test_file_of_newer_version_is_rejected() throws Exception {
+        Path file = write(List.of("id"), List.of(DataTypes.LONG), List.of(new RowN(1L)), false);
+        byte[] bytes = Files.readAllBytes(file);
+        int footerEnd = bytes.length - ColumnarRowWriter.MAGIC.length - Integer.BYTES;
+        int footerLength = ((bytes[footerEnd] & 0xff) << 24) | ((bytes[footerEnd + 1] & 0xff) << 16)
+                           | ((bytes[footerEnd + 2] & 0xff) << 8) | (bytes[footerEnd + 3] & 0xff);
+        // The version is the first byte of the footer
+        bytes[footerEnd - footerLength] = (byte) (ColumnarRowWriter.VERSION + 1);
+        Files.write(file, bytes);
+
+        IOException e = expectThrows(IOException.class, () -> ColumnarFileReader.open(file));
+        assertThat(e.getMessage(), is("Unsupported version of columnar file: " + (ColumnarRowWriter.VERSION + 1) +
+                                      ", supported versions are 1 to " + ColumnarRowWriter.VERSION));
+    }
+
+    @Test
+    public void test_file_of_other_format_is_rejected() throws Exception {
+        Path file = createTempFile("out", ".json");
+        Files.writeString(file, "{\"id\": 1}\n{\"id\": 2}\n", StandardCharsets.UTF_8);
+
+        IOException e = expectThrows(IOException.class, () -> ColumnarFileReader.open(file));
+        assertThat(e.getMessage(), containsString("not a file of the columnar format"));
+    }
+}
@@ -35,7 +35,9 @@ import io.crate.metadata.TransactionContext;
 import io.crate.metadata.Functions;
 import io.crate.metadata.Reference;
 import org.elasticsearch.test.ESTestCase;
+import io.crate.testing.Asserts;
 import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.TestingRowConsumer;
 import io.crate.types.DataTypes;
 import org.junit.Before;
 import org.junit.Test;
@@ -45,6 +47,7 @@ import java.io.FileOutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -55,6 +58,8 @@ import java.util.function.Supplier;
 import static io.crate.execution.dsl.phases.FileUriCollectPhase.InputFormat.CSV;
 import static io.crate.execution.dsl.phases.FileUriCollectPhase.InputFormat.JSON;
 import static io.crate.testing.TestingHelpers.createReference;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
 
 public class FileReadingIteratorTest extends ESTestCase {
 
@@ -160,6 +165,84 @@ public class FileReadingIteratorTest extends ESTestCase {
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
     }
 
+    @Test
+    public void test_ranges_of_a_file_contain_every_line_exactly_once() throws Exception {
+        tempFilePath = createTempFile("tempfile", ".json");
+        List<Object[]> expectedResult = new ArrayList<>();
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(tempFilePath.toFile()), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < 100; i++) {
+                String line = "{\"id\": " + i + "}";
+                writer.write(line + "\n");
+                expectedResult.add(new Object[]{line});
+            }
+        }
+        fileUri = tempFilePath.toUri().toString();
+
+        int numRanges = 4;
+        List<Object[]> result = new ArrayList<>();
+        for (int rangeNumber = 0; rangeNumber < numRanges; rangeNumber++) {
+            TestingRowConsumer consumer = new TestingRowConsumer();
+            consumer.accept(createRangeIterator(fileUri, JSON, numRanges, rangeNumber), null);
+            List<Object[]> rangeResult = consumer.getResult();
+            assertThat(rangeResult.isEmpty(), is(false));
+            result.addAll(rangeResult);
+        }
+        assertThat(result, containsInAnyOrder(expectedResult.toArray()));
+    }
+
+    @Test
+    public void test_bad_line_in_a_later_range_fails_the_read() throws Exception {
+        tempFilePath = createTempFile("tempfile", ".csv");
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(tempFilePath.toFile()), StandardCharsets.UTF_8)) {
+            writer.write("name,id\n");
+            for (int i = 0; i < 100; i++) {
+                writer.write("Arthur," + i + "\n");
+            }
+            writer.write("Arthur,100,too,many,values\n");
+            writer.write("Trillian,101\n");
+        }
+        fileUri = tempFilePath.toUri().toString();
+
+        int numRanges = 4;
+        TestingRowConsumer firstRange = new TestingRowConsumer();
+        firstRange.accept(createRangeIterator(fileUri, CSV, numRanges, 0), null);
+        assertThat(firstRange.getResult().isEmpty(), is(false));
+
+        TestingRowConsumer lastRange = new TestingRowConsumer();
+        lastRange.accept(createRangeIterator(fileUri, CSV, numRanges, numRanges - 1), null);
+        Asserts.assertThrows(
+            lastRange::getResult,
+            IllegalArgumentException.class,
+            "Number of values exceeds number of keys"
+        );
+    }
+
+    private BatchIterator<Row> createRangeIterator(String fileUri,
+                                                   FileUriCollectPhase.InputFormat format,
+                                                   int numRanges,
+                                                   int rangeNumber) {
+        Reference raw = createReference("_raw", DataTypes.STRING);
+        InputFactory.Context<LineCollectorExpression<?>> ctx =
+            inputFactory.ctxForRefs(txnCtx, FileLineReferenceResolver::getImplementation);
+
+        List<Input<?>> inputs = Collections.singletonList(ctx.add(raw));
+        return new FileReadingIterator(
+            List.of(fileUri),
+            inputs,
+            ctx.expressions(),
+            null,
+            Map.of(LocalFsFileInputFactory.NAME, new LocalFsFileInputFactory()),
+            false,
+            1,
+            0,
+            CopyFromParserProperties.DEFAULT,
+            format,
+            numRanges,
+            rangeNumber,
+            // small ranges to split the file into numRanges ranges
+            64);
+    }
+
     private BatchIterator<Row> createBatchIterator(Collection<String> fileUris,
                                                    FileUriCollectPhase.InputFormat format) {
         Reference raw = createReference("_raw", DataTypes.STRING);
@@ -30,10 +30,17 @@ import io.crate.data.RowConsumer;
 import io.crate.execution.dsl.phases.MergePhase;
 import io.crate.execution.dsl.phases.NodeOperation;
 import io.crate.execution.dsl.phases.RoutedCollectPhase;
+import io.crate.execution.dsl.projection.GroupProjection;
+import io.crate.execution.dsl.projection.Projection;
+import io.crate.execution.engine.aggregation.impl.CountAggregation;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.expression.symbol.Aggregation;
+import io.crate.expression.symbol.InputColumn;
 import io.crate.metadata.Routing;
 import io.crate.metadata.RowGranularity;
 import io.crate.planner.distribution.DistributionInfo;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
+import io.crate.types.DataTypes;
 import io.crate.types.LongType;
 import org.junit.Before;
 import org.junit.Test;
@@ -43,7 +50,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
+import static io.crate.testing.TestingHelpers.createNodeContext;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Mockito.mock;
 
 public class DistributingConsumerFactoryTest extends CrateDummyClusterServiceUnitTest {
@@ -55,11 +65,16 @@ public class DistributingConsumerFactoryTest extends CrateDummyClusterServiceUni
         rowDownstreamFactory = new DistributingConsumerFactory(
             clusterService,
             THREAD_POOL,
-            mock(TransportDistributedResultAction.class)
+            mock(TransportDistributedResultAction.class),
+            createNodeContext()
         );
     }
 
     private RowConsumer createDownstream(Set<String> downstreamExecutionNodes) {
+        return createDownstream(downstreamExecutionNodes, List.of());
+    }
+
+    private RowConsumer createDownstream(Set<String> downstreamExecutionNodes, List<Projection> projections) {
         UUID jobId = UUID.randomUUID();
         Routing routing = new Routing(
             Map.of("n1", Map.of("i1", IntArrayList.from(1, 2)))
@@ -71,7 +86,7 @@ public class DistributingConsumerFactoryTest extends CrateDummyClusterServiceUni
             routing,
             RowGranularity.DOC,
             List.of(),
-            List.of(),
+            projections,
             WhereClause.MATCH_ALL.queryOrFallback(),
             DistributionInfo.DEFAULT_MODULO
         );
@@ -103,4 +118,25 @@ public class DistributingConsumerFactoryTest extends CrateDummyClusterServiceUni
         RowConsumer downstream = createDownstream(Set.of("downstream_node1", "downstream_node2"));
         assertThat(((DistributingConsumer) downstream).multiBucketBuilder, instanceOf(ModuloBucketBuilder.class));
     }
+
+    @Test
+    public void test_shard_level_partial_aggregation_rows_are_combined_before_distribution() throws Exception {
+        GroupProjection groupProjection = new GroupProjection(
+            List.of(new InputColumn(0, DataTypes.INTEGER)),
+            List.of(new Aggregation(CountAggregation.COUNT_STAR_SIGNATURE, DataTypes.LONG, List.of())),
+            AggregateMode.ITER_PARTIAL,
+            RowGranularity.SHARD
+        );
+        RowConsumer downstream = createDownstream(Set.of("downstream_node1", "downstream_node2"), List.of(groupProjection));
+        MultiBucketBuilder bucketBuilder = ((DistributingConsumer) downstream).multiBucketBuilder;
+        assertThat(bucketBuilder, instanceOf(ModuloBucketBuilder.class));
+        assertThat(((ModuloBucketBuilder) bucketBuilder).combiner(), notNullValue());
+    }
+
+    @Test
+    public void test_rows_without_partial_aggregation_are_not_combined() throws Exception {
+        RowConsumer downstream = createDownstream(Set.of("downstream_node1", "downstream_node2"));
+        MultiBucketBuilder bucketBuilder = ((DistributingConsumer) downstream).multiBucketBuilder;
+        assertThat(((ModuloBucketBuilder) bucketBuilder).combiner(), nullValue());
+    }
 }
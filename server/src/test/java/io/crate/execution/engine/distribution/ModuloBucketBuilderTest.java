@@ -25,12 +25,21 @@ package io.crate.execution.engine.distribution;
 import io.crate.Streamer;
 import io.crate.breaker.RamAccounting;
 import io.crate.data.Bucket;
+import io.crate.common.MutableLong;
+import io.crate.data.Row;
 import io.crate.data.Row1;
+import io.crate.data.RowN;
+import io.crate.execution.engine.aggregation.AggregationFunction;
+import io.crate.execution.engine.aggregation.impl.CountAggregation;
 import org.elasticsearch.test.ESTestCase;
 import io.crate.testing.TestingHelpers;
 import io.crate.types.DataTypes;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.crate.testing.TestingHelpers.createNodeContext;
 import static org.hamcrest.core.Is.is;
 
 public class ModuloBucketBuilderTest extends ESTestCase {
@@ -56,4 +65,50 @@ public class ModuloBucketBuilderTest extends ESTestCase {
         assertThat(rowsD2.size(), is(2));
         assertThat(TestingHelpers.printedTable(rowsD2), is("1\n3\n"));
     }
+
+    @Test
+    public void test_rows_with_same_key_are_combined_into_one_row() throws Exception {
+        AggregationFunction<?, ?> count = (AggregationFunction<?, ?>) createNodeContext().functions().getQualified(
+            CountAggregation.COUNT_STAR_SIGNATURE, List.of(), DataTypes.LONG);
+        HotKeyCombiner combiner = new HotKeyCombiner(
+            1, new AggregationFunction[] { count }, RamAccounting.NO_ACCOUNTING);
+        ModuloBucketBuilder builder = new ModuloBucketBuilder(
+            new Streamer[] { DataTypes.INTEGER.streamer(), count.partialType().streamer() },
+            2,
+            0,
+            RamAccounting.NO_ACCOUNTING,
+            combiner
+        );
+        for (int i = 0; i < 10; i++) {
+            builder.add(new RowN(i % 2, new MutableLong(1L)));
+        }
+        assertThat(builder.size(), is(0));
+
+        StreamBucket[] buckets = new StreamBucket[2];
+        builder.build(buckets);
+        for (int i = 0; i < 2; i++) {
+            assertThat(buckets[i].size(), is(1));
+            Row row = buckets[i].iterator().next();
+            assertThat(row.get(0), is(i));
+            assertThat(((MutableLong) row.get(1)).value(), is(5L));
+        }
+        assertThat(combiner.numCombinedRows(), is(8L));
+    }
+
+    @Test
+    public void test_combining_is_disabled_if_keys_are_unique() throws Exception {
+        AggregationFunction<?, ?> count = (AggregationFunction<?, ?>) createNodeContext().functions().getQualified(
+            CountAggregation.COUNT_STAR_SIGNATURE, List.of(), DataTypes.LONG);
+        HotKeyCombiner combiner = new HotKeyCombiner(
+            1, new AggregationFunction[] { count }, RamAccounting.NO_ACCOUNTING);
+        for (int i = 0; i < HotKeyCombiner.SAMPLE_SIZE; i++) {
+            combiner.combine(new RowN(i, new MutableLong(1L)));
+        }
+        assertThat(combiner.isEnabled(), is(false));
+        assertThat(combiner.combine(new RowN(1, new MutableLong(1L))), is(false));
+
+        List<Object[]> heldBackRows = new ArrayList<>();
+        combiner.drainTo(heldBackRows::add);
+        assertThat(heldBackRows.size(), is(HotKeyCombiner.MAX_KEYS));
+    }
 }
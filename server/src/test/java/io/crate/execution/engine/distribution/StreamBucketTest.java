@@ -0,0 +1,170 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.distribution;
+
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.crate.testing.Asserts.assertThrows;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class StreamBucketTest extends ESTestCase {
+
+    private static final Streamer<?>[] STREAMERS = new Streamer[] {
+        DataTypes.LONG.streamer(),
+        DataTypes.TIMESTAMPZ.streamer(),
+        DataTypes.STRING.streamer(),
+        DataTypes.STRING.streamer(),
+        DataTypes.INTEGER.streamer(),
+        DataTypes.DOUBLE.streamer()
+    };
+
+    private static List<Object[]> rows(int numRows) {
+        List<Object[]> rows = new ArrayList<>(numRows);
+        for (int i = 0; i < numRows; i++) {
+            rows.add(new Object[] {
+                i % 7 == 0 ? null : (long) i * 3 - 100,
+                1_600_000_000_000L + i * 1000L,
+                i % 5 == 0 ? null : "tenant-" + (i % 4),
+                "unique-" + i,
+                i % 3 == 0 ? null : i,
+                i / 2.0
+            });
+        }
+        return rows;
+    }
+
+    private static StreamBucket build(List<Object[]> rows) {
+        StreamBucket.Builder builder = new StreamBucket.Builder(STREAMERS, RamAccounting.NO_ACCOUNTING);
+        for (Object[] row : rows) {
+            builder.add(new RowN(row));
+        }
+        return builder.build();
+    }
+
+    private static BytesStreamOutput write(StreamBucket bucket, Version version) throws Exception {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(version);
+        bucket.writeTo(out);
+        return out;
+    }
+
+    private static StreamBucket read(BytesStreamOutput out, Version version) throws Exception {
+        StreamInput in = out.bytes().streamInput();
+        in.setVersion(version);
+        return new StreamBucket(in, STREAMERS);
+    }
+
+    private static List<Object[]> materialize(StreamBucket bucket) {
+        List<Object[]> result = new ArrayList<>();
+        for (Row row : bucket) {
+            result.add(row.materialize());
+        }
+        return result;
+    }
+
+    private static void assertRows(List<Object[]> actual, List<Object[]> expected) {
+        assertThat(actual.size(), is(expected.size()));
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void test_columnar_encoding_roundtrip() throws Exception {
+        List<Object[]> rows = rows(1000);
+        StreamBucket bucket = build(rows);
+        StreamBucket received = read(write(bucket, Version.CURRENT), Version.CURRENT);
+        assertRows(materialize(received), rows);
+        // can be iterated more than once
+        assertRows(materialize(received), rows);
+    }
+
+    @Test
+    public void test_small_buckets_are_sent_in_row_format() throws Exception {
+        List<Object[]> rows = rows(ColumnarBucketEncoding.MIN_ROWS - 1);
+        StreamBucket received = read(write(build(rows), Version.CURRENT), Version.CURRENT);
+        assertRows(materialize(received), rows);
+    }
+
+    @Test
+    public void test_columnar_encoding_is_smaller_than_row_format() throws Exception {
+        StreamBucket bucket = build(rows(1000));
+        BytesStreamOutput columnar = write(bucket, Version.CURRENT);
+        BytesStreamOutput rowFormat = write(bucket, Version.V_4_4_0);
+        assertThat(columnar.size(), lessThan(rowFormat.size() / 2));
+    }
+
+    @Test
+    public void test_row_format_is_used_for_nodes_without_columnar_support() throws Exception {
+        List<Object[]> rows = rows(100);
+        StreamBucket received = read(write(build(rows), Version.V_4_4_0), Version.V_4_4_0);
+        assertRows(materialize(received), rows);
+    }
+
+    @Test
+    public void test_received_columnar_bucket_can_be_sent_to_nodes_without_columnar_support() throws Exception {
+        List<Object[]> rows = rows(100);
+        StreamBucket received = read(write(build(rows), Version.CURRENT), Version.CURRENT);
+
+        StreamBucket forwarded = read(write(received, Version.V_4_4_0), Version.V_4_4_0);
+        assertRows(materialize(forwarded), rows);
+
+        forwarded = read(write(received, Version.CURRENT), Version.CURRENT);
+        assertRows(materialize(forwarded), rows);
+    }
+
+    @Test
+    public void test_received_columnar_bucket_without_streamers_can_be_forwarded_to_the_same_version() throws Exception {
+        List<Object[]> rows = rows(100);
+        StreamInput in = write(build(rows), Version.CURRENT).bytes().streamInput();
+        StreamBucket received = new StreamBucket(in);
+
+        StreamBucket forwarded = read(write(received, Version.CURRENT), Version.CURRENT);
+        assertRows(materialize(forwarded), rows);
+    }
+
+    @Test
+    public void test_received_columnar_bucket_without_streamers_cannot_be_sent_to_other_versions() throws Exception {
+        StreamInput in = write(build(rows(100)), Version.CURRENT).bytes().streamInput();
+        StreamBucket received = new StreamBucket(in);
+
+        assertThrows(
+            () -> write(received, Version.V_4_4_0),
+            IllegalStateException.class,
+            "Streamers of a received columnar bucket must be set to send it to a node on version 4.4.0"
+        );
+    }
+}
@@ -24,8 +24,14 @@ package io.crate.execution.engine.export;
 
 import io.crate.data.BatchIterator;
 import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
 import io.crate.exceptions.UnhandledServerException;
 import io.crate.execution.dsl.projection.WriterProjection;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.test.ESTestCase;
 import io.crate.testing.RowGenerator;
 import io.crate.testing.TestingHelpers;
@@ -34,9 +40,16 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
@@ -44,8 +57,10 @@ import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.zip.InflaterInputStream;
 
 import static io.crate.data.SentinelRow.SENTINEL;
+import static org.hamcrest.Matchers.is;
 
 public class FileWriterProjectorTest extends ESTestCase {
 
@@ -65,7 +80,7 @@ public class FileWriterProjectorTest extends ESTestCase {
 
         FileWriterProjector fileWriterProjector = new FileWriterProjector(executorService, file.toUri().toString(),
             null, null, Set.of(), new HashMap<>(),
-            null, WriterProjection.OutputFormat.JSON_OBJECT);
+            null, WriterProjection.OutputFormat.JSON_OBJECT, null);
 
         new TestingRowConsumer().accept(fileWriterProjector.apply(sourceSupplier.get()), null);
 
@@ -86,7 +101,7 @@ public class FileWriterProjectorTest extends ESTestCase {
         FileWriterProjector fileWriterProjector = new FileWriterProjector(
             executorService, directory.toUri().toString(),
             null, null, Set.of(), new HashMap<>(),
-            null, WriterProjection.OutputFormat.JSON_OBJECT);
+            null, WriterProjection.OutputFormat.JSON_OBJECT, null);
         new TestingRowConsumer().accept(fileWriterProjector.apply(sourceSupplier.get()), null);
     }
 
@@ -99,8 +114,113 @@ public class FileWriterProjectorTest extends ESTestCase {
 
         FileWriterProjector fileWriterProjector = new FileWriterProjector(executorService, uri,
             null, null, Set.of(), new HashMap<>(),
-            null, WriterProjection.OutputFormat.JSON_OBJECT);
+            null, WriterProjection.OutputFormat.JSON_OBJECT, null);
 
         new TestingRowConsumer().accept(fileWriterProjector.apply(sourceSupplier.get()), null);
     }
+
+    @Test
+    public void test_write_columnar_format_with_and_without_compression() throws Exception {
+        List<Row> rows = new ArrayList<>();
+        List<Object> ids = new ArrayList<>();
+        List<Object> names = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            long id = i - 50;
+            String name = i % 10 == 0 ? null : "name" + (i / 20);
+            ids.add(id);
+            names.add(name);
+            rows.add(new RowN(id, name));
+        }
+        for (WriterProjection.CompressionType compressionType : Arrays.asList(null, WriterProjection.CompressionType.GZIP)) {
+            Path file = createTempFile("out", "cols");
+            InputCollectExpression idExpression = new InputCollectExpression(0);
+            InputCollectExpression nameExpression = new InputCollectExpression(1);
+            List<Input<?>> inputs = List.of(idExpression, nameExpression);
+            FileWriterProjector fileWriterProjector = new FileWriterProjector(
+                executorService,
+                file.toUri().toString(),
+                compressionType,
+                inputs,
+                List.of(idExpression, nameExpression),
+                new HashMap<>(),
+                List.of("id", "name"),
+                WriterProjection.OutputFormat.COLUMNAR,
+                List.of(DataTypes.LONG, DataTypes.STRING)
+            );
+            TestingRowConsumer consumer = new TestingRowConsumer();
+            consumer.accept(fileWriterProjector.apply(InMemoryBatchIterator.of(rows, SENTINEL, true)), null);
+            assertThat(consumer.getResult().get(0)[0], is(100L));
+
+            byte[] bytes = Files.readAllBytes(file);
+            int magicLength = ColumnarRowWriter.MAGIC.length;
+            assertThat(Arrays.copyOf(bytes, magicLength), is(ColumnarRowWriter.MAGIC));
+            assertThat(Arrays.copyOfRange(bytes, bytes.length - magicLength, bytes.length), is(ColumnarRowWriter.MAGIC));
+
+            int footerEnd = bytes.length - magicLength - 4;
+            int footerLength = StreamInput.wrap(bytes, footerEnd, 4).readInt();
+            StreamInput footer = StreamInput.wrap(bytes, footerEnd - footerLength, footerLength);
+            assertThat(footer.readVInt(), is(ColumnarRowWriter.VERSION));
+            assertThat(footer.readVInt(), is(2));
+            assertThat(readString(footer), is("id"));
+            assertThat(footer.readByte(), is((byte) ColumnarRowWriter.Kind.INT64.ordinal()));
+            assertThat(readString(footer), is("name"));
+            assertThat(footer.readByte(), is((byte) ColumnarRowWriter.Kind.STRING.ordinal()));
+            boolean compressed = footer.readByte() == 1;
+            assertThat(compressed, is(compressionType != null));
+            assertThat(footer.readVInt(), is(1));
+            assertThat(footer.readVInt(), is(100));
+
+            List<List<Object>> columns = new ArrayList<>();
+            for (int column = 0; column < 2; column++) {
+                int offset = (int) footer.readVLong();
+                int length = footer.readVInt();
+                byte[] chunk = Arrays.copyOfRange(bytes, offset, offset + length);
+                if (compressed) {
+                    chunk = new InflaterInputStream(new ByteArrayInputStream(chunk)).readAllBytes();
+                }
+                columns.add(readChunk(StreamInput.wrap(chunk), 100, column == 0));
+            }
+            assertThat(columns.get(0), is(ids));
+            assertThat(columns.get(1), is(names));
+        }
+    }
+
+    private static String readString(StreamInput in) throws IOException {
+        byte[] bytes = new byte[in.readVInt()];
+        in.readBytes(bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Object readValue(StreamInput in, boolean isLong) throws IOException {
+        return isLong ? in.readZLong() : readString(in);
+    }
+
+    private static List<Object> readChunk(StreamInput in, int numRows, boolean isLong) throws IOException {
+        List<Object> values = new ArrayList<>(numRows);
+        byte encoding = in.readByte();
+        if (encoding == ColumnarRowWriter.DICTIONARY) {
+            Object[] dictionary = new Object[in.readVInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readValue(in, isLong);
+            }
+            int numRuns = in.readVInt();
+            for (int i = 0; i < numRuns; i++) {
+                int runLength = in.readVInt();
+                int id = in.readVInt();
+                for (int j = 0; j < runLength; j++) {
+                    values.add(id == 0 ? null : dictionary[id - 1]);
+                }
+            }
+        } else {
+            assertThat(encoding, is(ColumnarRowWriter.PLAIN));
+            int numNulls = in.readVInt();
+            byte[] nulls = new byte[numNulls == 0 ? 0 : (numRows + 7) / 8];
+            in.readBytes(nulls, 0, nulls.length);
+            for (int row = 0; row < numRows; row++) {
+                boolean isNull = numNulls > 0 && (nulls[row / 8] & (1 << (row % 8))) != 0;
+                values.add(isNull ? null : readValue(in, isLong));
+            }
+        }
+        return values;
+    }
 }
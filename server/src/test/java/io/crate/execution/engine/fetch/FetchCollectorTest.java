@@ -22,7 +22,6 @@
 
 package io.crate.execution.engine.fetch;
 
-import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.randomizedtesting.RandomizedRunner;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -30,23 +29,45 @@ import org.junit.runner.RunWith;
 import static org.elasticsearch.test.ESTestCase.randomIntBetween;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 
 @RunWith(RandomizedRunner.class)
 public class FetchCollectorTest {
 
     @Test
-    public void test_sequential_docs_ids() {
+    public void test_sequential_reader_is_used_for_dense_docs_ids() {
         int start = randomIntBetween(0, Short.MAX_VALUE);
-        IntArrayList sequential = new IntArrayList(10);
-        for (int i = start; i < start + 10; i++) {
-            sequential.add(i);
+        int[] sequential = new int[10];
+        for (int i = 0; i < sequential.length; i++) {
+            sequential[i] = start + i;
         }
-        assertThat(FetchCollector.isSequential(sequential), is(true));
+        assertThat(FetchCollector.useSequentialReader(sequential, 0, sequential.length), is(true));
 
-        IntArrayList nonSequential = new IntArrayList();
-        nonSequential.add(10);
-        nonSequential.add(2);
-        nonSequential.add(48);
-        assertThat(FetchCollector.isSequential(nonSequential), is(false));
+        int[] dense = new int[20];
+        for (int i = 0; i < dense.length; i++) {
+            dense[i] = start + i * 4;
+        }
+        assertThat(FetchCollector.useSequentialReader(dense, 0, dense.length), is(true));
+
+        int[] sparse = new int[] { 2, 10, 48 };
+        assertThat(FetchCollector.useSequentialReader(sparse, 0, sparse.length), is(false));
+
+        int[] wide = new int[20];
+        for (int i = 0; i < wide.length; i++) {
+            wide[i] = start + i * 1000;
+        }
+        assertThat(FetchCollector.useSequentialReader(wide, 0, wide.length), is(false));
+    }
+
+    @Test
+    public void test_sort_by_doc_id_returns_original_positions() {
+        int[] sorted = new int[] { 1, 4, 5, 9 };
+        assertThat(FetchCollector.sortByDocId(sorted), nullValue());
+        assertThat(sorted, is(new int[] { 1, 4, 5, 9 }));
+
+        int[] docs = new int[] { 9, 1, 5, 4 };
+        int[] positions = FetchCollector.sortByDocId(docs);
+        assertThat(docs, is(new int[] { 1, 4, 5, 9 }));
+        assertThat(positions, is(new int[] { 1, 3, 2, 0 }));
     }
 }
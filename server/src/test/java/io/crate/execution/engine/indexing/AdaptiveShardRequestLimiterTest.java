@@ -0,0 +1,134 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.indexing;
+
+import static org.hamcrest.Matchers.is;
+
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import io.crate.breaker.RamAccounting;
+import io.crate.execution.dml.ShardRequest;
+
+public class AdaptiveShardRequestLimiterTest extends ESTestCase {
+
+    private static final long FAST = AdaptiveShardRequestLimiter.TARGET_LATENCY_NANOS / 10;
+    private static final long SLOW = AdaptiveShardRequestLimiter.TARGET_LATENCY_NANOS * 2;
+
+    private static class DummyShardRequest extends ShardRequest<DummyShardRequest, DummyRequestItem> {
+    }
+
+    private static class DummyRequestItem extends ShardRequest.Item {
+        DummyRequestItem(String id) {
+            super(id);
+        }
+    }
+
+    private final ShardLocation shard1OnNode1 = new ShardLocation(new ShardId("t", "_na_", 1), "n1");
+    private final ShardLocation shard2OnNode1 = new ShardLocation(new ShardId("t", "_na_", 2), "n1");
+    private final ShardLocation shard3OnNode2 = new ShardLocation(new ShardId("t", "_na_", 3), "n2");
+
+    private static ShardedRequests<DummyShardRequest, DummyRequestItem> newRequests() {
+        return new ShardedRequests<>(s -> new DummyShardRequest(), RamAccounting.NO_ACCOUNTING);
+    }
+
+    private static void addItems(ShardedRequests<DummyShardRequest, DummyRequestItem> requests,
+                                 ShardLocation shardLocation,
+                                 int numItems) {
+        for (int i = 0; i < numItems; i++) {
+            requests.add(new DummyRequestItem(Integer.toString(i)), 10, shardLocation, RowSourceInfo.EMPTY_INSTANCE);
+        }
+    }
+
+    @Test
+    public void test_slow_responses_halve_the_bulk_size_of_the_node() {
+        var limiter = new AdaptiveShardRequestLimiter(10_000);
+        limiter.onRequestSent(shard1OnNode1);
+        limiter.onResponse(shard1OnNode1, 4000, SLOW);
+
+        assertThat(limiter.bulkSize("n1"), is(2000));
+        assertThat(limiter.bulkSize("n2"), is(10_000));
+    }
+
+    @Test
+    public void test_fast_responses_increase_the_bulk_size_up_to_the_maximum() {
+        var limiter = new AdaptiveShardRequestLimiter(10_000);
+        limiter.onRequestSent(shard1OnNode1);
+        limiter.onResponse(shard1OnNode1, 4000, SLOW);
+        limiter.onRequestSent(shard1OnNode1);
+        limiter.onResponse(shard1OnNode1, 2000, FAST);
+
+        assertThat(limiter.bulkSize("n1"), is(2500));
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onRequestSent(shard1OnNode1);
+            limiter.onResponse(shard1OnNode1, 2000, FAST);
+        }
+        assertThat(limiter.bulkSize("n1"), is(10_000));
+    }
+
+    @Test
+    public void test_rejections_reduce_bulk_size_but_not_below_minimum() {
+        var limiter = new AdaptiveShardRequestLimiter(10_000);
+        for (int i = 0; i < 20; i++) {
+            limiter.onRejection(shard3OnNode2, 10_000);
+        }
+        assertThat(limiter.bulkSize("n2"), is(AdaptiveShardRequestLimiter.MIN_BULK_SIZE));
+    }
+
+    @Test
+    public void test_limit_is_reached_if_last_extended_shard_request_reaches_bulk_size_of_its_node() {
+        var limiter = new AdaptiveShardRequestLimiter(10_000);
+        limiter.onRejection(shard1OnNode1, 400);
+        assertThat(limiter.bulkSize("n1"), is(200));
+
+        var requests = newRequests();
+        addItems(requests, shard3OnNode2, 300);
+        assertThat(limiter.test(requests), is(false));
+
+        addItems(requests, shard1OnNode1, 199);
+        assertThat(limiter.test(requests), is(false));
+        addItems(requests, shard1OnNode1, 1);
+        assertThat(limiter.test(requests), is(true));
+    }
+
+    @Test
+    public void test_in_flight_requests_are_limited_per_shard() {
+        var limiter = new AdaptiveShardRequestLimiter(10_000);
+        var requests = newRequests();
+        addItems(requests, shard2OnNode1, 1);
+
+        for (int i = 0; i < AdaptiveShardRequestLimiter.MAX_IN_FLIGHT_REQUESTS_PER_SHARD; i++) {
+            limiter.onRequestSent(shard1OnNode1);
+        }
+        assertThat(limiter.hasTooManyInFlightRequests(requests), is(false));
+
+        addItems(requests, shard1OnNode1, 1);
+        assertThat(limiter.hasTooManyInFlightRequests(requests), is(true));
+
+        limiter.onFailure(shard1OnNode1);
+        assertThat(limiter.hasTooManyInFlightRequests(requests), is(false));
+        assertThat(limiter.inFlightRequests(shard1OnNode1.shardId), is(1));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+public class ColumnarHashTableTest {
+
+    private static final List<DataType<?>> TYPES = List.of(
+        DataTypes.LONG,
+        DataTypes.INTEGER,
+        DataTypes.DOUBLE,
+        DataTypes.FLOAT,
+        DataTypes.STRING,
+        DataTypes.TIMESTAMPZ
+    );
+
+    private static List<Object[]> matches(ColumnarHashTable table, int hash) {
+        ArrayList<Object[]> rows = new ArrayList<>();
+        for (int rowId = table.firstRowId(hash); rowId != -1; rowId = table.nextRowId(rowId)) {
+            rows.add(table.row(rowId).materialize());
+        }
+        return rows;
+    }
+
+    @Test
+    public void test_rows_are_stored_column_wise_and_can_be_retrieved_by_hash() {
+        ColumnarHashTable table = new ColumnarHashTable(TYPES);
+        table.add(new RowN(1L, 10, 1.5d, 2.5f, "foo", 1000L), 1);
+        table.add(new RowN(null, null, null, null, null, null), 2);
+        table.add(new RowN(3L, 30, 3.5d, 4.5f, "bar", 3000L), 1);
+
+        assertThat(table.size(), is(3));
+        assertThat(matches(table, 1), containsInAnyOrder(
+            new Object[] { 1L, 10, 1.5d, 2.5f, "foo", 1000L },
+            new Object[] { 3L, 30, 3.5d, 4.5f, "bar", 3000L }
+        ));
+        assertThat(matches(table, 2), contains(
+            new Object[][] { new Object[] { null, null, null, null, null, null } }
+        ));
+        assertThat(matches(table, 3).isEmpty(), is(true));
+    }
+
+    @Test
+    public void test_table_grows_and_keeps_hash_chains_intact() {
+        ColumnarHashTable table = new ColumnarHashTable(List.of(DataTypes.INTEGER));
+        int numRows = 10_000;
+        for (int i = 0; i < numRows; i++) {
+            table.add(new RowN(new Object[] { i }), i % 100);
+        }
+        assertThat(table.size(), is(numRows));
+        for (int hash = 0; hash < 100; hash++) {
+            List<Object[]> rows = matches(table, hash);
+            assertThat(rows.size(), is(numRows / 100));
+            for (Object[] row : rows) {
+                assertThat((Integer) row[0] % 100, is(hash));
+            }
+        }
+    }
+
+    @Test
+    public void test_growth_of_row_arrays_and_buckets_is_accounted() {
+        ColumnarHashTable table = new ColumnarHashTable(List.of(DataTypes.INTEGER));
+        int numRows = 10_000;
+        long bytes = 0;
+        for (int i = 0; i < numRows; i++) {
+            bytes += table.add(new RowN(new Object[] { i }), i);
+        }
+        // hash, next pointer and value per row beyond the initial capacity of 64
+        // plus at least one bucket per row beyond the initial 128 buckets
+        long minExpectedBytes = (numRows - 64L) * Integer.BYTES * 3 + (numRows - 128L) * Integer.BYTES;
+        assertThat(bytes, greaterThanOrEqualTo(minExpectedBytes));
+    }
+
+    @Test
+    public void test_clear_removes_all_rows() {
+        ColumnarHashTable table = new ColumnarHashTable(List.of(DataTypes.LONG));
+        for (long i = 0; i < 200; i++) {
+            table.add(new RowN(new Object[] { i }), 1);
+        }
+        table.clear();
+        assertThat(table.size(), is(0));
+        assertThat(table.firstRowId(1), is(-1));
+
+        table.add(new RowN(5L), 1);
+        Row row = table.row(table.firstRowId(1));
+        assertThat(row.get(0), is(5L));
+    }
+
+    @Test
+    public void test_fixed_row_size_is_only_available_for_primitive_columns() {
+        assertThat(ColumnarHashTable.fixedRowSize(List.of(DataTypes.LONG, DataTypes.INTEGER)), is(25L));
+        assertThat(ColumnarHashTable.fixedRowSize(List.of(DataTypes.LONG, DataTypes.STRING)), is(-1L));
+    }
+}
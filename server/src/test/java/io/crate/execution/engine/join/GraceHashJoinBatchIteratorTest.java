@@ -0,0 +1,180 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import com.carrotsearch.randomizedtesting.RandomizedRunner;
+import com.carrotsearch.randomizedtesting.annotations.Name;
+import com.carrotsearch.randomizedtesting.annotations.ParametersFactory;
+import com.carrotsearch.randomizedtesting.annotations.ThreadLeakScope;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.Row;
+import io.crate.data.join.CombinedRow;
+import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.BatchSimulatingIterator;
+import io.crate.testing.TestingBatchIterators;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+import static com.carrotsearch.randomizedtesting.RandomizedTest.$;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@RunWith(RandomizedRunner.class)
+@ThreadLeakScope(ThreadLeakScope.Scope.NONE)
+public class GraceHashJoinBatchIteratorTest {
+
+    private static final List<DataType<?>> TYPES = List.of(DataTypes.INTEGER);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<Object[]> expectedResult;
+    private final Supplier<BatchIterator<Row>> leftIterator;
+    private final Supplier<BatchIterator<Row>> rightIterator;
+
+    public GraceHashJoinBatchIteratorTest(@SuppressWarnings("unused") @Name("dataSetName") String testName,
+                                          @Name("dataForLeft") Supplier<BatchIterator<Row>> leftIterator,
+                                          @Name("dataForRight") Supplier<BatchIterator<Row>> rightIterator,
+                                          @Name("expectedResult") List<Object[]> expectedResult) {
+        this.leftIterator = leftIterator;
+        this.rightIterator = rightIterator;
+        this.expectedResult = expectedResult;
+    }
+
+    @ParametersFactory
+    public static Iterable<Object[]> testParameters() {
+        List<Object[]> resultForUniqueValues = Arrays.asList(
+            new Object[] { 2, 2 }, new Object[] { 3, 3 }, new Object[] { 4, 4 });
+        List<Object[]> resultForDuplicateValues = Arrays.asList(
+            new Object[] { 1, 1 }, new Object[] { 1, 1 },
+            new Object[] { 2, 2 }, new Object[] { 2, 2 },
+            new Object[] { 3, 3 },
+            new Object[] { 4, 4 }, new Object[] { 4, 4 }, new Object[] { 4, 4 }, new Object[] { 4, 4 }
+        );
+
+        return Arrays.asList(
+            $("UniqueValues-plain",
+              (Supplier<BatchIterator<Row>>) () -> TestingBatchIterators.range(0, 5),
+              (Supplier<BatchIterator<Row>>) () -> TestingBatchIterators.range(2, 6),
+              resultForUniqueValues),
+            $("UniqueValues-batchedSource",
+              (Supplier<BatchIterator<Row>>) () ->
+                  new BatchSimulatingIterator<>(TestingBatchIterators.range(0, 5), 2, 2, null),
+              (Supplier<BatchIterator<Row>>) () ->
+                  new BatchSimulatingIterator<>(TestingBatchIterators.range(2, 6), 2, 2, null),
+              resultForUniqueValues),
+            $("DuplicateValues-plain",
+              (Supplier<BatchIterator<Row>>) () -> TestingBatchIterators.ofValues(Arrays.asList(0, 0, 1, 2, 2, 3, 4, 4)),
+              (Supplier<BatchIterator<Row>>) () ->
+                  TestingBatchIterators.ofValues(Arrays.asList(1, 1, 2, 3, 4, 4, 5, 5, 6)),
+              resultForDuplicateValues),
+            $("DuplicateValues-batchedSource",
+              (Supplier<BatchIterator<Row>>) () ->
+                  new BatchSimulatingIterator<>(
+                      TestingBatchIterators.ofValues(Arrays.asList(0, 0, 1, 2, 2, 3, 4, 4)), 2, 4, null),
+              (Supplier<BatchIterator<Row>>) () -> new BatchSimulatingIterator<>(
+                TestingBatchIterators.ofValues(Arrays.asList(1, 1, 2, 3, 4, 4, 5, 5, 6)), 2, 4, null),
+              resultForDuplicateValues));
+    }
+
+    private static ToIntFunction<Row> getHashForCol0() {
+        return row -> Objects.hash(row.get(0));
+    }
+
+    private static ToIntFunction<Row> getHashWithCollisions() {
+        return row -> (Integer) row.get(0) % 3;
+    }
+
+    private Supplier<BatchIterator<Row>> createIterator(ToIntFunction<Row> hashBuilder,
+                                                        IntSupplier blockSize,
+                                                        Path spillDirectory) {
+        return () -> new GraceHashJoinBatchIterator(
+            leftIterator.get(),
+            rightIterator.get(),
+            RamAccounting.NO_ACCOUNTING,
+            new CombinedRow(1, 1),
+            row -> Objects.equals(row.get(0), row.get(1)),
+            hashBuilder,
+            hashBuilder,
+            blockSize,
+            10,
+            spillDirectory,
+            TYPES,
+            TYPES
+        );
+    }
+
+    @Test
+    public void testHashJoinWithLeftFittingIntoMemoryDoesNotSpill() throws Exception {
+        Path spillDirectory = temporaryFolder.newFolder().toPath();
+        BatchIteratorTester tester = new BatchIteratorTester(createIterator(getHashForCol0(), () -> 10, spillDirectory));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+        assertThat(spillDirectory.toFile().list().length, is(0));
+    }
+
+    @Test
+    public void testHashJoinSpillsPartitionsToDisk() throws Exception {
+        Path spillDirectory = temporaryFolder.newFolder().toPath();
+        BatchIteratorTester tester = new BatchIteratorTester(createIterator(getHashForCol0(), () -> 2, spillDirectory));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertThat("Spill files must be deleted on close", files.count(), is(0L));
+        }
+    }
+
+    @Test
+    public void testHashJoinWithPartitionsLargerThanBlockSize() throws Exception {
+        Path spillDirectory = temporaryFolder.newFolder().toPath();
+        BatchIteratorTester tester = new BatchIteratorTester(createIterator(getHashForCol0(), () -> 1, spillDirectory));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testHashJoinWithHashCollisionsAndSpilling() throws Exception {
+        Path spillDirectory = temporaryFolder.newFolder().toPath();
+        BatchIteratorTester tester = new BatchIteratorTester(createIterator(getHashWithCollisions(), () -> 1, spillDirectory));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testNumPartitionsIsPowerOfTwoWithinBounds() {
+        assertThat(GraceHashJoinBatchIterator.numPartitions(0, 10), is(GraceHashJoinBatchIterator.MIN_PARTITIONS));
+        assertThat(GraceHashJoinBatchIterator.numPartitions(100, 10), is(32));
+        assertThat(GraceHashJoinBatchIterator.numPartitions(Long.MAX_VALUE, 1), is(GraceHashJoinBatchIterator.MAX_PARTITIONS));
+    }
+}
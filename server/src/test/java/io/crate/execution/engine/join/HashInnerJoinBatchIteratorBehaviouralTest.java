@@ -22,7 +22,7 @@
 
 package io.crate.execution.engine.join;
 
-import io.crate.breaker.RowAccounting;
+import io.crate.breaker.RamAccounting;
 import io.crate.data.BatchIterator;
 import io.crate.data.Paging;
 import io.crate.data.Row;
@@ -30,6 +30,7 @@ import io.crate.data.join.CombinedRow;
 import io.crate.testing.BatchSimulatingIterator;
 import io.crate.testing.TestingBatchIterators;
 import io.crate.testing.TestingRowConsumer;
+import io.crate.types.DataTypes;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -41,7 +42,6 @@ import java.util.Objects;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
-import static org.mockito.Mockito.mock;
 
 public class HashInnerJoinBatchIteratorBehaviouralTest {
 
@@ -67,12 +67,13 @@ public class HashInnerJoinBatchIteratorBehaviouralTest {
         BatchIterator<Row> batchIterator = new HashInnerJoinBatchIterator(
                 leftIterator,
                 rightIterator,
-                mock(RowAccounting.class),
+                RamAccounting.NO_ACCOUNTING,
                 new CombinedRow(1, 1),
                 row -> Objects.equals(row.get(0), row.get(1)),
                 row -> Objects.hash(row.get(0)),
                 row -> Objects.hash(row.get(0)),
-                () -> 2
+                () -> 2,
+                List.of(DataTypes.INTEGER)
             );
 
         TestingRowConsumer consumer = new TestingRowConsumer();
@@ -97,12 +98,13 @@ public class HashInnerJoinBatchIteratorBehaviouralTest {
         BatchIterator<Row> batchIterator = new HashInnerJoinBatchIterator(
             leftIterator,
             rightIterator,
-            mock(RowAccounting.class),
+            RamAccounting.NO_ACCOUNTING,
             new CombinedRow(1, 1),
             row -> Objects.equals(row.get(0), row.get(1)),
             row -> Objects.hash(row.get(0)),
             row -> Objects.hash(row.get(0)),
-            () -> 500000
+            () -> 500000,
+            List.of(DataTypes.INTEGER)
         );
 
         TestingRowConsumer consumer = new TestingRowConsumer();
@@ -22,17 +22,19 @@
 
 package io.crate.execution.engine.join;
 
-import io.crate.breaker.RowAccounting;
+import io.crate.breaker.RamAccounting;
 import io.crate.data.BatchIterator;
 import io.crate.data.Row;
 import io.crate.data.join.CombinedRow;
 import io.crate.testing.BatchSimulatingIterator;
 import io.crate.testing.TestingBatchIterators;
 import io.crate.testing.TestingRowConsumer;
+import io.crate.types.DataTypes;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Predicate;
 import java.util.function.ToIntFunction;
@@ -71,21 +73,22 @@ public class HashInnerJoinBatchIteratorMemoryTest {
         when(circuitBreaker.getLimit()).thenReturn(110L);
         when(circuitBreaker.getUsed()).thenReturn(10L);
 
-        RowAccounting<Object[]> rowAccounting = mock(RowAccounting.class);
+        RamAccounting ramAccounting = mock(RamAccounting.class);
         BatchIterator<Row> it = new HashInnerJoinBatchIterator(
             leftIterator,
             rightIterator,
-            rowAccounting,
+            ramAccounting,
             new CombinedRow(1, 1),
             getCol0EqCol1JoinCondition(),
             getHashForLeft(),
             getHashForRight(),
-            () -> 2
+            () -> 2,
+            List.of(DataTypes.INTEGER)
         );
         TestingRowConsumer consumer = new TestingRowConsumer();
         consumer.accept(it, null);
         consumer.getResult();
-        verify(rowAccounting, times(8)).release();
-        verify(rowAccounting, times(12)).accountForAndMaybeBreak(Mockito.any(Object[].class));
+        verify(ramAccounting, times(8)).release();
+        verify(ramAccounting, times(12)).addBytes(Mockito.anyLong());
     }
 }
@@ -26,13 +26,14 @@ import com.carrotsearch.randomizedtesting.RandomizedRunner;
 import com.carrotsearch.randomizedtesting.annotations.Name;
 import com.carrotsearch.randomizedtesting.annotations.ParametersFactory;
 import com.carrotsearch.randomizedtesting.annotations.ThreadLeakScope;
-import io.crate.breaker.RowAccounting;
+import io.crate.breaker.RamAccounting;
 import io.crate.data.BatchIterator;
 import io.crate.data.Row;
 import io.crate.data.join.CombinedRow;
 import io.crate.testing.BatchIteratorTester;
 import io.crate.testing.BatchSimulatingIterator;
 import io.crate.testing.TestingBatchIterators;
+import io.crate.types.DataTypes;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -130,12 +131,13 @@ public class HashInnerJoinBatchIteratorTest {
         Supplier<BatchIterator<Row>> batchIteratorSupplier = () -> new HashInnerJoinBatchIterator(
             leftIterator.get(),
             rightIterator.get(),
-            mock(RowAccounting.class),
+            RamAccounting.NO_ACCOUNTING,
             new CombinedRow(1, 1),
             getCol0EqCol1JoinCondition(),
             getHashForLeft(),
             getHashForRight(),
-            () -> 5
+            () -> 5,
+            List.of(DataTypes.INTEGER)
         );
         BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
@@ -146,12 +148,13 @@ public class HashInnerJoinBatchIteratorTest {
         Supplier<BatchIterator<Row>> batchIteratorSupplier = () -> new HashInnerJoinBatchIterator(
             leftIterator.get(),
             rightIterator.get(),
-            mock(RowAccounting.class),
+            RamAccounting.NO_ACCOUNTING,
             new CombinedRow(1, 1),
             getCol0EqCol1JoinCondition(),
             getHashWithCollisions(),
             getHashWithCollisions(),
-            () -> 5
+            () -> 5,
+            List.of(DataTypes.INTEGER)
         );
         BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
@@ -162,12 +165,13 @@ public class HashInnerJoinBatchIteratorTest {
         Supplier<BatchIterator<Row>> batchIteratorSupplier = () -> new HashInnerJoinBatchIterator(
             leftIterator.get(),
             rightIterator.get(),
-            mock(RowAccounting.class),
+            RamAccounting.NO_ACCOUNTING,
             new CombinedRow(1, 1),
             getCol0EqCol1JoinCondition(),
             getHashForLeft(),
             getHashForRight(),
-            () -> 1
+            () -> 1,
+            List.of(DataTypes.INTEGER)
         );
         BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
@@ -178,12 +182,13 @@ public class HashInnerJoinBatchIteratorTest {
         Supplier<BatchIterator<Row>> batchIteratorSupplier = () -> new HashInnerJoinBatchIterator(
             leftIterator.get(),
             rightIterator.get(),
-            mock(RowAccounting.class),
+            RamAccounting.NO_ACCOUNTING,
             new CombinedRow(1, 1),
             getCol0EqCol1JoinCondition(),
             getHashForLeft(),
             getHashForRight(),
-            () -> 3
+            () -> 3,
+            List.of(DataTypes.INTEGER)
         );
         BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
@@ -31,10 +31,12 @@ import io.crate.data.Projector;
 import io.crate.data.Row;
 import io.crate.execution.TransportActionProvider;
 import io.crate.execution.dsl.projection.AggregationProjection;
+import io.crate.execution.dsl.projection.EvalProjection;
 import io.crate.execution.dsl.projection.FilterProjection;
 import io.crate.execution.dsl.projection.GroupProjection;
 import io.crate.execution.dsl.projection.OrderedTopNProjection;
 import io.crate.execution.dsl.projection.TopNProjection;
+import io.crate.execution.dsl.projection.builder.InputColumns;
 import io.crate.execution.engine.aggregation.AggregationPipe;
 import io.crate.execution.engine.aggregation.GroupingProjector;
 import io.crate.execution.engine.aggregation.impl.CountAggregation;
@@ -58,6 +60,7 @@ import io.crate.metadata.SearchPath;
 import io.crate.metadata.TransactionContext;
 import io.crate.metadata.functions.Signature;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
+import io.crate.testing.SQLExecutor;
 import io.crate.testing.TestingBatchIterators;
 import io.crate.testing.TestingRowConsumer;
 import io.crate.types.DataTypes;
@@ -76,6 +79,7 @@ import java.util.UUID;
 
 import static com.carrotsearch.randomizedtesting.RandomizedTest.$;
 import static io.crate.data.SentinelRow.SENTINEL;
+import static io.crate.testing.Asserts.assertThrows;
 import static io.crate.testing.TestingHelpers.createNodeContext;
 import static io.crate.testing.TestingHelpers.isRow;
 import static org.hamcrest.Matchers.contains;
@@ -107,7 +111,8 @@ public class ProjectionToProjectorVisitorTest extends CrateDummyClusterServiceUn
             new InputFactory(nodeCtx),
             EvaluatingNormalizer.functionOnlyNormalizer(nodeCtx),
             t -> null,
-            t -> null
+            t -> null,
+            null
         );
         memoryManager = new OnHeapMemoryManager(usedBytes -> {});
 
@@ -275,4 +280,76 @@ public class ProjectionToProjectorVisitorTest extends CrateDummyClusterServiceUn
         Bucket bucket = consumer.getBucket();
         assertThat(bucket.size(), is(1));
     }
+
+    @Test
+    public void test_filter_projection_on_numeric_columns_is_vectorized() throws Exception {
+        List<Symbol> arguments = Arrays.asList(new InputColumn(1, DataTypes.LONG), Literal.of(2L));
+        EqOperator op =
+            (EqOperator) nodeCtx.functions().get(null, EqOperator.NAME, arguments, SearchPath.pathWithPGCatalogAndDoc());
+        Function function = new Function(op.signature(), arguments, EqOperator.RETURN_TYPE);
+        FilterProjection projection = new FilterProjection(function,
+            Arrays.asList(new InputColumn(0), new InputColumn(1)));
+
+        Projector projector = visitor.create(
+            projection, txnCtx, RamAccounting.NO_ACCOUNTING, memoryManager, UUID.randomUUID());
+        assertThat(projector, instanceOf(VectorizedFilterProjector.class));
+
+        List<Object[]> rows = new ArrayList<>();
+        rows.add($("human", 2L));
+        rows.add($("vogon", 1L));
+        rows.add($("alien", null));
+
+        BatchIterator<Row> filteredBI = projector.apply(
+            InMemoryBatchIterator.of(new CollectionBucket(rows), SENTINEL, true));
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(filteredBI, null);
+        Bucket bucket = consumer.getBucket();
+        assertThat(bucket, contains(isRow("human", 2L)));
+    }
+
+    private static BatchIterator<Row> rowsOfX(Long... values) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Long value : values) {
+            rows.add($(value));
+        }
+        return InMemoryBatchIterator.of(new CollectionBucket(rows), SENTINEL, true);
+    }
+
+    @Test
+    public void test_vectorized_filter_fails_only_once_the_failing_row_is_reached() throws Exception {
+        SQLExecutor e = SQLExecutor.builder(clusterService)
+            .addTable("create table t (x bigint)")
+            .build();
+        Symbol query = InputColumns.create(e.asSymbol("100 / x > 2"), List.of(e.asSymbol("x")));
+        Projector projector = visitor.create(
+            new FilterProjection(query, List.<Symbol>of(new InputColumn(0, DataTypes.LONG))),
+            txnCtx, RamAccounting.NO_ACCOUNTING, memoryManager, UUID.randomUUID());
+        assertThat(projector, instanceOf(VectorizedFilterProjector.class));
+
+        BatchIterator<Row> it = projector.apply(rowsOfX(10L, 100L, 20L, 0L, 5L));
+        assertThat(it.moveNext(), is(true));
+        assertThat(it.currentElement(), isRow(10L));
+        assertThat(it.moveNext(), is(true));
+        assertThat(it.currentElement(), isRow(20L));
+        assertThrows(it::moveNext, IllegalArgumentException.class, "by zero");
+    }
+
+    @Test
+    public void test_vectorized_eval_fails_only_once_the_failing_row_is_reached() throws Exception {
+        SQLExecutor e = SQLExecutor.builder(clusterService)
+            .addTable("create table t (x bigint)")
+            .build();
+        Symbol output = InputColumns.create(e.asSymbol("100 / x"), List.of(e.asSymbol("x")));
+        Projector projector = visitor.create(
+            new EvalProjection(List.of(output)),
+            txnCtx, RamAccounting.NO_ACCOUNTING, memoryManager, UUID.randomUUID());
+        assertThat(projector, instanceOf(VectorizedEvalProjector.class));
+
+        BatchIterator<Row> it = projector.apply(rowsOfX(10L, 50L, 0L, 5L));
+        assertThat(it.moveNext(), is(true));
+        assertThat(it.currentElement(), isRow(10L));
+        assertThat(it.moveNext(), is(true));
+        assertThat(it.currentElement(), isRow(2L));
+        assertThrows(it::moveNext, IllegalArgumentException.class, "by zero");
+    }
 }
@@ -83,7 +83,8 @@ public class ProjectorsTest extends CrateDummyClusterServiceUnitTest {
             t -> null,
             t -> null,
             Version.CURRENT,
-            new ShardId("dummy", UUID.randomUUID().toString(), 0)
+            new ShardId("dummy", UUID.randomUUID().toString(), 0),
+            null
         );
     }
 
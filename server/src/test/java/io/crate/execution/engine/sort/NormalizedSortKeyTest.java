@@ -0,0 +1,106 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.sort;
+
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class NormalizedSortKeyTest extends ESTestCase {
+
+    private static final List<DataType<?>> TYPES = List.of(DataTypes.INTEGER, DataTypes.STRING, DataTypes.DOUBLE);
+    private static final int[] POSITIONS = new int[]{0, 1, 2};
+
+    private static Object[] row(Integer a, String b, Double c) {
+        return new Object[]{a, b, c, null};
+    }
+
+    private static List<Object[]> rows() {
+        List<Object[]> rows = new ArrayList<>();
+        Integer[] ints = new Integer[]{null, Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE};
+        String[] strings = new String[]{null, "", "a", "a\u0000", "a\u0000b", "ab", "\u0100", "\uFFFF"};
+        Double[] doubles = new Double[]{null, Double.NEGATIVE_INFINITY, -1.5, -0.0, 0.0, 2.5, Double.NaN};
+        for (Integer i : ints) {
+            for (String s : strings) {
+                for (Double d : doubles) {
+                    rows.add(row(i, s, d));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static void assertSameOrder(boolean[] reverse, boolean[] nullsFirst) {
+        NormalizedSortKey sortKey = NormalizedSortKey.create(TYPES, POSITIONS, reverse, nullsFirst);
+        Comparator<Object[]> ordering = OrderingByPosition.arrayOrdering(POSITIONS, reverse, nullsFirst);
+        List<Object[]> rows = rows();
+        for (Object[] row : rows) {
+            sortKey.setKey(row);
+        }
+        Comparator<Object[]> keyComparator = sortKey.comparator();
+        for (Object[] row1 : rows) {
+            for (Object[] row2 : rows) {
+                assertThat(
+                    Integer.signum(keyComparator.compare(row1, row2)),
+                    is(Integer.signum(ordering.compare(row1, row2))));
+            }
+        }
+    }
+
+    @Test
+    public void test_key_order_matches_ordering_ascending() {
+        assertSameOrder(new boolean[]{false, false, false}, new boolean[]{false, false, false});
+    }
+
+    @Test
+    public void test_key_order_matches_ordering_descending_nulls_first() {
+        assertSameOrder(new boolean[]{true, true, true}, new boolean[]{true, true, true});
+    }
+
+    @Test
+    public void test_key_order_matches_ordering_mixed() {
+        assertSameOrder(new boolean[]{true, false, true}, new boolean[]{false, true, true});
+    }
+
+    @Test
+    public void test_no_key_for_single_column_or_unsupported_type() {
+        assertThat(
+            NormalizedSortKey.create(List.of(DataTypes.INTEGER), new int[]{0}, new boolean[1], new boolean[1]),
+            nullValue());
+        assertThat(
+            NormalizedSortKey.create(
+                List.of(DataTypes.INTEGER, DataTypes.UNTYPED_OBJECT),
+                new int[]{0, 1},
+                new boolean[2],
+                new boolean[2]),
+            nullValue());
+    }
+}
@@ -23,14 +23,18 @@
 package io.crate.execution.engine.sort;
 
 import io.crate.breaker.ConcurrentRamAccounting;
+import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccounting;
 import io.crate.breaker.RowCellsAccountingWithEstimators;
 import io.crate.data.BatchIterator;
 import io.crate.data.Bucket;
+import io.crate.data.CollectionBucket;
+import io.crate.data.InMemoryBatchIterator;
 import io.crate.data.Projector;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
 import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.execution.engine.pipeline.TopN;
 import io.crate.expression.symbol.Literal;
 import org.elasticsearch.test.ESTestCase;
 import io.crate.testing.TestingBatchIterators;
@@ -39,12 +43,18 @@ import io.crate.types.DataTypes;
 import org.apache.logging.log4j.LogManager;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.junit.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
+import static io.crate.data.SentinelRow.SENTINEL;
 import static io.crate.testing.TestingHelpers.isRow;
 import static org.hamcrest.core.Is.is;
 
@@ -97,6 +107,95 @@ public class SortingProjectorTest extends ESTestCase {
         }
     }
 
+    private static SortingProjector createSpillingProjector(RamAccounting ramAccounting,
+                                                            int limit,
+                                                            int offset,
+                                                            Path spillDirectory,
+                                                            long spillThresholdInBytes) {
+        InputCollectExpression input = new InputCollectExpression(0);
+        return new SortingProjector(
+            new RowCellsAccountingWithEstimators(List.of(DataTypes.INTEGER, DataTypes.BOOLEAN), ramAccounting, 0),
+            List.of(input, Literal.of(true)),
+            List.<CollectExpression<Row, ?>>of(input),
+            1,
+            OrderingByPosition.arrayOrdering(0, false, false),
+            limit,
+            offset,
+            ramAccounting,
+            List.of(DataTypes.INTEGER, DataTypes.BOOLEAN),
+            spillDirectory,
+            spillThresholdInBytes
+        );
+    }
+
+    private static BatchIterator<Row> unsortedRows() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            rows.add(new Object[] { (i * 7) % 50 });
+        }
+        return InMemoryBatchIterator.of(new CollectionBucket(rows), SENTINEL, true);
+    }
+
+    @Test
+    public void test_order_by_spills_sorted_runs_and_merges_them() throws Exception {
+        Path spillDirectory = createTempDir().resolve("spill");
+        RamAccounting ramAccounting = ConcurrentRamAccounting.forCircuitBreaker(
+            "testContext",
+            new NoopCircuitBreaker("dummy")
+        );
+        SortingProjector projector = createSpillingProjector(ramAccounting, TopN.NO_LIMIT, 3, spillDirectory, 40L);
+        consumer.accept(projector.apply(unsortedRows()), null);
+        List<Object[]> result = consumer.getResult();
+
+        assertThat(result.size(), is(47));
+        for (int i = 0; i < result.size(); i++) {
+            assertThat(result.get(i), is(new Object[] { i + 3 }));
+        }
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertThat(files.count(), is(0L));
+        }
+    }
+
+    @Test
+    public void test_spilling_order_by_applies_limit_and_offset() throws Exception {
+        Path spillDirectory = createTempDir().resolve("spill");
+        for (long spillThreshold : new long[] { 40L, Long.MAX_VALUE }) {
+            TestingRowConsumer rowConsumer = new TestingRowConsumer();
+            SortingProjector projector = createSpillingProjector(
+                RamAccounting.NO_ACCOUNTING, 5, 10, spillDirectory, spillThreshold);
+            rowConsumer.accept(projector.apply(unsortedRows()), null);
+            List<Object[]> result = rowConsumer.getResult();
+
+            assertThat(result.size(), is(5));
+            for (int i = 0; i < result.size(); i++) {
+                assertThat(result.get(i), is(new Object[] { i + 10 }));
+            }
+        }
+    }
+
+    @Test
+    public void test_spilling_only_considers_and_releases_memory_of_the_buffered_rows() throws Exception {
+        // memory accounted by other operations of the phase
+        long otherBytes = 2_000_000L;
+        ConcurrentRamAccounting phaseAccounting = new ConcurrentRamAccounting(bytes -> {}, bytes -> {});
+        phaseAccounting.addBytes(otherBytes);
+
+        Path spillDirectory = createTempDir().resolve("spill");
+        SortingProjector projector = createSpillingProjector(
+            phaseAccounting, TopN.NO_LIMIT, 0, spillDirectory, 1_000_000L);
+        consumer.accept(projector.apply(unsortedRows()), null);
+        assertThat(consumer.getResult().size(), is(50));
+        assertThat(Files.exists(spillDirectory), is(false));
+        assertThat(phaseAccounting.totalBytes(), is(otherBytes));
+
+        TestingRowConsumer spillingConsumer = new TestingRowConsumer();
+        projector = createSpillingProjector(phaseAccounting, TopN.NO_LIMIT, 0, spillDirectory, 40L);
+        spillingConsumer.accept(projector.apply(unsortedRows()), null);
+        assertThat(spillingConsumer.getResult().size(), is(50));
+        assertThat(Files.exists(spillDirectory), is(true));
+        assertThat(phaseAccounting.totalBytes(), is(otherBytes));
+    }
+
     @Test
     public void testInvalidOffset() throws Exception {
         expectedException.expect(IllegalArgumentException.class);
@@ -244,6 +244,30 @@ public class AggregationWindowFunctionsTest extends AbstractWindowFunctionTest {
             new Object[]{12.0, 12.0});
     }
 
+    @Test
+    public void test_max_over_sliding_rows_frame() throws Throwable {
+        Object[] expected = new Object[]{2, 2, 3, 4, 5, 5, 5};
+        assertEvaluate("max(x) OVER(" +
+                            "ORDER BY x ROWS BETWEEN 1 PRECEDING and 1 FOLLOWING" +
+                       ")",
+            contains(expected),
+            List.of(new ColumnIdent("x")),
+            INPUT_ROWS
+        );
+    }
+
+    @Test
+    public void test_arbitrary_over_sliding_rows_frame_uses_first_row_of_frame() throws Throwable {
+        Object[] expected = new Object[]{1, 1, 2, 2, 3, 4, 5};
+        assertEvaluate("arbitrary(x) OVER(" +
+                            "ORDER BY x ROWS BETWEEN 1 PRECEDING and CURRENT ROW" +
+                       ")",
+            contains(expected),
+            List.of(new ColumnIdent("x")),
+            INPUT_ROWS
+        );
+    }
+
     @Test
     public void test_agg_over_range_following() throws Throwable {
         Object[] expected = new Object[]{
@@ -0,0 +1,248 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.expression.vector;
+
+import io.crate.data.ColumnBatch;
+import io.crate.data.DoubleVector;
+import io.crate.data.Input;
+import io.crate.data.LongVector;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.dsl.projection.builder.InputColumns;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.expression.InputFactory;
+import io.crate.expression.symbol.Symbol;
+import io.crate.metadata.CoordinatorTxnCtx;
+import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
+import io.crate.testing.SQLExecutor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class VectorExpressionsTest extends CrateDummyClusterServiceUnitTest {
+
+    private static final Double[] DOUBLES = new Double[] {
+        null, Double.NaN, -1.0, -0.0, 0.0, 0.25, 0.75, 1.5, Double.POSITIVE_INFINITY
+    };
+    private static final Float[] FLOATS = new Float[] {null, Float.NaN, -0.0f, 0.25f, 0.5f};
+
+    private SQLExecutor e;
+    private List<Symbol> columns;
+    private ColumnBatch batch;
+    private List<Row> rows;
+
+    @Before
+    public void prepare() throws Exception {
+        e = SQLExecutor.builder(clusterService)
+            .addTable("create table t (a bigint, b bigint, i int, d double, f real, ts timestamp with time zone, s text)")
+            .build();
+        columns = List.of(
+            e.asSymbol("a"),
+            e.asSymbol("b"),
+            e.asSymbol("i"),
+            e.asSymbol("d"),
+            e.asSymbol("f"),
+            e.asSymbol("ts"),
+            e.asSymbol("s")
+        );
+        batch = new ColumnBatch(columns.size(), ColumnBatch.DEFAULT_CAPACITY);
+        rows = new ArrayList<>();
+        for (int i = 0; i < ColumnBatch.DEFAULT_CAPACITY - 10; i++) {
+            Row row = new RowN(
+                rarely() ? null : (long) randomIntBetween(-5, 20),
+                rarely() ? null : (long) randomIntBetween(1, 10),
+                rarely() ? null : randomIntBetween(-5, 20),
+                randomFrom(DOUBLES),
+                randomFrom(FLOATS),
+                rarely() ? null : randomLongBetween(0, 1_000_000),
+                randomAlphaOfLength(3)
+            );
+            rows.add(row);
+            batch.add(row);
+        }
+    }
+
+    private Symbol toInputs(String expression) {
+        return InputColumns.create(e.asSymbol(expression), new InputColumns.SourceSymbols(columns));
+    }
+
+    private List<Object> evaluateRows(Symbol symbol) {
+        InputFactory.Context<CollectExpression<Row, ?>> ctx = new InputFactory(e.nodeCtx)
+            .ctxForInputColumns(CoordinatorTxnCtx.systemTransactionContext(), List.of(symbol));
+        Input<?> input = ctx.topLevelInputs().get(0);
+        List<Object> result = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            for (CollectExpression<Row, ?> expression : ctx.expressions()) {
+                expression.setNextRow(row);
+            }
+            result.add(input.value());
+        }
+        return result;
+    }
+
+    private int[] allPositions() {
+        int[] selection = new int[batch.capacity()];
+        for (int i = 0; i < batch.size(); i++) {
+            selection[i] = i;
+        }
+        return selection;
+    }
+
+    private void assertPredicateMatchesRowEvaluation(String expression) {
+        Symbol symbol = toInputs(expression);
+        VectorPredicate predicate = VectorExpressions.compilePredicate(symbol);
+        assertThat(expression, predicate, notNullValue());
+        List<Object> expected = evaluateRows(symbol);
+
+        int[] selection = allPositions();
+        int numTrue = predicate.selectTrue(batch, selection, batch.size(), selection);
+        assertThat(expression, selected(selection, numTrue), is(positionsOf(expected, true)));
+
+        selection = allPositions();
+        int numFalse = predicate.selectFalse(batch, selection, batch.size(), selection);
+        assertThat(expression, selected(selection, numFalse), is(positionsOf(expected, false)));
+    }
+
+    private void assertExpressionMatchesRowEvaluation(String expression) {
+        Symbol symbol = toInputs(expression);
+        List<Object> expected = evaluateRows(symbol);
+        int[] selection = allPositions();
+        List<Object> actual = new ArrayList<>(batch.size());
+        LongVectorExpression longExpression = VectorExpressions.compileLong(symbol);
+        if (longExpression != null) {
+            LongVector vector = longExpression.evaluate(batch, selection, batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                actual.add(vector.nulls()[i] ? null : vector.values()[i]);
+            }
+        } else {
+            DoubleVectorExpression doubleExpression = VectorExpressions.compileDouble(symbol);
+            assertThat(expression, doubleExpression, notNullValue());
+            DoubleVector vector = doubleExpression.evaluate(batch, selection, batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                actual.add(vector.nulls()[i] ? null : vector.values()[i]);
+            }
+        }
+        assertThat(expression, actual, is(expected));
+    }
+
+    private static List<Integer> selected(int[] selection, int numSelected) {
+        List<Integer> result = new ArrayList<>(numSelected);
+        for (int i = 0; i < numSelected; i++) {
+            result.add(selection[i]);
+        }
+        return result;
+    }
+
+    private static List<Integer> positionsOf(List<Object> values, boolean value) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            if (Boolean.valueOf(value).equals(values.get(i))) {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void test_long_comparisons_match_row_evaluation() {
+        assertPredicateMatchesRowEvaluation("a = b");
+        assertPredicateMatchesRowEvaluation("a < 5");
+        assertPredicateMatchesRowEvaluation("a <= b");
+        assertPredicateMatchesRowEvaluation("a > i");
+        assertPredicateMatchesRowEvaluation("i >= 3");
+        assertPredicateMatchesRowEvaluation("ts > 500000");
+    }
+
+    @Test
+    public void test_double_comparisons_match_row_evaluation_including_nan_and_negative_zero() {
+        assertPredicateMatchesRowEvaluation("d = 0.0");
+        assertPredicateMatchesRowEvaluation("d < 0.0");
+        assertPredicateMatchesRowEvaluation("d >= 0.25");
+        assertPredicateMatchesRowEvaluation("d = f");
+        assertPredicateMatchesRowEvaluation("d > f");
+        assertPredicateMatchesRowEvaluation("f <= 0.25");
+    }
+
+    @Test
+    public void test_arithmetic_in_predicates_matches_row_evaluation() {
+        assertPredicateMatchesRowEvaluation("a + b > 10");
+        assertPredicateMatchesRowEvaluation("a * 2 <= b - 1");
+        assertPredicateMatchesRowEvaluation("a / b = 2");
+        assertPredicateMatchesRowEvaluation("a % b = 1");
+        assertPredicateMatchesRowEvaluation("d * 2.0 > 1.0");
+        assertPredicateMatchesRowEvaluation("d - a < 0.0");
+    }
+
+    @Test
+    public void test_logical_operators_follow_three_valued_logic() {
+        assertPredicateMatchesRowEvaluation("a > 1 and b < 5");
+        assertPredicateMatchesRowEvaluation("a > 1 or d < 0.5");
+        assertPredicateMatchesRowEvaluation("not (a > 1 or d < 0.5)");
+        assertPredicateMatchesRowEvaluation("not (a > 1 and b < 5)");
+        assertPredicateMatchesRowEvaluation("(a > 10 or b = 3) and not (i < 0 or f = 0.5)");
+    }
+
+    @Test
+    public void test_numeric_expressions_match_row_evaluation() {
+        assertExpressionMatchesRowEvaluation("a + b");
+        assertExpressionMatchesRowEvaluation("a * 2 - i");
+        assertExpressionMatchesRowEvaluation("a / b");
+        assertExpressionMatchesRowEvaluation("ts - 1000");
+        assertExpressionMatchesRowEvaluation("d * 2.0 + a");
+        assertExpressionMatchesRowEvaluation("d / f");
+        assertExpressionMatchesRowEvaluation("d % 0.5");
+    }
+
+    @Test
+    public void test_overflow_is_reported_like_row_evaluation() {
+        Symbol symbol = toInputs("a * 9223372036854775807");
+        LongVectorExpression expression = VectorExpressions.compileLong(symbol);
+        assertThat(expression, notNullValue());
+        int[] selection = allPositions();
+        expectThrows(
+            IllegalArgumentException.class,
+            () -> {
+                ColumnBatch overflowBatch = new ColumnBatch(columns.size(), 1);
+                overflowBatch.add(new RowN(2L, null, null, null, null, null, null));
+                expression.evaluate(overflowBatch, selection, 1);
+            }
+        );
+    }
+
+    @Test
+    public void test_unsupported_expressions_are_not_compiled() {
+        assertThat(VectorExpressions.compilePredicate(toInputs("s = 'foo'")), nullValue());
+        assertThat(VectorExpressions.compilePredicate(toInputs("a > 1 and s = 'foo'")), nullValue());
+        assertThat(VectorExpressions.compilePredicate(toInputs("a is null")), nullValue());
+        // integer arithmetic overflows on int values
+        assertThat(VectorExpressions.compileLong(toInputs("i + i")), nullValue());
+        // float arithmetic rounds to float values
+        assertThat(VectorExpressions.compileDouble(toInputs("f * f")), nullValue());
+    }
+}
@@ -477,6 +477,32 @@ public class CopyIntegrationTest extends SQLHttpIntegrationTest {
         }
     }
 
+    @Test
+    public void test_copy_from_imports_files_written_by_copy_to_with_columnar_format() throws Exception {
+        String columns = "(id int primary key, name string, price double, active boolean, " +
+                         "ts timestamp with time zone, tags array(string), attrs object as (x int))";
+        execute("create table src " + columns + " with (number_of_replicas = 0)");
+        execute("create table dst " + columns + " with (number_of_replicas = 0)");
+        execute("insert into src (id, name, price, active, ts, tags, attrs) values " +
+                "(1, 'foo', 1.5, true, '2021-01-01T00:00:00Z', ['a', 'b'], {x=1}), " +
+                "(2, null, null, null, null, null, null)");
+        execute("refresh table src");
+
+        File tmpExport = folder.newFolder("columnarExport");
+        String uriTemplate = Paths.get(tmpExport.toURI()).toUri().toString();
+        execute("copy src (id, name, price, active, ts, tags, attrs) to directory ? " +
+                "with (format='columnar', compression='gzip')", new Object[]{uriTemplate});
+        assertThat(response.rowCount(), is(2L));
+
+        execute("copy dst from ? with (format='columnar', shared=true)", new Object[]{uriTemplate + "*"});
+        assertThat(response.rowCount(), is(2L));
+        execute("refresh table dst");
+        execute("select id, name, price, active, ts, tags, attrs from dst order by id");
+        assertThat(printedTable(response.rows()), is(
+            "1| foo| 1.5| true| 1609459200000| [a, b]| {x=1}\n" +
+            "2| NULL| NULL| NULL| NULL| NULL| NULL\n"));
+    }
+
     @Test
     public void testCopyToWithWhere() throws Exception {
         this.setup.groupBySetup();
@@ -53,6 +53,7 @@ import static io.crate.testing.TestingHelpers.printedTable;
 import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
 import static org.hamcrest.Matchers.arrayContaining;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.core.Is.is;
 
@@ -1206,4 +1207,48 @@ public class JoinIntegrationTest extends SQLTransportIntegrationTest {
             "    └ Get[doc.t3 | id, c | DocKeys{1} | (id = 1)]\n"));
         execute(stmt);
     }
+
+    @Test
+    @UseRandomizedSchema(random = false)
+    public void test_join_with_only_one_side_having_columns_to_fetch() throws Exception {
+        execute("create table t1 (a text, x int, i int)");
+        execute("create table t2 (b text)");
+        execute("insert into t1 (a, x, i) values ('a', 1, 10), ('b', 2, 20), ('c', 3, 30), ('d', 4, 40)");
+        execute("insert into t2 (b) values ('a'), ('c'), ('d'), ('e')");
+        execute("refresh table t1, t2");
+
+        String stmt = "select t1.*, t2.b from t1 inner join t2 on t1.a = t2.b order by t1.x limit 3";
+        execute("EXPLAIN " + stmt);
+        assertThat(printedTable(response.rows()), containsString("Fetch["));
+        execute(stmt);
+        assertThat(printedTable(response.rows()), is(
+            "a| 1| 10| a\n" +
+            "c| 3| 30| c\n" +
+            "d| 4| 40| d\n"));
+    }
+
+    @Test
+    @UseRandomizedSchema(random = false)
+    public void test_join_with_fetch_below_and_above_the_join() throws Exception {
+        execute("create table t1 (a text, x int, i int)");
+        execute("create table t2 (b text, y int, i int)");
+        execute("insert into t1 (a, x, i) values ('10', 1, 1), ('60', 2, 2), ('70', 3, 3), ('80', 4, 4), ('90', 5, 5), ('95', 6, 6)");
+        execute("insert into t2 (b, y, i) values ('200', 1, 2), ('300', 2, 3), ('05', 3, 4), ('150', 4, 7)");
+        execute("refresh table t1, t2");
+
+        String stmt = "select * from " +
+                      " (select a, i from t1 order by a limit 5) t1 " +
+                      "inner join" +
+                      " (select b, i from t2 where b > '10') t2 " +
+                      "on t1.i = t2.i where t1.a > '50' and t2.b > '100' " +
+                      "limit 10";
+        execute("EXPLAIN " + stmt);
+        String plan = printedTable(response.rows());
+        assertThat(plan.indexOf("Fetch["), is(0));
+        assertThat(plan.indexOf("Fetch[", 1) > 0, is(true));
+        execute(stmt);
+        assertThat(Arrays.asList(response.rows()), containsInAnyOrder(
+            new Object[] {"60", 2, "200", 2},
+            new Object[] {"70", 3, "300", 3}));
+    }
 }
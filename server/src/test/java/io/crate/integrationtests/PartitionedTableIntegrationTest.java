@@ -2360,4 +2360,24 @@ public class PartitionedTableIntegrationTest extends SQLTransportIntegrationTest
             "1| Trillian\n"
         ));
     }
+
+    @Test
+    public void test_cached_plan_is_executed_with_the_current_parameters() throws Exception {
+        execute("create table doc.tbl (p int, name text) partitioned by (p)");
+        execute("insert into doc.tbl (p, name) values (1, 'Arthur'), (2, 'Trillian')");
+        execute("refresh table doc.tbl");
+
+        // The plan cache is per node, repeat the statements to make sure cached plans are re-used
+        for (int i = 0; i < 3; i++) {
+            execute("select name from doc.tbl where p = ?", new Object[]{1});
+            assertThat(printedTable(response.rows()), is("Arthur\n"));
+            execute("select name from doc.tbl where p = ?", new Object[]{2});
+            assertThat(printedTable(response.rows()), is("Trillian\n"));
+
+            execute("select p, count(*) from doc.tbl where p = ? group by p", new Object[]{1});
+            assertThat(printedTable(response.rows()), is("1| 1\n"));
+            execute("select p, count(*) from doc.tbl where p = ? group by p", new Object[]{2});
+            assertThat(printedTable(response.rows()), is("2| 1\n"));
+        }
+    }
 }
@@ -0,0 +1,206 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.lucene;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
+
+import java.util.List;
+
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.elasticsearch.Version;
+import org.junit.Test;
+
+import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
+import io.crate.testing.QueryTester;
+
+public class MonotonicFunctionQueryTest extends CrateDummyClusterServiceUnitTest {
+
+    private static final long DAY_BEFORE_LAST_HOUR = 1767222000000L;   // 2025-12-31T23:00:00.000Z
+    private static final long DAY_START = 1767225600000L;              // 2026-01-01T00:00:00.000Z
+    private static final long DAY_NOON = 1767268800000L;               // 2026-01-01T12:00:00.000Z
+    private static final long DAY_END = 1767311999999L;                // 2026-01-01T23:59:59.999Z
+    private static final long NEXT_DAY_START = 1767312000000L;         // 2026-01-02T00:00:00.000Z
+    private static final long BC = -220000000000000L;                  // around 5000 BC
+    private static final long FAR_FUTURE = 220000000000000L;           // around the year 8900
+
+    private QueryTester.Builder builder(String createTable) throws Exception {
+        return new QueryTester.Builder(
+            createTempDir(),
+            THREAD_POOL,
+            clusterService,
+            Version.CURRENT,
+            createTable
+        );
+    }
+
+    private QueryTester timestampTester() throws Exception {
+        QueryTester.Builder builder = builder("create table t (ts timestamp with time zone)");
+        builder.indexValues("ts", DAY_BEFORE_LAST_HOUR, DAY_START, DAY_NOON, DAY_END, NEXT_DAY_START, null);
+        return builder.build();
+    }
+
+    @Test
+    public void test_date_trunc_eq_is_rewritten_to_range_query_on_column() throws Exception {
+        try (QueryTester tester = timestampTester()) {
+            String expression = "date_trunc('day', ts) = '2026-01-01T00:00:00Z'";
+            assertThat(tester.toQuery(expression), instanceOf(IndexOrDocValuesQuery.class));
+            assertThat(tester.runQuery("ts", expression), contains(DAY_START, DAY_NOON, DAY_END));
+        }
+    }
+
+    @Test
+    public void test_date_trunc_range_comparisons_include_and_exclude_whole_buckets() throws Exception {
+        try (QueryTester tester = timestampTester()) {
+            assertThat(tester.runQuery("ts", "date_trunc('day', ts) < '2026-01-01T00:00:00Z'"),
+                contains(DAY_BEFORE_LAST_HOUR));
+            assertThat(tester.runQuery("ts", "date_trunc('day', ts) <= '2026-01-01T00:00:00Z'"),
+                contains(DAY_BEFORE_LAST_HOUR, DAY_START, DAY_NOON, DAY_END));
+            assertThat(tester.runQuery("ts", "date_trunc('day', ts) > '2026-01-01T00:00:00Z'"),
+                contains(NEXT_DAY_START));
+            assertThat(tester.runQuery("ts", "'2026-01-01T06:00:00Z' <= date_trunc('day', ts)"),
+                contains(NEXT_DAY_START));
+        }
+    }
+
+    @Test
+    public void test_extract_year_eq_is_rewritten_to_range_query_on_column() throws Exception {
+        try (QueryTester tester = timestampTester()) {
+            String expression = "extract(year from ts) = 2026";
+            assertThat(tester.toQuery(expression), instanceOf(IndexOrDocValuesQuery.class));
+            assertThat(tester.runQuery("ts", expression), contains(DAY_START, DAY_NOON, DAY_END, NEXT_DAY_START));
+        }
+    }
+
+    @Test
+    public void test_timestamp_plus_interval_is_rewritten_to_range_query_on_column() throws Exception {
+        try (QueryTester tester = timestampTester()) {
+            String expression = "ts + interval '1 hour' > '2026-01-02T00:00:00Z'";
+            assertThat(tester.toQuery(expression), instanceOf(IndexOrDocValuesQuery.class));
+            assertThat(tester.runQuery("ts", expression), contains(DAY_END, NEXT_DAY_START));
+        }
+    }
+
+    @Test
+    public void test_cast_and_arithmetic_on_integer_column_are_rewritten_to_range_query() throws Exception {
+        QueryTester.Builder builder = builder("create table t (x int)");
+        for (int i = 1; i <= 10; i++) {
+            builder.indexValues("x", i);
+        }
+        try (QueryTester tester = builder.build()) {
+            assertThat(tester.toQuery("cast(x as bigint) < 5"), instanceOf(IndexOrDocValuesQuery.class));
+            assertThat(tester.runQuery("x", "cast(x as bigint) < 5"), contains(1, 2, 3, 4));
+            assertThat(tester.toQuery("x - 2 >= 7"), instanceOf(IndexOrDocValuesQuery.class));
+            assertThat(tester.runQuery("x", "x - 2 >= 7"), contains(9, 10));
+        }
+    }
+
+    @Test
+    public void test_comparison_without_matching_column_value_matches_no_docs() throws Exception {
+        QueryTester.Builder builder = builder("create table t (x int)");
+        builder.indexValues("x", 1, 2, 3);
+        try (QueryTester tester = builder.build()) {
+            assertThat(tester.toQuery("cast(x as double) = 2.5"), instanceOf(MatchNoDocsQuery.class));
+            assertThat(tester.runQuery("x", "cast(x as double) = 2.5"), empty());
+        }
+    }
+
+    @Test
+    public void test_non_monotonic_function_uses_generic_function_query() throws Exception {
+        try (QueryTester tester = timestampTester()) {
+            String expression = "extract(month from ts) = 1";
+            assertThat(tester.toQuery(expression), instanceOf(GenericFunctionQuery.class));
+            assertThat(tester.runQuery("ts", expression), contains(DAY_START, DAY_NOON, DAY_END, NEXT_DAY_START));
+        }
+    }
+
+    @Test
+    public void test_narrowing_cast_uses_generic_function_query() throws Exception {
+        QueryTester.Builder builder = builder("create table t (x bigint)");
+        builder.indexValues("x", -1L, 1L, 2L, 3L);
+        try (QueryTester tester = builder.build()) {
+            assertThat(tester.toQuery("cast(x as smallint) = 2"), instanceOf(GenericFunctionQuery.class));
+            assertThat(tester.runQuery("x", "cast(x as smallint) = 2"), contains(2L));
+        }
+    }
+
+    @Test
+    public void test_extract_century_uses_generic_function_query_as_it_is_not_monotonic() throws Exception {
+        // the century of era increases again for years BC
+        QueryTester.Builder builder = builder("create table t (ts timestamp with time zone)");
+        builder.indexValues("ts", BC, DAY_START);
+        try (QueryTester tester = builder.build()) {
+            String expression = "extract(century from ts) > 19";
+            assertThat(tester.toQuery(expression), instanceOf(GenericFunctionQuery.class));
+            assertThat(tester.runQuery("ts", expression), contains(BC, DAY_START));
+        }
+    }
+
+    private QueryTester farFromEpochTester() throws Exception {
+        QueryTester.Builder builder = builder("create table t (ts timestamp with time zone)");
+        builder.indexValues("ts", BC, DAY_START, FAR_FUTURE);
+        return builder.build();
+    }
+
+    private void assertRewrittenAndMatches(QueryTester tester, String expression, Object... expected) throws Exception {
+        assertThat(expression, tester.toQuery(expression), instanceOf(IndexOrDocValuesQuery.class));
+        assertThat(expression, tester.runQuery("ts", expression), contains(expected));
+    }
+
+    @Test
+    public void test_date_trunc_and_extract_are_monotonic_far_from_the_epoch() throws Exception {
+        try (QueryTester tester = farFromEpochTester()) {
+            // 0001-01-01T00:00:00Z
+            assertRewrittenAndMatches(tester, "date_trunc('year', ts) < -62135596800000", BC);
+            assertRewrittenAndMatches(tester, "date_trunc('day', ts) > 100000000000000", FAR_FUTURE);
+            assertRewrittenAndMatches(tester, "extract(year from ts) < 0", BC);
+            assertRewrittenAndMatches(tester, "extract(year from ts) > 5000", FAR_FUTURE);
+            assertRewrittenAndMatches(tester, "extract(epoch from ts) < -100000000000", BC);
+            assertRewrittenAndMatches(tester, "extract(epoch from ts) > 100000000000", FAR_FUTURE);
+        }
+    }
+
+    @Test
+    public void test_timestamp_arithmetic_and_casts_are_monotonic_far_from_the_epoch() throws Exception {
+        try (QueryTester tester = farFromEpochTester()) {
+            assertRewrittenAndMatches(tester, "ts + interval '1 hour' < -100000000000000", BC);
+            assertRewrittenAndMatches(tester, "ts - interval '1 hour' > 100000000000000", FAR_FUTURE);
+            assertRewrittenAndMatches(tester, "cast(ts as bigint) < -100000000000000", BC);
+            assertRewrittenAndMatches(tester, "cast(ts as double) > 100000000000000.0", FAR_FUTURE);
+        }
+    }
+
+    @Test
+    public void test_integer_arithmetic_and_casts_are_monotonic_far_from_zero() throws Exception {
+        QueryTester.Builder builder = builder("create table t (x bigint)");
+        builder.indexValues("x", -BC * 1000, -1L, 1L, BC * 1000);
+        try (QueryTester tester = builder.build()) {
+            for (String expression : List.of("x + 5 < -1000", "5 + x < -1000", "x - 5 < -1000", "cast(x as double) < -1000.0")) {
+                assertThat(expression, tester.toQuery(expression), instanceOf(IndexOrDocValuesQuery.class));
+                assertThat(expression, tester.runQuery("x", expression), contains(BC * 1000));
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.lucene;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ScoreMode;
+import org.elasticsearch.Version;
+import org.junit.Test;
+
+import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
+import io.crate.testing.QueryTester;
+
+public class VectorizedFunctionQueryTest extends CrateDummyClusterServiceUnitTest {
+
+    private QueryTester.Builder builder(String createTable) throws Exception {
+        return new QueryTester.Builder(
+            createTempDir(),
+            THREAD_POOL,
+            clusterService,
+            Version.CURRENT,
+            createTable
+        );
+    }
+
+    @Test
+    public void test_arithmetic_on_numeric_column_is_evaluated_on_blocks_of_doc_values() throws Exception {
+        QueryTester.Builder builder = builder("create table t (x bigint)");
+        int numDocs = 3000;
+        for (long i = 1; i <= numDocs; i++) {
+            builder.indexValues("x", i);
+        }
+        builder.indexValues("x", (Object) null);
+        try (QueryTester tester = builder.build()) {
+            var query = tester.toQuery("x * x > 6250000");
+            assertThat(query, instanceOf(VectorizedFunctionQuery.class));
+
+            List<Object> result = tester.runQuery("x", "x * x > 6250000");
+            assertThat(result.size(), is(500));
+            assertThat(result.get(0), is(2501L));
+            assertThat(result.get(499), is(3000L));
+        }
+    }
+
+    @Test
+    public void test_nulls_do_not_match_and_floating_point_columns_are_supported() throws Exception {
+        QueryTester.Builder builder = builder("create table t (x double)");
+        builder.indexValues("x", 1.5, null, 3.0, -2.0);
+        try (QueryTester tester = builder.build()) {
+            assertThat(tester.toQuery("x * x < 4.0"), instanceOf(VectorizedFunctionQuery.class));
+            assertThat(tester.runQuery("x", "x * x < 4.0"), contains(1.5));
+        }
+    }
+
+    @Test
+    public void test_vectorized_query_within_conjunction_only_returns_docs_matching_both() throws Exception {
+        QueryTester.Builder builder = builder("create table t (x bigint)");
+        for (long i = 1; i <= 2000; i++) {
+            builder.indexValues("x", i);
+        }
+        try (QueryTester tester = builder.build()) {
+            var query = tester.toQuery("(x = 10 or x = 1500 or x = 1999) and x * x > 100");
+            assertThat(query, instanceOf(BooleanQuery.class));
+            assertThat(tester.runQuery("x", "(x = 10 or x = 1500 or x = 1999) and x * x > 100"), contains(1500L, 1999L));
+        }
+    }
+
+    @Test
+    public void test_vectorized_query_can_be_cached() throws Exception {
+        QueryTester.Builder builder = builder("create table t (x bigint)");
+        builder.indexValues("x", 1L, 2L, 3L);
+        try (QueryTester tester = builder.build()) {
+            var query = tester.toQuery("x * x = 4");
+            assertThat(query, instanceOf(VectorizedFunctionQuery.class));
+            var searcher = tester.searcher();
+            var weight = query.createWeight(searcher, ScoreMode.COMPLETE_NO_SCORES, 1.0f);
+            assertThat(weight.isCacheable(searcher.getTopReaderContext().leaves().get(0)), is(true));
+            assertThat(tester.runQuery("x", "x * x = 4"), contains(2L));
+        }
+    }
+
+    @Test
+    public void test_unsupported_functions_use_generic_function_query() throws Exception {
+        QueryTester.Builder builder = builder("create table t (x bigint)");
+        builder.indexValues("x", 1L, -1L, 2L);
+        try (QueryTester tester = builder.build()) {
+            assertThat(tester.toQuery("abs(x) + 1 = 2"), instanceOf(GenericFunctionQuery.class));
+            assertThat(tester.runQuery("x", "abs(x) + 1 = 2"), contains(1L, -1L));
+        }
+    }
+
+    @Test
+    public void test_failure_of_a_doc_which_is_not_checked_does_not_fail_the_query() throws Exception {
+        QueryTester.Builder builder = builder("create table t (x bigint)");
+        for (long i = 100; i >= 0; i--) {
+            builder.indexValues("x", i);
+        }
+        try (QueryTester tester = builder.build()) {
+            assertThat(tester.toQuery("100 / x > 2"), instanceOf(VectorizedFunctionQuery.class));
+
+            // the block starting at the first doc matching x > 20 also contains the doc with x = 0
+            List<Object> expected = new ArrayList<>();
+            for (long i = 33; i > 20; i--) {
+                expected.add(i);
+            }
+            assertThat(tester.runQuery("x", "x > 20 and 100 / x > 2"), is(expected));
+        }
+    }
+}
@@ -132,4 +132,27 @@ public class FetchRewriteTest extends CrateDummyClusterServiceUnitTest {
             Matchers.sameInstance(newRename.outputs().get(0))
         );
     }
+
+    @Test
+    public void test_fetch_rewrite_on_filter_keeps_columns_used_in_query() throws Exception {
+        SQLExecutor e = SQLExecutor.builder(clusterService)
+            .addTable("create table tbl (x int, y int)")
+            .build();
+        DocTableInfo tableInfo = e.resolveTableInfo("tbl");
+        var x = e.asSymbol("x");
+        var y = e.asSymbol("y");
+        var relation = new DocTableRelation(tableInfo);
+        var collect = new Collect(
+            false, relation, List.of(x, y), WhereClause.MATCH_ALL, 1L, DataTypes.INTEGER.fixedSize() * 2);
+        var filter = new Filter(collect, e.asSymbol("x > 10"));
+
+        FetchRewrite fetchRewrite = filter.rewriteToFetch(new TableStats(), List.of());
+        assertThat(fetchRewrite, Matchers.notNullValue());
+        assertThat(fetchRewrite.newPlan(), isPlan(
+            "Filter[(x > 10)]\n" +
+            "  └ Collect[doc.tbl | [_fetchid, x] | true]"));
+        assertThat(List.copyOf(fetchRewrite.replacedOutputs().keySet()), is(filter.outputs()));
+        assertThat(fetchRewrite.replacedOutputs(), Matchers.hasEntry(isReference("x"), isReference("x")));
+        assertThat(fetchRewrite.replacedOutputs(), Matchers.hasEntry(isReference("y"), isFetchStub("_doc['y']")));
+    }
 }
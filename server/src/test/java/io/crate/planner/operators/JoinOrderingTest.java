@@ -30,8 +30,10 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.hamcrest.Matchers.contains;
@@ -79,4 +81,64 @@ public class JoinOrderingTest {
         );
         assertThat(qualifiedNames, contains(T3.T1, T3.T2, T3.T3));
     }
+
+    @Test
+    public void test_order_by_cost_joins_smallest_intermediate_results_first() {
+        // t1 ⋈ t2 ⋈ t3 with t1 being large and t2 ⋈ t3 being very selective
+        List<RelationName> order = JoinOrdering.orderByCost(
+            List.of(T3.T1, T3.T2, T3.T3),
+            new long[] { 1_000_000, 100, 1_000 },
+            Map.of(
+                Set.of(T3.T1, T3.T2), 0.01,
+                Set.of(T3.T2, T3.T3), 0.001
+            )
+        );
+        assertThat(order, contains(T3.T2, T3.T3, T3.T1));
+    }
+
+    @Test
+    public void test_order_by_cost_avoids_cross_joins() {
+        // t1 and t3 are the smallest relations, but don't have a join condition
+        List<RelationName> order = JoinOrdering.orderByCost(
+            List.of(T3.T1, T3.T2, T3.T3),
+            new long[] { 100, 10_000, 100 },
+            Map.of(
+                Set.of(T3.T1, T3.T2), 0.0001,
+                Set.of(T3.T2, T3.T3), 0.0001
+            )
+        );
+        assertThat(order, contains(T3.T1, T3.T2, T3.T3));
+    }
+
+    @Test
+    public void test_order_by_cost_keeps_order_on_equal_costs() {
+        List<RelationName> order = JoinOrdering.orderByCost(
+            List.of(T3.T1, T3.T2, T3.T3),
+            new long[] { 10, 10, 10 },
+            Map.of()
+        );
+        assertThat(order, contains(T3.T1, T3.T2, T3.T3));
+    }
+
+    @Test
+    public void test_order_by_cost_uses_greedy_search_for_many_relations() {
+        int numRelations = JoinOrdering.MAX_RELATIONS_FOR_EXHAUSTIVE_SEARCH + 2;
+        List<RelationName> relations = new ArrayList<>(numRelations);
+        long[] numRows = new long[numRelations];
+        Map<Set<RelationName>, Double> selectivities = new HashMap<>();
+        for (int i = 0; i < numRelations; i++) {
+            relations.add(new RelationName("doc", "r" + i));
+            numRows[i] = 1_000;
+            if (i > 0) {
+                selectivities.put(Set.of(relations.get(i - 1), relations.get(i)), 0.001);
+            }
+        }
+        numRows[5] = 10;
+        numRows[6] = 10;
+
+        List<RelationName> order = JoinOrdering.orderByCost(relations, numRows, selectivities);
+        assertThat(order.size(), is(numRelations));
+        assertThat(Set.copyOf(order), is(Set.copyOf(relations)));
+        assertThat(order.subList(0, 2), contains(relations.get(5), relations.get(6)));
+    }
 }
@@ -107,7 +107,8 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
             mss.where(),
             mss.joinPairs(),
             rel -> logicalPlanner.plan(rel, plannerCtx, subqueryPlanner, Set.of()),
-            txnCtx.sessionContext().isHashJoinEnabled()
+            txnCtx.sessionContext().isHashJoinEnabled(),
+            tableStats
         );
     }
 
@@ -197,7 +198,8 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
             mss.where(),
             mss.joinPairs(),
             rel -> logicalPlanner.plan(rel, plannerCtx, subqueryPlanner, Set.of()),
-            false
+            false,
+            tableStats
         );
         Join nl = (Join) operator.build(
             context, projectionBuilder, -1, 0, null, null, Row.EMPTY, SubQueryResults.EMPTY);
@@ -501,4 +503,31 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
             "    └ Collect[doc.t1 | [a] | true]";
         assertThat(logicalPlan, is(isPlan(expectedPlan)));
     }
+
+    @Test
+    public void test_relations_are_ordered_by_estimated_cost_if_statistics_are_available() {
+        QueriedSelectRelation mss = e.analyze("select t1.a from t1, t2, t3 where t1.x = t2.y and t2.y = t3.z");
+
+        TableStats tableStats = new TableStats();
+        Map<RelationName, Stats> rowCountByTable = new HashMap<>();
+        rowCountByTable.put(T3.T1, new Stats(1_000_000, 0, Map.of()));
+        rowCountByTable.put(T3.T2, new Stats(100, 0, Map.of()));
+        rowCountByTable.put(T3.T3, new Stats(1_000, 0, Map.of()));
+        tableStats.updateTableStats(rowCountByTable);
+
+        // Joining the small tables t2 and t3 first results in the smallest intermediate result
+        LogicalPlan operator = createLogicalPlan(mss, tableStats);
+        assertThat(operator, instanceOf(HashJoin.class));
+        HashJoin topJoin = (HashJoin) operator;
+        assertThat(((Collect) topJoin.rhs()).relation().relationName(), is(T3.T1));
+        assertThat(topJoin.lhs(), instanceOf(HashJoin.class));
+        HashJoin bottomJoin = (HashJoin) topJoin.lhs();
+        assertThat(((Collect) bottomJoin.lhs()).relation().relationName(), is(T3.T2));
+        assertThat(((Collect) bottomJoin.rhs()).relation().relationName(), is(T3.T3));
+
+        // Without statistics the order is based on the join conditions
+        operator = createLogicalPlan(mss, new TableStats());
+        topJoin = (HashJoin) operator;
+        assertThat(((Collect) topJoin.rhs()).relation().relationName(), is(T3.T3));
+    }
 }
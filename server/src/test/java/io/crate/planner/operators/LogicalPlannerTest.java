@@ -254,11 +254,12 @@ public class LogicalPlannerTest extends CrateDummyClusterServiceUnitTest {
                                 "order by t1.x " +
                                 "limit 10");
         assertThat(plan, isPlan(
-            "Limit[10::bigint;0]\n" +
-            "  └ OrderBy[x ASC]\n" +
-            "    └ HashJoin[(x = y)]\n" +
-            "      ├ Collect[doc.t1 | [x, a] | true]\n" +
-            "      └ Collect[doc.t2 | [y] | true]"));
+            "Fetch[x, a, y]\n" +
+            "  └ Limit[10::bigint;0]\n" +
+            "    └ OrderBy[x ASC]\n" +
+            "      └ HashJoin[(x = y)]\n" +
+            "        ├ Collect[doc.t1 | [_fetchid, x] | true]\n" +
+            "        └ Collect[doc.t2 | [y] | true]"));
     }
 
     @Test
@@ -318,16 +319,17 @@ public class LogicalPlannerTest extends CrateDummyClusterServiceUnitTest {
                                 "on t1.i = t2.i where t1.a > '50' and t2.b > '100' " +
                                 "limit 10");
         assertThat(plan, isPlan(
-            "Limit[10::bigint;0]\n" +
-            "  └ HashJoin[(i = i)]\n" +
-            "    ├ Rename[a, i] AS t1\n" +
-            "    │  └ Filter[(a > '50')]\n" +
-            "    │    └ Fetch[a, i]\n" +
-            "    │      └ Limit[5::bigint;0]\n" +
-            "    │        └ OrderBy[a ASC]\n" +
-            "    │          └ Collect[doc.t1 | [_fetchid, a] | true]\n" +
-            "    └ Rename[b, i] AS t2\n" +
-            "      └ Collect[doc.t2 | [b, i] | ((b > '100') AND (b > '10'))]"));
+            "Fetch[a, i, b, i]\n" +
+            "  └ Limit[10::bigint;0]\n" +
+            "    └ HashJoin[(i = i)]\n" +
+            "      ├ Rename[a, i] AS t1\n" +
+            "      │  └ Filter[(a > '50')]\n" +
+            "      │    └ Fetch[a, i]\n" +
+            "      │      └ Limit[5::bigint;0]\n" +
+            "      │        └ OrderBy[a ASC]\n" +
+            "      │          └ Collect[doc.t1 | [_fetchid, a] | true]\n" +
+            "      └ Rename[t2._fetchid, i] AS t2\n" +
+            "        └ Collect[doc.t2 | [_fetchid, i] | ((b > '100') AND (b > '10'))]"));
     }
 
     @Test
@@ -407,6 +409,21 @@ public class LogicalPlannerTest extends CrateDummyClusterServiceUnitTest {
         );
     }
 
+    @Test
+    public void test_limit_on_join_is_rewritten_to_query_then_fetch_if_only_one_side_has_columns_to_fetch() {
+        LogicalPlan plan = plan("select t1.*, t2.b from t1 inner join t2 on t1.a = t2.b limit 3");
+        assertThat(
+            plan,
+            isPlan(
+                "Fetch[a, x, i, b]\n" +
+                "  └ Limit[3::bigint;0]\n" +
+                "    └ HashJoin[(a = b)]\n" +
+                "      ├ Collect[doc.t1 | [_fetchid, a] | true]\n" +
+                "      └ Collect[doc.t2 | [b] | true]"
+            )
+        );
+    }
+
     public static Matcher<LogicalPlan> isPlan(String expectedPlan) {
         return new FeatureMatcher<>(equalTo(expectedPlan), "same output", "output ") {
 
@@ -25,6 +25,7 @@ package io.crate.planner.statement;
 import com.carrotsearch.randomizedtesting.RandomizedTest;
 import io.crate.analyze.TableDefinitions;
 import io.crate.data.Row;
+import io.crate.exceptions.UnsupportedFeatureException;
 import io.crate.execution.dsl.phases.RoutedCollectPhase;
 import io.crate.execution.dsl.projection.WriterProjection;
 import io.crate.execution.dsl.projection.builder.ProjectionBuilder;
@@ -38,11 +39,17 @@ import io.crate.planner.operators.SubQueryResults;
 import io.crate.statistics.TableStats;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SQLExecutor;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodeRole;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.singletonList;
@@ -133,4 +140,30 @@ public class CopyToPlannerTest extends CrateDummyClusterServiceUnitTest {
         expectedException.expectMessage("Given partition ident does not match partition evaluated from where clause");
         plan("copy parted partition (date=1395874800000) where date = 1395961200000 to directory '/tmp/foo'");
     }
+
+    @Test
+    public void test_columnar_output_format_is_rejected_if_a_node_is_older_than_4_5() {
+        ClusterState state = clusterService.state();
+        ClusterState mixedVersionState = ClusterState.builder(state)
+            .nodes(DiscoveryNodes.builder(state.nodes())
+                .add(new DiscoveryNode(
+                    "n2",
+                    "n2",
+                    buildNewFakeTransportAddress(),
+                    Map.of(),
+                    DiscoveryNodeRole.BUILT_IN_ROLES,
+                    Version.V_4_4_0)))
+            .build();
+        CopyToPlan plan = e.plan("copy users (name) to directory '/tmp' with (format = 'columnar')");
+
+        expectedException.expect(UnsupportedFeatureException.class);
+        expectedException.expectMessage("The columnar output format requires all nodes to be on version 4.5.0 or later");
+        CopyToPlan.planCopyToExecution(
+            plan.copyTo(),
+            e.getPlannerContext(mixedVersionState),
+            new TableStats(),
+            new ProjectionBuilder(e.nodeCtx),
+            Row.EMPTY,
+            SubQueryResults.EMPTY);
+    }
 }
@@ -34,14 +34,29 @@ import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.RelationName;
 import org.elasticsearch.test.ESTestCase;
 import io.crate.types.DataTypes;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class RestActionReceiversTest extends ESTestCase {
 
@@ -124,4 +139,73 @@ public class RestActionReceiversTest extends ESTestCase {
         String s = Strings.toString(builder.build());
         assertEquals(s, "{\"results\":[{\"rowcount\":1},{\"rowcount\":2},{\"rowcount\":3}]}");
     }
+
+    @Test
+    public void test_streaming_result_set_receiver_writes_a_chunk_per_page() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        AtomicInteger fetchedPages = new AtomicInteger();
+        StreamingResultSetReceiver receiver = new StreamingResultSetReceiver(
+            channel,
+            response,
+            false,
+            XContentType.JSON,
+            fields,
+            0L,
+            new RowAccountingWithEstimators(Symbols.typeView(fields), RamAccounting.NO_ACCOUNTING),
+            true,
+            r -> fetchedPages.incrementAndGet()
+        );
+        receiver.setNextRow(rows.get(0));
+        receiver.setNextRow(rows.get(1));
+        receiver.batchFinished();
+        assertThat(fetchedPages.get(), is(1));
+        receiver.setNextRow(rows.get(2));
+        receiver.allFinished(false);
+        assertThat(receiver.completionFuture().isDone(), is(true));
+
+        assertThat(channel.readOutbound(), sameInstance(response));
+        HttpContent firstChunk = channel.readOutbound();
+        assertThat(firstChunk, not(instanceOf(LastHttpContent.class)));
+        HttpContent lastChunk = channel.readOutbound();
+        assertThat(lastChunk, instanceOf(LastHttpContent.class));
+        String body = firstChunk.content().toString(StandardCharsets.UTF_8)
+                      + lastChunk.content().toString(StandardCharsets.UTF_8);
+        firstChunk.release();
+        lastChunk.release();
+
+        ResultToXContentBuilder builder = ResultToXContentBuilder.builder(JsonXContent.contentBuilder());
+        builder.cols(fields);
+        builder.colTypes(fields);
+        builder.startRows();
+        for (Row row : rows) {
+            builder.addRow(row, 3);
+        }
+        builder.finishRows();
+        builder.rowCount(rows.size());
+        assertEquals(stripDuration(Strings.toString(builder.build())), stripDuration(body));
+    }
+
+    @Test
+    public void test_streaming_result_set_receiver_closes_connection_on_failure_after_first_chunk() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        StreamingResultSetReceiver receiver = new StreamingResultSetReceiver(
+            channel,
+            new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK),
+            false,
+            XContentType.JSON,
+            fields,
+            0L,
+            new RowAccountingWithEstimators(Symbols.typeView(fields), RamAccounting.NO_ACCOUNTING),
+            false,
+            r -> { }
+        );
+        receiver.setNextRow(rows.get(0));
+        receiver.batchFinished();
+        receiver.fail(new IllegalStateException("dummy"));
+
+        assertThat(receiver.completionFuture().isCompletedExceptionally(), is(false));
+        assertThat(channel.isOpen(), is(false));
+        channel.finishAndReleaseAll();
+    }
 }
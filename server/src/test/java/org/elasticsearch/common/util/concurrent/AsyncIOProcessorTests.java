@@ -0,0 +1,106 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util.concurrent;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import io.crate.common.collections.Tuple;
+import io.crate.common.unit.TimeValue;
+
+public class AsyncIOProcessorTests extends ESTestCase {
+
+    private static class RecordingProcessor extends AsyncIOProcessor<Integer> {
+
+        private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        private final CountDownLatch writeStarted = new CountDownLatch(1);
+        private final CountDownLatch continueFirstWrite;
+
+        RecordingProcessor(TimeValue maxCoalesceDelay, CountDownLatch continueFirstWrite) {
+            super(LogManager.getLogger(AsyncIOProcessorTests.class), 1024, maxCoalesceDelay);
+            this.continueFirstWrite = continueFirstWrite;
+        }
+
+        @Override
+        protected void write(List<Tuple<Integer, Consumer<Exception>>> candidates) throws IOException {
+            writeStarted.countDown();
+            try {
+                continueFirstWrite.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            batchSizes.add(candidates.size());
+        }
+    }
+
+    @Test
+    public void test_single_caller_does_not_wait_for_concurrent_items() {
+        AtomicInteger notified = new AtomicInteger();
+        var processor = new RecordingProcessor(TimeValue.timeValueMinutes(10), new CountDownLatch(0));
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            processor.put(i, e -> notified.incrementAndGet());
+        }
+        assertThat(System.nanoTime() - start, lessThan(TimeUnit.MINUTES.toNanos(1)));
+        assertThat(processor.batchSizes, contains(1, 1, 1, 1, 1));
+        assertThat(notified.get(), is(5));
+    }
+
+    @Test
+    public void test_waits_for_concurrent_items_after_coalesced_write() throws Exception {
+        AtomicInteger notified = new AtomicInteger();
+        CountDownLatch continueFirstWrite = new CountDownLatch(1);
+        TimeValue delay = TimeValue.timeValueMillis(100);
+        var processor = new RecordingProcessor(delay, continueFirstWrite);
+
+        Thread writer = new Thread(() -> processor.put(1, e -> notified.incrementAndGet()));
+        writer.start();
+        processor.writeStarted.await();
+
+        // The writer holds the promise, so these are only queued and processed by the writer as a single batch
+        processor.put(2, e -> notified.incrementAndGet());
+        processor.put(3, e -> notified.incrementAndGet());
+        processor.put(4, e -> notified.incrementAndGet());
+        continueFirstWrite.countDown();
+        writer.join();
+        assertThat(processor.batchSizes, contains(1, 3));
+
+        // The previous write processed concurrent items, so the next one waits for further items until the delay passed
+        long start = System.nanoTime();
+        processor.put(5, e -> notified.incrementAndGet());
+        assertThat(System.nanoTime() - start, greaterThanOrEqualTo(delay.nanos()));
+        assertThat(processor.batchSizes, contains(1, 3, 1));
+        assertThat(notified.get(), is(5));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.xcontent.support;
+
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+public class MapXContentParserTest extends ESTestCase {
+
+    private static Map<String, Object> sampleMap() {
+        Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("i", 10);
+        nested.put("names", List.of("a", "b"));
+        nested.put("empty", Map.of());
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", 1L);
+        map.put("name", "Arthur");
+        map.put("alive", true);
+        map.put("missing", null);
+        map.put("score", 12.5d);
+        map.put("ratio", 0.25f);
+        map.put("small", (short) 3);
+        map.put("tiny", (byte) 1);
+        map.put("large", Long.MAX_VALUE);
+        map.put("obj", nested);
+        map.put("objects", List.of(Map.of("x", 1), Map.of("x", 2)));
+        map.put("matrix", List.of(List.of(1.0d, 2.0d), List.of()));
+        map.put("values", Arrays.asList(1, null, 3));
+        return map;
+    }
+
+    private static XContentParser jsonParser(Map<String, Object> map) throws Exception {
+        BytesReference json = BytesReference.bytes(XContentFactory.jsonBuilder().map(map));
+        return JsonXContent.JSON_XCONTENT.createParser(
+            NamedXContentRegistry.EMPTY,
+            DeprecationHandler.THROW_UNSUPPORTED_OPERATION,
+            BytesReference.toBytes(json));
+    }
+
+    private static XContentParser mapParser(Map<String, Object> map) {
+        return new MapXContentParser(
+            NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, map);
+    }
+
+    private static boolean isIntegral(XContentParser.NumberType numberType) {
+        return numberType == XContentParser.NumberType.INT || numberType == XContentParser.NumberType.LONG;
+    }
+
+    @Test
+    public void test_tokens_match_tokens_of_json_parser() throws Exception {
+        Map<String, Object> map = sampleMap();
+        assertThat(MapXContentParser.canParse(map), is(true));
+        try (XContentParser expected = jsonParser(map); XContentParser actual = mapParser(map)) {
+            XContentParser.Token token;
+            while ((token = expected.nextToken()) != null) {
+                assertThat(actual.nextToken(), is(token));
+                assertThat(actual.currentName(), is(expected.currentName()));
+                if (token.isValue()) {
+                    assertThat(actual.textOrNull(), is(expected.textOrNull()));
+                }
+                if (token == XContentParser.Token.VALUE_NUMBER) {
+                    assertThat(isIntegral(actual.numberType()), is(isIntegral(expected.numberType())));
+                    assertThat(actual.longValue(), is(expected.longValue()));
+                    assertThat(actual.doubleValue(), is(expected.doubleValue()));
+                }
+                if (token == XContentParser.Token.VALUE_BOOLEAN) {
+                    assertThat(actual.booleanValue(), is(expected.booleanValue()));
+                }
+            }
+            assertThat(actual.nextToken(), is((XContentParser.Token) null));
+        }
+    }
+
+    @Test
+    public void test_skip_children_moves_to_end_of_object_or_array() throws Exception {
+        Map<String, Object> map = sampleMap();
+        List<String> fieldNames = new ArrayList<>();
+        try (XContentParser parser = mapParser(map)) {
+            assertThat(parser.nextToken(), is(XContentParser.Token.START_OBJECT));
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                if (token == XContentParser.Token.FIELD_NAME) {
+                    fieldNames.add(parser.currentName());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            assertThat(parser.nextToken(), is((XContentParser.Token) null));
+        }
+        assertThat(fieldNames, is(new ArrayList<>(map.keySet())));
+    }
+
+    @Test
+    public void test_map_returns_equal_map() throws Exception {
+        Map<String, Object> map = sampleMap();
+        try (XContentParser expected = jsonParser(map); XContentParser actual = mapParser(map)) {
+            assertThat(actual.mapOrdered().toString(), is(expected.mapOrdered().toString()));
+        }
+    }
+
+    @Test
+    public void test_can_parse_rejects_values_with_different_json_representation() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("x", Double.NaN);
+        assertThat(MapXContentParser.canParse(map), is(false));
+
+        map.put("x", new double[] { 1.0, 2.0 });
+        assertThat(MapXContentParser.canParse(map), is(false));
+
+        map.put("x", List.of(Map.of("y", new Object())));
+        assertThat(MapXContentParser.canParse(map), is(false));
+
+        map.put("x", List.of(Map.of("y", "z")));
+        assertThat(MapXContentParser.canParse(map), is(true));
+    }
+}